@@ -0,0 +1,113 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.benchmark;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * A minimal benchmark harness. Each benchmark is run for a number of warm up
+ * iterations so that the JIT has compiled the hot code, and then for a number
+ * of measured iterations whose timings are reported.
+ * <p>
+ * Run benchmarks with <code>ant benchmark -Dbenchmark=&lt;class name&gt;</code>.
+ */
+public class BenchmarkRunner {
+	/** Default amount of warm up iterations. */
+	public static final int WARMUP = 5;
+	/** Default amount of measured iterations. */
+	public static final int ITERATIONS = 10;
+
+	/**
+	 * A benchmarked operation.
+	 */
+	public interface Task {
+		/**
+		 * Run the operation once.
+		 *
+		 * @return a value derived from the result, so that the JIT can not
+		 * 	optimize the work away
+		 * @throws Exception on any error
+		 */
+		long run() throws Exception;
+	}
+
+	/** Sink for the task results. */
+	private static long blackhole;
+
+	private BenchmarkRunner() {
+		// static helper
+	}
+
+	/**
+	 * Run a benchmark with the default iteration counts, and print the
+	 * results.
+	 *
+	 * @param name benchmark name
+	 * @param task benchmarked operation
+	 * @return median time of an iteration in nanoseconds
+	 * @throws Exception on any error in the task
+	 */
+	public static long run(final String name, final Task task) throws Exception {
+		return run(name, WARMUP, ITERATIONS, task);
+	}
+
+	/**
+	 * Run a benchmark, and print the results.
+	 *
+	 * @param name benchmark name
+	 * @param warmup amount of warm up iterations
+	 * @param iterations amount of measured iterations
+	 * @param task benchmarked operation
+	 * @return median time of an iteration in nanoseconds
+	 * @throws Exception on any error in the task
+	 */
+	public static long run(final String name, final int warmup, final int iterations, final Task task) throws Exception {
+		for (int i = 0; i < warmup; i++) {
+			blackhole += task.run();
+		}
+
+		final long[] times = new long[iterations];
+		for (int i = 0; i < iterations; i++) {
+			final long start = System.nanoTime();
+			blackhole += task.run();
+			times[i] = System.nanoTime() - start;
+		}
+		Arrays.sort(times);
+		final long median = times[iterations / 2];
+		System.out.println(String.format(Locale.ENGLISH, "%-50s median %10.3f ms   min %10.3f ms   max %10.3f ms",
+				name, median / 1e6, times[0] / 1e6, times[iterations - 1] / 1e6));
+
+		return median;
+	}
+
+	/**
+	 * Print the ratio of two benchmark results.
+	 *
+	 * @param name comparison name
+	 * @param baseline time of the baseline implementation
+	 * @param candidate time of the compared implementation
+	 */
+	public static void compare(final String name, final long baseline, final long candidate) {
+		System.out.println(String.format(Locale.ENGLISH, "%-50s speedup %6.2fx", name, (double) baseline / Math.max(1, candidate)));
+	}
+
+	/**
+	 * Get the value accumulated from the benchmark results. Printing it at
+	 * the end of a benchmark run keeps the computations observable.
+	 *
+	 * @return accumulated value
+	 */
+	public static long getBlackhole() {
+		return blackhole;
+	}
+}
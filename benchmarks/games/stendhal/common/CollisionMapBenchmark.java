@@ -0,0 +1,162 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.common;
+
+import java.awt.Point;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import games.stendhal.benchmark.BenchmarkRunner;
+
+/**
+ * Compares the collision queries of CollisionMap with the earlier
+ * implementation, which kept a BitSet per column and created the point list
+ * of a line before checking it. The map is a 128x128 zone with a fifth of
+ * the positions colliding, in walls and scattered obstacles.
+ */
+public class CollisionMapBenchmark {
+	private static final int SIZE = 128;
+	private static final int QUERIES = 200000;
+	/** Lines per line of sight run. */
+	private static final int LINES = 50000;
+
+	private final CollisionMap map = new CollisionMap(SIZE, SIZE);
+	private final BitSet[] columns = new BitSet[SIZE];
+	private final int[] queryX = new int[QUERIES];
+	private final int[] queryY = new int[QUERIES];
+	private final int[] lines = new int[LINES * 4];
+
+	private CollisionMapBenchmark() {
+		final Random random = new Random(1);
+		for (int x = 0; x < SIZE; x++) {
+			columns[x] = new BitSet();
+		}
+		for (int i = 0; i < SIZE * SIZE / 5; i++) {
+			final int x = random.nextInt(SIZE);
+			final int y = random.nextInt(SIZE);
+			// half of the collisions in short walls
+			final int length = (i % 2 == 0) ? 1 : 1 + random.nextInt(8);
+			for (int j = 0; j < length && y + j < SIZE; j++) {
+				map.set(x, y + j);
+				columns[x].set(y + j);
+			}
+		}
+		for (int i = 0; i < QUERIES; i++) {
+			queryX[i] = random.nextInt(SIZE - 4);
+			queryY[i] = random.nextInt(SIZE - 4);
+		}
+		for (int i = 0; i < LINES; i++) {
+			// ranged attacks over 5 to 30 tiles
+			final int x = random.nextInt(SIZE);
+			final int y = random.nextInt(SIZE);
+			final double angle = random.nextDouble() * 2 * Math.PI;
+			final double length = 5 + random.nextInt(26);
+			lines[4 * i] = x;
+			lines[4 * i + 1] = y;
+			lines[4 * i + 2] = Math.max(0, Math.min(SIZE - 1, (int) (x + Math.cos(angle) * length)));
+			lines[4 * i + 3] = Math.max(0, Math.min(SIZE - 1, (int) (y + Math.sin(angle) * length)));
+		}
+	}
+
+	/**
+	 * The earlier rectangle query.
+	 */
+	private boolean bitSetCollides(final int x, final int y, final int width, final int height) {
+		for (int i = x; i < x + width; i++) {
+			final int bit = columns[i].nextSetBit(y);
+			if ((bit >= 0) && (bit < y + height)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * The earlier line of sight query.
+	 */
+	private boolean pointListCollidesOnLine(final int x1, final int y1, final int x2, final int y2) {
+		if ((x1 == x2) && (y1 == y2)) {
+			return columns[x1].get(y1);
+		}
+		final List<Point> points = Line.renderLine(x1, y1, x2, y2);
+		for (final Point point : points) {
+			if (columns[(int) point.getX()].get((int) point.getY())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private BenchmarkRunner.Task rectangles(final int size, final boolean bitSet) {
+		return new BenchmarkRunner.Task() {
+			@Override
+			public long run() {
+				long count = 0;
+				for (int i = 0; i < QUERIES; i++) {
+					final boolean collides;
+					if (bitSet) {
+						collides = bitSetCollides(queryX[i], queryY[i], size, size);
+					} else {
+						collides = map.collides(queryX[i], queryY[i], size, size);
+					}
+					if (collides) {
+						count++;
+					}
+				}
+				return count;
+			}
+		};
+	}
+
+	private BenchmarkRunner.Task lines(final boolean pointList) {
+		return new BenchmarkRunner.Task() {
+			@Override
+			public long run() {
+				long count = 0;
+				for (int i = 0; i < LINES; i++) {
+					final boolean collides;
+					if (pointList) {
+						collides = pointListCollidesOnLine(lines[4 * i], lines[4 * i + 1], lines[4 * i + 2], lines[4 * i + 3]);
+					} else {
+						collides = map.collidesOnLine(lines[4 * i], lines[4 * i + 1], lines[4 * i + 2], lines[4 * i + 3]);
+					}
+					if (collides) {
+						count++;
+					}
+				}
+				return count;
+			}
+		};
+	}
+
+	/**
+	 * Run the benchmark.
+	 *
+	 * @param args ignored
+	 * @throws Exception on any error
+	 */
+	public static void main(final String[] args) throws Exception {
+		final CollisionMapBenchmark benchmark = new CollisionMapBenchmark();
+		for (int size = 1; size <= 4; size++) {
+			final String name = QUERIES + " queries of " + size + "x" + size;
+			final long bitSet = BenchmarkRunner.run(name + ", BitSet", benchmark.rectangles(size, true));
+			final long words = BenchmarkRunner.run(name + ", word masks", benchmark.rectangles(size, false));
+			BenchmarkRunner.compare("word masks vs BitSet, " + size + "x" + size, bitSet, words);
+		}
+		final String name = LINES + " lines of sight";
+		final long pointList = BenchmarkRunner.run(name + ", point list", benchmark.lines(true));
+		final long walk = BenchmarkRunner.run(name + ", walk", benchmark.lines(false));
+		BenchmarkRunner.compare("line walk vs point list", pointList, walk);
+		System.out.println("checksum " + BenchmarkRunner.getBlackhole());
+	}
+}
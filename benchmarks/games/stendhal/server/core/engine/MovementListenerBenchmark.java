@@ -0,0 +1,123 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import games.stendhal.benchmark.BenchmarkRunner;
+import games.stendhal.common.Direction;
+import games.stendhal.server.entity.ActiveEntity;
+import games.stendhal.server.entity.mapstuff.area.AreaEntity;
+import games.stendhal.server.entity.mapstuff.area.MessagingArea;
+import games.stendhal.server.maps.MockStendlRPWorld;
+import marauroa.common.game.RPClass;
+
+/**
+ * Compares the movement listener lookup with and without the grid index. The
+ * zone has 500 messaging areas of various sizes, two of them covering the
+ * whole zone, and 200 creatures walking around in it.
+ */
+public class MovementListenerBenchmark {
+	private static final int SIZE = 256;
+	private static final int AREAS = 500;
+	private static final int WALKERS = 200;
+	private static final int TURNS = 500;
+
+	private final StendhalRPZone zone = new StendhalRPZone("movement_benchmark", SIZE, SIZE);
+	private final List<Walker> walkers = new ArrayList<Walker>();
+	private final Random random = new Random(1);
+
+	private MovementListenerBenchmark() {
+		for (int i = 0; i < AREAS; i++) {
+			final boolean coversZone = i < 2;
+			final int width = coversZone ? SIZE : 2 + random.nextInt(12);
+			final int height = coversZone ? SIZE : 2 + random.nextInt(12);
+			final MessagingArea area = new MessagingArea(coversZone, width, height, "Welcome", "Bye", false);
+			if (!coversZone) {
+				area.setPosition(random.nextInt(SIZE - width), random.nextInt(SIZE - height));
+			}
+			zone.add(area);
+		}
+		for (int i = 0; i < WALKERS; i++) {
+			final Walker walker = new Walker();
+			walker.setPosition(1 + random.nextInt(SIZE - 2), 1 + random.nextInt(SIZE - 2));
+			zone.add(walker);
+			walkers.add(walker);
+		}
+	}
+
+	/**
+	 * Let the walkers take a step each turn, turning around at the edges.
+	 *
+	 * @return checksum
+	 */
+	private long walk() {
+		long checksum = 0;
+		for (int turn = 0; turn < TURNS; turn++) {
+			for (final Walker walker : walkers) {
+				if ((turn % 16) == 0) {
+					walker.setDirection(Direction.rand());
+				}
+				final int nx = walker.getX() + walker.getDirection().getdx();
+				final int ny = walker.getY() + walker.getDirection().getdy();
+				if ((nx < 1) || (ny < 1) || (nx >= SIZE - 1) || (ny >= SIZE - 1)) {
+					walker.setDirection(walker.getDirection().oppositeDirection());
+				}
+				walker.applyMovement();
+			}
+		}
+		for (final Walker walker : walkers) {
+			checksum += walker.getX() * SIZE + walker.getY();
+		}
+		return checksum;
+	}
+
+	/**
+	 * Run the benchmark.
+	 *
+	 * @param args ignored
+	 * @throws Exception on any error
+	 */
+	public static void main(final String[] args) throws Exception {
+		MockStendlRPWorld.get();
+		if (!RPClass.hasRPClass("area")) {
+			AreaEntity.generateRPClass();
+		}
+		final MovementListenerBenchmark benchmark = new MovementListenerBenchmark();
+		final BenchmarkRunner.Task task = new BenchmarkRunner.Task() {
+			@Override
+			public long run() {
+				return benchmark.walk();
+			}
+		};
+		final String name = WALKERS + " walkers, " + AREAS + " areas";
+
+		benchmark.zone.setMovementListenerIndexEnabled(false);
+		final long scan = BenchmarkRunner.run(name + ", scan", 2, 5, task);
+		benchmark.zone.setMovementListenerIndexEnabled(true);
+		final long indexed = BenchmarkRunner.run(name + ", index", 2, 5, task);
+		BenchmarkRunner.compare("grid index vs scan", scan, indexed);
+		System.out.println("checksum " + BenchmarkRunner.getBlackhole());
+	}
+
+	/**
+	 * A creature walking through the areas.
+	 */
+	private static class Walker extends ActiveEntity {
+		Walker() {
+			setSpeed(1.0);
+			setDirection(Direction.DOWN);
+		}
+	}
+}
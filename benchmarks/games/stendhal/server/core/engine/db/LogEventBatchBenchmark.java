@@ -0,0 +1,175 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine.db;
+
+import java.io.File;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import games.stendhal.benchmark.BenchmarkRunner;
+import games.stendhal.server.core.engine.dbcommand.LogEventCommand;
+import games.stendhal.server.core.engine.dbcommand.LogKillEventCommand;
+import games.stendhal.server.core.engine.dbcommand.LogSimpleItemEventCommand;
+import games.stendhal.server.entity.player.Player;
+import games.stendhal.server.maps.MockStendlRPWorld;
+import marauroa.common.game.RPObject;
+import marauroa.server.db.DBTransaction;
+import marauroa.server.db.TransactionPool;
+import marauroa.server.game.db.DAORegister;
+import utilities.PlayerTestHelper;
+
+/**
+ * Compares writing item and kill log events one command per transaction, as
+ * the database queue does, with writing them in a LogEventBatch. The load is
+ * mass looting: each kill creates a few items, which are then moved to the
+ * bag of the player. The database is a H2 database in a temporary directory.
+ */
+public class LogEventBatchBenchmark {
+	private static final int KILLS = 200;
+	private static final int LOOT_PER_KILL = 4;
+
+	private final TransactionPool pool;
+	private final Player[] players = new Player[5];
+
+	private LogEventBatchBenchmark(final TransactionPool pool) {
+		this.pool = pool;
+		for (int i = 0; i < players.length; i++) {
+			players[i] = PlayerTestHelper.createPlayer("looter" + i);
+		}
+	}
+
+	/**
+	 * Create the events of a mass loot.
+	 *
+	 * @return log commands
+	 */
+	private List<LogEventCommand> createCommands() {
+		final List<LogEventCommand> commands = new ArrayList<LogEventCommand>();
+		final Timestamp now = new Timestamp(System.currentTimeMillis());
+		for (int i = 0; i < KILLS; i++) {
+			final Player player = players[i % players.length];
+			final Player victim = players[(i + 1) % players.length];
+			commands.add(new LogKillEventCommand(victim, player));
+			for (int j = 0; j < LOOT_PER_KILL; j++) {
+				final RPObject item = new RPObject();
+				item.put("name", "loot " + j);
+				item.put("quantity", j + 1);
+				commands.add(new LogSimpleItemEventCommand(item, player, "create", "loot " + j,
+						Integer.toString(j + 1), "killed " + victim.getName(), "0 0"));
+				commands.add(new LogSimpleItemEventCommand(item, player, "ground-to-slot", "int_test",
+						"5 5", player.getName(), "bag"));
+			}
+		}
+		for (final LogEventCommand command : commands) {
+			command.setEnqueueTime(now);
+		}
+		return commands;
+	}
+
+	private long runSingle(final List<LogEventCommand> commands) throws Exception {
+		for (final LogEventCommand command : commands) {
+			final DBTransaction transaction = pool.beginWork();
+			try {
+				command.execute(transaction);
+				pool.commit(transaction);
+			} catch (final Exception e) {
+				pool.rollback(transaction);
+				throw e;
+			}
+		}
+		return commands.size();
+	}
+
+	private long runBatched(final List<LogEventCommand> commands) throws Exception {
+		final DBTransaction transaction = pool.beginWork();
+		try {
+			final LogEventBatch batch = new LogEventBatch(transaction);
+			for (final LogEventCommand command : commands) {
+				command.log(batch);
+			}
+			final long size = batch.size();
+			batch.flush();
+			pool.commit(transaction);
+			return size;
+		} catch (final Exception e) {
+			pool.rollback(transaction);
+			throw e;
+		}
+	}
+
+	private static TransactionPool createDatabase(final File dir) throws Exception {
+		final Properties properties = new Properties();
+		properties.put("database_adapter", "marauroa.server.db.adapter.H2DatabaseAdapter");
+		properties.put("jdbc_url", "jdbc:h2:" + new File(dir, "logbench").getAbsolutePath());
+		properties.put("jdbc_class", "org.h2.Driver");
+		properties.put("jdbc_user", "sa");
+		properties.put("jdbc_pwd", "");
+		final TransactionPool pool = new TransactionPool(properties);
+
+		final DBTransaction transaction = pool.beginWork();
+		transaction.execute("CREATE TABLE item (id INTEGER AUTO_INCREMENT NOT NULL, name VARCHAR(64),"
+				+ " timedate TIMESTAMP DEFAULT CURRENT_TIMESTAMP, PRIMARY KEY(id))", null);
+		transaction.execute("CREATE TABLE itemlog (id INTEGER AUTO_INCREMENT NOT NULL,"
+				+ " timedate TIMESTAMP default CURRENT_TIMESTAMP, itemid INTEGER, source VARCHAR(64),"
+				+ " event VARCHAR(64), param1 VARCHAR(64), param2 VARCHAR(64), param3 VARCHAR(64),"
+				+ " param4 VARCHAR(64), PRIMARY KEY (id))", null);
+		transaction.execute("CREATE TABLE kills (id INTEGER AUTO_INCREMENT NOT NULL, killed VARCHAR(64),"
+				+ " killer VARCHAR(64), killed_type CHAR(1), killer_type CHAR(1), day DATE, cnt INTEGER,"
+				+ " PRIMARY KEY (id))", null);
+		transaction.execute("CREATE INDEX i_kills_day_killed ON kills (day, killed)", null);
+		pool.commit(transaction);
+		return pool;
+	}
+
+	/**
+	 * Run the benchmark.
+	 *
+	 * @param args ignored
+	 * @throws Exception on any error
+	 */
+	public static void main(final String[] args) throws Exception {
+		MockStendlRPWorld.get();
+		DAORegister.get().register(StendhalItemDAO.class, new StendhalItemDAO());
+		DAORegister.get().register(StendhalKillLogDAO.class, new StendhalKillLogDAO());
+
+		final File dir = File.createTempFile("logbench", "");
+		dir.delete();
+		dir.mkdirs();
+		final TransactionPool pool = createDatabase(dir);
+		try {
+			final LogEventBatchBenchmark benchmark = new LogEventBatchBenchmark(pool);
+			final String label = benchmark.createCommands().size() + " events";
+			final long single = BenchmarkRunner.run("One transaction per event, " + label, 2, 5, new BenchmarkRunner.Task() {
+				@Override
+				public long run() throws Exception {
+					return benchmark.runSingle(benchmark.createCommands());
+				}
+			});
+			final long batched = BenchmarkRunner.run("Batched, " + label, 2, 5, new BenchmarkRunner.Task() {
+				@Override
+				public long run() throws Exception {
+					return benchmark.runBatched(benchmark.createCommands());
+				}
+			});
+			BenchmarkRunner.compare("batched vs one transaction per event", single, batched);
+			System.out.println("checksum " + BenchmarkRunner.getBlackhole());
+		} finally {
+			pool.close();
+			for (final File file : dir.listFiles()) {
+				file.delete();
+			}
+			dir.delete();
+		}
+	}
+}
@@ -0,0 +1,188 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.events;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import games.stendhal.benchmark.BenchmarkRunner;
+
+/**
+ * Compares the timing wheel used by TurnNotifier with the turn to listener set
+ * map it replaced. The load is 100 000 listeners with a mix of short
+ * (status effects, texts), medium (corpse decay) and long (respawn) delays,
+ * where a part of the listeners is queried and cancelled before firing.
+ */
+public class TurnNotifierBenchmark {
+	private static final int LISTENERS = 100000;
+	private static final int TURNS = 20000;
+
+	private final TurnListener[] listeners = new TurnListener[LISTENERS];
+	private final int[] delays = new int[LISTENERS];
+
+	private TurnNotifierBenchmark() {
+		final Random random = new Random(1);
+		for (int i = 0; i < LISTENERS; i++) {
+			listeners[i] = new Listener();
+			final int kind = random.nextInt(10);
+			if (kind < 5) {
+				delays[i] = 1 + random.nextInt(20);
+			} else if (kind < 8) {
+				delays[i] = 1 + random.nextInt(2000);
+			} else {
+				delays[i] = 1 + random.nextInt(TURNS);
+			}
+		}
+	}
+
+	/**
+	 * Register all listeners spread over the first turns, cancel every tenth,
+	 * and run the turns until all have fired.
+	 *
+	 * @param register tested implementation
+	 * @return checksum
+	 */
+	private long run(final Register register) {
+		long checksum = 0;
+		final List<TurnListener> due = new ArrayList<TurnListener>();
+		int next = 0;
+		for (int turn = 0; turn < 2 * TURNS; turn++) {
+			// register a batch of listeners each turn
+			for (int i = 0; (i < 50) && (next < LISTENERS); i++, next++) {
+				register.schedule(turn + delays[next], listeners[next]);
+				if ((next % 10) == 0) {
+					checksum += register.getFirstTurn(listeners[next / 2]);
+					register.cancel(listeners[next / 2]);
+				}
+			}
+			due.clear();
+			register.advance(turn + 1, due);
+			checksum += due.size();
+		}
+		return checksum;
+	}
+
+	/**
+	 * Run the benchmark.
+	 *
+	 * @param args ignored
+	 * @throws Exception on any error
+	 */
+	public static void main(final String[] args) throws Exception {
+		final TurnNotifierBenchmark benchmark = new TurnNotifierBenchmark();
+		final long legacy = BenchmarkRunner.run("TurnNotifier map register, 100k listeners", 2, 5, new BenchmarkRunner.Task() {
+			@Override
+			public long run() {
+				return benchmark.run(new MapRegister());
+			}
+		});
+		final long wheel = BenchmarkRunner.run("TurnNotifier timing wheel, 100k listeners", 2, 5, new BenchmarkRunner.Task() {
+			@Override
+			public long run() {
+				return benchmark.run(new WheelRegister());
+			}
+		});
+		BenchmarkRunner.compare("timing wheel vs map", legacy, wheel);
+		System.out.println("checksum " + BenchmarkRunner.getBlackhole());
+	}
+
+	/**
+	 * Common interface of the compared implementations.
+	 */
+	private interface Register {
+		void schedule(int turn, TurnListener listener);
+		void cancel(TurnListener listener);
+		int getFirstTurn(TurnListener listener);
+		void advance(int turn, List<TurnListener> due);
+	}
+
+	private static class WheelRegister implements Register {
+		private final TurnTimingWheel wheel = new TurnTimingWheel(0);
+
+		@Override
+		public void schedule(final int turn, final TurnListener listener) {
+			wheel.schedule(turn, listener);
+		}
+
+		@Override
+		public void cancel(final TurnListener listener) {
+			wheel.cancel(listener);
+		}
+
+		@Override
+		public int getFirstTurn(final TurnListener listener) {
+			final Integer turn = wheel.getFirstTurn(listener);
+			return (turn != null) ? turn.intValue() : -1;
+		}
+
+		@Override
+		public void advance(final int turn, final List<TurnListener> due) {
+			wheel.advance(turn, due);
+		}
+	}
+
+	/**
+	 * The algorithm TurnNotifier used before the timing wheel.
+	 */
+	private static class MapRegister implements Register {
+		private final Map<Integer, Set<TurnListener>> register = new HashMap<Integer, Set<TurnListener>>();
+
+		@Override
+		public void schedule(final int turn, final TurnListener listener) {
+			final Integer turnInt = Integer.valueOf(turn);
+			Set<TurnListener> set = register.get(turnInt);
+			if (set == null) {
+				set = new HashSet<TurnListener>();
+				register.put(turnInt, set);
+			}
+			set.add(listener);
+		}
+
+		@Override
+		public void cancel(final TurnListener listener) {
+			for (final Set<TurnListener> set : register.values()) {
+				set.remove(listener);
+			}
+		}
+
+		@Override
+		public int getFirstTurn(final TurnListener listener) {
+			int res = -1;
+			for (final Map.Entry<Integer, Set<TurnListener>> entry : register.entrySet()) {
+				if (entry.getValue().contains(listener) && ((res == -1) || (entry.getKey().intValue() < res))) {
+					res = entry.getKey().intValue();
+				}
+			}
+			return res;
+		}
+
+		@Override
+		public void advance(final int turn, final List<TurnListener> due) {
+			final Set<TurnListener> set = register.remove(Integer.valueOf(turn));
+			if (set != null) {
+				due.addAll(set);
+			}
+		}
+	}
+
+	private static class Listener implements TurnListener {
+		@Override
+		public void onTurnReached(final int currentTurn) {
+			// nothing to do
+		}
+	}
+}
@@ -0,0 +1,181 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.pathfinder;
+
+import java.awt.Rectangle;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import games.stendhal.benchmark.BenchmarkRunner;
+import games.stendhal.common.tiled.StendhalMapStructure;
+import games.stendhal.server.core.config.zone.TMXLoader;
+import games.stendhal.server.core.engine.StendhalRPZone;
+import games.stendhal.server.entity.Entity;
+import games.stendhal.server.entity.mapstuff.area.AreaEntity;
+import games.stendhal.server.maps.MockStendlRPWorld;
+import marauroa.common.game.RPClass;
+import utilities.RPClass.EntityTestHelper;
+
+/**
+ * Compares the object based pathfinder with GridPathfinder on real zone maps.
+ * The maps are read from <code>data/maps</code>, or from <code>tiled</code>
+ * in a source checkout. Other maps can be given as arguments, relative to
+ * those directories.
+ */
+public class PathfinderBenchmark {
+	private static final String[] DEFAULT_MAPS = {
+		"Level 0/semos/city.tmx",
+		"Level 0/ados/city_n.tmx",
+		"Level 0/nalwor/city.tmx",
+		"Level 0/orril/castle.tmx",
+		"Level 0/semos/plains_n.tmx",
+		"Level -1/semos/dungeon.tmx",
+		"Level -3/semos/catacombs.tmx"
+	};
+	/** Searches per map. */
+	private static final int QUERIES = 300;
+
+	private final List<Query> queries = new ArrayList<Query>();
+
+	private PathfinderBenchmark(final List<String> maps) throws Exception {
+		final Random random = new Random(1);
+		for (final String name : maps) {
+			final StendhalRPZone zone = loadZone(name);
+			for (int i = 0; i < QUERIES; i++) {
+				final Query query = createQuery(zone, random);
+				if (query != null) {
+					queries.add(query);
+				}
+			}
+		}
+	}
+
+	private static StendhalRPZone loadZone(final String name) throws Exception {
+		File file = new File("data/maps", name);
+		if (!file.exists()) {
+			file = new File("tiled", name);
+		}
+		final StendhalMapStructure map = TMXLoader.load(file.getPath());
+		final StendhalRPZone zone = new StendhalRPZone(name);
+		zone.collisionMap.setCollisionData(map.getLayer("collision"));
+		System.out.println("loaded " + name + " (" + zone.getWidth() + "x" + zone.getHeight() + ")");
+		return zone;
+	}
+
+	/**
+	 * Pick a start and destination within walking range of each other, on
+	 * free tiles.
+	 *
+	 * @param zone zone
+	 * @param random random generator
+	 * @return query, or <code>null</code> if no free tiles were found
+	 */
+	private static Query createQuery(final StendhalRPZone zone, final Random random) {
+		final int size = 1 + random.nextInt(2);
+		for (int tries = 0; tries < 100; tries++) {
+			final int x = random.nextInt(zone.getWidth());
+			final int y = random.nextInt(zone.getHeight());
+			final int dx = x + random.nextInt(61) - 30;
+			final int dy = y + random.nextInt(61) - 30;
+			if (!zone.simpleCollides(null, x, y, size, size) && !zone.simpleCollides(null, dx, dy, size, size)) {
+				final Entity entity = new AreaEntity(size, size);
+				entity.setPosition(x, y);
+				final int manhattan = Math.abs(x - dx) + Math.abs(y - dy);
+				return new Query(zone, entity, new Rectangle(dx, dy, 1, 1), Math.max(4 * manhattan, 80));
+			}
+		}
+		return null;
+	}
+
+	private long runLegacy() {
+		long checksum = 0;
+		for (final Query query : queries) {
+			final List<Node> path = new EntityPathfinder(query.entity, query.zone, query.entity.getX(),
+					query.entity.getY(), query.destination, query.maxDistance, true).getPath();
+			checksum += checksum(path);
+		}
+		return checksum;
+	}
+
+	private long runGrid() {
+		long checksum = 0;
+		for (final Query query : queries) {
+			final List<Node> path = Path.searchPath(query.entity, query.zone, query.entity.getX(),
+					query.entity.getY(), query.destination, query.maxDistance, true);
+			checksum += checksum(path);
+		}
+		return checksum;
+	}
+
+	private static long checksum(final List<Node> path) {
+		long res = path.size();
+		for (final Node node : path) {
+			res = 31 * res + node.getX() * 1000 + node.getY();
+		}
+		return res;
+	}
+
+	/**
+	 * Run the benchmark.
+	 *
+	 * @param args map files to use instead of the default set
+	 * @throws Exception on any error
+	 */
+	public static void main(final String[] args) throws Exception {
+		MockStendlRPWorld.get();
+		EntityTestHelper.generateRPClasses();
+		if (!RPClass.hasRPClass("area")) {
+			AreaEntity.generateRPClass();
+		}
+
+		final PathfinderBenchmark benchmark = new PathfinderBenchmark(Arrays.asList((args.length > 0) ? args : DEFAULT_MAPS));
+		if (benchmark.runLegacy() != benchmark.runGrid()) {
+			throw new IllegalStateException("The pathfinders found different paths");
+		}
+
+		final String label = benchmark.queries.size() + " searches";
+		final long legacy = BenchmarkRunner.run("Object pathfinder, " + label, new BenchmarkRunner.Task() {
+			@Override
+			public long run() {
+				return benchmark.runLegacy();
+			}
+		});
+		final long grid = BenchmarkRunner.run("Grid pathfinder, " + label, new BenchmarkRunner.Task() {
+			@Override
+			public long run() {
+				return benchmark.runGrid();
+			}
+		});
+		BenchmarkRunner.compare("grid vs object pathfinder", legacy, grid);
+		System.out.println("checksum " + BenchmarkRunner.getBlackhole());
+	}
+
+	/**
+	 * A search.
+	 */
+	private static class Query {
+		final StendhalRPZone zone;
+		final Entity entity;
+		final Rectangle destination;
+		final double maxDistance;
+
+		Query(final StendhalRPZone zone, final Entity entity, final Rectangle destination, final double maxDistance) {
+			this.zone = zone;
+			this.entity = entity;
+			this.destination = destination;
+			this.maxDistance = maxDistance;
+		}
+	}
+}
@@ -0,0 +1,90 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.rule.defaultruleset;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import games.stendhal.benchmark.BenchmarkRunner;
+import games.stendhal.server.core.engine.SingletonRepository;
+import games.stendhal.server.entity.item.Item;
+import games.stendhal.server.entity.item.StackableItem;
+import games.stendhal.server.maps.MockStendlRPWorld;
+
+/**
+ * Measures the creation time and the heap used by the items of a populated
+ * world. The items are created from all configured item types in turn, and
+ * stackable ones get a quantity and some of them a bound owner, like the
+ * contents of banks, chests and bags.
+ */
+public class ItemHeapBenchmark {
+	private static final int ITEMS = 200000;
+
+	private final DefaultEntityManager manager = (DefaultEntityManager) SingletonRepository.getEntityManager();
+	private final List<String> names = new ArrayList<String>(manager.getConfiguredItems());
+
+	/**
+	 * Create the items.
+	 *
+	 * @param count number of items
+	 * @return items
+	 */
+	private List<Item> createItems(final int count) {
+		final List<Item> items = new ArrayList<Item>(count);
+		for (int i = 0; i < count; i++) {
+			final Item item = manager.getItem(names.get(i % names.size()));
+			if (item instanceof StackableItem) {
+				((StackableItem) item).setQuantity(1 + i % 50);
+			}
+			if ((i % 7) == 0) {
+				item.setBoundTo("player" + (i % 100));
+			}
+			items.add(item);
+		}
+		return items;
+	}
+
+	private static long usedHeap() throws InterruptedException {
+		final Runtime runtime = Runtime.getRuntime();
+		long used = Long.MAX_VALUE;
+		for (int i = 0; i < 5; i++) {
+			System.gc();
+			Thread.sleep(100);
+			used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+		}
+		return used;
+	}
+
+	/**
+	 * Run the benchmark.
+	 *
+	 * @param args ignored
+	 * @throws Exception on any error
+	 */
+	public static void main(final String[] args) throws Exception {
+		MockStendlRPWorld.get();
+		final ItemHeapBenchmark benchmark = new ItemHeapBenchmark();
+		BenchmarkRunner.run("create 10000 items", new BenchmarkRunner.Task() {
+			@Override
+			public long run() {
+				return benchmark.createItems(10000).size();
+			}
+		});
+
+		final long before = usedHeap();
+		final List<Item> items = benchmark.createItems(ITEMS);
+		final long after = usedHeap();
+		System.out.println(ITEMS + " items of " + benchmark.names.size() + " types: "
+				+ ((after - before) / 1024 / 1024) + " MB, " + ((after - before) / ITEMS) + " bytes per item");
+		System.out.println("checksum " + (items.size() + BenchmarkRunner.getBlackhole()));
+	}
+}
@@ -0,0 +1,106 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.entity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import games.stendhal.benchmark.BenchmarkRunner;
+import games.stendhal.server.core.engine.SingletonRepository;
+import games.stendhal.server.entity.player.Player;
+import games.stendhal.server.maps.MockStendlRPWorld;
+import utilities.PlayerTestHelper;
+
+/**
+ * Compares the equipment lookups of a big fight with and without the cached
+ * equipment stats. 100 fully equipped players hit each other, and each hit
+ * looks up the weapons and item attack of the attacker and the item defense
+ * and defensive items of the defender, like a player attack does.
+ */
+public class EquipmentStatsBenchmark {
+	private static final int PLAYERS = 100;
+	private static final int HITS = 100000;
+
+	private static final String[][] EQUIPMENT = {
+		{ "lhand", "ice sword" },
+		{ "rhand", "wooden shield" },
+		{ "armor", "leather armor" },
+		{ "head", "leather helmet" },
+		{ "legs", "leather legs" },
+		{ "feet", "leather boots" },
+		{ "cloak", "elf cloak" },
+		{ "finger", "engagement ring" }
+	};
+
+	private final List<Player> players = new ArrayList<Player>();
+
+	private EquipmentStatsBenchmark() {
+		for (int i = 0; i < PLAYERS; i++) {
+			final Player player = PlayerTestHelper.createPlayer("fighter" + i);
+			player.setLevel(50);
+			for (final String[] equipment : EQUIPMENT) {
+				player.equip(equipment[0], SingletonRepository.getEntityManager().getItem(equipment[1]));
+			}
+			players.add(player);
+		}
+	}
+
+	/**
+	 * Do the lookups of the hits.
+	 *
+	 * @param changeEquipment <code>true</code> if the stats should be
+	 * 	computed for each hit
+	 * @return checksum
+	 */
+	private long fight(final boolean changeEquipment) {
+		long checksum = 0;
+		for (int i = 0; i < HITS; i++) {
+			final Player attacker = players.get(i % PLAYERS);
+			final Player defender = players.get((i * 7 + 1) % PLAYERS);
+			if (changeEquipment) {
+				attacker.invalidateEquipmentStats();
+				defender.invalidateEquipmentStats();
+			}
+			checksum += attacker.getWeapons().size();
+			checksum += (long) attacker.getItemAtk();
+			checksum += (long) defender.getItemDef();
+			checksum += defender.getDefenseItems().size();
+		}
+		return checksum;
+	}
+
+	/**
+	 * Run the benchmark.
+	 *
+	 * @param args ignored
+	 * @throws Exception on any error
+	 */
+	public static void main(final String[] args) throws Exception {
+		MockStendlRPWorld.get();
+		final EquipmentStatsBenchmark benchmark = new EquipmentStatsBenchmark();
+		final String name = HITS + " hits between " + PLAYERS + " players";
+		final long computed = BenchmarkRunner.run(name + ", computed", new BenchmarkRunner.Task() {
+			@Override
+			public long run() {
+				return benchmark.fight(true);
+			}
+		});
+		final long cached = BenchmarkRunner.run(name + ", cached", new BenchmarkRunner.Task() {
+			@Override
+			public long run() {
+				return benchmark.fight(false);
+			}
+		});
+		BenchmarkRunner.compare("cached vs computed equipment stats", computed, cached);
+		System.out.println("checksum " + BenchmarkRunner.getBlackhole());
+	}
+}
@@ -0,0 +1,157 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.entity.creature;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import games.stendhal.benchmark.BenchmarkRunner;
+import games.stendhal.server.core.engine.NearbyEntities;
+import games.stendhal.server.core.engine.StendhalRPZone;
+import games.stendhal.server.entity.RPEntity;
+import games.stendhal.server.entity.player.Player;
+import games.stendhal.server.maps.MockStendlRPWorld;
+import utilities.PlayerTestHelper;
+
+/**
+ * Compares the enemy lookup of offensive creatures using the spatial index
+ * of the zone with the scan of all players and friends of the zone, as done
+ * before. 300 creatures and 60 players are spread over a raid zone, and
+ * every creature looks for the nearest enemy in its perception range once
+ * per turn.
+ */
+public class EnemyQueryBenchmark {
+	private static final int SIZE = 200;
+	private static final int CREATURES = 300;
+	private static final int PLAYERS = 60;
+	private static final int TURNS = 100;
+	private static final double RANGE = 12;
+
+	private final StendhalRPZone zone = new StendhalRPZone("raid_benchmark", SIZE, SIZE);
+	private final List<Creature> creatures = new ArrayList<Creature>();
+	private final List<Player> players = new ArrayList<Player>();
+	private final Random random = new Random(1);
+
+	private EnemyQueryBenchmark() {
+		final Map<String, String> profiles = new HashMap<String, String>();
+		profiles.put("offensive", "");
+		for (int i = 0; i < CREATURES; i++) {
+			final Creature creature = new Creature();
+			creature.setAIProfiles(profiles);
+			creature.setPosition(random.nextInt(SIZE), random.nextInt(SIZE));
+			zone.add(creature);
+			creatures.add(creature);
+		}
+		for (int i = 0; i < PLAYERS; i++) {
+			final Player player = PlayerTestHelper.createPlayer("raider" + i);
+			player.setPosition(random.nextInt(SIZE), random.nextInt(SIZE));
+			zone.add(player);
+			players.add(player);
+		}
+	}
+
+	/**
+	 * Move the players a bit, as they do during a fight.
+	 */
+	private void movePlayers() {
+		for (final Player player : players) {
+			final int x = Math.max(0, Math.min(SIZE - 1, player.getX() + random.nextInt(3) - 1));
+			final int y = Math.max(0, Math.min(SIZE - 1, player.getY() + random.nextInt(3) - 1));
+			player.setPosition(x, y);
+		}
+	}
+
+	/**
+	 * Find the nearest enemies by checking the distance to all players and
+	 * friends of the zone.
+	 *
+	 * @return checksum
+	 */
+	private long scan() {
+		long checksum = 0;
+		for (int turn = 0; turn < TURNS; turn++) {
+			movePlayers();
+			for (final Creature creature : creatures) {
+				final Map<RPEntity, Double> distances = new HashMap<RPEntity, Double>();
+				for (final RPEntity enemy : zone.getPlayerAndFriends()) {
+					if ((enemy == creature) || enemy.isInvisibleToCreatures()) {
+						continue;
+					}
+					final double squaredDistance = creature.squaredDistance(enemy);
+					if (squaredDistance <= (RANGE * RANGE)) {
+						distances.put(enemy, squaredDistance);
+					}
+				}
+				RPEntity chosen = null;
+				double shortestDistance = Double.MAX_VALUE;
+				for (final Map.Entry<RPEntity, Double> enemy : distances.entrySet()) {
+					if (enemy.getValue() < shortestDistance) {
+						chosen = enemy.getKey();
+						shortestDistance = enemy.getValue();
+					}
+				}
+				if (chosen != null) {
+					checksum += chosen.getX();
+				}
+			}
+		}
+		return checksum;
+	}
+
+	/**
+	 * Find the nearest enemies with the spatial index.
+	 *
+	 * @return checksum
+	 */
+	private long query() {
+		long checksum = 0;
+		for (int turn = 0; turn < TURNS; turn++) {
+			movePlayers();
+			for (final Creature creature : creatures) {
+				final NearbyEntities<RPEntity> enemies = creature.getEnemiesNear(RANGE);
+				if (!enemies.isEmpty()) {
+					checksum += enemies.get(0).getX();
+				}
+			}
+		}
+		return checksum;
+	}
+
+	/**
+	 * Run the benchmark.
+	 *
+	 * @param args ignored
+	 * @throws Exception on any error
+	 */
+	public static void main(final String[] args) throws Exception {
+		MockStendlRPWorld.get();
+		final EnemyQueryBenchmark benchmark = new EnemyQueryBenchmark();
+		final String name = CREATURES + " creatures, " + PLAYERS + " players";
+		final long scan = BenchmarkRunner.run(name + ", scan", new BenchmarkRunner.Task() {
+			@Override
+			public long run() {
+				return benchmark.scan();
+			}
+		});
+		final long query = BenchmarkRunner.run(name + ", grid query", new BenchmarkRunner.Task() {
+			@Override
+			public long run() {
+				return benchmark.query();
+			}
+		});
+		BenchmarkRunner.compare("grid query vs scan", scan, query);
+		System.out.println("checksum " + BenchmarkRunner.getBlackhole());
+	}
+}
@@ -0,0 +1,140 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.entity.npc.fsm;
+
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+
+import games.stendhal.benchmark.BenchmarkRunner;
+import games.stendhal.server.entity.npc.ConversationStates;
+import games.stendhal.server.entity.npc.SpeakerNPC;
+import games.stendhal.server.entity.player.Player;
+import games.stendhal.server.maps.MockStendlRPWorld;
+import games.stendhal.server.maps.deniran.cityinterior.tannery.TannerNPCTest;
+import games.stendhal.server.maps.quests.AntivenomRingTest;
+import games.stendhal.server.maps.quests.FindRatChildrenTest;
+import games.stendhal.server.maps.quests.HerbsForCarmenTest;
+import games.stendhal.server.maps.quests.JailedBarbarianTest;
+import games.stendhal.server.maps.quests.MarriageTest;
+import games.stendhal.server.maps.quests.MithrilCloakTest;
+import games.stendhal.server.maps.quests.PizzaDeliveryTest;
+import games.stendhal.server.maps.quests.RingMakerTest;
+import games.stendhal.server.maps.quests.SuppliesForPhalkTest;
+import games.stendhal.server.maps.quests.UltimateCollectorTest;
+import games.stendhal.server.maps.semos.bakery.ShopAssistantNPCTest;
+import marauroa.server.db.command.DBCommandQueue;
+import utilities.PlayerTestHelper;
+
+/**
+ * Measures the transition lookup of the Engine.
+ * <p>
+ * The first benchmark replays the NPC chat tests with the most conversation
+ * steps. Their time includes the setup of the zones and quests, so it shows
+ * the time of a realistic mix. The second benchmark talks to an NPC with
+ * several hundred transitions, like the big shop and quest NPCs, and compares
+ * the lookup with and without the transition index.
+ */
+public class EngineBenchmark {
+	private static final Class<?>[] CHAT_TESTS = {
+		MithrilCloakTest.class,
+		AntivenomRingTest.class,
+		PizzaDeliveryTest.class,
+		MarriageTest.class,
+		SuppliesForPhalkTest.class,
+		UltimateCollectorTest.class,
+		ShopAssistantNPCTest.class,
+		HerbsForCarmenTest.class,
+		FindRatChildrenTest.class,
+		JailedBarbarianTest.class,
+		RingMakerTest.class,
+		TannerNPCTest.class
+	};
+
+	/** topics of the big NPC */
+	private static final int TOPICS = 300;
+
+	private static long replayChatTests() {
+		final Result result = new JUnitCore().run(CHAT_TESTS);
+		if (!result.wasSuccessful()) {
+			throw new IllegalStateException(result.getFailureCount() + " chat tests failed: " + result.getFailures());
+		}
+		return result.getRunCount();
+	}
+
+	private static Engine createBigNPC() {
+		final Engine engine = new Engine(new SpeakerNPC("big npc"));
+		engine.add(ConversationStates.IDLE, "hi", null, false, ConversationStates.ATTENDING, "Welcome!", null);
+		engine.add(ConversationStates.ANY, "bye", null, false, ConversationStates.IDLE, "Bye.", null);
+		for (int i = 0; i < TOPICS; i++) {
+			engine.add(ConversationStates.ATTENDING, "topic" + i, null, false,
+					ConversationStates.QUESTION_1, "Do you want to know more about topic " + i + "?", null);
+			engine.add(ConversationStates.QUESTION_1, "detail" + i, null, false,
+					ConversationStates.ATTENDING, "Details about topic " + i + ".", null);
+		}
+		engine.add(ConversationStates.QUESTION_1, "no", null, false, ConversationStates.ATTENDING, "Ok.", null);
+		return engine;
+	}
+
+	private static long talk(final Engine engine, final Player player) {
+		long res = 0;
+		for (int i = 0; i < TOPICS; i += 7) {
+			engine.step(player, "hi");
+			engine.step(player, "topic" + i);
+			engine.step(player, "detail" + i);
+			engine.step(player, "topic" + (i + 1));
+			engine.step(player, "no");
+			engine.step(player, "something else");
+			engine.step(player, "bye");
+			res += engine.getCurrentState().ordinal();
+		}
+		return res;
+	}
+
+	private static void compare(final String name, final int warmup, final int iterations,
+			final Engine engine, final BenchmarkRunner.Task task) throws Exception {
+		engine.setIndexEnabled(false);
+		final long scan = BenchmarkRunner.run(name + ", scan", warmup, iterations, task);
+		engine.setIndexEnabled(true);
+		final long indexed = BenchmarkRunner.run(name + ", index", warmup, iterations, task);
+		BenchmarkRunner.compare(name + ": index vs scan", scan, indexed);
+	}
+
+	/**
+	 * Run the benchmark.
+	 *
+	 * @param args ignored
+	 * @throws Exception on any error
+	 */
+	public static void main(final String[] args) throws Exception {
+		MockStendlRPWorld.get();
+
+		BenchmarkRunner.run("Replay of " + CHAT_TESTS.length + " NPC chat tests", 1, 5, new BenchmarkRunner.Task() {
+			@Override
+			public long run() throws Exception {
+				return replayChatTests();
+			}
+		});
+
+		final Engine engine = createBigNPC();
+		final Player player = PlayerTestHelper.createPlayer("player");
+		compare("Conversation with " + engine.getTransitions().size() + " transitions", 5, 10, engine, new BenchmarkRunner.Task() {
+			@Override
+			public long run() throws Exception {
+				return talk(engine, player);
+			}
+		});
+		System.out.println("checksum " + BenchmarkRunner.getBlackhole());
+
+		// the quest tests started the database thread
+		DBCommandQueue.get().finish();
+	}
+}
@@ -49,6 +49,7 @@ class HelpAction implements SlashAction {
 				"\t\tStore a private message to deliver for an offline #player.",
 				"- /who \tList all players currently online.",
 				"- /where <player> \tShow the current location of #player.",
+				"- /search <words> \tFind items, creatures, NPCs and achievements.",
 				"- /sentence <text> \tSet message on stendhalgame.org profile page and what players see when using #Look.",
 				"* SUPPORT:",
 				"- /support <message>",
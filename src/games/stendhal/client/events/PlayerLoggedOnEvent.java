@@ -22,8 +22,15 @@ class PlayerLoggedOnEvent extends Event<Entity> {
 
 	@Override
 	public void execute() {
-		String playerName = event.get("name");
-		logger.debug("Executing logon event for "+playerName);
-		World.get().addPlayerLoggingOn(playerName);
+		if (event.has("names")) {
+			for (String playerName : event.get("names").split(",")) {
+				logger.debug("Executing logon event for "+playerName);
+				World.get().addPlayerLoggingOn(playerName);
+			}
+		} else {
+			String playerName = event.get("name");
+			logger.debug("Executing logon event for "+playerName);
+			World.get().addPlayerLoggingOn(playerName);
+		}
 	}
 }
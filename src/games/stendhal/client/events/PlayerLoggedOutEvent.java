@@ -22,8 +22,15 @@ class PlayerLoggedOutEvent extends Event<Entity> {
 
 	@Override
 	public void execute() {
-		String playerName = event.get("name");
-		logger.debug("Executing logout event for "+playerName);
-		World.get().removePlayerLoggingOut(playerName);
+		if (event.has("names")) {
+			for (String playerName : event.get("names").split(",")) {
+				logger.debug("Executing logout event for "+playerName);
+				World.get().removePlayerLoggingOut(playerName);
+			}
+		} else {
+			String playerName = event.get("name");
+			logger.debug("Executing logout event for "+playerName);
+			World.get().removePlayerLoggingOut(playerName);
+		}
 	}
 }
@@ -13,6 +13,7 @@
 package games.stendhal.common;
 
 
+import java.awt.Point;
 import java.awt.geom.Rectangle2D;
 
 import games.stendhal.common.tiled.LayerDefinition;
@@ -28,12 +29,16 @@ public class CollisionDetection {
 
 	private int height;
 
+	/** Incremented whenever the collision map is replaced. */
+	private int mapGeneration;
+
 	/**
 	 * Clear the collision map.
 	 */
 	public void clear() {
 		if (map == null) {
 			map = new CollisionMap(width, height);
+			mapGeneration++;
 		}
 	}
 
@@ -194,6 +199,84 @@ public class CollisionDetection {
 		return map.get(x, y);
 	}
 
+	/**
+	 * Check if any position on a line between two points collides.
+	 *
+	 * @param x1 x coordinate of the start
+	 * @param y1 y coordinate of the start
+	 * @param x2 x coordinate of the end
+	 * @param y2 y coordinate of the end
+	 * @return <code>true</code> if any position on the line collides or is
+	 * 	outside the map
+	 */
+	public boolean collidesOnLine(final int x1, final int y1, final int x2, final int y2) {
+		return map.collidesOnLine(x1, y1, x2, y2);
+	}
+
+	/**
+	 * Get the number of positions without collision.
+	 *
+	 * @return free area
+	 */
+	public int getFreeArea() {
+		if (map == null) {
+			return 0;
+		}
+		return map.getFreeArea();
+	}
+
+	/**
+	 * Get the walkable region of a position. There is no way between
+	 * positions in different regions that would not cross a collision.
+	 *
+	 * @param x x coordinate
+	 * @param y y coordinate
+	 * @return region number, or <code>-1</code> if the position collides
+	 */
+	public int getRegion(final int x, final int y) {
+		if (map == null) {
+			return -1;
+		}
+		return map.getRegion(x, y);
+	}
+
+	/**
+	 * Get the number of positions in a walkable region.
+	 *
+	 * @param region region number
+	 * @return region size
+	 */
+	public int getRegionSize(final int region) {
+		return map.getRegionSize(region);
+	}
+
+	/**
+	 * Get a position without collision by its index.
+	 *
+	 * @param index index between 0 and {@link #getFreeArea()}
+	 * @return position, or <code>null</code> if the index is not smaller
+	 * 	than the free area
+	 */
+	public Point getFreePosition(final int index) {
+		if (map == null) {
+			return null;
+		}
+		return map.getFreePosition(index);
+	}
+
+	/**
+	 * Get the modification counter of the collision data. Any change of the
+	 * colliding positions results in a different value, so users can cache
+	 * data derived from the collision map as long as the value stays the
+	 * same.
+	 *
+	 * @return modification counter
+	 */
+	public long getVersion() {
+		final int mapVersion = (map != null) ? map.getVersion() : 0;
+		return ((long) mapGeneration << 32) | (mapVersion & 0xFFFFFFFFL);
+	}
+
 	/**
 	 * Get the width of the collision map.
 	 *
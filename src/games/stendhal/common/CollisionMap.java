@@ -14,25 +14,37 @@ package games.stendhal.common;
 
 
 
+import java.awt.Point;
 import java.awt.geom.Rectangle2D;
-import java.util.BitSet;
+import java.util.Arrays;
 
 import games.stendhal.common.tiled.LayerDefinition;
 
+/**
+ * Static collisions of a map. Each column is stored as a fixed size array of
+ * bit words, so that rectangle queries can test up to 64 positions of a
+ * column with one mask operation.
+ */
 public class CollisionMap {
+	/** Bits per word, as a power of two. */
+	private static final int ADDRESS_BITS = 6;
 
 	private final int width;
 	private final int height;
-	private final BitSet[] colls;
+	/** Collision bits of each column, indexed by y. */
+	private final long[][] colls;
+	/** Incremented whenever the collision data changes. */
+	private int version;
+	/** Number of colliding positions. */
+	private int collisionCount;
+	/** Walkable regions, or <code>null</code> if not computed yet. */
+	private volatile Regions regions;
 
 	public CollisionMap(final int width, final int height) {
 		this.width = width;
 		this.height = height;
-		colls = new BitSet[width];
-		for (int i = 0; i < width; i++) {
-			colls[i] = new BitSet();
-		}
-
+		final int words = (height + 63) >>> ADDRESS_BITS;
+		colls = new long[width][words];
 	}
 
 	public CollisionMap(final LayerDefinition layer) {
@@ -55,12 +67,25 @@ public class CollisionMap {
 	}
 
 	public boolean get(final int i, final int j) {
-		return colls[i].get(j);
+		if (j >= height) {
+			return false;
+		}
+		return (colls[i][j >>> ADDRESS_BITS] & (1L << j)) != 0;
 	}
 
 	public void set(final int i, final int j) {
-
-		colls[i].set(j);
+		if (j >= height) {
+			// outside the map; the padding bits of the last word stay clear
+			return;
+		}
+		final long[] column = colls[i];
+		final int word = j >>> ADDRESS_BITS;
+		final long bit = 1L << j;
+		if ((column[word] & bit) == 0) {
+			column[word] |= bit;
+			collisionCount++;
+		}
+		version++;
 	}
 
 	public boolean collides(final int x, final int y, final int width, final int height) {
@@ -72,19 +97,94 @@ public class CollisionMap {
 			return true;
 		}
 
-		final BitSet result = new BitSet();
+		if (height <= 0) {
+			return false;
+		}
+		final int end = y + height;
+		final int first = y >>> ADDRESS_BITS;
+		final int last = (end - 1) >>> ADDRESS_BITS;
+		final long firstMask = -1L << y;
+		final long lastMask = -1L >>> -end;
+		if (first == last) {
+			// the usual case: the rectangle is within one word of each column
+			final long mask = firstMask & lastMask;
+			for (int i = x; i < x + width; i++) {
+				if ((colls[i][first] & mask) != 0) {
+					return true;
+				}
+			}
+			return false;
+		}
+
 		for (int i = x; i < x + width; i++) {
-			result.or(colls[i]);
+			final long[] column = colls[i];
+			if ((column[first] & firstMask) != 0) {
+				return true;
+			}
+			for (int word = first + 1; word < last; word++) {
+				if (column[word] != 0) {
+					return true;
+				}
+			}
+			if ((column[last] & lastMask) != 0) {
+				return true;
+			}
 		}
 
-		return !result.get(y, y + height).isEmpty();
+		return false;
+	}
+
+	/**
+	 * Check if any position on a line between two points collides. The
+	 * checked positions are the same that {@link Line#renderLine(int, int,
+	 * int, int)} gives, but the line is walked without creating the point
+	 * list. Positions outside the map collide.
+	 *
+	 * @param x1 x coordinate of the start
+	 * @param y1 y coordinate of the start
+	 * @param x2 x coordinate of the end
+	 * @param y2 y coordinate of the end
+	 * @return <code>true</code> if any position on the line collides
+	 */
+	public boolean collidesOnLine(final int x1, final int y1, final int x2, final int y2) {
+		final int dx = x2 - x1;
+		final int dy = y2 - y1;
+		final int absX = Math.abs(dx);
+		final int absY = Math.abs(dy);
+		final int stepX = Integer.signum(dx);
+		final int stepY = Integer.signum(dy);
+		final int steps = Math.max(absX, absY);
+
+		// offsets are (delta * i / steps), rounded towards zero like in Line
+		int x = x1;
+		int y = y1;
+		int errorX = 0;
+		int errorY = 0;
+		for (int i = 0; i <= steps; i++) {
+			if ((x < 0) || (x >= width) || (y < 0) || (y >= height)
+					|| ((colls[x][y >>> ADDRESS_BITS] & (1L << y)) != 0)) {
+				return true;
+			}
+			errorX += absX;
+			if (errorX >= steps) {
+				errorX -= steps;
+				x += stepX;
+			}
+			errorY += absY;
+			if (errorY >= steps) {
+				errorY -= steps;
+				y += stepY;
+			}
+		}
+		return false;
 	}
 
 	public void clear() {
 		for (int i = 0; i < this.width; i++) {
-			colls[i].clear();
+			Arrays.fill(colls[i], 0L);
 		}
-
+		collisionCount = 0;
+		version++;
 	}
 	public static CollisionMap create(final LayerDefinition layer) {
 
@@ -101,17 +201,296 @@ public class CollisionMap {
 	}
 
 	public void unset(final int i, final int k) {
-		colls[i].clear(k);
-
+		if (k >= height) {
+			return;
+		}
+		final long[] column = colls[i];
+		final int word = k >>> ADDRESS_BITS;
+		final long bit = 1L << k;
+		if ((column[word] & bit) != 0) {
+			column[word] &= ~bit;
+			collisionCount--;
+		}
+		version++;
 	}
 
 	public void set(final Rectangle2D shape) {
-		int y = (int) shape.getY();
+		final int y = Math.max(0, (int) shape.getY());
+		final int end = Math.min(height, (int) (shape.getY() + shape.getHeight()));
 		for (int x = (int) shape.getX(); x < shape.getX() + shape.getWidth(); x++) {
+			for (int j = y; j < end; j++) {
+				final long[] column = colls[x];
+				final long bit = 1L << j;
+				if ((column[j >>> ADDRESS_BITS] & bit) == 0) {
+					column[j >>> ADDRESS_BITS] |= bit;
+					collisionCount++;
+				}
+			}
+		}
+		version++;
+	}
 
-			colls[x].set(y, (int) (y + shape.getHeight()));
+	/**
+	 * Get the number of positions without collision.
+	 *
+	 * @return free area
+	 */
+	public int getFreeArea() {
+		return width * height - collisionCount;
+	}
+
+	/**
+	 * Get the walkable region of a position. Positions are in the same region
+	 * if they can be reached from each other by horizontal and vertical steps
+	 * over positions without collision.
+	 *
+	 * @param x x coordinate
+	 * @param y y coordinate
+	 * @return region number, or <code>-1</code> if the position collides or
+	 * 	is outside the map
+	 */
+	public int getRegion(final int x, final int y) {
+		if ((x < 0) || (x >= width) || (y < 0) || (y >= height)) {
+			return -1;
 		}
+		return getRegions().getRegion(x, y);
+	}
+
+	/**
+	 * Get the number of walkable regions.
+	 *
+	 * @return region count
+	 */
+	public int getRegionCount() {
+		return getRegions().sizes.length;
+	}
 
+	/**
+	 * Get the number of positions in a walkable region.
+	 *
+	 * @param region region number
+	 * @return region size
+	 */
+	public int getRegionSize(final int region) {
+		return getRegions().sizes[region];
 	}
 
+	/**
+	 * Get a position without collision by its index. The positions are
+	 * numbered column by column, so that a random index between 0 and
+	 * {@link #getFreeArea()} gives a random free position.
+	 *
+	 * @param index index of the position
+	 * @return position, or <code>null</code> if the index is not smaller
+	 * 	than the free area
+	 */
+	public Point getFreePosition(final int index) {
+		if ((index < 0) || (index >= getFreeArea())) {
+			return null;
+		}
+		return getRegions().getFreePosition(index);
+	}
+
+	/**
+	 * Get the region summary, computing it again if the collisions have
+	 * changed.
+	 *
+	 * @return regions
+	 */
+	private Regions getRegions() {
+		Regions current = regions;
+		final int currentVersion = version;
+		if ((current == null) || (current.version != currentVersion)) {
+			current = new Regions(currentVersion);
+			regions = current;
+		}
+		return current;
+	}
+
+	/**
+	 * Get the modification counter of the collision data. The value changes
+	 * whenever a position is set or cleared.
+	 *
+	 * @return modification counter
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	/**
+	 * The walkable regions of the map. The free positions of each column are
+	 * stored as runs, and runs of neighbouring columns that touch each other
+	 * are joined to regions.
+	 */
+	private final class Regions {
+		/** Collision map version the regions were computed for. */
+		private final int version;
+		/** Index of the first run of each column, and the total run count. */
+		private final int[] columnRuns;
+		private final int[] runStart;
+		private final int[] runEnd;
+		private final int[] runRegion;
+		/** Free positions in the runs before each run. */
+		private final int[] runOffset;
+		/** Size of each region. */
+		private final int[] sizes;
+
+		Regions(final int version) {
+			this.version = version;
+			columnRuns = new int[width + 1];
+			int[] starts = new int[16];
+			int[] ends = new int[16];
+			int count = 0;
+			for (int x = 0; x < width; x++) {
+				columnRuns[x] = count;
+				final long[] column = colls[x];
+				int y = nextBit(column, 0, true);
+				while (y < height) {
+					final int end = nextBit(column, y, false);
+					if (count == starts.length) {
+						starts = Arrays.copyOf(starts, count * 2);
+						ends = Arrays.copyOf(ends, count * 2);
+					}
+					starts[count] = y;
+					ends[count] = end;
+					count++;
+					y = nextBit(column, end, true);
+				}
+			}
+			columnRuns[width] = count;
+			runStart = Arrays.copyOf(starts, count);
+			runEnd = Arrays.copyOf(ends, count);
+
+			// join touching runs of neighbouring columns
+			final int[] parent = new int[count];
+			for (int i = 0; i < count; i++) {
+				parent[i] = i;
+			}
+			for (int x = 1; x < width; x++) {
+				int a = columnRuns[x - 1];
+				int b = columnRuns[x];
+				while ((a < columnRuns[x]) && (b < columnRuns[x + 1])) {
+					if ((runStart[a] < runEnd[b]) && (runStart[b] < runEnd[a])) {
+						union(parent, a, b);
+					}
+					if (runEnd[a] < runEnd[b]) {
+						a++;
+					} else {
+						b++;
+					}
+				}
+			}
+
+			runRegion = new int[count];
+			runOffset = new int[count];
+			final int[] regionOfRoot = new int[count];
+			Arrays.fill(regionOfRoot, -1);
+			int[] regionSizes = new int[16];
+			int regionCount = 0;
+			int offset = 0;
+			for (int i = 0; i < count; i++) {
+				final int root = find(parent, i);
+				if (regionOfRoot[root] < 0) {
+					if (regionCount == regionSizes.length) {
+						regionSizes = Arrays.copyOf(regionSizes, regionCount * 2);
+					}
+					regionOfRoot[root] = regionCount++;
+				}
+				final int region = regionOfRoot[root];
+				runRegion[i] = region;
+				runOffset[i] = offset;
+				final int length = runEnd[i] - runStart[i];
+				regionSizes[region] += length;
+				offset += length;
+			}
+			sizes = Arrays.copyOf(regionSizes, regionCount);
+		}
+
+		/**
+		 * Find the next free or colliding position of a column.
+		 *
+		 * @param column column words
+		 * @param from first position to check
+		 * @param free <code>true</code> to look for a free position,
+		 * 	<code>false</code> for a colliding one
+		 * @return position, or the height of the map if there is none
+		 */
+		private int nextBit(final long[] column, final int from, final boolean free) {
+			int word = from >>> ADDRESS_BITS;
+			if (word >= column.length) {
+				return height;
+			}
+			long bits = (free ? ~column[word] : column[word]) & (-1L << from);
+			while (bits == 0) {
+				word++;
+				if (word == column.length) {
+					return height;
+				}
+				bits = free ? ~column[word] : column[word];
+			}
+			return Math.min(height, (word << ADDRESS_BITS) + Long.numberOfTrailingZeros(bits));
+		}
+
+		private int find(final int[] parent, int i) {
+			while (parent[i] != i) {
+				parent[i] = parent[parent[i]];
+				i = parent[i];
+			}
+			return i;
+		}
+
+		private void union(final int[] parent, final int a, final int b) {
+			final int rootA = find(parent, a);
+			final int rootB = find(parent, b);
+			if (rootA != rootB) {
+				parent[Math.max(rootA, rootB)] = Math.min(rootA, rootB);
+			}
+		}
+
+		int getRegion(final int x, final int y) {
+			// last run of the column starting at or above y
+			int low = columnRuns[x];
+			int high = columnRuns[x + 1] - 1;
+			while (low <= high) {
+				final int mid = (low + high) >>> 1;
+				if (runStart[mid] <= y) {
+					low = mid + 1;
+				} else {
+					high = mid - 1;
+				}
+			}
+			if ((high >= columnRuns[x]) && (y < runEnd[high])) {
+				return runRegion[high];
+			}
+			return -1;
+		}
+
+		Point getFreePosition(final int index) {
+			// last run starting at or before the index
+			int low = 0;
+			int high = runOffset.length - 1;
+			while (low <= high) {
+				final int mid = (low + high) >>> 1;
+				if (runOffset[mid] <= index) {
+					low = mid + 1;
+				} else {
+					high = mid - 1;
+				}
+			}
+			final int run = high;
+			// last column with its first run at or before the run
+			low = 0;
+			high = width - 1;
+			while (low <= high) {
+				final int mid = (low + high) >>> 1;
+				if (columnRuns[mid] <= run) {
+					low = mid + 1;
+				} else {
+					high = mid - 1;
+				}
+			}
+			final int x = high;
+			return new Point(x, runStart[run] + index - runOffset[run]);
+		}
+	}
 }
@@ -74,6 +74,9 @@ public final class Actions {
 	public static final String WHERE = "where";
 	public static final String WHO = "who";
 
+	//search
+	public static final String SEARCH = "search";
+
 	//inspect
 	public static final String INSPECT = "inspect";
 	public static final String INSPECTQUEST = "inspectquest";
@@ -113,6 +116,9 @@ public final class Actions {
 	public static final String ID = "id";
 	public static final String CIDLIST = "cidlist";
 
+	//turn profiler
+	public static final String TURNPROFILE = "turnprofile";
+
 	//attack
 	public static final String ATTACK = "attack";
 
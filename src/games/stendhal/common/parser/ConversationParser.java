@@ -12,8 +12,6 @@
  ***************************************************************************/
 package games.stendhal.common.parser;
 
-import java.util.HashMap;
-import java.util.Map;
 import java.util.StringTokenizer;
 
 import org.apache.log4j.Logger;
@@ -30,11 +28,20 @@ public final class ConversationParser extends ErrorBuffer {
 
 	private static final Logger LOGGER = Logger.getLogger(ConversationParser.class);
 
+	/** Default maximum size of the trigger and matching caches. */
+	public static final int DEFAULT_CACHE_SIZE = 8192;
+
+	/** Default maximum size of the cache of parsed player sentences. */
+	public static final int DEFAULT_SENTENCE_CACHE_SIZE = 2048;
+
 	/** A cache to hold pre-parsed trigger Expressions. */
-    private static Map<String, Expression> triggerExpressionsCache = new HashMap<String, Expression>();
+    private static final ParserCache<String, Expression> triggerExpressionsCache = new ParserCache<String, Expression>(DEFAULT_CACHE_SIZE);
 
     /** A cache to hold pre-parsed matching Sentences. */
-    private static Map<String, Sentence> matchingSentenceCache = new HashMap<String, Sentence>();
+    private static final ParserCache<String, Sentence> matchingSentenceCache = new ParserCache<String, Sentence>(DEFAULT_CACHE_SIZE);
+
+    /** A cache to hold parsed sentences without conversation context, by their text. */
+    private static final ParserCache<String, CachedSentence> sentenceCache = new ParserCache<String, CachedSentence>(DEFAULT_SENTENCE_CACHE_SIZE);
 
     /** Tokenizer to split a sentence into words */
     private final transient StringTokenizer tokenizer;
@@ -132,7 +139,25 @@ public final class ConversationParser extends ErrorBuffer {
      * @return the parsed text
      */
     public static Sentence parse(final String text) {
-        return parse(text, new ConversationContext());
+        if (text == null) {
+            return parse(text, new ConversationContext());
+        }
+
+        final int version = WordList.getInstance().getVersion();
+        final CachedSentence cached = sentenceCache.get(text);
+
+        // callers may change the returned sentence, so the cached one is never handed out
+        if ((cached != null) && (cached.version == version)) {
+            return new SentenceImplementation(cached.sentence);
+        }
+
+        final Sentence sentence = parse(text, new ConversationContext());
+
+        if (!sentence.hasError()) {
+            sentenceCache.put(text, new CachedSentence(new SentenceImplementation(sentence), version));
+        }
+
+        return sentence;
     }
 
     /**
@@ -276,6 +301,33 @@ public final class ConversationParser extends ErrorBuffer {
         return sentence;
     }
 
+    /**
+     * Get the cache of trigger Expressions.
+     *
+     * @return cache
+     */
+    public static ParserCache<String, Expression> getTriggerExpressionsCache() {
+        return triggerExpressionsCache;
+    }
+
+    /**
+     * Get the cache of Sentences used for sentence matching.
+     *
+     * @return cache
+     */
+    public static ParserCache<String, Sentence> getMatchingSentenceCache() {
+        return matchingSentenceCache;
+    }
+
+    /**
+     * Get the cache of Sentences parsed without conversation context.
+     *
+     * @return cache
+     */
+    public static ParserCache<String, ?> getSentenceCache() {
+        return sentenceCache;
+    }
+
     /**
      * Read the next word from the parsed sentence.
      *
@@ -318,4 +370,17 @@ public final class ConversationParser extends ErrorBuffer {
         return newText;
     }
 
+    /**
+     * A parsed sentence together with the word list version it was parsed
+     * with. Changes of the word list may change the parse result.
+     */
+    private static final class CachedSentence {
+        private final Sentence sentence;
+        private final int version;
+
+        CachedSentence(final Sentence sentence, final int version) {
+            this.sentence = sentence;
+            this.version = version;
+        }
+    }
 }
@@ -61,6 +61,21 @@ public final class Expression {
         original = str;
     }
 
+    /**
+     * Create a copy of an Expression.
+     *
+     * @param other
+     */
+    Expression(final Expression other) {
+        original = other.original;
+        type = other.type;
+        normalized = other.normalized;
+        mainWord = other.mainWord;
+        amount = other.amount;
+        breakFlag = other.breakFlag;
+        matcher = other.matcher;
+    }
+
     /**
      * Create an Expression from a single word and a type string.
      *
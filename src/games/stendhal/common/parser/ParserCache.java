@@ -0,0 +1,213 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.common.parser;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A thread safe cache of parse results with a maximum size. The entries are
+ * spread over several segments with their own lock, and each segment drops
+ * its least recently used entry when it is full.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public final class ParserCache<K, V> {
+	/** Number of segments, a power of two. */
+	private static final int SEGMENTS = 8;
+
+	private final Segment<K, V>[] segments;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private volatile int maxSize;
+
+	/**
+	 * Creates a ParserCache.
+	 *
+	 * @param maxSize maximum number of entries, <code>0</code> to disable
+	 * 	the cache
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public ParserCache(final int maxSize) {
+		segments = new Segment[SEGMENTS];
+		for (int i = 0; i < SEGMENTS; i++) {
+			segments[i] = new Segment<K, V>();
+		}
+		setMaxSize(maxSize);
+	}
+
+	/**
+	 * Set the maximum number of entries. Entries above the new limit are
+	 * dropped.
+	 *
+	 * @param maxSize maximum number of entries, <code>0</code> to disable
+	 * 	the cache
+	 */
+	public void setMaxSize(final int maxSize) {
+		this.maxSize = Math.max(0, maxSize);
+		final int segmentSize = (this.maxSize + SEGMENTS - 1) / SEGMENTS;
+		for (final Segment<K, V> segment : segments) {
+			synchronized (segment) {
+				segment.limit = segmentSize;
+				segment.trim();
+			}
+		}
+	}
+
+	/**
+	 * Get the maximum number of entries.
+	 *
+	 * @return maximum size
+	 */
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Get a cached value.
+	 *
+	 * @param key key
+	 * @return value, or <code>null</code> if it is not in the cache
+	 */
+	public V get(final K key) {
+		if (maxSize == 0) {
+			return null;
+		}
+		final Segment<K, V> segment = segmentFor(key);
+		final V value;
+		synchronized (segment) {
+			value = segment.get(key);
+		}
+		if (value == null) {
+			misses.incrementAndGet();
+		} else {
+			hits.incrementAndGet();
+		}
+		return value;
+	}
+
+	/**
+	 * Add a value to the cache.
+	 *
+	 * @param key key
+	 * @param value value
+	 */
+	public void put(final K key, final V value) {
+		if (maxSize == 0) {
+			return;
+		}
+		final Segment<K, V> segment = segmentFor(key);
+		synchronized (segment) {
+			segment.put(key, value);
+		}
+	}
+
+	/**
+	 * Remove all entries and reset the counters.
+	 */
+	public void clear() {
+		for (final Segment<K, V> segment : segments) {
+			synchronized (segment) {
+				segment.clear();
+			}
+		}
+		hits.set(0);
+		misses.set(0);
+	}
+
+	/**
+	 * Get the number of cached entries.
+	 *
+	 * @return size
+	 */
+	public int size() {
+		int size = 0;
+		for (final Segment<K, V> segment : segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Get the number of lookups that found a value.
+	 *
+	 * @return hit count
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * Get the number of lookups that did not find a value.
+	 *
+	 * @return miss count
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * Get the share of lookups that found a value.
+	 *
+	 * @return hit rate in percent
+	 */
+	public int getHitRate() {
+		final long found = hits.get();
+		final long total = found + misses.get();
+		if (total == 0) {
+			return 0;
+		}
+		return (int) (found * 100 / total);
+	}
+
+	private Segment<K, V> segmentFor(final Object key) {
+		int hash = key.hashCode();
+		// spread the high bits, as HashMap does
+		hash ^= hash >>> 16;
+		return segments[hash & (SEGMENTS - 1)];
+	}
+
+	/**
+	 * Part of the cache with its own lock, holding the entries in the order
+	 * of their last use.
+	 *
+	 * @param <K> key type
+	 * @param <V> value type
+	 */
+	private static final class Segment<K, V> extends LinkedHashMap<K, V> {
+		private static final long serialVersionUID = 1L;
+
+		private int limit;
+
+		Segment() {
+			super(16, 0.75f, true);
+		}
+
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<K, V> eldest) {
+			return size() > limit;
+		}
+
+		/**
+		 * Drop the least recently used entries above the limit.
+		 */
+		void trim() {
+			while (size() > limit) {
+				remove(keySet().iterator().next());
+			}
+		}
+	}
+}
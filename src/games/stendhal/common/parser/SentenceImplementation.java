@@ -36,6 +36,26 @@ public final class SentenceImplementation extends Sentence {
         originalText = text;
     }
 
+    /**
+     * Create a copy of a sentence parsed without conversation context, with
+     * copies of its Expressions.
+     *
+     * @param other
+     */
+    SentenceImplementation(final Sentence other) {
+        super(new ConversationContext());
+
+        originalText = other.originalText;
+        sentenceType = other.sentenceType;
+        if (other.hasError()) {
+            setError(other.getErrorString());
+        }
+
+        for (final Expression e : other.expressions) {
+            expressions.add(new Expression(e));
+        }
+    }
+
     /**
      * Create a SentenceImplementation object for testing purposes.
      * note: This constructor does not set originalText.
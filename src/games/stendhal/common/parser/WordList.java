@@ -24,6 +24,7 @@ import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.Logger;
 
@@ -35,6 +36,9 @@ import marauroa.common.io.UnicodeSupportingInputStreamReader;
  * WordList stores a list of words recognized by the ConversationParser. Words
  * are categorised by type (noun, verb, adjective, preposition) and optionally
  * sub-types (animals, food, fluids, ...).
+ * <p>
+ * The word list is shared by all threads parsing conversations, and the
+ * parser adds unknown words to it. Access to the words is thus synchronized.
  *
  * @author Martin Fuchs
  */
@@ -59,6 +63,9 @@ final public class WordList {
 	// We keep house holding the usage of registered subject names (see registerSubjectName).
 	private Map<String, Integer> subjectRefCount = new HashMap<String, Integer>();
 
+	/** Number of changes to the known words, to detect outdated parse results. */
+	private final AtomicInteger version = new AtomicInteger();
+
 	/** instance variable with package protection because of FindBugs hint */
 	static private WordList instance;
 
@@ -130,7 +137,7 @@ final public class WordList {
 	 * @param comments
 	 * @throws IOException
 	 */
-	public void read(final BufferedReader reader, final List<String> comments) throws IOException {
+	public synchronized void read(final BufferedReader reader, final List<String> comments) throws IOException {
 		while (true) {
 			final String line = reader.readLine();
 			if (line == null) {
@@ -273,6 +280,8 @@ final public class WordList {
 				prev.setPlurSing(null);
 			}
 		}
+
+		version.incrementAndGet();
 	}
 
 	/**
@@ -281,7 +290,7 @@ final public class WordList {
 	 * @param writer
 	 * @param type
 	 */
-	public void printWordType(final PrintWriter writer, final String type) {
+	public synchronized void printWordType(final PrintWriter writer, final String type) {
 		for (Map.Entry<String, WordEntry> it : words.entrySet()) {
 			final WordEntry entry = it.getValue();
 			boolean matches;
@@ -343,7 +352,7 @@ final public class WordList {
 	 * @param str
 	 * @return WordEntry
 	 */
-	public WordEntry find(final String str) {
+	public synchronized WordEntry find(final String str) {
 		final WordEntry entry = words.get(trimWord(str));
 
 		return entry;
@@ -355,7 +364,7 @@ final public class WordList {
 	 * @param word
 	 * @return plural string
 	 */
-	public String plural(final String word) {
+	public synchronized String plural(final String word) {
 		final WordEntry entry = words.get(trimWord(word));
 
 		if (entry != null) {
@@ -378,7 +387,7 @@ final public class WordList {
 	 * @param word
 	 * @return singular string
 	 */
-	public String singular(final String word) {
+	public synchronized String singular(final String word) {
 		final WordEntry entry = words.get(trimWord(word));
 
 		if (entry != null) {
@@ -416,7 +425,7 @@ final public class WordList {
 	 *
 	 * @return Verb object with additional information
 	 */
-	Verb normalizeVerb(final String word) {
+	synchronized Verb normalizeVerb(final String word) {
 		final String trimmedWord = trimWord(word);
 
 		final Grammar.Verb verb = Grammar.normalizeRegularVerb(trimmedWord);
@@ -445,7 +454,7 @@ final public class WordList {
 	 * @param word
 	 * @return WordEntry
 	 */
-	WordEntry normalizeAdjective(final String word) {
+	synchronized WordEntry normalizeAdjective(final String word) {
 		final String trimmedWord = trimWord(word);
 
 		final String normalized = Grammar.normalizeDerivedAdjective(trimmedWord);
@@ -474,7 +483,7 @@ final public class WordList {
 	 * @param name
 	 * @param typeString
 	 */
-	public void registerSubjectName(final String name, final String typeString) {
+	public synchronized void registerSubjectName(final String name, final String typeString) {
 		final String key = trimWord(name);
 
 		Integer usageCount = subjectRefCount.get(key);
@@ -497,7 +506,7 @@ final public class WordList {
 	 *
 	 * @param name
 	 */
-	public void unregisterSubjectName(final String name) {
+	public synchronized void unregisterSubjectName(final String name) {
 		final String key = trimWord(name);
 		final WordEntry entry = words.get(key);
 
@@ -523,7 +532,7 @@ final public class WordList {
 	 * @param name
 	 * @param typeString
 	 */
-	public void registerName(final String name, final String typeString) {
+	public synchronized void registerName(final String name, final String typeString) {
 		// parse item name without merging Expression entries
 		final ConversationContext ctx = new ConversationContext();
 		ctx.setMergeExpressions(false);
@@ -582,6 +591,8 @@ final public class WordList {
 
 			nameSet.add(new CompoundName(parsed, typeString));
 		}
+
+		version.incrementAndGet();
 	}
 
 	/**
@@ -590,7 +601,7 @@ final public class WordList {
 	 * @param idx start index of the expression list
 	 * @return compound name or null
 	 */
-	public CompoundName searchCompoundName(AbstractList<Expression> expressions, int idx) {
+	public synchronized CompoundName searchCompoundName(AbstractList<Expression> expressions, int idx) {
         Expression first = expressions.get(idx);
 
     	Set<CompoundName> candidates = compoundNames.get(first.getOriginal().toLowerCase());
@@ -645,6 +656,8 @@ final public class WordList {
 				words.remove(expr.getNormalized());
 			}
 		}
+
+		version.incrementAndGet();
 	}
 
 	/**
@@ -702,7 +715,7 @@ final public class WordList {
 	 *
 	 * @param verb
 	 */
-	public void registerVerb(final String verb) {
+	public synchronized void registerVerb(final String verb) {
 		final String key = trimWord(verb);
 		final WordEntry entry = words.get(key);
 
@@ -714,6 +727,7 @@ final public class WordList {
 			newEntry.setType(new ExpressionType(VERB_DYNAMIC));
 
 			words.put(key, newEntry);
+			version.incrementAndGet();
 //		} else if (!checkNameCompatibleLastType(entry, ExpressionType.VERB)) {
 //	 		logger.warn("verb name already registered with incompatible expression type: " +
 //			entry.getNormalizedWithTypeString());
@@ -726,7 +740,7 @@ final public class WordList {
 	 * @param str
 	 * @return the added entry
 	 */
-	public WordEntry addNewWord(final String str) {
+	public synchronized WordEntry addNewWord(final String str) {
 		final String key = trimWord(str);
 		WordEntry entry = words.get(key);
 
@@ -745,11 +759,22 @@ final public class WordList {
 		return entry;
 	}
 
+	/**
+	 * Get the number of changes of the known words. Words added by
+	 * addNewWord() while parsing do not count, as they don't change the
+	 * result of parsing.
+	 *
+	 * @return version counter
+	 */
+	public int getVersion() {
+		return version.get();
+	}
+
 	/**
 	 * Return number of word entries.
 	 * @return number of entries
 	 */
-	public int getWordCount() {
+	public synchronized int getWordCount() {
 		return words.size();
 	}
 }
@@ -13,9 +13,14 @@
 package games.stendhal.common.tiled;
 
 import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.zip.DeflaterOutputStream;
 import java.util.zip.Inflater;
 import java.util.zip.InflaterInputStream;
@@ -36,6 +41,13 @@ import marauroa.common.net.Serializable;
  *
  */
 public class LayerDefinition implements Serializable {
+	/** Tile storage in {@link #writeTiles(DataOutput)}: palette and 8 bit indices. */
+	private static final int TILES_INDICES8 = 0;
+	/** Tile storage in {@link #writeTiles(DataOutput)}: palette and 16 bit indices. */
+	private static final int TILES_INDICES16 = 1;
+	/** Tile storage in {@link #writeTiles(DataOutput)}: plain ints. */
+	private static final int TILES_PLAIN = 2;
+
 	/** To which map this layer belong. */
 	private StendhalMapStructure map = null;
 
@@ -60,15 +72,27 @@ public class LayerDefinition implements Serializable {
 	 */
 	private String name;
 
-	/** The data encoded as int in a array of size width*height .*/
-	private int[] data = null;
-
 	/**
-	 * The same data in a raw byte array, so we save reencoding it again for
-	 * serialization.
+	 * The tiles in the little endian format of the map files, while the layer
+	 * is being filled. <code>null</code> after the layer has been built.
 	 */
 	private byte[] raw;
 
+	/**
+	 * The distinct tiles of a built layer, if there are at most 65536 of
+	 * them. The tiles are then stored as indices into the palette.
+	 */
+	private int[] palette;
+
+	/** Palette indices of the tiles, if the palette has at most 256 entries. */
+	private byte[] indices8;
+
+	/** Palette indices of the tiles, if the palette has more than 256 entries. */
+	private short[] indices16;
+
+	/** The tiles of a built layer with more than 65536 distinct tiles. */
+	private int[] data;
+
 	/**
 	 * Constructor.
 	 *
@@ -79,7 +103,6 @@ public class LayerDefinition implements Serializable {
 	 */
 	public LayerDefinition(final int layerWidth, final int layerHeight) {
 		raw = new byte[4 * layerWidth * layerHeight];
-		data = new int[layerWidth * layerHeight];
 		width = layerWidth;
 		height = layerHeight;
 	}
@@ -95,39 +118,90 @@ public class LayerDefinition implements Serializable {
 	}
 
 	/**
-	 * Builds the real data array based on the byte array. It is only needed for
-	 * objects, collision and protection, which is at most 40% of the layers.
+	 * Builds the compact representation of the layer from the byte array,
+	 * which is released afterwards. Depending on the number of distinct
+	 * tiles they are stored as 8 or 16 bit indices into a palette, or as
+	 * plain ints.
 	 */
 	public void build() {
-		data = new int[height * width];
-		int offset = 0;
-
-		for (int y = 0; y < height; y++) {
-			for (int x = 0; x < width; x++) {
-				int tileId = 0;
-				tileId |= (raw[0 + offset] & 0xFF);
-				tileId |= (raw[1 + offset] & 0xFF) << 8;
-				tileId |= (raw[2 + offset] & 0xFF) << 16;
-				tileId |= (raw[3 + offset] & 0xFF) << 24;
-
-				data[x + y * width] = tileId;
-				offset += 4;
+		if (raw == null) {
+			return;
+		}
+
+		final int size = width * height;
+		final Map<Integer, Integer> indices = new HashMap<Integer, Integer>();
+		final int[] tiles = new int[size];
+		for (int i = 0; i < size; i++) {
+			final int tileId = readRaw(raw, i);
+			tiles[i] = tileId;
+			if (indices.size() <= 0x10000) {
+				final Integer key = Integer.valueOf(tileId);
+				if (!indices.containsKey(key)) {
+					indices.put(key, Integer.valueOf(indices.size()));
+				}
+			}
+		}
+		raw = null;
+
+		if (indices.size() > 0x10000) {
+			data = tiles;
+			return;
+		}
+
+		palette = new int[indices.size()];
+		for (final Map.Entry<Integer, Integer> entry : indices.entrySet()) {
+			palette[entry.getValue().intValue()] = entry.getKey().intValue();
+		}
+		if (palette.length <= 0x100) {
+			indices8 = new byte[size];
+			for (int i = 0; i < size; i++) {
+				indices8[i] = (byte) indices.get(Integer.valueOf(tiles[i])).intValue();
+			}
+		} else {
+			indices16 = new short[size];
+			for (int i = 0; i < size; i++) {
+				indices16[i] = (short) indices.get(Integer.valueOf(tiles[i])).intValue();
 			}
 		}
 	}
 
 	/**
+	 * Check if the layer has been built.
+	 *
+	 * @return <code>true</code> if the tiles are in the compact storage
+	 */
+	public boolean isBuilt() {
+		return raw == null;
+	}
+
+	/**
+	 * Get the raw byte array so that it can be filled or modified. A built
+	 * layer is converted back to the byte array.
+	 *
 	 * @return the allocated raw array so it can be modified.
 	 */
 	public byte[] exposeRaw() {
+		if (raw == null) {
+			raw = toRaw();
+			palette = null;
+			indices8 = null;
+			indices16 = null;
+			data = null;
+		}
 		return raw;
 	}
 
 	/**
-	 * @return the allocated data array of size width*height containing ints.
+	 * Get the tiles as an int array.
+	 *
+	 * @return a new array of size width*height containing the tiles
 	 */
 	public int[] expose() {
-		return data;
+		final int[] res = new int[width * height];
+		for (int i = 0; i < res.length; i++) {
+			res[i] = getTile(i);
+		}
+		return res;
 	}
 
 	/**
@@ -141,14 +215,21 @@ public class LayerDefinition implements Serializable {
 	 *            the tile code to set ( Use 0 for none ).
 	 */
 	public void set(final int x, final int y, final int tileId) {
-		final int offset = 4 * (x + y * width);
-
-		raw[0 + offset] = (byte) (tileId & 0xFF);
-		raw[1 + offset] = (byte) ((tileId >>> 8) & 0xFF);
-		raw[2 + offset] = (byte) ((tileId >>> 16) & 0xFF);
-		raw[3 + offset] = (byte) ((tileId >>> 24) & 0xFF);
-
-		data[y * width + x] = tileId;
+		final int i = y * width + x;
+		if (raw != null) {
+			writeRaw(raw, i, tileId);
+		} else if (data != null) {
+			data[i] = tileId;
+		} else {
+			final int index = paletteIndex(tileId);
+			if (data != null) {
+				data[i] = tileId;
+			} else if (indices8 != null) {
+				indices8[i] = (byte) index;
+			} else {
+				indices16[i] = (short) index;
+			}
+		}
 	}
 
 	/**
@@ -161,7 +242,190 @@ public class LayerDefinition implements Serializable {
 	 * @return the tile that exists at that position or 0 for none.
 	 */
 	public int getTileAt(final int x, final int y) {
-		return data[y * width + x];
+		return getTile(y * width + x);
+	}
+
+	/**
+	 * Get the number of bytes used for storing the tiles.
+	 *
+	 * @return size of the tile data
+	 */
+	public int getDataSize() {
+		if (raw != null) {
+			return raw.length;
+		}
+		if (data != null) {
+			return 4 * data.length;
+		}
+		int size = 4 * palette.length;
+		if (indices8 != null) {
+			size += indices8.length;
+		} else {
+			size += 2 * indices16.length;
+		}
+		return size;
+	}
+
+	private int getTile(final int i) {
+		if (raw != null) {
+			return readRaw(raw, i);
+		}
+		if (indices8 != null) {
+			return palette[indices8[i] & 0xFF];
+		}
+		if (indices16 != null) {
+			return palette[indices16[i] & 0xFFFF];
+		}
+		return data[i];
+	}
+
+	/**
+	 * Get the palette index of a tile, adding it to the palette and widening
+	 * the indices if needed.
+	 *
+	 * @param tileId tile
+	 * @return palette index
+	 */
+	private int paletteIndex(final int tileId) {
+		for (int i = 0; i < palette.length; i++) {
+			if (palette[i] == tileId) {
+				return i;
+			}
+		}
+
+		final int index = palette.length;
+		if (index == 0x10000) {
+			// too many tiles for a palette
+			data = expose();
+			palette = null;
+			indices16 = null;
+			return -1;
+		}
+		palette = Arrays.copyOf(palette, index + 1);
+		palette[index] = tileId;
+		if ((index == 0x100) && (indices8 != null)) {
+			indices16 = new short[indices8.length];
+			for (int i = 0; i < indices8.length; i++) {
+				indices16[i] = (short) (indices8[i] & 0xFF);
+			}
+			indices8 = null;
+		}
+		return index;
+	}
+
+	private byte[] toRaw() {
+		final int size = width * height;
+		final byte[] res = new byte[4 * size];
+		for (int i = 0; i < size; i++) {
+			writeRaw(res, i, getTile(i));
+		}
+		return res;
+	}
+
+	private static int readRaw(final byte[] bytes, final int i) {
+		final int offset = 4 * i;
+		int tileId = 0;
+		tileId |= (bytes[0 + offset] & 0xFF);
+		tileId |= (bytes[1 + offset] & 0xFF) << 8;
+		tileId |= (bytes[2 + offset] & 0xFF) << 16;
+		tileId |= (bytes[3 + offset] & 0xFF) << 24;
+		return tileId;
+	}
+
+	private static void writeRaw(final byte[] bytes, final int i, final int tileId) {
+		final int offset = 4 * i;
+		bytes[0 + offset] = (byte) (tileId & 0xFF);
+		bytes[1 + offset] = (byte) ((tileId >>> 8) & 0xFF);
+		bytes[2 + offset] = (byte) ((tileId >>> 16) & 0xFF);
+		bytes[3 + offset] = (byte) ((tileId >>> 24) & 0xFF);
+	}
+
+	/**
+	 * Writes the size and the tiles of the layer in the compact storage of a
+	 * built layer. A layer that is still being filled is built first.
+	 *
+	 * @param out output
+	 * @throws IOException in case of an I/O error
+	 */
+	public void writeTiles(final DataOutput out) throws IOException {
+		build();
+		out.writeInt(width);
+		out.writeInt(height);
+		if (data != null) {
+			out.writeByte(TILES_PLAIN);
+			for (final int tile : data) {
+				out.writeInt(tile);
+			}
+			return;
+		}
+		out.writeByte((indices8 != null) ? TILES_INDICES8 : TILES_INDICES16);
+		out.writeInt(palette.length);
+		for (final int tile : palette) {
+			out.writeInt(tile);
+		}
+		if (indices8 != null) {
+			out.write(indices8);
+		} else {
+			for (final short index : indices16) {
+				out.writeShort(index);
+			}
+		}
+	}
+
+	/**
+	 * Reads a layer written by {@link #writeTiles(DataOutput)}. The layer is
+	 * built, without going through the raw byte array.
+	 *
+	 * @param in input, positioned at the layer
+	 * @return layer without a name
+	 * @throws IOException if the data is not a valid layer
+	 */
+	public static LayerDefinition readTiles(final ByteBuffer in) throws IOException {
+		final int layerWidth = in.getInt();
+		final int layerHeight = in.getInt();
+		final long size = (long) layerWidth * layerHeight;
+		if ((layerWidth < 0) || (layerHeight < 0) || (size > in.remaining())) {
+			throw new IOException("invalid layer size " + layerWidth + "x" + layerHeight);
+		}
+		final LayerDefinition layer = new LayerDefinition(0, 0);
+		layer.width = layerWidth;
+		layer.height = layerHeight;
+		layer.raw = null;
+		final int kind = in.get();
+		if (kind == TILES_PLAIN) {
+			layer.data = new int[(int) size];
+			for (int i = 0; i < size; i++) {
+				layer.data[i] = in.getInt();
+			}
+			return layer;
+		}
+		final int paletteSize = in.getInt();
+		final int maxPaletteSize = (kind == TILES_INDICES8) ? 0x100 : 0x10000;
+		if (((kind != TILES_INDICES8) && (kind != TILES_INDICES16)) || (paletteSize < 0) || (paletteSize > maxPaletteSize)) {
+			throw new IOException("invalid tile storage " + kind + " with " + paletteSize + " tiles");
+		}
+		layer.palette = new int[paletteSize];
+		for (int i = 0; i < paletteSize; i++) {
+			layer.palette[i] = in.getInt();
+		}
+		int maxIndex = -1;
+		if (kind == TILES_INDICES8) {
+			layer.indices8 = new byte[(int) size];
+			in.get(layer.indices8);
+			for (final byte index : layer.indices8) {
+				maxIndex = Math.max(maxIndex, index & 0xFF);
+			}
+		} else {
+			layer.indices16 = new short[(int) size];
+			for (int i = 0; i < size; i++) {
+				layer.indices16[i] = in.getShort();
+				maxIndex = Math.max(maxIndex, layer.indices16[i] & 0xFFFF);
+			}
+		}
+		if (maxIndex >= paletteSize) {
+			throw new IOException("tile index " + maxIndex + " outside the palette of " + paletteSize + " tiles");
+		}
+		return layer;
 	}
 
 	/**
@@ -268,6 +532,10 @@ public class LayerDefinition implements Serializable {
 		width = in.readInt();
 		height = in.readInt();
 		raw = in.readByteArray();
+		palette = null;
+		indices8 = null;
+		indices16 = null;
+		data = null;
 	}
 
 	@Override
@@ -275,6 +543,10 @@ public class LayerDefinition implements Serializable {
 		out.write(name);
 		out.write(width);
 		out.write(height);
-		out.write(raw);
+		if (raw != null) {
+			out.write(raw);
+		} else {
+			out.write(toRaw());
+		}
 	}
 }
@@ -48,6 +48,7 @@ import games.stendhal.server.actions.query.ListProducersAction;
 import games.stendhal.server.actions.query.LookAction;
 import games.stendhal.server.actions.query.ProgressStatusQueryAction;
 import games.stendhal.server.actions.query.QuestListAction;
+import games.stendhal.server.actions.query.SearchAction;
 import games.stendhal.server.actions.query.WhereAction;
 import games.stendhal.server.actions.query.WhoAction;
 import games.stendhal.server.actions.spell.CastSpellAction;
@@ -123,6 +124,7 @@ public class CommandCenter {
 		QuestListAction.register();
 		RemoveDetailAction.register();
 		ReorderAction.register();
+		SearchAction.register();
 		SentenceAction.register();
 		StoreMessageAction.register();
 		StopAction.register();
@@ -0,0 +1,51 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.actions.admin;
+
+import static games.stendhal.common.constants.Actions.TARGET;
+import static games.stendhal.common.constants.Actions.TURNPROFILE;
+
+import games.stendhal.common.MathHelper;
+import games.stendhal.server.actions.CommandCenter;
+import games.stendhal.server.core.engine.TurnProfiler;
+import games.stendhal.server.core.events.LoginPrefetcher;
+import games.stendhal.server.entity.player.Player;
+import marauroa.common.game.RPAction;
+
+/**
+ * Shows the turn profile and the login data timings, or resets them with <code>/turnprofile reset</code>.
+ */
+class TurnProfileAction extends AdministrationAction {
+	/** Default amount of zones and listeners to list. */
+	private static final int DEFAULT_COUNT = 5;
+
+	public static void register() {
+		CommandCenter.register(TURNPROFILE, new TurnProfileAction(), 600);
+	}
+
+	@Override
+	protected void perform(final Player player, final RPAction action) {
+		final String param = action.get(TARGET);
+		if ("reset".equals(param)) {
+			TurnProfiler.get().reset();
+			LoginPrefetcher.get().reset();
+			player.sendPrivateText("The turn profile has been reset.");
+			return;
+		}
+
+		int count = DEFAULT_COUNT;
+		if (param != null) {
+			count = MathHelper.parseIntDefault(param, DEFAULT_COUNT);
+		}
+		player.sendPrivateText(TurnProfiler.get().toText(Math.max(count, 0)) + "\n" + LoginPrefetcher.get().toText());
+	}
+}
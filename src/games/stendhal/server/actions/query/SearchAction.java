@@ -0,0 +1,101 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.actions.query;
+
+import static games.stendhal.common.constants.Actions.SEARCH;
+import static games.stendhal.common.constants.Actions.TARGET;
+
+import java.util.List;
+
+import games.stendhal.server.actions.ActionListener;
+import games.stendhal.server.actions.CommandCenter;
+import games.stendhal.server.core.engine.GameEvent;
+import games.stendhal.server.core.rp.searchindex.SearchIndex;
+import games.stendhal.server.core.rp.searchindex.SearchResult;
+import games.stendhal.server.entity.player.Player;
+import marauroa.common.game.RPAction;
+
+/**
+ * Searches for items, creatures, NPCs and achievements.
+ */
+public class SearchAction implements ActionListener {
+	/** maximum number of listed results */
+	private static final int MAX_RESULTS = 10;
+
+	/**
+	 * registers the search action
+	 */
+	public static void register() {
+		CommandCenter.register(SEARCH, new SearchAction());
+	}
+
+	/**
+	 * processes the requested action.
+	 *
+	 * @param player the caller of the action
+	 * @param action the action to be performed
+	 */
+	@Override
+	public void onAction(final Player player, final RPAction action) {
+		if (!action.has(TARGET)) {
+			player.sendPrivateText("Usage: /search <words>");
+			return;
+		}
+		String query = action.get(TARGET);
+		if (action.has("args")) {
+			query = query + " " + action.get("args");
+		}
+		query = query.trim();
+
+		new GameEvent(player.getName(), SEARCH, query).raise();
+
+		// actions are run by the game loop, so the index can be updated here
+		final SearchIndex index = SearchIndex.get();
+		index.update();
+		final List<SearchResult> results = index.search(query, MAX_RESULTS);
+		if (results.isEmpty()) {
+			player.sendPrivateText("Nothing found for \"" + query + "\".");
+			return;
+		}
+
+		final StringBuilder sb = new StringBuilder();
+		sb.append("Search results for \"").append(query).append("\":");
+		for (final SearchResult result : results) {
+			sb.append("\n  ").append(result.getEntityName());
+			sb.append(" (").append(describeType(result.getEntityType())).append(')');
+		}
+		player.sendPrivateText(sb.toString());
+	}
+
+	/**
+	 * gets a readable name of an entity type
+	 *
+	 * @param type type character of the search index
+	 * @return name of type
+	 */
+	private static String describeType(final char type) {
+		switch (type) {
+		case 'A':
+			return "achievement";
+		case 'C':
+			return "creature";
+		case 'I':
+			return "item";
+		case 'N':
+			return "NPC";
+		case 'P':
+			return "player";
+		default:
+			return String.valueOf(type);
+		}
+	}
+}
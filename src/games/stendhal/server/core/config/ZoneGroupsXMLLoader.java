@@ -47,19 +47,21 @@ public class ZoneGroupsXMLLoader extends DefaultHandler {
 		final GroupsXMLLoader groupsLoader = new GroupsXMLLoader(uri);
 		final List<URI> zoneGroups = groupsLoader.load();
 
-		// Load each group
+		// Read each group, then load all zones together
+		final ZoneLoadPipeline pipeline = new ZoneLoadPipeline();
 		for (final URI tempUri : zoneGroups) {
 			LOGGER.debug("Loading zone group [" + tempUri + "]");
 
 			final ZonesXMLLoader loader = new ZonesXMLLoader(tempUri);
 
 			try {
-				loader.load();
+				pipeline.addGroup(loader);
 			} catch (final SAXException ex) {
 				LOGGER.error("Error loading zone group: " + tempUri, ex);
 			} catch (final IOException ex) {
 				LOGGER.error("Error loading zone group: " + tempUri, ex);
 			}
 		}
+		pipeline.run();
 	}
 }
@@ -0,0 +1,272 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.config;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+import org.xml.sax.SAXException;
+
+import games.stendhal.common.MathHelper;
+import games.stendhal.common.tiled.StendhalMapStructure;
+import games.stendhal.server.core.config.ZonesXMLLoader.ZoneDesc;
+import games.stendhal.server.core.config.zone.MapCache;
+import games.stendhal.server.core.engine.StendhalRPWorld;
+import games.stendhal.server.core.engine.StendhalRPZone;
+import marauroa.common.Configuration;
+
+/**
+ * Loads zones in stages.
+ * <ol>
+ * <li>The zone group files are read and the zones are collected.</li>
+ * <li>The TMX maps are decoded by a pool of worker threads, or read from the
+ * map cache. Only a few maps are decoded ahead of the zone that is being
+ * configured, to limit the memory use.</li>
+ * <li>The zones are created and the setup descriptors (configurators,
+ * entities and portals) are run in the order of the zone files on the
+ * calling thread.</li>
+ * </ol>
+ * The time of each stage is logged at the end.
+ * <p>
+ * The number of worker threads is set with <code>zone_loader_threads</code>
+ * in server.ini; 1 decodes the maps on the calling thread. The map cache
+ * directory is set with <code>map_cache</code>; "none" disables the cache.
+ */
+public class ZoneLoadPipeline {
+	private static final Logger logger = Logger.getLogger(ZoneLoadPipeline.class);
+
+	/** maps decoded ahead of the current zone per thread */
+	private static final int LOOKAHEAD_PER_THREAD = 2;
+
+	private final int threads;
+	private final MapCache cache;
+	private final List<PendingZone> zones = new ArrayList<PendingZone>();
+
+	private long readNanos;
+	private final AtomicLong decodeNanos = new AtomicLong();
+	private long waitNanos;
+	private long createNanos;
+	private long setupNanos;
+	private long dangerNanos;
+
+	/**
+	 * Creates a ZoneLoadPipeline configured by server.ini.
+	 */
+	public ZoneLoadPipeline() {
+		this(getConfiguredThreads(), getConfiguredCache());
+	}
+
+	/**
+	 * Creates a ZoneLoadPipeline.
+	 *
+	 * @param threads number of threads decoding maps
+	 * @param cache map cache
+	 */
+	public ZoneLoadPipeline(final int threads, final MapCache cache) {
+		this.threads = Math.max(1, threads);
+		this.cache = cache;
+	}
+
+	private static int getConfiguredThreads() {
+		final int processors = Runtime.getRuntime().availableProcessors();
+		try {
+			return MathHelper.parseIntDefault(Configuration.getConfiguration().get("zone_loader_threads",
+					Integer.toString(processors)), processors);
+		} catch (final IOException e) {
+			return processors;
+		}
+	}
+
+	private static MapCache getConfiguredCache() {
+		String dir = System.getProperty("user.home") + File.separator + "stendhal" + File.separator + "mapcache";
+		try {
+			dir = Configuration.getConfiguration().get("map_cache", dir);
+		} catch (final IOException e) {
+			logger.debug("No configuration, using default map cache " + dir);
+		}
+		if (dir.equals("none")) {
+			return new MapCache(null);
+		}
+		return new MapCache(new File(dir));
+	}
+
+	/**
+	 * Reads the zones of a zone group file.
+	 *
+	 * @param loader loader of the zone group
+	 * @throws SAXException If a SAX error occurred.
+	 * @throws IOException If an I/O error occurred.
+	 */
+	public void addGroup(final ZonesXMLLoader loader) throws SAXException, IOException {
+		final long start = System.nanoTime();
+		try {
+			loader.readZones(this);
+		} finally {
+			readNanos += System.nanoTime() - start;
+		}
+	}
+
+	/**
+	 * Adds a zone.
+	 *
+	 * @param loader loader of the zone group
+	 * @param desc zone descriptor
+	 */
+	void add(final ZonesXMLLoader loader, final ZoneDesc desc) {
+		zones.add(new PendingZone(loader, desc));
+	}
+
+	/**
+	 * Decodes the maps and configures all added zones.
+	 */
+	public void run() {
+		final long start = System.nanoTime();
+		ExecutorService executor = null;
+		if (threads > 1) {
+			executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+				private final AtomicInteger count = new AtomicInteger();
+
+				@Override
+				public Thread newThread(final Runnable r) {
+					final Thread thread = new Thread(r, "zone-loader-" + count.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+
+		int configured = 0;
+		try {
+			final List<Future<StendhalMapStructure>> maps = new ArrayList<Future<StendhalMapStructure>>(zones.size());
+			final int lookahead = (executor == null) ? 1 : threads * LOOKAHEAD_PER_THREAD;
+			for (int i = 0; i < zones.size(); i++) {
+				while ((maps.size() < zones.size()) && (maps.size() < i + lookahead)) {
+					maps.add(decode(executor, zones.get(maps.size()).desc));
+				}
+				final PendingZone zone = zones.get(i);
+				final Future<StendhalMapStructure> map = maps.set(i, null);
+				if (configure(zone, map)) {
+					configured++;
+				}
+			}
+		} catch (final InterruptedException e) {
+			logger.error("Interrupted while loading zones", e);
+			Thread.currentThread().interrupt();
+		} finally {
+			if (executor != null) {
+				executor.shutdownNow();
+			}
+		}
+		zones.clear();
+
+		logger.info(String.format("Loaded %d zones in %d ms: reading zone files %d ms, decoding maps %d ms"
+				+ " on %d threads (%d from cache), waiting for maps %d ms, creating zones %d ms,"
+				+ " setup descriptors %d ms, danger levels %d ms", configured,
+				millis(readNanos + System.nanoTime() - start), millis(readNanos), millis(decodeNanos.get()),
+				threads, cache.getHits(), millis(waitNanos), millis(createNanos), millis(setupNanos),
+				millis(dangerNanos)));
+	}
+
+	private Future<StendhalMapStructure> decode(final ExecutorService executor, final ZoneDesc desc) {
+		final Callable<StendhalMapStructure> task = new Callable<StendhalMapStructure>() {
+			@Override
+			public StendhalMapStructure call() throws Exception {
+				final long start = System.nanoTime();
+				try {
+					return cache.load(StendhalRPWorld.MAPS_FOLDER + desc.getFile());
+				} finally {
+					decodeNanos.addAndGet(System.nanoTime() - start);
+				}
+			}
+		};
+		if (executor != null) {
+			return executor.submit(task);
+		}
+		final FutureTask<StendhalMapStructure> future = new FutureTask<StendhalMapStructure>(task);
+		future.run();
+		return future;
+	}
+
+	/**
+	 * Creates and sets up a zone.
+	 *
+	 * @param zone zone to configure
+	 * @param map the zone's map
+	 * @return <code>true</code> if the zone was created
+	 * @throws InterruptedException if interrupted while waiting for the map
+	 */
+	private boolean configure(final PendingZone zone, final Future<StendhalMapStructure> map)
+			throws InterruptedException {
+		final String name = zone.desc.getName();
+		logger.info("Loading zone: " + name);
+
+		try {
+			long time = System.nanoTime();
+			final StendhalMapStructure zonedata = map.get();
+			waitNanos += System.nanoTime() - time;
+
+			time = System.nanoTime();
+			final StendhalRPZone created = zone.loader.createZone(zone.desc, zonedata);
+			createNanos += System.nanoTime() - time;
+			if (created == null) {
+				return false;
+			}
+
+			time = System.nanoTime();
+			zone.loader.setupZone(zone.desc, created);
+			setupNanos += System.nanoTime() - time;
+
+			// Zone configurators can add creatures, so this should be
+			// done after them
+			time = System.nanoTime();
+			created.calculateDangerLevel();
+			dangerNanos += System.nanoTime() - time;
+			return true;
+		} catch (final InterruptedException ex) {
+			throw ex;
+		} catch (final ExecutionException ex) {
+			logger.error("Error loading zone: " + name, ex.getCause());
+		} catch (final Exception ex) {
+			logger.error("Error loading zone: " + name, ex);
+		}
+		return false;
+	}
+
+	private static long millis(final long nanos) {
+		return nanos / 1000000;
+	}
+
+	/**
+	 * A zone waiting to be loaded.
+	 */
+	private static class PendingZone {
+		final ZonesXMLLoader loader;
+		final ZoneDesc desc;
+
+		PendingZone(final ZonesXMLLoader loader, final ZoneDesc desc) {
+			this.loader = loader;
+			this.desc = desc;
+		}
+	}
+}
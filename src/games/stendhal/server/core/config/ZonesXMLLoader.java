@@ -33,7 +33,6 @@ import games.stendhal.server.core.config.zone.PortalSetupXMLReader;
 import games.stendhal.server.core.config.zone.RegionNameSubstitutionHelper;
 import games.stendhal.server.core.config.zone.SetupDescriptor;
 import games.stendhal.server.core.config.zone.SetupXMLReader;
-import games.stendhal.server.core.config.zone.TMXLoader;
 import games.stendhal.server.core.engine.SingletonRepository;
 import games.stendhal.server.core.engine.StendhalRPWorld;
 import games.stendhal.server.core.engine.StendhalRPZone;
@@ -93,6 +92,23 @@ public final class ZonesXMLLoader {
 	 *             If the resource was not found.
 	 */
 	public void load() throws SAXException, IOException {
+		final ZoneLoadPipeline pipeline = new ZoneLoadPipeline();
+		pipeline.addGroup(this);
+		pipeline.run();
+	}
+
+	/**
+	 * Reads the zones of the group and adds them to a pipeline.
+	 *
+	 * @param pipeline the pipeline that loads the zones
+	 * @throws SAXException
+	 *             If a SAX error occurred.
+	 * @throws IOException
+	 *             If an I/O error occurred.
+	 * @throws FileNotFoundException
+	 *             If the resource was not found.
+	 */
+	void readZones(final ZoneLoadPipeline pipeline) throws SAXException, IOException {
 		final InputStream in = ZonesXMLLoader.class.getResourceAsStream(uri.getPath());
 
 		if (in == null) {
@@ -100,7 +116,7 @@ public final class ZonesXMLLoader {
 		}
 
 		try {
-			load(in);
+			readZones(in, pipeline);
 		} finally {
 			in.close();
 		}
@@ -118,6 +134,25 @@ public final class ZonesXMLLoader {
 	 *             If an I/O error occurred.
 	 */
 	protected void load(final InputStream in) throws SAXException, IOException {
+		final ZoneLoadPipeline pipeline = new ZoneLoadPipeline();
+		readZones(in, pipeline);
+		pipeline.run();
+	}
+
+	/**
+	 * Reads the zones of a config file and adds them to a pipeline.
+	 *
+	 * @param in
+	 *            The config file stream.
+	 * @param pipeline
+	 *            the pipeline that loads the zones
+	 *
+	 * @throws SAXException
+	 *             If a SAX error occurred.
+	 * @throws IOException
+	 *             If an I/O error occurred.
+	 */
+	private void readZones(final InputStream in, final ZoneLoadPipeline pipeline) throws SAXException, IOException {
 		final Document doc = XMLUtil.parse(in);
 
 		// just to speed up starting of the server in while developing
@@ -128,7 +163,7 @@ public final class ZonesXMLLoader {
 		final String regex = System.getProperty("stendhal.zone.regex", ".*");
 
 		/*
-		 * Load each zone
+		 * Collect each zone
 		 */
 		for (final Element element : XMLUtil.getElements(doc.getDocumentElement(), "zone")) {
 			final ZoneDesc zdesc = readZone(element);
@@ -142,30 +177,38 @@ public final class ZonesXMLLoader {
 				continue;
 			}
 
-			logger.info("Loading zone: " + name);
-
-			try {
-				final StendhalMapStructure zonedata = TMXLoader.load(StendhalRPWorld.MAPS_FOLDER
-						+ zdesc.getFile());
+			pipeline.add(this, zdesc);
+		}
+	}
 
-				if (verifyMap(zdesc, zonedata)) {
-					final StendhalRPZone zone = load(zdesc, zonedata);
+	/**
+	 * Creates a zone from its map, if the map has the required layers.
+	 *
+	 * @param zdesc the zone's descriptor
+	 * @param zonedata the zone's map
+	 * @return the created zone, or <code>null</code> if the map is invalid
+	 * @throws SAXException if any xml parsing error happened
+	 * @throws IOException if any IO error happened
+	 */
+	StendhalRPZone createZone(final ZoneDesc zdesc, final StendhalMapStructure zonedata)
+			throws SAXException, IOException {
+		if (!verifyMap(zdesc, zonedata)) {
+			return null;
+		}
+		return load(zdesc, zonedata);
+	}
 
-					/*
-					 * Setup Descriptors
-					 */
-					final Iterator<SetupDescriptor> diter = zdesc.getDescriptors();
+	/**
+	 * Runs the setup descriptors of a zone.
+	 *
+	 * @param zdesc the zone's descriptor
+	 * @param zone the zone
+	 */
+	void setupZone(final ZoneDesc zdesc, final StendhalRPZone zone) {
+		final Iterator<SetupDescriptor> diter = zdesc.getDescriptors();
 
-					while (diter.hasNext()) {
-						diter.next().setup(zone);
-					}
-					// Zone configurators can add creatures, so this should be
-					// done after them
-					zone.calculateDangerLevel();
-				}
-			} catch (final Exception ex) {
-				logger.error("Error loading zone: " + name, ex);
-			}
+		while (diter.hasNext()) {
+			diter.next().setup(zone);
 		}
 	}
 
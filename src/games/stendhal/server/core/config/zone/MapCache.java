@@ -0,0 +1,266 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.config.zone;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+import games.stendhal.common.tiled.LayerDefinition;
+import games.stendhal.common.tiled.StendhalMapStructure;
+import games.stendhal.common.tiled.TileSetDefinition;
+
+/**
+ * A cache of decoded TMX maps in a simple binary format.
+ * <p>
+ * The layers are stored in the compact form of built layers, so that reading
+ * a cached map does not need the raw tile arrays.
+ * <p>
+ * The entries are keyed by the SHA-1 hash of the TMX file, so a changed map
+ * gets a new entry, and are memory mapped when they are read. The format
+ * version is part of the file header, entries of other versions are ignored
+ * and replaced.
+ */
+public class MapCache {
+	private static final Logger logger = Logger.getLogger(MapCache.class);
+
+	/** identifies cache files */
+	private static final int MAGIC = 0x53544d43;
+	/** version of the cache file format */
+	static final int VERSION = 2;
+
+	private final File dir;
+	private final AtomicInteger hits = new AtomicInteger();
+	private final AtomicInteger misses = new AtomicInteger();
+
+	/**
+	 * Creates a MapCache.
+	 *
+	 * @param dir directory of the cache files, or <code>null</code> to
+	 * 	decode all maps without caching them
+	 */
+	public MapCache(final File dir) {
+		this.dir = dir;
+	}
+
+	/**
+	 * Loads a map, from the cache if possible. The layers of the map are
+	 * built.
+	 *
+	 * @param filename name of the TMX file
+	 * @return map
+	 * @throws Exception in case of an error reading or parsing the map
+	 */
+	public StendhalMapStructure load(final String filename) throws Exception {
+		if (dir == null) {
+			misses.incrementAndGet();
+			final StendhalMapStructure map = TMXLoader.load(filename);
+			map.build();
+			return map;
+		}
+
+		final byte[] content = readFully(TMXLoader.open(filename));
+		final File file = new File(dir, hash(content) + ".map");
+		if (file.isFile()) {
+			try {
+				final StendhalMapStructure map = read(file);
+				hits.incrementAndGet();
+				return map;
+			} catch (final IOException e) {
+				logger.warn("Ignoring map cache file " + file + ": " + e);
+			}
+		}
+
+		misses.incrementAndGet();
+		final StendhalMapStructure map = new TMXLoader().readMap(filename, new ByteArrayInputStream(content));
+		map.build();
+		try {
+			write(map, file);
+		} catch (final IOException e) {
+			logger.warn("Cannot write map cache file " + file + ": " + e);
+		}
+		return map;
+	}
+
+	/**
+	 * gets the number of maps read from the cache
+	 *
+	 * @return number of cache hits
+	 */
+	public int getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * gets the number of decoded TMX files
+	 *
+	 * @return number of cache misses
+	 */
+	public int getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * Writes a map to a cache file. The file is written under a temporary
+	 * name first, so that readers never see an incomplete file.
+	 *
+	 * @param map map
+	 * @param file cache file
+	 * @throws IOException in case of an I/O error
+	 */
+	static void write(final StendhalMapStructure map, final File file) throws IOException {
+		final File parent = file.getParentFile();
+		if (parent != null) {
+			parent.mkdirs();
+		}
+		final File tmp = File.createTempFile(file.getName(), ".tmp", parent);
+		final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(map.getWidth());
+			out.writeInt(map.getHeight());
+			out.writeInt(map.getTilesets().size());
+			for (final TileSetDefinition tileset : map.getTilesets()) {
+				writeString(out, tileset.getName());
+				writeString(out, tileset.getSource());
+				out.writeInt(tileset.getFirstGid());
+			}
+			out.writeInt(map.getLayers().size());
+			for (final LayerDefinition layer : map.getLayers()) {
+				writeString(out, layer.getName());
+				layer.writeTiles(out);
+			}
+		} finally {
+			out.close();
+		}
+		if (!tmp.renameTo(file)) {
+			file.delete();
+			if (!tmp.renameTo(file)) {
+				tmp.delete();
+				throw new IOException("Cannot rename " + tmp + " to " + file);
+			}
+		}
+	}
+
+	/**
+	 * Reads a map from a cache file.
+	 *
+	 * @param file cache file
+	 * @return map
+	 * @throws IOException in case of an I/O error or an invalid file
+	 */
+	static StendhalMapStructure read(final File file) throws IOException {
+		final RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			final FileChannel channel = raf.getChannel();
+			final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			return read(buffer);
+		} finally {
+			raf.close();
+		}
+	}
+
+	private static StendhalMapStructure read(final ByteBuffer buffer) throws IOException {
+		try {
+			if ((buffer.getInt() != MAGIC) || (buffer.getInt() != VERSION)) {
+				throw new IOException("unknown format");
+			}
+			final StendhalMapStructure map = new StendhalMapStructure(buffer.getInt(), buffer.getInt());
+			final int tilesets = buffer.getInt();
+			for (int i = 0; i < tilesets; i++) {
+				final String name = readString(buffer);
+				final String source = readString(buffer);
+				map.addTileset(new TileSetDefinition(name, source, buffer.getInt()));
+			}
+			final int layers = buffer.getInt();
+			for (int i = 0; i < layers; i++) {
+				final String name = readString(buffer);
+				final LayerDefinition layer = LayerDefinition.readTiles(buffer);
+				layer.setName(name);
+				map.addLayer(layer);
+			}
+			if (buffer.hasRemaining()) {
+				throw new IOException("unexpected data at end of file");
+			}
+			return map;
+		} catch (final RuntimeException e) {
+			// BufferUnderflowException, NegativeArraySizeException...
+			throw new IOException("invalid file", e);
+		}
+	}
+
+	private static void writeString(final DataOutputStream out, final String value) throws IOException {
+		if (value == null) {
+			out.writeInt(-1);
+			return;
+		}
+		final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(final ByteBuffer buffer) {
+		final int length = buffer.getInt();
+		if (length < 0) {
+			return null;
+		}
+		final byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static byte[] readFully(final InputStream in) throws IOException {
+		try {
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			final byte[] buffer = new byte[16384];
+			int read = in.read(buffer);
+			while (read >= 0) {
+				out.write(buffer, 0, read);
+				read = in.read(buffer);
+			}
+			return out.toByteArray();
+		} finally {
+			in.close();
+		}
+	}
+
+	private static String hash(final byte[] content) {
+		final MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-1");
+		} catch (final NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		final StringBuilder sb = new StringBuilder();
+		for (final byte b : digest.digest(content)) {
+			sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+			sb.append(Character.forDigit(b & 0xF, 16));
+		}
+		return sb.toString();
+	}
+}
@@ -14,6 +14,7 @@ package games.stendhal.server.core.config.zone;
 
 import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
@@ -250,26 +251,55 @@ public class TMXLoader {
 	}
 
 	public StendhalMapStructure readMap(final String filename) throws Exception {
+		final InputStream is = open(filename);
+		try {
+			return readMap(filename, is);
+		} finally {
+			is.close();
+		}
+	}
+
+	/**
+	 * Reads a map from a stream.
+	 *
+	 * @param filename name of the map file, used for the base path and to
+	 * 	detect compressed files
+	 * @param in content of the map file
+	 * @return map
+	 * @throws Exception in case of an error
+	 */
+	StendhalMapStructure readMap(final String filename, final InputStream in) throws Exception {
 		xmlPath = filename.substring(0,
 				filename.lastIndexOf(File.separatorChar) + 1);
 
-		InputStream is = getClass().getClassLoader().getResourceAsStream(
+		InputStream is = in;
+
+		// Wrap with GZIP decoder for .tmx.gz files
+		if (filename.endsWith(".gz")) {
+			is = new GZIPInputStream(is);
+		}
+
+		return unmarshal(is);
+	}
+
+	/**
+	 * Opens a map file from the class path, or the file system.
+	 *
+	 * @param filename name of the map file
+	 * @return stream of the file content
+	 * @throws IOException in case of an error
+	 */
+	static InputStream open(final String filename) throws IOException {
+		InputStream is = TMXLoader.class.getClassLoader().getResourceAsStream(
 				filename);
 
 		if (is == null) {
 			final String xmlFile = makeUrl(filename);
-			// xmlPath = makeUrl(xmlPath);
 
 			final URL url = new URL(xmlFile);
 			is = url.openStream();
 		}
-
-		// Wrap with GZIP decoder for .tmx.gz files
-		if (filename.endsWith(".gz")) {
-			is = new GZIPInputStream(is);
-		}
-
-		return unmarshal(is);
+		return is;
 	}
 
 	public static void main(final String[] args) throws Exception {
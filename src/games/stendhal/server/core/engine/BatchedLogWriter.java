@@ -0,0 +1,205 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.log4j.Logger;
+
+import games.stendhal.server.core.engine.db.LogEventBatch;
+import games.stendhal.server.core.engine.dbcommand.LogEventCommand;
+import marauroa.server.db.DBTransaction;
+import marauroa.server.db.command.AbstractDBCommand;
+import marauroa.server.db.command.DBCommand;
+import marauroa.server.db.command.DBCommandPriority;
+import marauroa.server.db.command.DBCommandQueue;
+
+/**
+ * Collects item log and kill log commands, and writes them in batches.
+ * <p>
+ * Instead of putting each command in the database queue, a single flush
+ * command is queued when the first event arrives. Everything that has been
+ * collected until the database thread gets to the flush command is then
+ * written in one transaction, with batched multi-row statements.
+ */
+public class BatchedLogWriter {
+	private static final Logger logger = Logger.getLogger(BatchedLogWriter.class);
+
+	/** maximum number of events written in one transaction */
+	private static final int MAX_EVENTS_PER_FLUSH = 5000;
+
+	private static final BatchedLogWriter instance = new BatchedLogWriter();
+
+	private final Queue<LogEventCommand> pending = new ConcurrentLinkedQueue<LogEventCommand>();
+	private final AtomicBoolean scheduled = new AtomicBoolean();
+
+	/**
+	 * Get the BatchedLogWriter instance.
+	 *
+	 * @return BatchedLogWriter
+	 */
+	public static BatchedLogWriter get() {
+		return instance;
+	}
+
+	/**
+	 * Add a command to the next batch.
+	 *
+	 * @param command log command
+	 */
+	public void add(final LogEventCommand command) {
+		command.setEnqueueTime(new Timestamp(System.currentTimeMillis()));
+		ZoneLogicRunner.runOrDefer(new Runnable() {
+			@Override
+			public void run() {
+				pending.add(command);
+				schedule();
+			}
+		});
+	}
+
+	/**
+	 * Get the number of events waiting to be written.
+	 *
+	 * @return number of events
+	 */
+	public int size() {
+		return pending.size();
+	}
+
+	private void schedule() {
+		if (scheduled.compareAndSet(false, true)) {
+			DBCommandQueue.get().enqueue(new FlushCommand(), DBCommandPriority.LOW);
+		}
+	}
+
+	/**
+	 * Write the waiting events.
+	 * <p>
+	 * If writing the batch fails, its events are queued again one by one, so
+	 * that an event that cannot be written does not take the others with it.
+	 * Items that got their id in the failed batch keep it, and their rows are
+	 * queued again as well.
+	 *
+	 * @param transaction DBTransaction
+	 * @return number of written events
+	 * @throws SQLException in case of an database error
+	 */
+	public int flush(final DBTransaction transaction) throws SQLException {
+		// events added from now on need another flush
+		scheduled.set(false);
+
+		final LogEventBatch batch = new LogEventBatch(transaction);
+		final List<LogEventCommand> commands = new ArrayList<LogEventCommand>();
+		try {
+			while (commands.size() < MAX_EVENTS_PER_FLUSH) {
+				LogEventCommand command = pending.poll();
+				if (command == null) {
+					break;
+				}
+				commands.add(command);
+				try {
+					command.log(batch);
+				} catch (RuntimeException e) {
+					logger.error("Error logging " + command, e);
+				}
+			}
+			batch.flush();
+		} catch (SQLException e) {
+			logger.warn("Writing " + commands.size() + " log events failed, retrying them one by one", e);
+			retry(batch, commands);
+			throw e;
+		}
+
+		if (!pending.isEmpty()) {
+			schedule();
+		}
+		return commands.size();
+	}
+
+	/**
+	 * Queue the events of a failed batch one by one.
+	 *
+	 * @param batch failed batch
+	 * @param commands commands of the batch
+	 */
+	private void retry(final LogEventBatch batch, final List<LogEventCommand> commands) {
+		for (final LogEventBatch.ItemRegistration registration : batch.getRegistrations()) {
+			requeue(new RegisterItemCommand(registration));
+		}
+		for (final LogEventCommand command : commands) {
+			requeue(command);
+		}
+		if (!pending.isEmpty()) {
+			schedule();
+		}
+	}
+
+	/**
+	 * Put a command of a failed batch in the database queue, to be written on
+	 * its own.
+	 *
+	 * @param command command
+	 */
+	void requeue(final DBCommand command) {
+		DBCommandQueue.get().enqueue(command, DBCommandPriority.LOW);
+	}
+
+	/**
+	 * Writes the events collected by the BatchedLogWriter.
+	 */
+	private static class FlushCommand extends AbstractDBCommand {
+		@Override
+		public void execute(final DBTransaction transaction) throws SQLException {
+			BatchedLogWriter.get().flush(transaction);
+		}
+
+		@Override
+		public String toString() {
+			return "BatchedLogWriter.FlushCommand";
+		}
+	}
+
+	/**
+	 * Writes the rows of an item whose id has been assigned in a failed batch.
+	 */
+	private static class RegisterItemCommand extends AbstractDBCommand implements LogEventCommand {
+		private final LogEventBatch.ItemRegistration registration;
+
+		RegisterItemCommand(final LogEventBatch.ItemRegistration registration) {
+			this.registration = registration;
+		}
+
+		@Override
+		public void log(final LogEventBatch batch) {
+			batch.addRegistration(registration);
+		}
+
+		@Override
+		public void execute(final DBTransaction transaction) throws SQLException {
+			final LogEventBatch batch = new LogEventBatch(transaction);
+			log(batch);
+			batch.flush();
+		}
+
+		@Override
+		public String toString() {
+			return "BatchedLogWriter.RegisterItemCommand [" + registration.getId() + "]";
+		}
+	}
+}
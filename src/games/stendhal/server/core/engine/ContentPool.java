@@ -0,0 +1,144 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shares identical zone content data, like the encoded layers and tilesets
+ * that are transferred to the clients. Few layers are identical in different
+ * zones, mostly small ones like empty roof layers, so for the current maps
+ * this saves only about 2.5% of the transfer data.
+ * <p>
+ * The pool only keeps weak references, so the data of removed zones can be
+ * garbage collected. The entries of collected data are removed on the next
+ * use of the pool.
+ */
+public class ContentPool {
+	private static final ContentPool instance = new ContentPool();
+
+	/** shared data by hash code */
+	private final Map<Integer, List<Entry>> buckets = new HashMap<Integer, List<Entry>>();
+	/** entries whose data has been garbage collected */
+	private final ReferenceQueue<byte[]> collected = new ReferenceQueue<byte[]>();
+	private int shared;
+	private long savedBytes;
+
+	/**
+	 * gets the ContentPool
+	 *
+	 * @return ContentPool
+	 */
+	public static ContentPool get() {
+		return instance;
+	}
+
+	/**
+	 * Gets a shared array with the same content.
+	 *
+	 * @param data data
+	 * @return shared data with the same content, or <code>data</code> if
+	 * 	there is none yet
+	 */
+	public synchronized byte[] intern(final byte[] data) {
+		removeCollected();
+		final Integer hash = Integer.valueOf(Arrays.hashCode(data));
+		List<Entry> bucket = buckets.get(hash);
+		if (bucket == null) {
+			bucket = new ArrayList<Entry>(1);
+			buckets.put(hash, bucket);
+		}
+
+		for (final Entry entry : bucket) {
+			final byte[] candidate = entry.get();
+			if ((candidate != null) && Arrays.equals(candidate, data)) {
+				shared++;
+				savedBytes += data.length;
+				return candidate;
+			}
+		}
+		bucket.add(new Entry(data, hash, collected));
+		return data;
+	}
+
+	/**
+	 * Remove the entries of garbage collected data, and the buckets that
+	 * become empty.
+	 */
+	private void removeCollected() {
+		for (Reference<? extends byte[]> ref = collected.poll(); ref != null; ref = collected.poll()) {
+			final Entry entry = (Entry) ref;
+			final List<Entry> bucket = buckets.get(entry.hash);
+			if (bucket == null) {
+				continue;
+			}
+			final Iterator<Entry> itr = bucket.iterator();
+			while (itr.hasNext()) {
+				if (itr.next() == entry) {
+					itr.remove();
+					break;
+				}
+			}
+			if (bucket.isEmpty()) {
+				buckets.remove(entry.hash);
+			}
+		}
+	}
+
+	/**
+	 * gets the number of hash buckets, including the ones with collected
+	 * data that have not been removed yet
+	 *
+	 * @return number of buckets
+	 */
+	synchronized int getBucketCount() {
+		return buckets.size();
+	}
+
+	/**
+	 * gets the number of times data was shared
+	 *
+	 * @return number of shared arrays
+	 */
+	public synchronized int getSharedCount() {
+		return shared;
+	}
+
+	/**
+	 * gets the number of bytes that were not stored twice
+	 *
+	 * @return saved bytes
+	 */
+	public synchronized long getSavedBytes() {
+		return savedBytes;
+	}
+
+	/**
+	 * A weak reference to shared data, that remembers its bucket.
+	 */
+	private static final class Entry extends WeakReference<byte[]> {
+		private final Integer hash;
+
+		Entry(final byte[] data, final Integer hash, final ReferenceQueue<byte[]> queue) {
+			super(data, queue);
+			this.hash = hash;
+		}
+	}
+}
@@ -52,7 +52,12 @@ public class GameEvent {
 	 * writes the event to the database
 	 */
 	public void raise() {
-		StendhalRPRuleProcessor.get().logGameEvent(this);
+		ZoneLogicRunner.runOrDefer(new Runnable() {
+			@Override
+			public void run() {
+				StendhalRPRuleProcessor.get().logGameEvent(GameEvent.this);
+			}
+		});
 	}
 
 	public String[] getParams() {
@@ -0,0 +1,141 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import java.util.Arrays;
+
+/**
+ * Histogram of durations in microseconds, with logarithmic buckets in the
+ * style of HdrHistogram. Values below 64 are counted exactly. Above that, each
+ * power of two range is split in 32 buckets, so that the reported percentiles
+ * are within about 3% of the real values.
+ */
+public class LatencyHistogram {
+	/** Sub buckets per power of two, as a power of two. */
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	/** Values below this are counted in their own bucket. */
+	private static final int LINEAR_LIMIT = 2 * SUB_BUCKETS;
+	/** Largest value that has a bucket. Larger values are clamped. */
+	private static final long MAX_TRACKABLE = (1L << 40) - 1;
+
+	private final long[] counts = new long[index(MAX_TRACKABLE) + 1];
+	private long count;
+	private long total;
+	private long max;
+
+	/**
+	 * Get the bucket of a value.
+	 *
+	 * @param value value
+	 * @return bucket index
+	 */
+	private static int index(final long value) {
+		if (value < LINEAR_LIMIT) {
+			return (int) value;
+		}
+		final int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		return LINEAR_LIMIT + (shift - 1) * SUB_BUCKETS + (int) (value >> shift) - SUB_BUCKETS;
+	}
+
+	/**
+	 * Get the highest value that is counted in a bucket.
+	 *
+	 * @param index bucket index
+	 * @return largest value of the bucket
+	 */
+	private static long highestValue(final int index) {
+		if (index < LINEAR_LIMIT) {
+			return index;
+		}
+		final int shift = (index - LINEAR_LIMIT) / SUB_BUCKETS + 1;
+		final long sub = (index - LINEAR_LIMIT) % SUB_BUCKETS + SUB_BUCKETS;
+		return ((sub + 1) << shift) - 1;
+	}
+
+	/**
+	 * Record a duration.
+	 *
+	 * @param micros duration in microseconds
+	 */
+	public synchronized void record(final long micros) {
+		final long value = Math.min(Math.max(micros, 0), MAX_TRACKABLE);
+		counts[index(value)]++;
+		count++;
+		total += value;
+		if (value > max) {
+			max = value;
+		}
+	}
+
+	/**
+	 * Get the amount of recorded values.
+	 *
+	 * @return count
+	 */
+	public synchronized long getCount() {
+		return count;
+	}
+
+	/**
+	 * Get the largest recorded value.
+	 *
+	 * @return maximum in microseconds
+	 */
+	public synchronized long getMax() {
+		return max;
+	}
+
+	/**
+	 * Get the mean of the recorded values.
+	 *
+	 * @return mean in microseconds, or 0 if nothing has been recorded
+	 */
+	public synchronized double getMean() {
+		if (count == 0) {
+			return 0;
+		}
+		return (double) total / count;
+	}
+
+	/**
+	 * Get the value at a percentile. The result is the largest value that
+	 * is counted in the same bucket as the value at the percentile.
+	 *
+	 * @param percentile percentile, from 0 to 100
+	 * @return value in microseconds, or 0 if nothing has been recorded
+	 */
+	public synchronized long getValueAtPercentile(final double percentile) {
+		if (count == 0) {
+			return 0;
+		}
+		final long target = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * count));
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= target) {
+				return Math.min(highestValue(i), max);
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * Forget the recorded values.
+	 */
+	public synchronized void reset() {
+		Arrays.fill(counts, 0);
+		count = 0;
+		total = 0;
+		max = 0;
+	}
+}
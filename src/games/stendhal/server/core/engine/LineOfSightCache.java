@@ -0,0 +1,125 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import java.util.Arrays;
+
+import games.stendhal.common.CollisionDetection;
+
+/**
+ * Cache of the line of sight checks of a zone. Creatures check the line of
+ * sight to their targets every turn, usually from and to the same positions
+ * as in the previous turn.
+ * <p>
+ * The cache is a direct mapped table of tile pairs. Each slot holds the
+ * positions and the result in one long, so that a lookup is a single array
+ * read. The table is cleared when the collision map changes. It is
+ * allocated on the first check, and sized by the area of the zone, so zones
+ * without creatures do not pay for it.
+ */
+class LineOfSightCache {
+	/** Largest number of slots, a power of two. */
+	private static final int MAX_SLOTS = 4096;
+	/** Smallest number of slots, a power of two. */
+	private static final int MIN_SLOTS = 64;
+	/** Bits per coordinate in the keys. */
+	private static final int COORDINATE_BITS = 15;
+	private static final int MAX_COORDINATE = (1 << COORDINATE_BITS) - 1;
+	/** Marks a used slot. */
+	private static final long VALID = 1L << 63;
+	/** Result bit of a slot. */
+	private static final long BLOCKED = 1L << 62;
+
+	/** Slot table, or <code>null</code> before the first check. */
+	private long[] slots;
+	/** Collision map the entries were created with. */
+	private CollisionDetection collisionMap;
+	/** Collision map version the entries were created with. */
+	private long collisionVersion;
+	private long hits;
+	private long misses;
+
+	/**
+	 * Check if there is a static collision on the line between two positions.
+	 * The line should always be given in the same direction.
+	 *
+	 * @param map collision map of the zone
+	 * @param x1 x coordinate of the start
+	 * @param y1 y coordinate of the start
+	 * @param x2 x coordinate of the end
+	 * @param y2 y coordinate of the end
+	 * @return <code>true</code> if the line is blocked
+	 */
+	synchronized boolean collidesOnLine(final CollisionDetection map, final int x1, final int y1, final int x2, final int y2) {
+		if (((x1 | y1 | x2 | y2) < 0) || (Math.max(Math.max(x1, y1), Math.max(x2, y2)) > MAX_COORDINATE)) {
+			return map.collidesOnLine(x1, y1, x2, y2);
+		}
+		final long currentVersion = map.getVersion();
+		if (slots == null) {
+			slots = new long[tableSize(map.getWidth() * map.getHeight())];
+			collisionMap = map;
+			collisionVersion = currentVersion;
+		} else if ((map != collisionMap) || (currentVersion != collisionVersion)) {
+			Arrays.fill(slots, 0L);
+			collisionMap = map;
+			collisionVersion = currentVersion;
+		}
+
+		final long key = ((((((long) x1 << COORDINATE_BITS) | y1) << COORDINATE_BITS) | x2) << COORDINATE_BITS) | y2;
+		final int slot = slot(key, slots.length);
+		final long entry = slots[slot];
+		if ((entry & ~BLOCKED) == (key | VALID)) {
+			hits++;
+			return (entry & BLOCKED) != 0;
+		}
+		misses++;
+		final boolean blocked = map.collidesOnLine(x1, y1, x2, y2);
+		slots[slot] = key | VALID | (blocked ? BLOCKED : 0L);
+		return blocked;
+	}
+
+	private static int slot(final long key, final int size) {
+		// multiplicative hashing, using the well mixed high bits
+		return (int) ((key * 0x9E3779B97F4A7C15L) >>> 52) & (size - 1);
+	}
+
+	/**
+	 * Get the number of slots for a zone.
+	 *
+	 * @param area area of the zone in tiles
+	 * @return power of two between {@link #MIN_SLOTS} and {@link #MAX_SLOTS}
+	 */
+	static int tableSize(final int area) {
+		if (area >= MAX_SLOTS) {
+			return MAX_SLOTS;
+		}
+		return Math.max(MIN_SLOTS, Integer.highestOneBit(Math.max(1, area - 1)) << 1);
+	}
+
+	/**
+	 * Get the number of checks answered from the cache.
+	 *
+	 * @return hit count
+	 */
+	synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Get the number of checks that had to walk the line.
+	 *
+	 * @return miss count
+	 */
+	synchronized long getMisses() {
+		return misses;
+	}
+}
@@ -0,0 +1,317 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import games.stendhal.server.core.events.MovementListener;
+
+/**
+ * A grid of the areas of the movement listeners of a zone. Each cell of
+ * {@link #CELL_SIZE} tiles knows the listeners whose area overlaps it, so a
+ * step only has to check the listeners near the entity instead of all
+ * listeners of the zone. Listeners with very large areas, like those covering
+ * the whole zone, are kept in a separate list and are always checked.
+ * <p>
+ * The areas are read when a listener is added and when it is updated. The
+ * owning zone is responsible for calling {@link #update(MovementListener)}
+ * when the area of a listener changes, and for synchronizing access.
+ */
+class MovementListenerIndex {
+	/** Size of a cell in tiles. */
+	static final int CELL_SIZE = 8;
+	/** Listeners covering more cells than this are always checked. */
+	private static final int MAX_PLACED_CELLS = 64;
+	/** Upper limit of cells per axis, like in ZoneEntityIndex. */
+	private static final int MAX_CELLS = 1024;
+	/** Keeps results in the order the listeners were added. */
+	private static final Comparator<Entry> ADD_ORDER = new Comparator<Entry>() {
+		@Override
+		public int compare(Entry e1, Entry e2) {
+			return Long.compare(e1.sequence, e2.sequence);
+		}
+	};
+
+	private final Map<MovementListener, Entry> entries = new IdentityHashMap<MovementListener, Entry>();
+	/** All listeners in the order they were added. */
+	private final List<MovementListener> all = new ArrayList<MovementListener>();
+	/** Listeners with large areas. */
+	private final List<Entry> large = new ArrayList<Entry>();
+	/** Cell buckets, indexed by <code>row * columns + column</code>. */
+	private List<Entry>[] cells;
+	private int columns;
+	private int rows;
+	/** Counter for ordering the entries. */
+	private long nextSequence;
+	/** Marks the entries already collected by the current query. */
+	private long queryStamp;
+	/**
+	 * If <code>false</code>, all listeners are returned as candidates, like
+	 * before the index existed. Used for comparing both in benchmarks.
+	 */
+	private boolean indexEnabled = true;
+
+	/**
+	 * Create a new empty index.
+	 */
+	MovementListenerIndex() {
+		cells = createCells(1, 1);
+		columns = 1;
+		rows = 1;
+	}
+
+	/**
+	 * Add a listener. Adding a listener again only updates its area.
+	 *
+	 * @param listener added listener
+	 */
+	void add(final MovementListener listener) {
+		if (entries.containsKey(listener)) {
+			update(listener);
+			return;
+		}
+		final Entry entry = new Entry(listener, nextSequence++);
+		entries.put(listener, entry);
+		all.add(listener);
+		place(entry);
+	}
+
+	/**
+	 * Remove a listener.
+	 *
+	 * @param listener removed listener
+	 */
+	void remove(final MovementListener listener) {
+		final Entry entry = entries.remove(listener);
+		if (entry != null) {
+			unplace(entry);
+			for (int i = 0; i < all.size(); i++) {
+				if (all.get(i) == listener) {
+					all.remove(i);
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Refresh the area of a listener. Does nothing if the listener is not in
+	 * the index.
+	 *
+	 * @param listener changed listener
+	 */
+	void update(final MovementListener listener) {
+		final Entry entry = entries.get(listener);
+		if (entry == null) {
+			return;
+		}
+		final Rectangle2D area = listener.getArea();
+		if (!entry.large
+				&& (cell(ZoneEntityIndex.tileStart(area.getX())) == entry.x1)
+				&& (cell(ZoneEntityIndex.tileStart(area.getY())) == entry.y1)
+				&& (cell(ZoneEntityIndex.tileEnd(area.getX(), area.getWidth())) == entry.x2)
+				&& (cell(ZoneEntityIndex.tileEnd(area.getY(), area.getHeight())) == entry.y2)) {
+			return;
+		}
+		unplace(entry);
+		place(entry);
+	}
+
+	/**
+	 * Get the number of listeners.
+	 *
+	 * @return listener count
+	 */
+	int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Set whether the index is used for finding the candidates.
+	 *
+	 * @param enabled <code>false</code> to return all listeners
+	 */
+	void setIndexEnabled(final boolean enabled) {
+		indexEnabled = enabled;
+	}
+
+	/**
+	 * Get the listeners whose area may intersect one of two areas.
+	 *
+	 * @param area1 first area
+	 * @param area2 second area, or <code>null</code>
+	 * @return candidate listeners in the order they were added. The caller
+	 * 	still needs to check the intersection
+	 */
+	List<MovementListener> getCandidates(final Rectangle2D area1, final Rectangle2D area2) {
+		if (!indexEnabled) {
+			return all;
+		}
+		queryStamp++;
+		List<Entry> found = null;
+		found = collect(area1, found);
+		if (area2 != null) {
+			found = collect(area2, found);
+		}
+		for (final Entry entry : large) {
+			found = mark(entry, found);
+		}
+
+		if (found == null) {
+			return Collections.emptyList();
+		}
+		if (found.size() > 1) {
+			Collections.sort(found, ADD_ORDER);
+		}
+		final List<MovementListener> result = new ArrayList<MovementListener>(found.size());
+		for (final Entry entry : found) {
+			result.add(entry.listener);
+		}
+		return result;
+	}
+
+	private List<Entry> collect(final Rectangle2D area, final List<Entry> found) {
+		final int x1 = cell(ZoneEntityIndex.tileStart(area.getX()));
+		final int y1 = cell(ZoneEntityIndex.tileStart(area.getY()));
+		if ((x1 >= columns) || (y1 >= rows)) {
+			return found;
+		}
+		final int x2 = Math.min(cell(ZoneEntityIndex.tileEnd(area.getX(), area.getWidth())), columns - 1);
+		final int y2 = Math.min(cell(ZoneEntityIndex.tileEnd(area.getY(), area.getHeight())), rows - 1);
+
+		List<Entry> res = found;
+		for (int cy = y1; cy <= y2; cy++) {
+			for (int cx = x1; cx <= x2; cx++) {
+				final List<Entry> bucket = cells[cy * columns + cx];
+				if (bucket != null) {
+					for (final Entry entry : bucket) {
+						res = mark(entry, res);
+					}
+				}
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * Add an entry to the query result, unless it is already there.
+	 *
+	 * @param entry found entry
+	 * @param found result so far, or <code>null</code>
+	 * @return result
+	 */
+	private List<Entry> mark(final Entry entry, final List<Entry> found) {
+		if (entry.stamp == queryStamp) {
+			return found;
+		}
+		entry.stamp = queryStamp;
+		List<Entry> res = found;
+		if (res == null) {
+			res = new ArrayList<Entry>(4);
+		}
+		res.add(entry);
+		return res;
+	}
+
+	private void place(final Entry entry) {
+		final Rectangle2D area = entry.listener.getArea();
+		entry.x1 = cell(ZoneEntityIndex.tileStart(area.getX()));
+		entry.y1 = cell(ZoneEntityIndex.tileStart(area.getY()));
+		entry.x2 = cell(ZoneEntityIndex.tileEnd(area.getX(), area.getWidth()));
+		entry.y2 = cell(ZoneEntityIndex.tileEnd(area.getY(), area.getHeight()));
+		entry.large = (entry.x2 - entry.x1 + 1) * (entry.y2 - entry.y1 + 1) > MAX_PLACED_CELLS;
+		if (entry.large) {
+			large.add(entry);
+			return;
+		}
+		ensureCapacity(entry.x2 + 1, entry.y2 + 1);
+
+		for (int cy = entry.y1; cy <= entry.y2; cy++) {
+			for (int cx = entry.x1; cx <= entry.x2; cx++) {
+				final int index = cy * columns + cx;
+				List<Entry> bucket = cells[index];
+				if (bucket == null) {
+					bucket = new ArrayList<Entry>(2);
+					cells[index] = bucket;
+				}
+				bucket.add(entry);
+			}
+		}
+	}
+
+	private void unplace(final Entry entry) {
+		if (entry.large) {
+			large.remove(entry);
+			return;
+		}
+		for (int cy = entry.y1; cy <= entry.y2; cy++) {
+			for (int cx = entry.x1; cx <= entry.x2; cx++) {
+				final List<Entry> bucket = cells[cy * columns + cx];
+				if (bucket != null) {
+					bucket.remove(entry);
+				}
+			}
+		}
+	}
+
+	private void ensureCapacity(final int minColumns, final int minRows) {
+		if ((minColumns <= columns) && (minRows <= rows)) {
+			return;
+		}
+		final int newColumns = Math.min(MAX_CELLS, Math.max(minColumns, 2 * columns));
+		final int newRows = Math.min(MAX_CELLS, Math.max(minRows, 2 * rows));
+		final List<Entry>[] newCells = createCells(newColumns, newRows);
+		for (int cy = 0; cy < rows; cy++) {
+			System.arraycopy(cells, cy * columns, newCells, cy * newColumns, columns);
+		}
+		cells = newCells;
+		columns = newColumns;
+		rows = newRows;
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static List<Entry>[] createCells(final int columns, final int rows) {
+		return new List[columns * rows];
+	}
+
+	private static int cell(final int tile) {
+		if (tile <= 0) {
+			return 0;
+		}
+		return Math.min(tile / CELL_SIZE, MAX_CELLS - 1);
+	}
+
+	/**
+	 * Index data of a listener.
+	 */
+	private static final class Entry {
+		private final MovementListener listener;
+		private final long sequence;
+		/** Covered cell range, inclusive. */
+		private int x1, y1, x2, y2;
+		/** <code>true</code> if the listener is in the list of large areas. */
+		private boolean large;
+		/** Query that last collected the entry. */
+		private long stamp;
+
+		Entry(final MovementListener listener, final long sequence) {
+			this.listener = listener;
+			this.sequence = sequence;
+		}
+	}
+}
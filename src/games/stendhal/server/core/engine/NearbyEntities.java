@@ -0,0 +1,124 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import java.util.Arrays;
+
+import games.stendhal.server.entity.Entity;
+
+/**
+ * Result of a range query: entities with their squared distances, nearest
+ * first. Entities at the same distance keep the order they were added in.
+ * <p>
+ * A query fills the list it is given, so callers that do queries often can
+ * keep one list and reuse it instead of allocating a new one for each query.
+ *
+ * @param <T> entity type
+ */
+public final class NearbyEntities<T extends Entity> {
+	private static final int INITIAL_CAPACITY = 8;
+
+	private Entity[] entities = new Entity[INITIAL_CAPACITY];
+	private double[] distances = new double[INITIAL_CAPACITY];
+	private int size;
+
+	/**
+	 * Get the number of entities.
+	 *
+	 * @return size
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Check if the list is empty.
+	 *
+	 * @return <code>true</code> if there are no entities
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Get an entity.
+	 *
+	 * @param index index of the entity, <code>0</code> for the nearest
+	 * @return entity
+	 */
+	@SuppressWarnings("unchecked")
+	public T get(final int index) {
+		checkIndex(index);
+		return (T) entities[index];
+	}
+
+	/**
+	 * Get the squared distance of an entity.
+	 *
+	 * @param index index of the entity
+	 * @return squared distance, as returned by
+	 * 	{@link Entity#squaredDistance(Entity)}
+	 */
+	public double getSquaredDistance(final int index) {
+		checkIndex(index);
+		return distances[index];
+	}
+
+	/**
+	 * Add an entity behind the entities that are at most as far away.
+	 *
+	 * @param entity entity
+	 * @param squaredDistance squared distance of the entity
+	 */
+	public void add(final T entity, final double squaredDistance) {
+		if (size == entities.length) {
+			entities = Arrays.copyOf(entities, 2 * size);
+			distances = Arrays.copyOf(distances, 2 * size);
+		}
+		int index = size;
+		while ((index > 0) && (distances[index - 1] > squaredDistance)) {
+			index--;
+		}
+		System.arraycopy(entities, index, entities, index + 1, size - index);
+		System.arraycopy(distances, index, distances, index + 1, size - index);
+		entities[index] = entity;
+		distances[index] = squaredDistance;
+		size++;
+	}
+
+	/**
+	 * Remove an entity.
+	 *
+	 * @param index index of the entity
+	 */
+	public void remove(final int index) {
+		checkIndex(index);
+		System.arraycopy(entities, index + 1, entities, index, size - index - 1);
+		System.arraycopy(distances, index + 1, distances, index, size - index - 1);
+		size--;
+		entities[size] = null;
+	}
+
+	/**
+	 * Remove all entities.
+	 */
+	public void clear() {
+		Arrays.fill(entities, 0, size, null);
+		size = 0;
+	}
+
+	private void checkIndex(final int index) {
+		if ((index < 0) || (index >= size)) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+	}
+}
@@ -0,0 +1,163 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import java.awt.Rectangle;
+import java.awt.geom.Rectangle2D;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import games.stendhal.server.entity.Entity;
+
+/**
+ * Modification counters of the entities that resist movement in a zone.
+ * <p>
+ * Each change gets a new version number. Changes of single entities are
+ * recorded for the cells of the zone that the entity covered before and
+ * after the change, so that a result that depends only on a part of the zone
+ * stays valid while the obstacles elsewhere change. Changes that can not be
+ * tied to an area count for the whole zone.
+ */
+final class ObstacleVersions {
+	/** Size of a cell in tiles. */
+	private static final int CELL_SIZE = 4;
+
+	/** Tile areas of the resisting entities, as last recorded. */
+	private final Map<Entity, Rectangle> areas = new IdentityHashMap<Entity, Rectangle>();
+	/** Version of the last change. */
+	private int version;
+	/** Version of the last change that affected the whole zone. */
+	private int zoneVersion;
+	/** Version of the last change in each cell. */
+	private int[] cells = new int[0];
+	private int columns;
+	private int rows;
+
+	/**
+	 * Get the version of the last change.
+	 *
+	 * @return version
+	 */
+	synchronized int getVersion() {
+		return version;
+	}
+
+	/**
+	 * Get the version of the last change that affected a tile area.
+	 *
+	 * @param area tile area
+	 * @return version
+	 */
+	synchronized int getVersion(final Rectangle area) {
+		int result = zoneVersion;
+		final int x1 = cell(area.x);
+		final int y1 = cell(area.y);
+		final int x2 = Math.min(columns - 1, cell(area.x + area.width - 1));
+		final int y2 = Math.min(rows - 1, cell(area.y + area.height - 1));
+		for (int cy = y1; cy <= y2; cy++) {
+			for (int cx = x1; cx <= x2; cx++) {
+				result = Math.max(result, cells[cx + cy * columns]);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Record a change that affects the whole zone.
+	 */
+	synchronized void changed() {
+		version++;
+		zoneVersion = version;
+	}
+
+	/**
+	 * Record the change of an entity in the zone. Entities that do not
+	 * resist movement, and did not before, are ignored.
+	 *
+	 * @param entity changed entity
+	 */
+	synchronized void changed(final Entity entity) {
+		final Rectangle old;
+		if (entity.getResistance() > 0) {
+			final Rectangle area = tileArea(entity.getArea());
+			old = areas.put(entity, area);
+			version++;
+			mark(area);
+		} else {
+			old = areas.remove(entity);
+			if (old == null) {
+				return;
+			}
+			version++;
+		}
+		if (old != null) {
+			mark(old);
+		}
+	}
+
+	/**
+	 * Record the removal of an entity from the zone.
+	 *
+	 * @param entity removed entity
+	 */
+	synchronized void removed(final Entity entity) {
+		final Rectangle old = areas.remove(entity);
+		if (old != null) {
+			version++;
+			mark(old);
+		}
+	}
+
+	private void mark(final Rectangle area) {
+		final int x2 = cell(area.x + area.width - 1);
+		final int y2 = cell(area.y + area.height - 1);
+		ensureCapacity(x2 + 1, y2 + 1);
+		for (int cy = cell(area.y); cy <= y2; cy++) {
+			for (int cx = cell(area.x); cx <= x2; cx++) {
+				cells[cx + cy * columns] = version;
+			}
+		}
+	}
+
+	private void ensureCapacity(final int minColumns, final int minRows) {
+		if ((minColumns <= columns) && (minRows <= rows)) {
+			return;
+		}
+		final int newColumns = Math.max(columns, minColumns);
+		final int newRows = Math.max(rows, minRows);
+		final int[] newCells = new int[newColumns * newRows];
+		for (int cy = 0; cy < rows; cy++) {
+			System.arraycopy(cells, cy * columns, newCells, cy * newColumns, columns);
+		}
+		cells = newCells;
+		columns = newColumns;
+		rows = newRows;
+	}
+
+	private static int cell(final int tile) {
+		return Math.max(0, tile) / CELL_SIZE;
+	}
+
+	/**
+	 * Get the tiles covered by an area.
+	 *
+	 * @param area area
+	 * @return tile area, at least one tile large
+	 */
+	private static Rectangle tileArea(final Rectangle2D area) {
+		final int x1 = (int) Math.floor(area.getX());
+		final int y1 = (int) Math.floor(area.getY());
+		final int x2 = Math.max(x1 + 1, (int) Math.ceil(area.getMaxX()));
+		final int y2 = Math.max(y1 + 1, (int) Math.ceil(area.getMaxY()));
+		return new Rectangle(x1, y1, x2 - x1, y2 - y1);
+	}
+}
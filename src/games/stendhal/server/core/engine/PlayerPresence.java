@@ -0,0 +1,278 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import games.stendhal.common.Debug;
+import games.stendhal.server.entity.player.Player;
+import games.stendhal.server.events.PlayerLoggedOnEvent;
+import games.stendhal.server.events.PlayerLoggedOutEvent;
+import marauroa.common.game.RPEvent;
+
+/**
+ * Keeps track of who is online for the buddy lists and the lists of online
+ * player names of the clients.
+ * <p>
+ * A reverse index of the buddy lists of the online players tells which
+ * players have someone as a buddy, so that going online or offline is only
+ * reported to them instead of to every player.
+ * <p>
+ * Logins and logouts are collected during a turn and sent at the beginning
+ * of the next turn. Each player gets at most one event with the names that
+ * logged out and one with the names that logged in, so that a wave of logins
+ * after a restart does not cause an event for every pair of players.
+ * Players that have logged in get the complete list instead. Ghosts are
+ * only listed for other ghosts. Clients older than this server, and clients
+ * that did not tell their version, do not understand lists of names and get
+ * an event for each name.
+ */
+public class PlayerPresence {
+	private final PlayerList onlinePlayers;
+
+	/** Online players by the names of their buddies. */
+	private final Map<String, Set<Player>> buddyOf = new HashMap<String, Set<Player>>();
+	/** Indexed buddy names of each online player. */
+	private final Map<Player, Set<String>> indexed = new IdentityHashMap<Player, Set<String>>();
+
+	/** Names that logged in or out during this turn, and if they logged out. */
+	private final Map<String, Boolean> changed = new LinkedHashMap<String, Boolean>();
+	/** Players that logged in during this turn. */
+	private final Set<Player> loggedIn = Collections.newSetFromMap(new IdentityHashMap<Player, Boolean>());
+
+	/**
+	 * Creates a PlayerPresence.
+	 *
+	 * @param onlinePlayers list of online players
+	 */
+	public PlayerPresence(final PlayerList onlinePlayers) {
+		this.onlinePlayers = onlinePlayers;
+	}
+
+	/**
+	 * Add a player that has logged in.
+	 *
+	 * @param player player
+	 */
+	public synchronized void playerLoggedIn(final Player player) {
+		if (!indexed.containsKey(player)) {
+			indexed.put(player, new HashSet<String>());
+		}
+		for (final String buddy : player.getBuddies()) {
+			buddyAdded(player, buddy);
+		}
+		loggedIn.add(player);
+		if (!changed.containsKey(player.getName())) {
+			changed.put(player.getName(), Boolean.FALSE);
+		}
+	}
+
+	/**
+	 * Remove a player that has logged out.
+	 *
+	 * @param player player
+	 */
+	public synchronized void playerLoggedOut(final Player player) {
+		final Set<String> buddies = indexed.remove(player);
+		if (buddies != null) {
+			for (final String buddy : buddies) {
+				removeFromIndex(player, buddy);
+			}
+		}
+		loggedIn.remove(player);
+		changed.put(player.getName(), Boolean.TRUE);
+	}
+
+	/**
+	 * Tell the index that an online player has a new buddy. Players that are
+	 * not online are ignored.
+	 *
+	 * @param player player
+	 * @param buddy name of the buddy
+	 */
+	public synchronized void buddyAdded(final Player player, final String buddy) {
+		Set<String> buddies = indexed.get(player);
+		if (buddies == null) {
+			if (onlinePlayers.getOnlinePlayer(player.getName()) != player) {
+				return;
+			}
+			buddies = new HashSet<String>();
+			indexed.put(player, buddies);
+		}
+		if (!buddies.add(buddy)) {
+			return;
+		}
+		Set<Player> players = buddyOf.get(buddy);
+		if (players == null) {
+			players = Collections.newSetFromMap(new IdentityHashMap<Player, Boolean>());
+			buddyOf.put(buddy, players);
+		}
+		players.add(player);
+	}
+
+	/**
+	 * Tell the index that a player has removed a buddy.
+	 *
+	 * @param player player
+	 * @param buddy name of the buddy
+	 */
+	public synchronized void buddyRemoved(final Player player, final String buddy) {
+		final Set<String> buddies = indexed.get(player);
+		if ((buddies != null) && buddies.remove(buddy)) {
+			removeFromIndex(player, buddy);
+		}
+	}
+
+	private void removeFromIndex(final Player player, final String buddy) {
+		final Set<Player> players = buddyOf.get(buddy);
+		if (players != null) {
+			players.remove(player);
+			if (players.isEmpty()) {
+				buddyOf.remove(buddy);
+			}
+		}
+	}
+
+	/**
+	 * Get the online players that have someone as a buddy.
+	 *
+	 * @param name name of the buddy
+	 * @return players
+	 */
+	public synchronized List<Player> getPlayersWithBuddy(final String name) {
+		final Set<Player> players = buddyOf.get(name);
+		if (players == null) {
+			return Collections.emptyList();
+		}
+		return new ArrayList<Player>(players);
+	}
+
+	/**
+	 * Tell the players that have someone as a buddy that the buddy went
+	 * online or offline.
+	 *
+	 * @param isOnline <code>true</code> if the buddy went online
+	 * @param buddy the buddy
+	 */
+	public void notifyOnlineStatus(final boolean isOnline, final Player buddy) {
+		final String name = buddy.getName();
+		for (final Player player : getPlayersWithBuddy(name)) {
+			if (isOnline) {
+				player.notifyOnline(name);
+			} else {
+				player.notifyOffline(name);
+			}
+		}
+	}
+
+	/**
+	 * Send the logins and logouts of the last turn to the online players.
+	 *
+	 * @return number of sent events
+	 */
+	synchronized int sendChanges() {
+		if (changed.isEmpty()) {
+			return 0;
+		}
+
+		// names for the players that have just logged in
+		final List<String> allNames = new ArrayList<String>();
+		final List<String> visibleNames = new ArrayList<String>();
+		for (final Player player : onlinePlayers.getAllPlayers()) {
+			allNames.add(player.getName());
+			if (!player.isGhost()) {
+				visibleNames.add(player.getName());
+			}
+		}
+
+		// changes for the other players
+		final List<String> onForGhosts = new ArrayList<String>();
+		final List<String> onForOthers = new ArrayList<String>();
+		final List<String> offForGhosts = new ArrayList<String>();
+		final List<String> offForOthers = new ArrayList<String>();
+		for (final Map.Entry<String, Boolean> entry : changed.entrySet()) {
+			final String name = entry.getKey();
+			final boolean loggedOut = entry.getValue().booleanValue();
+			final Player player = onlinePlayers.getOnlinePlayer(name);
+			if (player != null) {
+				onForGhosts.add(name);
+			} else if (loggedOut) {
+				offForGhosts.add(name);
+			}
+			if ((player != null) && !player.isGhost()) {
+				onForOthers.add(name);
+			} else if (loggedOut) {
+				offForOthers.add(name);
+			}
+		}
+		changed.clear();
+
+		// the same lists go to many players, so the events are cloned from
+		// one event for each list
+		final Map<List<String>, RPEvent> events = new IdentityHashMap<List<String>, RPEvent>();
+		int count = 0;
+		for (final Player player : onlinePlayers.getAllPlayers()) {
+			final boolean ghost = player.isGhost();
+			final List<String> off;
+			final List<String> on;
+			if (loggedIn.contains(player)) {
+				off = Collections.emptyList();
+				on = ghost ? allNames : visibleNames;
+			} else {
+				off = ghost ? offForGhosts : offForOthers;
+				on = ghost ? onForGhosts : onForOthers;
+			}
+			if (player.isClientOlderThan(Debug.VERSION)) {
+				for (final String name : off) {
+					player.addEvent(new PlayerLoggedOutEvent(name));
+					count++;
+				}
+				for (final String name : on) {
+					player.addEvent(new PlayerLoggedOnEvent(name));
+					count++;
+				}
+			} else {
+				if (!off.isEmpty()) {
+					RPEvent event = events.get(off);
+					if (event == null) {
+						event = new PlayerLoggedOutEvent(off);
+						events.put(off, event);
+					}
+					player.addEvent((RPEvent) event.clone());
+					count++;
+				}
+				if (!on.isEmpty()) {
+					RPEvent event = events.get(on);
+					if (event == null) {
+						event = new PlayerLoggedOnEvent(on);
+						events.put(on, event);
+					}
+					player.addEvent((RPEvent) event.clone());
+					count++;
+				}
+			}
+			if (!off.isEmpty() || !on.isEmpty()) {
+				player.notifyWorldAboutChanges();
+			}
+		}
+		loggedIn.clear();
+		return count;
+	}
+}
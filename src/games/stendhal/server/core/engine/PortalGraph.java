@@ -0,0 +1,436 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import java.awt.Rectangle;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.log4j.Logger;
+
+import games.stendhal.server.entity.mapstuff.portal.Portal;
+
+/**
+ * The connections between the zones of a world. A zone is connected to
+ * another one if it has a portal leading there, or if both are exterior zones
+ * on the same level that share a border.
+ * <p>
+ * Changes of the zones and their portals only mark the zone as changed, so
+ * that the many changes while a zone is loaded cost next to nothing. When
+ * the graph is used next, only the connections of the changed zones, and of
+ * the zones with portals leading into them, are computed again. After the
+ * connections changed, the zones are grouped into sets of zones that can
+ * all reach each other, and the reachable sets are computed from the graph
+ * of these sets, which takes time linear in the number of connections.
+ * Reachability queries then take constant time. Conditions of the portals,
+ * like keys or quest states, are not taken into account.
+ */
+public class PortalGraph {
+	private static final Logger logger = Logger.getLogger(PortalGraph.class);
+
+	private final StendhalRPWorld world;
+	/** Names of the zones that changed since the last update. */
+	private final Set<String> changed = ConcurrentHashMap.newKeySet();
+
+	/** Index of each zone in the tables. */
+	private final Map<String, Integer> indices = new HashMap<String, Integer>();
+	/** Zones by index. Unused indices are <code>null</code>. */
+	private final List<StendhalRPZone> zones = new ArrayList<StendhalRPZone>();
+	/** Indices of removed zones, for reuse. */
+	private final Deque<Integer> unused = new ArrayDeque<Integer>();
+	/** Zones with a portal leading to another zone, by zone index. */
+	private final List<BitSet> portalConnections = new ArrayList<BitSet>();
+	/** Zones with a common border, by zone index. */
+	private final List<BitSet> borderConnections = new ArrayList<BitSet>();
+	/** <code>false</code> if the connections changed after computing the reachable zones. */
+	private boolean reachableValid = true;
+	/** Set of mutually reachable zones of each zone, by zone index. */
+	private int[] components = new int[0];
+	/** Sets reachable over any number of connections, by set index. */
+	private BitSet[] componentReachable = new BitSet[0];
+	/** Names of the zones with portals leading into a zone, by zone name. */
+	private final Map<String, Set<String>> portalSources = new HashMap<String, Set<String>>();
+	/** Destination zone names of the portals of each zone, by zone name. */
+	private final Map<String, Set<String>> portalDestinations = new HashMap<String, Set<String>>();
+
+	/**
+	 * Creates a PortalGraph.
+	 *
+	 * @param world world containing the zones
+	 */
+	PortalGraph(final StendhalRPWorld world) {
+		this.world = world;
+	}
+
+	/**
+	 * Tell the graph that a zone, or one of its portals, has changed, or
+	 * that the zone was added to or removed from the world. The graph is
+	 * updated when it is used next.
+	 *
+	 * @param zone name of the zone
+	 */
+	void zoneChanged(final String zone) {
+		changed.add(zone);
+	}
+
+	/**
+	 * Check if a zone has a direct connection to another zone.
+	 *
+	 * @param from name of the starting zone
+	 * @param to name of the destination zone
+	 * @return <code>true</code> if there is a portal or common border
+	 * 	leading from <code>from</code> to <code>to</code>
+	 */
+	public synchronized boolean isConnected(final String from, final String to) {
+		update();
+		final Integer fromIndex = indices.get(from);
+		final Integer toIndex = indices.get(to);
+		if ((fromIndex == null) || (toIndex == null)) {
+			return false;
+		}
+		return isConnected(fromIndex.intValue(), toIndex.intValue());
+	}
+
+	/**
+	 * Check if a zone can be reached from another zone. Each zone is
+	 * reachable from itself.
+	 *
+	 * @param from name of the starting zone
+	 * @param to name of the destination zone
+	 * @return <code>true</code> if there is a way of connected zones from
+	 * 	<code>from</code> to <code>to</code>
+	 */
+	public synchronized boolean isReachable(final String from, final String to) {
+		update();
+		final Integer fromIndex = indices.get(from);
+		final Integer toIndex = indices.get(to);
+		if ((fromIndex == null) || (toIndex == null)) {
+			return false;
+		}
+		if (!reachableValid) {
+			computeReachable();
+		}
+		return componentReachable[components[fromIndex.intValue()]].get(components[toIndex.intValue()]);
+	}
+
+	/**
+	 * Check if a zone is part of the graph.
+	 *
+	 * @param zone zone name
+	 * @return <code>true</code> if the zone is in the world
+	 */
+	public synchronized boolean containsZone(final String zone) {
+		update();
+		return indices.containsKey(zone);
+	}
+
+	/**
+	 * Get the number of direct connections between zones.
+	 *
+	 * @return connection count
+	 */
+	public synchronized int getConnectionCount() {
+		update();
+		int count = 0;
+		for (final Integer index : indices.values()) {
+			final BitSet connections = (BitSet) portalConnections.get(index.intValue()).clone();
+			connections.or(borderConnections.get(index.intValue()));
+			count += connections.cardinality();
+		}
+		return count;
+	}
+
+	private boolean isConnected(final int from, final int to) {
+		return portalConnections.get(from).get(to) || borderConnections.get(from).get(to);
+	}
+
+	/**
+	 * Update the connections of the changed zones.
+	 */
+	private void update() {
+		if (changed.isEmpty()) {
+			return;
+		}
+		final long start = System.nanoTime();
+
+		final Set<String> names = new HashSet<String>();
+		for (final String name : changed) {
+			changed.remove(name);
+			names.add(name);
+		}
+		// portals leading into a changed zone may have become usable or not
+		final Set<String> affected = new HashSet<String>(names);
+		for (final String name : names) {
+			final Set<String> sources = portalSources.get(name);
+			if (sources != null) {
+				affected.addAll(sources);
+			}
+		}
+
+		for (final String name : names) {
+			final StendhalRPZone zone = world.getZone(name);
+			final Integer index = indices.get(name);
+			if (zone == null) {
+				if (index != null) {
+					removeZone(name, index.intValue());
+				}
+			} else if (index == null) {
+				addZone(zone);
+			} else {
+				zones.set(index.intValue(), zone);
+			}
+		}
+		for (final String name : names) {
+			final Integer index = indices.get(name);
+			if (index != null) {
+				updateBorderConnections(index.intValue());
+			}
+		}
+		for (final String name : affected) {
+			final Integer index = indices.get(name);
+			if (index != null) {
+				updatePortalConnections(index.intValue());
+			}
+		}
+
+		if (logger.isDebugEnabled()) {
+			logger.debug("Updated portal graph for " + names.size() + " changed zones in "
+					+ ((System.nanoTime() - start) / 1000000) + " ms");
+		}
+	}
+
+	private void addZone(final StendhalRPZone zone) {
+		final int index;
+		if (unused.isEmpty()) {
+			index = zones.size();
+			zones.add(zone);
+			portalConnections.add(new BitSet());
+			borderConnections.add(new BitSet());
+		} else {
+			index = unused.pop().intValue();
+			zones.set(index, zone);
+		}
+		indices.put(zone.getName(), Integer.valueOf(index));
+		reachableValid = false;
+	}
+
+	private void removeZone(final String name, final int index) {
+		for (final Integer other : indices.values()) {
+			portalConnections.get(other.intValue()).clear(index);
+			borderConnections.get(other.intValue()).clear(index);
+		}
+		portalConnections.get(index).clear();
+		borderConnections.get(index).clear();
+		setPortalDestinations(name, new HashSet<String>());
+		zones.set(index, null);
+		indices.remove(name);
+		unused.push(Integer.valueOf(index));
+		reachableValid = false;
+	}
+
+	/**
+	 * Compute the connections of the portals of a zone that lead to an
+	 * existing portal.
+	 *
+	 * @param index zone index
+	 */
+	private void updatePortalConnections(final int index) {
+		final StendhalRPZone zone = zones.get(index);
+		final BitSet connections = new BitSet();
+		final Set<String> destinations = new HashSet<String>();
+		for (final Portal portal : zone.getPortals()) {
+			final String destination = portal.getDestinationZone();
+			if (!portal.loaded() || (destination == null)) {
+				continue;
+			}
+			destinations.add(destination);
+			final Integer destinationIndex = indices.get(destination);
+			if ((destinationIndex == null) || (destinationIndex.intValue() == index)) {
+				continue;
+			}
+			final StendhalRPZone destinationZone = zones.get(destinationIndex.intValue());
+			if (destinationZone.getPortal(portal.getDestinationReference()) != null) {
+				connections.set(destinationIndex.intValue());
+			}
+		}
+		setPortalDestinations(zone.getName(), destinations);
+
+		if (!connections.equals(portalConnections.get(index))) {
+			portalConnections.set(index, connections);
+			reachableValid = false;
+		}
+	}
+
+	private void setPortalDestinations(final String zone, final Set<String> destinations) {
+		final Set<String> old = portalDestinations.put(zone, destinations);
+		if (old != null) {
+			for (final String destination : old) {
+				final Set<String> sources = portalSources.get(destination);
+				sources.remove(zone);
+				if (sources.isEmpty()) {
+					portalSources.remove(destination);
+				}
+			}
+		}
+		for (final String destination : destinations) {
+			Set<String> sources = portalSources.get(destination);
+			if (sources == null) {
+				sources = new HashSet<String>();
+				portalSources.put(destination, sources);
+			}
+			sources.add(zone);
+		}
+		if (destinations.isEmpty()) {
+			portalDestinations.remove(zone);
+		}
+	}
+
+	/**
+	 * Connect an exterior zone with the exterior zones on the same level
+	 * that share a border with it.
+	 *
+	 * @param index zone index
+	 */
+	private void updateBorderConnections(final int index) {
+		final StendhalRPZone zone = zones.get(index);
+		final BitSet connections = new BitSet();
+		if (!zone.isInterior()) {
+			final Rectangle wide = new Rectangle(zone.getX() - 1, zone.getY(), zone.getWidth() + 2, zone.getHeight());
+			final Rectangle high = new Rectangle(zone.getX(), zone.getY() - 1, zone.getWidth(), zone.getHeight() + 2);
+			for (final Integer other : indices.values()) {
+				final StendhalRPZone otherZone = zones.get(other.intValue());
+				if ((other.intValue() == index) || otherZone.isInterior() || (otherZone.getLevel() != zone.getLevel())) {
+					continue;
+				}
+				final Rectangle area = new Rectangle(otherZone.getX(), otherZone.getY(),
+						otherZone.getWidth(), otherZone.getHeight());
+				if (wide.intersects(area) || high.intersects(area)) {
+					connections.set(other.intValue());
+				}
+			}
+		}
+
+		final BitSet old = borderConnections.get(index);
+		if (connections.equals(old)) {
+			return;
+		}
+		borderConnections.set(index, connections);
+		for (int i = old.nextSetBit(0); i >= 0; i = old.nextSetBit(i + 1)) {
+			borderConnections.get(i).clear(index);
+		}
+		for (int i = connections.nextSetBit(0); i >= 0; i = connections.nextSetBit(i + 1)) {
+			borderConnections.get(i).set(index);
+		}
+		reachableValid = false;
+	}
+
+	/**
+	 * Compute the reachable zones. The sets of mutually reachable zones are
+	 * found with Tarjan's algorithm, which completes each set only after all
+	 * sets reachable from it, so that their reachable sets can be combined.
+	 */
+	private void computeReachable() {
+		final int size = zones.size();
+		final BitSet[] next = new BitSet[size];
+		for (final Integer index : indices.values()) {
+			final int i = index.intValue();
+			next[i] = (BitSet) portalConnections.get(i).clone();
+			next[i].or(borderConnections.get(i));
+		}
+
+		final int[] order = new int[size];
+		final int[] low = new int[size];
+		final int[] nextConnection = new int[size];
+		final int[] path = new int[size];
+		final int[] stack = new int[size];
+		final boolean[] onStack = new boolean[size];
+		final int[] newComponents = new int[size];
+		final List<BitSet> newReachable = new ArrayList<BitSet>();
+		int visited = 0;
+		int stackSize = 0;
+
+		for (final Integer index : indices.values()) {
+			if (order[index.intValue()] != 0) {
+				continue;
+			}
+			int depth = 0;
+			int zone = index.intValue();
+			order[zone] = ++visited;
+			low[zone] = visited;
+			nextConnection[zone] = next[zone].nextSetBit(0);
+			stack[stackSize++] = zone;
+			onStack[zone] = true;
+			path[depth++] = zone;
+
+			while (depth > 0) {
+				zone = path[depth - 1];
+				final int other = nextConnection[zone];
+				if (other >= 0) {
+					nextConnection[zone] = next[zone].nextSetBit(other + 1);
+					if (order[other] == 0) {
+						order[other] = ++visited;
+						low[other] = visited;
+						nextConnection[other] = next[other].nextSetBit(0);
+						stack[stackSize++] = other;
+						onStack[other] = true;
+						path[depth++] = other;
+					} else if (onStack[other]) {
+						low[zone] = Math.min(low[zone], order[other]);
+					}
+					continue;
+				}
+
+				depth--;
+				if (depth > 0) {
+					final int parent = path[depth - 1];
+					low[parent] = Math.min(low[parent], low[zone]);
+				}
+				if (low[zone] != order[zone]) {
+					continue;
+				}
+				// zone is the root of a completed set
+				final int component = newReachable.size();
+				final BitSet componentReach = new BitSet();
+				componentReach.set(component);
+				int member;
+				int first = stackSize;
+				do {
+					member = stack[--first];
+					onStack[member] = false;
+					newComponents[member] = component;
+				} while (member != zone);
+				for (int i = first; i < stackSize; i++) {
+					final BitSet connections = next[stack[i]];
+					for (int j = connections.nextSetBit(0); j >= 0; j = connections.nextSetBit(j + 1)) {
+						if (newComponents[j] != component) {
+							componentReach.or(newReachable.get(newComponents[j]));
+						}
+					}
+				}
+				stackSize = first;
+				newReachable.add(componentReach);
+			}
+		}
+
+		components = newComponents;
+		componentReachable = newReachable.toArray(new BitSet[newReachable.size()]);
+		reachableValid = true;
+	}
+}
@@ -0,0 +1,223 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import java.awt.Point;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import games.stendhal.server.entity.mapstuff.portal.Portal;
+
+/**
+ * Lookup tables of the portals of a zone by position and by identifier.
+ * <p>
+ * The tables are updated for each added, removed or changed portal. Each
+ * table entry is an immutable array of the portals with the same key, in the
+ * order they were added, so other zones can look up destination portals
+ * without locking. Like a scan of the portal list, the lookups return the
+ * first added portal if several match.
+ */
+class PortalIndex {
+	private static final Portal[] NONE = new Portal[0];
+
+	/** Keys of the portals, as they were entered in the tables. */
+	private final Map<Portal, Entry> entries = new IdentityHashMap<Portal, Entry>();
+	private final Map<Point, Portal[]> byPosition = new ConcurrentHashMap<Point, Portal[]>();
+	private final Map<Object, Portal[]> byReference = new ConcurrentHashMap<Object, Portal[]>();
+	/** Portals with identifiers that can not be used as hash keys. */
+	private volatile Portal[] others = NONE;
+	/** Counter for ordering the portals. */
+	private long nextSequence;
+
+	/**
+	 * Add a portal.
+	 *
+	 * @param portal portal added to the zone
+	 */
+	synchronized void add(final Portal portal) {
+		if (entries.containsKey(portal)) {
+			return;
+		}
+		final Entry entry = new Entry(nextSequence++, portal);
+		entries.put(portal, entry);
+		enter(entry);
+	}
+
+	/**
+	 * Remove a portal.
+	 *
+	 * @param portal portal removed from the zone
+	 */
+	synchronized void remove(final Portal portal) {
+		final Entry entry = entries.remove(portal);
+		if (entry != null) {
+			leave(entry);
+		}
+	}
+
+	/**
+	 * Update the tables after the position or identifier of a portal has
+	 * changed.
+	 *
+	 * @param portal changed portal
+	 */
+	synchronized void update(final Portal portal) {
+		final Entry entry = entries.get(portal);
+		if (entry == null) {
+			return;
+		}
+		final Entry changed = new Entry(entry.sequence, portal);
+		if (changed.position.equals(entry.position) && (changed.identifier == entry.identifier)) {
+			return;
+		}
+		leave(entry);
+		entries.put(portal, changed);
+		enter(changed);
+	}
+
+	/**
+	 * Get the first portal at a position.
+	 *
+	 * @param x x coordinate
+	 * @param y y coordinate
+	 * @return portal, or <code>null</code>
+	 */
+	Portal getPortalAt(final int x, final int y) {
+		if (byPosition.isEmpty()) {
+			return null;
+		}
+		return first(byPosition.get(new Point(x, y)));
+	}
+
+	/**
+	 * Get the first portal with an identifier equal to a reference.
+	 *
+	 * @param reference reference
+	 * @return portal, or <code>null</code>
+	 */
+	Portal getPortal(final Object reference) {
+		if (isKey(reference)) {
+			return first(byReference.get(reference));
+		}
+		// other identifiers may not have a stable hash code
+		for (final Portal portal : others) {
+			if (reference.equals(portal.getIdentifier())) {
+				return portal;
+			}
+		}
+		return null;
+	}
+
+	private void enter(final Entry entry) {
+		insert(byPosition, entry.position, entry);
+		if (isKey(entry.identifier)) {
+			insert(byReference, entry.identifier, entry);
+		} else if (entry.identifier != null) {
+			others = insert(others, entry);
+		}
+	}
+
+	private void leave(final Entry entry) {
+		delete(byPosition, entry.position, entry.portal);
+		if (isKey(entry.identifier)) {
+			delete(byReference, entry.identifier, entry.portal);
+		} else if (entry.identifier != null) {
+			others = delete(others, entry.portal);
+		}
+	}
+
+	private <K> void insert(final Map<K, Portal[]> table, final K key, final Entry entry) {
+		final Portal[] old = table.get(key);
+		table.put(key, insert((old == null) ? NONE : old, entry));
+	}
+
+	/**
+	 * Create a copy of a portal array with a portal inserted at the place
+	 * given by the order of adding.
+	 *
+	 * @param portals portals in the order of adding
+	 * @param entry entry of the new portal
+	 * @return new array
+	 */
+	private Portal[] insert(final Portal[] portals, final Entry entry) {
+		int pos = portals.length;
+		while ((pos > 0) && (entries.get(portals[pos - 1]).sequence > entry.sequence)) {
+			pos--;
+		}
+		final Portal[] res = new Portal[portals.length + 1];
+		System.arraycopy(portals, 0, res, 0, pos);
+		res[pos] = entry.portal;
+		System.arraycopy(portals, pos, res, pos + 1, portals.length - pos);
+		return res;
+	}
+
+	private static <K> void delete(final Map<K, Portal[]> table, final K key, final Portal portal) {
+		final Portal[] old = table.get(key);
+		if (old == null) {
+			return;
+		}
+		final Portal[] portals = delete(old, portal);
+		if (portals.length == 0) {
+			table.remove(key);
+		} else {
+			table.put(key, portals);
+		}
+	}
+
+	private static Portal[] delete(final Portal[] portals, final Portal portal) {
+		for (int i = 0; i < portals.length; i++) {
+			if (portals[i] == portal) {
+				final Portal[] res = new Portal[portals.length - 1];
+				System.arraycopy(portals, 0, res, 0, i);
+				System.arraycopy(portals, i + 1, res, i, res.length - i);
+				return res;
+			}
+		}
+		return portals;
+	}
+
+	private static Portal first(final Portal[] portals) {
+		if (portals == null) {
+			return null;
+		}
+		return portals[0];
+	}
+
+	/**
+	 * Check if a reference can be used as a hash key.
+	 *
+	 * @param reference reference
+	 * @return <code>true</code> for immutable references, like strings and
+	 * 	numbers
+	 */
+	private static boolean isKey(final Object reference) {
+		return (reference instanceof String) || (reference instanceof Number);
+	}
+
+	/**
+	 * The keys of a portal in the tables.
+	 */
+	private static final class Entry {
+		private final long sequence;
+		private final Portal portal;
+		private final Point position;
+		private final Object identifier;
+
+		Entry(final long sequence, final Portal portal) {
+			this.sequence = sequence;
+			this.portal = portal;
+			position = new Point(portal.getX(), portal.getY());
+			identifier = portal.getIdentifier();
+		}
+	}
+}
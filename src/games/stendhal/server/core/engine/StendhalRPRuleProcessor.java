@@ -12,11 +12,15 @@
 package games.stendhal.server.core.engine;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -28,8 +32,11 @@ import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
 
 import games.stendhal.common.Debug;
+import games.stendhal.common.MathHelper;
 import games.stendhal.common.NotificationType;
 import games.stendhal.common.filter.FilterCriteria;
+import games.stendhal.common.parser.ConversationParser;
+import games.stendhal.common.parser.ParserCache;
 import games.stendhal.server.actions.CommandCenter;
 import games.stendhal.server.actions.admin.AdministrationAction;
 import games.stendhal.server.core.account.AccountCreator;
@@ -42,6 +49,8 @@ import games.stendhal.server.core.events.TurnNotifier;
 import games.stendhal.server.core.events.TutorialNotifier;
 import games.stendhal.server.core.rp.StendhalQuestSystem;
 import games.stendhal.server.core.rp.StendhalRPAction;
+import games.stendhal.server.core.rp.searchindex.SearchIndex;
+import games.stendhal.server.core.rp.searchindex.SearchResult;
 import games.stendhal.server.core.scripting.ScriptRunner;
 import games.stendhal.server.entity.Entity;
 import games.stendhal.server.entity.RPEntity;
@@ -49,8 +58,6 @@ import games.stendhal.server.entity.npc.NPCList;
 import games.stendhal.server.entity.npc.behaviour.impl.OutfitChangerBehaviour.ExpireOutfit;
 import games.stendhal.server.entity.player.AfkTimeouter;
 import games.stendhal.server.entity.player.Player;
-import games.stendhal.server.events.PlayerLoggedOnEvent;
-import games.stendhal.server.events.PlayerLoggedOutEvent;
 import games.stendhal.server.extension.StendhalServerExtension;
 import marauroa.common.Configuration;
 import marauroa.common.Pair;
@@ -93,6 +100,8 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 
 	/** a list of online players */
 	protected PlayerList onlinePlayers;
+	/** buddy index and online list changes of the online players */
+	protected PlayerPresence presence;
 	private final List<Player> playersRmText;
 
 	/**
@@ -106,6 +115,9 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 
 	private LinkedList<marauroa.server.game.rp.GameEvent> gameEvents = new LinkedList<>();
 
+	/** Runner for the zone logic, or <code>null</code> to run it in order in the game loop */
+	private ZoneLogicRunner zoneLogicRunner;
+
 
 	/**
 	 * gets the singleton instance of StendhalRPRuleProcessor
@@ -130,6 +142,7 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 	 */
 	protected StendhalRPRuleProcessor() {
 		onlinePlayers = new PlayerList();
+		presence = new PlayerPresence(onlinePlayers);
 		playersRmText = new LinkedList<Player>();
 		entityToKill = new LinkedList<Pair<RPEntity, Entity>>();
 	}
@@ -143,6 +156,15 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 		return onlinePlayers;
 	}
 
+	/**
+	 * gets the buddy index and online list changes of the online players
+	 *
+	 * @return presence of the online players
+	 */
+	public PlayerPresence getPlayerPresence() {
+		return presence;
+	}
+
 	@Override
 	public void setContext(final RPServerManager rpman) {
 		try {
@@ -172,6 +194,14 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 			CachedActionManager.get().run();
 
 			final Configuration config = Configuration.getConfiguration();
+			final int zoneLogicThreads = MathHelper.parseIntDefault(config.get("zone_logic_threads", "0"), 0);
+			if (zoneLogicThreads > 0) {
+				setZoneLogicRunner(new ZoneLogicRunner(zoneLogicThreads));
+			}
+			StendhalRPZone.setDormancyEnabled("true".equals(config.get("zone_dormancy", "false")));
+			ConversationParser.getSentenceCache().setMaxSize(MathHelper.parseIntDefault(
+					config.get("parser_sentence_cache", Integer.toString(ConversationParser.DEFAULT_SENTENCE_CACHE_SIZE)),
+					ConversationParser.DEFAULT_SENTENCE_CACHE_SIZE));
 			try {
 				final String[] extensionsToLoad = config.get("server_extension").split(",");
 				for (final String element : extensionsToLoad) {
@@ -216,6 +246,19 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 		}
 	}
 
+	/**
+	 * Sets the runner for the zone logic.
+	 *
+	 * @param runner runner, or <code>null</code> to run the zone logic in order
+	 * 	in the game loop thread
+	 */
+	public void setZoneLogicRunner(final ZoneLogicRunner runner) {
+		if (zoneLogicRunner != null) {
+			zoneLogicRunner.shutdown();
+		}
+		zoneLogicRunner = runner;
+	}
+
 	/**
 	 * Kills an RPEntity.
 	 *
@@ -223,7 +266,12 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 	 * @param killer
 	 */
 	public void killRPEntity(final RPEntity entity, final Entity killer) {
-		entityToKill.add(new Pair<RPEntity, Entity>(entity, killer));
+		ZoneLogicRunner.runOrDefer(new Runnable() {
+			@Override
+			public void run() {
+				entityToKill.add(new Pair<RPEntity, Entity>(entity, killer));
+			}
+		});
 	}
 
 	/**
@@ -281,7 +329,9 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 	/** Notify it when a new turn happens. */
 	@Override
 	public synchronized void beginTurn() {
+		final TurnProfiler profiler = TurnProfiler.get();
 		final long start = System.nanoTime();
+		long phaseStart;
 
 		try {
 			destroyObsoleteZones();
@@ -291,34 +341,49 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 
 		try {
 			logNumberOfPlayersOnline();
+			logParserCaches();
 		} catch (final Exception e) {
 			logger.error("error in beginTurn", e);
 		}
 
+		phaseStart = System.nanoTime();
 		try {
 			handleKilledEntities();
 		} catch (final Exception e) {
 			logger.error("error in beginTurn", e);
 		}
+		phaseStart = profiler.phase(TurnProfiler.KILLED_ENTITIES, phaseStart);
 
 		try {
 			executePlayerLogic();
 		} catch (final Exception e) {
 			logger.error("error in beginTurn", e);
 		}
+		phaseStart = profiler.phase(TurnProfiler.PLAYER_LOGIC, phaseStart);
 
 		try {
 			executeNPCsPreLogic();
 		} catch (final Exception e) {
 			logger.error("error in beginTurn", e);
 		}
+		profiler.phase(TurnProfiler.NPC_PRE_LOGIC, phaseStart);
 
 		try {
 			handlePlayersRmTexts();
 		} catch (final Exception e) {
 			logger.error("error in beginTurn", e);
 		}
-		logger.debug("Begin turn: " + (System.nanoTime() - start) / 1000000.0);
+
+		phaseStart = System.nanoTime();
+		try {
+			presence.sendChanges();
+		} catch (final Exception e) {
+			logger.error("error in beginTurn", e);
+		}
+		profiler.phase(TurnProfiler.PRESENCE, phaseStart);
+
+		final long end = profiler.phase(TurnProfiler.BEGIN_TURN, start);
+		logger.debug("Begin turn: " + (end - start) / 1000000.0);
 	}
 
 	private void destroyObsoleteZones() {
@@ -336,6 +401,22 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 		Statistics.getStatistics().set("Players logged", getOnlinePlayers().size());
 	}
 
+	/**
+	 * Keeps the sizes and hit rates of the conversation parser caches in the
+	 * statistics.
+	 */
+	private void logParserCaches() {
+		final Statistics stats = Statistics.getStatistics();
+		logParserCache(stats, "Parser trigger cache", ConversationParser.getTriggerExpressionsCache());
+		logParserCache(stats, "Parser matching cache", ConversationParser.getMatchingSentenceCache());
+		logParserCache(stats, "Parser sentence cache", ConversationParser.getSentenceCache());
+	}
+
+	private static void logParserCache(final Statistics stats, final String name, final ParserCache<?, ?> cache) {
+		stats.set(name + " size", cache.size());
+		stats.set(name + " hit rate", cache.getHitRate());
+	}
+
 	protected void handlePlayersRmTexts() {
 		for (final Player player : playersRmText) {
 			if (player.has("text")) {
@@ -388,14 +469,33 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 
 	@Override
 	public synchronized void endTurn() {
+		final TurnProfiler profiler = TurnProfiler.get();
+		final long start = System.nanoTime();
 		final int currentTurn = getTurn();
 		try {
 
 			SingletonRepository.getTurnNotifier().logic(currentTurn);
+			final long zoneStart = profiler.phase(TurnProfiler.TURN_NOTIFIER, start);
+
+			if (zoneLogicRunner != null) {
+				final List<StendhalRPZone> zones = new ArrayList<StendhalRPZone>();
+				for (final IRPZone zone : SingletonRepository.getRPWorld()) {
+					zones.add((StendhalRPZone) zone);
+				}
+				zoneLogicRunner.run(zones);
+			} else {
+				for (final IRPZone zoneI : SingletonRepository.getRPWorld()) {
+					final StendhalRPZone zone = (StendhalRPZone) zoneI;
+					zone.logic();
+				}
+			}
+			profiler.phase(TurnProfiler.ZONE_LOGIC, zoneStart);
 
-			for (final IRPZone zoneI : SingletonRepository.getRPWorld()) {
-				final StendhalRPZone zone = (StendhalRPZone) zoneI;
-				zone.logic();
+			// the search index reads the game state, so it is updated here
+			// and not by the threads that search
+			final SearchIndex searchIndex = SearchIndex.get();
+			if (searchIndex.isWanted()) {
+				searchIndex.update();
 			}
 
 			// run registered object's logic method for this turn
@@ -403,6 +503,7 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 		} catch (final Exception e) {
 			logger.error("error in endTurn", e);
 		}
+		profiler.phase(TurnProfiler.END_TURN, start);
 	}
 
 	/**
@@ -477,13 +578,13 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 				StendhalRPAction.transferContent(player);
 
 				getOnlinePlayers().add(player);
+				presence.playerLoggedIn(player);
 
 				if (!player.isGhost()) {
 					notifyOnlineStatus(true, player);
 					DBCommand command = new SetOnlineStatusCommand(player.getName(), true);
 					DBCommandQueue.get().enqueue(command);
 				}
-				updatePlayerNameListForPlayersOnLogin(player);
 				String[] params = {};
 
 				new GameEvent(player.getName(), "login", params).raise();
@@ -582,7 +683,7 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 				if (!player.isGhost()) {
 					notifyOnlineStatus(false, player);
 				}
-				updatePlayerNameListForPlayersOnLogout(player);
+				presence.playerLoggedOut(player);
 
 				Player.destroy(player);
 				getOnlinePlayers().remove(player);
@@ -696,67 +797,7 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 	 * @param playerToNotifyAbout name of the player
 	 */
 	public void notifyOnlineStatus(final boolean isOnline, final Player playerToNotifyAbout) {
-		if (instance != null) {
-			if (isOnline) {
-				SingletonRepository.getRuleProcessor().getOnlinePlayers().forAllPlayersExecute(new Task<Player>() {
-					@Override
-					public void execute(final Player player) {
-						player.notifyOnline(playerToNotifyAbout.getName());
-					}
-				});
-
-			} else {
-				SingletonRepository.getRuleProcessor().getOnlinePlayers().forAllPlayersExecute(new Task<Player>() {
-					@Override
-					public void execute(final Player player) {
-						player.notifyOffline(playerToNotifyAbout.getName());
-					}
-				});
-			}
-		}
-	}
-
-	/**
-	 * Update all player's lists of online player names on login of a new player
-	 *
-	 * @param playerToNotifyAbout
-	 */
-	private void updatePlayerNameListForPlayersOnLogin(final Player playerToNotifyAbout) {
-		SingletonRepository.getRuleProcessor().getOnlinePlayers().forAllPlayersExecute(new Task<Player>() {
-			@Override
-			public void execute(final Player player) {
-				if(playerToNotifyAbout.isGhost()) {
-					playerToNotifyAbout.addEvent(new PlayerLoggedOnEvent(player.getName()));
-					playerToNotifyAbout.notifyWorldAboutChanges();
-					if (player.isGhost() && (player != playerToNotifyAbout)) {
-						player.addEvent(new PlayerLoggedOnEvent(playerToNotifyAbout.getName()));
-						player.notifyWorldAboutChanges();
-					}
-				} else {
-					player.addEvent(new PlayerLoggedOnEvent(playerToNotifyAbout.getName()));
-					player.notifyWorldAboutChanges();
-					if (!player.isGhost() && (player != playerToNotifyAbout)) {
-						playerToNotifyAbout.addEvent(new PlayerLoggedOnEvent(player.getName()));
-						playerToNotifyAbout.notifyWorldAboutChanges();
-					}
-				}
-			}
-		});
-	}
-
-	/**
-	 * Update all player's lists of online player names on login of a new player
-	 *
-	 * @param playerToNotifyAbout
-	 */
-	private void updatePlayerNameListForPlayersOnLogout(final Player playerToNotifyAbout) {
-		SingletonRepository.getRuleProcessor().getOnlinePlayers().forAllPlayersExecute(new Task<Player>() {
-			@Override
-			public void execute(final Player player) {
-				player.addEvent(new PlayerLoggedOutEvent(playerToNotifyAbout.getName()));
-				player.notifyWorldAboutChanges();
-			}
-		});
+		presence.notifyOnlineStatus(isOnline, playerToNotifyAbout);
 	}
 
 	/**
@@ -836,6 +877,30 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 	 */
 	@Override
 	public InputStream getResource(String resource) {
+		if ("/turnprofile.json".equals(resource)) {
+			try {
+				if ("true".equals(Configuration.getConfiguration().get("turn_profile_http", "false"))) {
+					return new ByteArrayInputStream(TurnProfiler.get().toJSON(20).getBytes(StandardCharsets.UTF_8));
+				}
+			} catch (final IOException e) {
+				logger.error(e, e);
+			}
+			return null;
+		}
+		if (resource.startsWith("/search/") && resource.endsWith(".json")) {
+			try {
+				if ("true".equals(Configuration.getConfiguration().get("search_http", "false"))) {
+					final String query = URLDecoder.decode(resource.substring("/search/".length(), resource.length() - ".json".length()), "UTF-8");
+					final List<SearchResult> results = SearchIndex.get().search(query, 20);
+					return new ByteArrayInputStream(SearchResult.toJSON(results).getBytes(StandardCharsets.UTF_8));
+				}
+			} catch (final IOException e) {
+				logger.error(e, e);
+			} catch (final RuntimeException e) {
+				logger.error("Error searching for " + resource, e);
+			}
+			return null;
+		}
 		if (resource.startsWith("/tiled") || resource.startsWith("/data")) {
 			return StendhalRPRuleProcessor.class.getClassLoader().getResourceAsStream(resource.substring(1));
 		}
@@ -58,6 +58,9 @@ public class StendhalRPWorld extends RPWorld {
 
 	private final RPClassGenerator genRPClass = new RPClassGenerator();
 
+	/** Connections between the zones. */
+	private final PortalGraph portalGraph = new PortalGraph(this);
+
 	private final Map<String, Set<StendhalRPZone>> regionMap = new HashMap<String, Set<StendhalRPZone>>();
 
 
@@ -90,7 +93,37 @@ public class StendhalRPWorld extends RPWorld {
 				zones.remove(zone);
 			}
 		}
-		return super.removeRPZone(zoneid);
+		final IRPZone removed = super.removeRPZone(zoneid);
+		if (zone != null) {
+			zone.setPortalGraph(null);
+			portalGraph.zoneChanged(zone.getName());
+		}
+		return removed;
+	}
+
+	@Override
+	public void addRPZone(final IRPZone zone) {
+		super.addRPZone(zone);
+		addToPortalGraph((StendhalRPZone) zone);
+	}
+
+	/**
+	 * Let the portal graph follow the changes of an added zone.
+	 *
+	 * @param zone added zone
+	 */
+	private void addToPortalGraph(final StendhalRPZone zone) {
+		zone.setPortalGraph(portalGraph);
+		portalGraph.zoneChanged(zone.getName());
+	}
+
+	/**
+	 * Get the graph of the connections between the zones.
+	 *
+	 * @return portal graph
+	 */
+	public PortalGraph getPortalGraph() {
+		return portalGraph;
 	}
 
 	public void removeZone(final StendhalRPZone toBeRemoved) {
@@ -167,7 +200,8 @@ public class StendhalRPWorld extends RPWorld {
 	}
 
 	/**
-	 * Checks for unpaired portals.
+	 * Checks for unpaired portals, and for portals leading to zones from
+	 * where there is no way back.
 	 */
 	private void validatePortals() {
 		for (final IRPZone zone : this) {
@@ -175,6 +209,21 @@ public class StendhalRPWorld extends RPWorld {
 				validatePortal(portal);
 			}
 		}
+
+		int oneWay = 0;
+		for (final IRPZone izone : this) {
+			final String name = ((StendhalRPZone) izone).getName();
+			for (final Portal portal : ((StendhalRPZone) izone).getPortals()) {
+				final String destination = portal.getDestinationZone();
+				if ((destination != null) && portalGraph.isConnected(name, destination)
+						&& !portalGraph.isReachable(destination, name)) {
+					logger.debug(portal + " leads to " + destination + ", from where " + name + " cannot be reached");
+					oneWay++;
+				}
+			}
+		}
+		logger.info("Portal graph: " + portalGraph.getConnectionCount() + " connections between zones, "
+				+ oneWay + " portals without a way back");
 	}
 
 	@Override
@@ -289,6 +338,7 @@ public class StendhalRPWorld extends RPWorld {
 	 */
 	public void addRPZone(final String region, final StendhalRPZone zone) {
 		super.addRPZone(zone);
+		addToPortalGraph(zone);
 		if(!regionMap.containsKey(region)) {
 			regionMap.put(region, new HashSet<StendhalRPZone>());
 		}
@@ -37,8 +37,8 @@ import games.stendhal.common.CRC;
 import games.stendhal.common.CollisionDetection;
 import games.stendhal.common.Debug;
 import games.stendhal.common.Direction;
-import games.stendhal.common.Line;
 import games.stendhal.common.MathHelper;
+import games.stendhal.common.Rand;
 import games.stendhal.common.filter.FilterCriteria;
 import games.stendhal.common.grammar.Grammar;
 import games.stendhal.common.tiled.LayerDefinition;
@@ -91,6 +91,31 @@ public class StendhalRPZone extends MarauroaRPZone {
 
 	private static final Pattern ZONE_NAME_PATTERN = Pattern.compile("^(-?[\\d]|int)_(.+)$");
 
+	/**
+	 * Amount of turns a zone without players and their friends keeps running
+	 * the entity logic before it becomes dormant.
+	 */
+	public static final int DORMANCY_DELAY = 200;
+
+	/** Zones can become dormant. Set with <code>zone_dormancy</code> in server.ini. */
+	private static volatile boolean dormancyEnabled;
+
+	/**
+	 * Activity states of a zone.
+	 */
+	public enum Activity {
+		/** There are players, their friends or travelling NPCs in the zone. */
+		ACTIVE,
+		/** The zone has been empty for less than {@link #DORMANCY_DELAY} turns. */
+		COOLING,
+		/**
+		 * The zone has been empty for longer. The logic of the NPCs that allow
+		 * it, such as creatures, does not run, and creature respawns and
+		 * healing are caught up when the zone wakes up.
+		 */
+		DORMANT
+	}
+
 	TeleportationRules teleRules = new TeleportationRules();
 
 	/** the logger instance. */
@@ -105,6 +130,12 @@ public class StendhalRPZone extends MarauroaRPZone {
 
 	private final List<Portal> portals;
 
+	/** Portals by position and identifier. */
+	private final PortalIndex portalIndex = new PortalIndex();
+	/** Connections of the world containing the zone, if any. */
+	private volatile PortalGraph portalGraph;
+	private final LineOfSightCache lineOfSightCache = new LineOfSightCache();
+
 	private final List<NPC> npcs;
 
 	/**
@@ -130,9 +161,9 @@ public class StendhalRPZone extends MarauroaRPZone {
 	private boolean moveToAllowed = true;
 
 	/**
-	 * Objects that implement MovementListener.
+	 * Objects that implement MovementListener, by their area.
 	 */
-	private final List<MovementListener> movementListeners;
+	private final MovementListenerIndex movementListeners = new MovementListenerIndex();
 
 
 	private final List<ZoneEnterExitListener> zoneListeners;
@@ -144,6 +175,21 @@ public class StendhalRPZone extends MarauroaRPZone {
 	 */
 	private final Set<Item> itemsOnGround;
 
+	/** Spatial index of the entities in the zone, for lookups by position. */
+	private final ZoneEntityIndex entityIndex = new ZoneEntityIndex();
+	/** Spatial index of the entities in playersAndFriends. */
+	private final ZoneEntityIndex playersAndFriendsIndex = new ZoneEntityIndex();
+
+	/** Changes of the entities that resist the movement of other entities. */
+	private final ObstacleVersions obstacleVersions = new ObstacleVersions();
+
+	/** Current activity state. */
+	private Activity activity = Activity.ACTIVE;
+	/** Turns the zone has been without players in the COOLING state. */
+	private int idleTurns;
+	/** Turns the zone has been in the DORMANT state. */
+	private int dormantTurns;
+
 	/** contains data to if a certain area is walkable. */
 	public CollisionDetection collisionMap;
 
@@ -220,7 +266,6 @@ public class StendhalRPZone extends MarauroaRPZone {
 		players = new LinkedList<Player>();
 		playersAndFriends = new LinkedList<RPEntity>();
 
-		movementListeners = new LinkedList<MovementListener>();
 		zoneListeners = new LinkedList<ZoneEnterExitListener>();
 
 		collisionMap = new CollisionDetection();
@@ -287,13 +332,8 @@ public class StendhalRPZone extends MarauroaRPZone {
 		if (reference == null) {
 			return null;
 		}
-		for (final Portal portal : portals) {
-			if (reference.equals(portal.getIdentifier())) {
-				return portal;
-			}
-		}
 
-		return null;
+		return portalIndex.getPortal(reference);
 	}
 
 	/**
@@ -307,13 +347,39 @@ public class StendhalRPZone extends MarauroaRPZone {
 	 * @return The portal, or <code>null</code>.
 	 */
 	public Portal getPortal(final int x, final int y) {
-		for (final Portal portal : portals) {
-			if ((portal.getX() == x) && (portal.getY() == y)) {
-				return portal;
-			}
-		}
+		return portalIndex.getPortalAt(x, y);
+	}
 
-		return null;
+	/**
+	 * Notify the zone that the identifier, position or destination of one of
+	 * its portals has changed.
+	 *
+	 * @param portal changed portal
+	 */
+	public synchronized void notifyPortalChanged(final Portal portal) {
+		portalIndex.update(portal);
+		notifyPortalGraph();
+	}
+
+	/**
+	 * Set the graph of the connections of the world the zone is in.
+	 *
+	 * @param graph portal graph, or <code>null</code> if the zone was removed
+	 * 	from the world
+	 */
+	void setPortalGraph(final PortalGraph graph) {
+		portalGraph = graph;
+	}
+
+	/**
+	 * Tell the portal graph that the position or the portals of the zone
+	 * have changed.
+	 */
+	private void notifyPortalGraph() {
+		final PortalGraph graph = portalGraph;
+		if (graph != null) {
+			graph.zoneChanged(getName());
+		}
 	}
 
 	/**
@@ -427,7 +493,8 @@ public class StendhalRPZone extends MarauroaRPZone {
 		content.name = name;
 		content.cacheable = true;
 		logger.debug("Layer timestamp: " + Integer.toString(content.timestamp));
-		content.data = byteContents;
+		// identical layers and tilesets of different zones share their data
+		content.data = ContentPool.get().intern(byteContents);
 		content.timestamp = CRC.cmpCRC(content.data);
 
 		contents.add(content);
@@ -480,10 +547,12 @@ public class StendhalRPZone extends MarauroaRPZone {
 		this.level = level;
 		this.x = x;
 		this.y = y;
+		notifyPortalGraph();
 	}
 
 	public void setPosition() {
 		this.interior = true;
+		notifyPortalGraph();
 	}
 
 	public int getX() {
@@ -585,16 +654,35 @@ public class StendhalRPZone extends MarauroaRPZone {
 	 *
 	 * @return free area size
 	 */
-	private int getFreeArea() {
-		int res = 0;
-		for (int y = 0; y < getHeight(); y++) {
-			for (int x = 0; x < getWidth(); x++) {
-				if (!collides(x, y)) {
-					res++;
-				}
-			}
+	public int getFreeArea() {
+		return collisionMap.getFreeArea();
+	}
+
+	/**
+	 * Get the walkable region of a position. Positions in different regions
+	 * are separated by static collisions, so that there is no path between
+	 * them.
+	 *
+	 * @param x x coordinate
+	 * @param y y coordinate
+	 * @return region number, or <code>-1</code> if the position has a static
+	 * 	collision
+	 */
+	public int getWalkableRegion(final int x, final int y) {
+		return collisionMap.getRegion(x, y);
+	}
+
+	/**
+	 * Get a random position without static collision.
+	 *
+	 * @return position, or <code>null</code> if the whole zone collides
+	 */
+	public Point getRandomFreePosition() {
+		final int area = getFreeArea();
+		if (area == 0) {
+			return null;
 		}
-		return res;
+		return collisionMap.getFreePosition(Rand.rand(area));
 	}
 
 	/**
@@ -902,6 +990,10 @@ public class StendhalRPZone extends MarauroaRPZone {
 		 */
 		assignRPObjectID(object);
 		super.add(object);
+		if (object instanceof Entity) {
+			entityIndex.add((Entity) object);
+			notifyObstacleChanged((Entity) object);
+		}
 
 		notifyAdded(object);
 
@@ -935,34 +1027,40 @@ public class StendhalRPZone extends MarauroaRPZone {
 		} else if (object instanceof Player) {
 			Player playerObject = (Player) object;
 			players.add(playerObject);
-			playersAndFriends.add(playerObject);
+			addPlayerOrFriend(playerObject);
 			/*
 			 * super.add() clears the events, so this needs to be after it for
 			 * the player to see the zone achievements. Also, Player.onAdded()
 			 * sets the !visited slot, so this should be after it to have the
 			 * achievement appear when the player enters the last missing zone.
 			 */
-			SingletonRepository.getAchievementNotifier().onZoneEnter(playerObject);
+			SingletonRepository.getAchievementNotifier().onZoneEnter(playerObject, this);
 		} else if (object instanceof AttackableCreature) {
-			playersAndFriends.add((AttackableCreature) object);
+			addPlayerOrFriend((AttackableCreature) object);
 		} else if (object instanceof Sheep) {
 			if (((Sheep) object).wasOwned()) {
-				playersAndFriends.add((Sheep) object);
+				addPlayerOrFriend((Sheep) object);
 			}
 		} else if (object instanceof SheepFood) {
 			sheepFoods.add((SheepFood) object);
 		} else if (object instanceof BabyDragon) {
-			playersAndFriends.add((BabyDragon) object);
+			addPlayerOrFriend((BabyDragon) object);
 		} else if (object instanceof SpeakerNPC) {
 			SingletonRepository.getNPCList().add((SpeakerNPC) object);
 		} else if (object instanceof Portal) {
 			portals.add((Portal) object);
+			portalIndex.add((Portal) object);
+			notifyPortalGraph();
 		}
 
 		if (object instanceof NPC) {
 			npcs.add((NPC) object);
 		}
 
+		if (!playersAndFriends.isEmpty()) {
+			updateActivity();
+		}
+
 		// TODO: Move up to MarauroaRPZone?
 		SingletonRepository.getRPWorld().requestSync(object);
 	}
@@ -973,11 +1071,22 @@ public class StendhalRPZone extends MarauroaRPZone {
 	 * @param object RPEntity
 	 */
 	public void addToPlayersAndFriends(RPEntity object) {
-		if (!playersAndFriends.contains(object)) {
-			playersAndFriends.add(object);
+		if (!playersAndFriendsIndex.contains(object)) {
+			addPlayerOrFriend(object);
+			updateActivity();
 		}
 	}
 
+	private void addPlayerOrFriend(final RPEntity entity) {
+		playersAndFriends.add(entity);
+		playersAndFriendsIndex.add(entity);
+	}
+
+	private void removePlayerOrFriend(final RPEntity entity) {
+		playersAndFriends.remove(entity);
+		playersAndFriendsIndex.remove(entity);
+	}
+
 	private void notifyAdded(final RPObject object) {
 		for (final ZoneEnterExitListener l : zoneListeners) {
 				l.onEntered(object, this);
@@ -1014,19 +1123,21 @@ public class StendhalRPZone extends MarauroaRPZone {
 			bloods.remove(object);
 		} else if (object instanceof Player) {
 			players.remove(object);
-			playersAndFriends.remove(object);
+			removePlayerOrFriend((RPEntity) object);
 		} else if (object instanceof AttackableCreature) {
-			playersAndFriends.remove(object);
+			removePlayerOrFriend((RPEntity) object);
 		} else if (object instanceof Sheep) {
-			playersAndFriends.remove(object);
+			removePlayerOrFriend((RPEntity) object);
 		} else if (object instanceof SheepFood) {
 			sheepFoods.remove(object);
 		} else if (object instanceof BabyDragon) {
-			playersAndFriends.remove(object);
+			removePlayerOrFriend((RPEntity) object);
 		} else if (object instanceof SpeakerNPC) {
 			SingletonRepository.getNPCList().remove(((SpeakerNPC) object).getName());
 		} else if (object instanceof Portal) {
 			portals.remove(object);
+			portalIndex.remove((Portal) object);
+			notifyPortalGraph();
 		}
 
 		if (object instanceof ZoneEnterExitListener) {
@@ -1037,6 +1148,10 @@ public class StendhalRPZone extends MarauroaRPZone {
 		}
 
 		super.remove(id);
+		if (object instanceof Entity) {
+			entityIndex.remove((Entity) object);
+			obstacleVersions.removed((Entity) object);
+		}
 
 		if (object instanceof Item) {
 			final Item item = (Item) object;
@@ -1077,12 +1192,81 @@ public class StendhalRPZone extends MarauroaRPZone {
 	@Override
 	public synchronized void modify(final RPObject object) {
 		// We modify the base container if the object changes.
-		super.modify(object.getBaseContainer());
+		final RPObject base = object.getBaseContainer();
+		super.modify(base);
+		if (base instanceof Entity) {
+			entityIndex.update((Entity) base);
+			playersAndFriendsIndex.update((Entity) base);
+		}
+	}
+
+	/**
+	 * Notify the zone that an entity in it has moved or changed its size, so
+	 * that the lookups by position find it at the right place.
+	 *
+	 * @param entity changed entity
+	 */
+	public synchronized void notifyEntityAreaChanged(final Entity entity) {
+		entityIndex.update(entity);
+		playersAndFriendsIndex.update(entity);
+		if (entity instanceof MovementListener) {
+			movementListeners.update((MovementListener) entity);
+		}
+		if (entity instanceof Portal) {
+			notifyPortalChanged((Portal) entity);
+		}
+		notifyObstacleChanged(entity);
+	}
+
+	/**
+	 * Notify the zone that the way an entity blocks other entities may have
+	 * changed. Entities that do not resist movement, and did not before, are
+	 * ignored.
+	 *
+	 * @param entity changed entity
+	 */
+	public void notifyObstacleChanged(final Entity entity) {
+		obstacleVersions.changed(entity);
+	}
+
+	/**
+	 * Notify the zone that the movement resistance of the entities in it has
+	 * changed.
+	 */
+	public void obstaclesChanged() {
+		obstacleVersions.changed();
+	}
+
+	/**
+	 * Get the modification counter of the entities that resist movement. The
+	 * value changes whenever such an entity is added, removed, moved, starts
+	 * or stops moving, or its resistance changes.
+	 *
+	 * @return modification counter
+	 */
+	public int getObstacleVersion() {
+		return obstacleVersions.getVersion();
+	}
+
+	/**
+	 * Get the modification counter of the entities that resist movement, for
+	 * the changes that affected an area. Changes of single entities count
+	 * for the tiles they covered before and after the change, other changes
+	 * for the whole zone. The value is never larger than the one of
+	 * {@link #getObstacleVersion()}.
+	 *
+	 * @param area tile area
+	 * @return modification counter of the last change in the area
+	 */
+	public int getObstacleVersion(final Rectangle area) {
+		return obstacleVersions.getVersion(area);
 	}
 
 	/**
 	 * Checks if there is a collision on the airline between 2 positions. Only
-	 * the collision map will be used.
+	 * the collision map will be used. The results are cached until the
+	 * collision map changes, so repeated checks between the same positions
+	 * take constant time.
 	 *
 	 * @param x1
 	 *            x value of position 1
@@ -1095,20 +1279,12 @@ public class StendhalRPZone extends MarauroaRPZone {
 	 * @return true if there is a collision
 	 */
 	public boolean collidesOnLine(final int x1, final int y1, final int x2, final int y2) {
-		List<Point> points;
 		// Always draw the line to the same direction, so that if A to B
 		// collides, then so does B to A
 		if ((x1 < x2) || ((x1 == x2) && (y1 < y2))) {
-			points = Line.renderLine(x1, y1, x2, y2);
-		} else {
-			points = Line.renderLine(x2, y2, x1, y1);
-		}
-		for (final Point point : points) {
-			if (collides((int) point.getX(), (int) point.getY())) {
-				return true;
-			}
+			return lineOfSightCache.collidesOnLine(collisionMap, x1, y1, x2, y2);
 		}
-		return false;
+		return lineOfSightCache.collidesOnLine(collisionMap, x2, y2, x1, y1);
 	}
 
 	/**
@@ -1191,22 +1367,7 @@ public class StendhalRPZone extends MarauroaRPZone {
 	}
 
 	private Entity getCollidingObject(final Entity entity, final Rectangle2D area) {
-		for (final RPObject other : objects.values()) {
-			// Ignore same object
-			if (entity != other) {
-				final Entity otherEntity = (Entity) other;
-
-				// Check if the objects overlap
-				if (area.intersects(otherEntity.getX(), otherEntity.getY(), otherEntity.getWidth(), otherEntity.getHeight())) {
-					// Check if it's blocking
-					if (otherEntity.isObstacle(entity)) {
-						return otherEntity;
-					}
-				}
-			}
-		}
-
-		return null;
+		return entityIndex.getCollidingObject(entity, area);
 	}
 
 	/**
@@ -1217,15 +1378,7 @@ public class StendhalRPZone extends MarauroaRPZone {
 	 * @return the first entity found if there are more than one or null if there are none
 	 */
 	public synchronized Entity getEntityAt(final double x, final double y) {
-		for (final RPObject other : objects.values()) {
-			final Entity otherEntity = (Entity) other;
-
-			final Rectangle2D rect = otherEntity.getArea();
-			if (rect.contains(x, y)) {
-				return otherEntity;
-			}
-		}
-		return null;
+		return entityIndex.getEntityAt(x, y);
 	}
 
 	/**
@@ -1235,18 +1388,7 @@ public class StendhalRPZone extends MarauroaRPZone {
 	 * @return list of entities at (x, y)
 	 */
 	public synchronized List<Entity> getEntitiesAt(final double x, final double y) {
-		List<Entity> entities = new LinkedList<Entity>();
-
-		for (final RPObject other : objects.values()) {
-			final Entity entity = (Entity) other;
-
-			final Rectangle2D rect = entity.getArea();
-			if (rect.contains(x, y)) {
-				entities.add(entity);
-			}
-		}
-
-		return entities;
+		return entityIndex.getEntitiesAt(x, y, Entity.class);
 	}
 
 
@@ -1257,21 +1399,7 @@ public class StendhalRPZone extends MarauroaRPZone {
 	 * @return list of entities at (x, y)
 	 */
 	public synchronized <T extends Entity> List<T> getEntitiesAt(final double x, final double y, Class<T> clazz) {
-		List<T> entities = new LinkedList<T>();
-
-		for (final RPObject other : objects.values()) {
-			final Entity entity = (Entity) other;
-			if (!clazz.isInstance(entity)) {
-				continue;
-			}
-
-			final Rectangle2D rect = entity.getArea();
-			if (rect.contains(x, y)) {
-				entities.add(clazz.cast(entity));
-			}
-		}
-
-		return entities;
+		return entityIndex.getEntitiesAt(x, y, clazz);
 	}
 
 	/**
@@ -1341,7 +1469,7 @@ public class StendhalRPZone extends MarauroaRPZone {
 
 		eArea = entity.getArea(newX, newY);
 
-		for (final MovementListener l : movementListeners) {
+		for (final MovementListener l : movementListeners.getCandidates(eArea, null)) {
 			Rectangle2D area = l.getArea();
 			if (area.intersects(eArea)) {
 				l.onEntered(entity, this, newX, newY);
@@ -1364,7 +1492,7 @@ public class StendhalRPZone extends MarauroaRPZone {
 
 		eArea = entity.getArea(oldX, oldY);
 
-		for (final MovementListener l : movementListeners) {
+		for (final MovementListener l : movementListeners.getCandidates(eArea, null)) {
 			Rectangle2D area = l.getArea();
 			if (area.intersects(eArea)) {
 				l.onExited(entity, this, oldX, oldY);
@@ -1396,7 +1524,7 @@ public class StendhalRPZone extends MarauroaRPZone {
 		oeArea = entity.getArea(oldX, oldY);
 		neArea = entity.getArea(newX, newY);
 
-		for (final MovementListener l : movementListeners) {
+		for (final MovementListener l : movementListeners.getCandidates(oeArea, neArea)) {
 			Rectangle2D area = l.getArea();
 
 			oldIn = area.intersects(oeArea);
@@ -1423,7 +1551,7 @@ public class StendhalRPZone extends MarauroaRPZone {
 
 		neArea = entity.getArea(newX, newY);
 
-		for (final MovementListener l : movementListeners) {
+		for (final MovementListener l : movementListeners.getCandidates(neArea, null)) {
 			Rectangle2D area = l.getArea();
 
 			newIn = area.intersects(neArea);
@@ -1446,8 +1574,9 @@ public class StendhalRPZone extends MarauroaRPZone {
 
 
 	/**
-	 * Register a movement listener for notification. Eventually create a
-	 * macro-block hash to cut down on listeners to check.
+	 * Register a movement listener for notification. Listeners are only
+	 * checked for steps near their area, so listeners whose area changes
+	 * must be entities, or re-added after the change.
 	 *
 	 * @param listener
 	 *            A movement listener to register.
@@ -1466,6 +1595,16 @@ public class StendhalRPZone extends MarauroaRPZone {
 		movementListeners.remove(listener);
 	}
 
+	/**
+	 * Set whether the movement listeners are looked up by their area, or
+	 * all checked at every step. Used for comparing both in benchmarks.
+	 *
+	 * @param enabled <code>false</code> to check all listeners
+	 */
+	void setMovementListenerIndexEnabled(final boolean enabled) {
+		movementListeners.setIndexEnabled(enabled);
+	}
+
 	@Override
 	public String toString() {
 		return "zone " + zoneid + " at (" + x + "," + y + ", " + level + ") interior: " + isInterior();
@@ -1497,6 +1636,21 @@ public class StendhalRPZone extends MarauroaRPZone {
 		return playersAndFriends;
 	}
 
+	/**
+	 * Find the players and friendly entities within a distance of an entity,
+	 * nearest first. These are the possible targets of wild creatures near
+	 * the entity.
+	 *
+	 * @param entity entity in the center. It is not included in the result
+	 * @param range maximum distance, as used by
+	 * 	{@link Entity#squaredDistance(Entity)}
+	 * @param result list for the found entities. It is cleared first
+	 */
+	public synchronized void findPlayersAndFriendsNear(final Entity entity, final double range,
+			final NearbyEntities<RPEntity> result) {
+		playersAndFriendsIndex.getEntitiesNear(entity, range, RPEntity.class, result);
+	}
+
 	/**
 	 * Can moveto (mouse movement using pathfinding) be done on this map?
 	 *
@@ -1550,8 +1704,129 @@ public class StendhalRPZone extends MarauroaRPZone {
 		}
 	}
 
+	/**
+	 * Run the logic of the zone for a turn.
+	 */
 	public void logic() {
+		updateActivity();
+		entityLogic();
+	}
+
+	/**
+	 * Set whether zones without players become dormant. Dormancy is off
+	 * unless enabled.
+	 *
+	 * @param enabled <code>true</code> to let zones become dormant
+	 */
+	public static void setDormancyEnabled(final boolean enabled) {
+		dormancyEnabled = enabled;
+	}
+
+	/**
+	 * Check if the zone has entities that need its logic to run. These are
+	 * players and their friends, and NPCs travelling on a route across
+	 * several zones. Zones without them become dormant after
+	 * {@link #DORMANCY_DELAY} turns.
+	 *
+	 * @return <code>true</code> if the zone has players, friendly entities or
+	 * 	travelling NPCs
+	 */
+	public boolean isLogicActive() {
+		if (!playersAndFriends.isEmpty()) {
+			return true;
+		}
 		for (final NPC npc : npcs) {
+			if (npc.isTravelling()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Update the activity state of the zone. Called once per turn, and when
+	 * players or their friends enter the zone. A dormant zone catches up the
+	 * creature healing and respawns it missed when it wakes up. Zones stay
+	 * active, if dormancy is not enabled.
+	 *
+	 * @return the new state
+	 */
+	public synchronized Activity updateActivity() {
+		if (!dormancyEnabled || isLogicActive()) {
+			final boolean wasDormant = (activity == Activity.DORMANT);
+			activity = Activity.ACTIVE;
+			idleTurns = 0;
+			if (wasDormant) {
+				wakeUp();
+			}
+		} else if (activity == Activity.ACTIVE) {
+			activity = Activity.COOLING;
+			idleTurns = 1;
+		} else if (activity == Activity.COOLING) {
+			idleTurns++;
+			if (idleTurns >= DORMANCY_DELAY) {
+				activity = Activity.DORMANT;
+				dormantTurns = 0;
+			}
+		} else {
+			dormantTurns++;
+		}
+		return activity;
+	}
+
+	/**
+	 * Catch up the changes that were skipped while the zone was dormant.
+	 */
+	private void wakeUp() {
+		for (final NPC npc : new ArrayList<NPC>(npcs)) {
+			if ((npc instanceof Creature) && npc.isDormancyAllowed()) {
+				((Creature) npc).healMissedTurns(dormantTurns);
+			}
+		}
+		for (final CreatureRespawnPoint point : new ArrayList<CreatureRespawnPoint>(respawnPoints)) {
+			point.catchUp();
+		}
+	}
+
+	/**
+	 * Get the activity state of the zone.
+	 *
+	 * @return activity state
+	 */
+	public Activity getActivity() {
+		return activity;
+	}
+
+	/**
+	 * Check if the zone is dormant.
+	 *
+	 * @return <code>true</code> if the zone is dormant
+	 */
+	public boolean isDormant() {
+		return activity == Activity.DORMANT;
+	}
+
+	/**
+	 * Get the amount of turns the zone has been dormant. The counter keeps
+	 * its value after the zone wakes up, until it becomes dormant again.
+	 *
+	 * @return turns in the DORMANT state
+	 */
+	public int getDormantTurns() {
+		return dormantTurns;
+	}
+
+	/**
+	 * Run the logic of the NPCs and the portals in the zone. In a dormant
+	 * zone the NPCs that allow it are skipped.
+	 */
+	public void entityLogic() {
+		final long start = System.nanoTime();
+		final boolean dormant = isDormant();
+		for (final NPC npc : npcs) {
+			if (dormant && npc.isDormancyAllowed()) {
+				continue;
+			}
 			try {
 				npc.logic();
 			} catch (final Exception e) {
@@ -1565,8 +1840,10 @@ public class StendhalRPZone extends MarauroaRPZone {
 		        logger.error("Error in portal logic for zone " + getID().getID(), e);
 		    }
 		}
+		TurnProfiler.get().recordZone(getName(), System.nanoTime() - start);
 	}
 
+
 	/**
 	 * Return whether the zone is completely empty.
 	 * @return true if there are no objects in zone
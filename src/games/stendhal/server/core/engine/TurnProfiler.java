@@ -0,0 +1,348 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import games.stendhal.server.util.StringUtils;
+
+/**
+ * Collects the time spent in the phases of the game turns, in the logic of
+ * each zone, and in each kind of turn listener. The phases are recorded as
+ * latency histograms. For zones and turn listeners the total and maximum
+ * times are kept, so that the most expensive ones can be listed.
+ * <p>
+ * The data is available to admins with the <code>/turnprofile</code> command,
+ * and as <code>/turnprofile.json</code> from the web server, if
+ * <code>turn_profile_http</code> is enabled in server.ini.
+ */
+public final class TurnProfiler {
+	/** Phase: whole beginTurn. */
+	public static final String BEGIN_TURN = "beginTurn";
+	/** Phase: handling the killed entities. */
+	public static final String KILLED_ENTITIES = "handleKilledEntities";
+	/** Phase: player logic. */
+	public static final String PLAYER_LOGIC = "executePlayerLogic";
+	/** Phase: NPC pre logic. */
+	public static final String NPC_PRE_LOGIC = "executeNPCsPreLogic";
+	/** Phase: sending the logins and logouts to the players. */
+	public static final String PRESENCE = "sendPresenceChanges";
+	/** Phase: whole endTurn. */
+	public static final String END_TURN = "endTurn";
+	/** Phase: TurnNotifier and the turn listeners. */
+	public static final String TURN_NOTIFIER = "TurnNotifier.logic";
+	/** Phase: logic of all zones. */
+	public static final String ZONE_LOGIC = "zoneLogic";
+
+	private static final String[] PHASES = { BEGIN_TURN, KILLED_ENTITIES, PLAYER_LOGIC,
+		NPC_PRE_LOGIC, PRESENCE, END_TURN, TURN_NOTIFIER, ZONE_LOGIC };
+
+	private static final TurnProfiler instance = new TurnProfiler();
+
+	private final Map<String, LatencyHistogram> phases = new LinkedHashMap<String, LatencyHistogram>();
+	private final Map<String, Timing> zones = new HashMap<String, Timing>();
+	private final Map<String, Timing> listeners = new HashMap<String, Timing>();
+	private long since = System.currentTimeMillis();
+
+	private TurnProfiler() {
+		for (final String phase : PHASES) {
+			phases.put(phase, new LatencyHistogram());
+		}
+	}
+
+	/**
+	 * Get the TurnProfiler instance.
+	 *
+	 * @return profiler
+	 */
+	public static TurnProfiler get() {
+		return instance;
+	}
+
+	/**
+	 * Record the duration of a phase.
+	 *
+	 * @param phase phase name
+	 * @param start start time from <code>System.nanoTime()</code>
+	 * @return current time, to be used as the start time of the next phase
+	 */
+	public long phase(final String phase, final long start) {
+		final long now = System.nanoTime();
+		final LatencyHistogram histogram = phases.get(phase);
+		if (histogram != null) {
+			histogram.record((now - start) / 1000);
+		}
+		return now;
+	}
+
+	/**
+	 * Record the duration of the logic of a zone.
+	 *
+	 * @param zone zone name
+	 * @param nanos duration in nanoseconds
+	 */
+	public void recordZone(final String zone, final long nanos) {
+		record(zones, zone, nanos);
+	}
+
+	/**
+	 * Record the duration of a turn listener call.
+	 *
+	 * @param listener listener class
+	 * @param nanos duration in nanoseconds
+	 */
+	public void recordListener(final Class<?> listener, final long nanos) {
+		record(listeners, listener.getName(), nanos);
+	}
+
+	private static void record(final Map<String, Timing> map, final String key, final long nanos) {
+		synchronized (map) {
+			Timing timing = map.get(key);
+			if (timing == null) {
+				timing = new Timing(key);
+				map.put(key, timing);
+			}
+			timing.add(nanos);
+		}
+	}
+
+	/**
+	 * Get the histogram of a phase.
+	 *
+	 * @param phase phase name
+	 * @return histogram, or <code>null</code> if the phase is not known
+	 */
+	public LatencyHistogram getPhase(final String phase) {
+		return phases.get(phase);
+	}
+
+	/**
+	 * Get the zones that used most time.
+	 *
+	 * @param n maximum amount of zones
+	 * @return zone timings, the slowest first
+	 */
+	public List<Timing> getSlowestZones(final int n) {
+		return slowest(zones, n);
+	}
+
+	/**
+	 * Get the turn listener classes that used most time.
+	 *
+	 * @param n maximum amount of classes
+	 * @return listener timings, the slowest first
+	 */
+	public List<Timing> getSlowestListeners(final int n) {
+		return slowest(listeners, n);
+	}
+
+	private static List<Timing> slowest(final Map<String, Timing> map, final int n) {
+		final List<Timing> res;
+		synchronized (map) {
+			res = new ArrayList<Timing>(map.size());
+			for (final Timing timing : map.values()) {
+				res.add(timing.copy());
+			}
+		}
+		Collections.sort(res, new Comparator<Timing>() {
+			@Override
+			public int compare(final Timing a, final Timing b) {
+				return Long.compare(b.total, a.total);
+			}
+		});
+		if (res.size() > n) {
+			return new ArrayList<Timing>(res.subList(0, n));
+		}
+		return res;
+	}
+
+	/**
+	 * Forget all collected data.
+	 */
+	public void reset() {
+		for (final LatencyHistogram histogram : phases.values()) {
+			histogram.reset();
+		}
+		synchronized (zones) {
+			zones.clear();
+		}
+		synchronized (listeners) {
+			listeners.clear();
+		}
+		since = System.currentTimeMillis();
+	}
+
+	/**
+	 * Create a human readable summary.
+	 *
+	 * @param n amount of zones and listeners to list
+	 * @return summary
+	 */
+	public String toText(final int n) {
+		final StringBuilder sb = new StringBuilder();
+		sb.append("Turn profile of the last ");
+		sb.append((System.currentTimeMillis() - since) / 1000);
+		sb.append(" seconds (microseconds):");
+		for (final Map.Entry<String, LatencyHistogram> entry : phases.entrySet()) {
+			final LatencyHistogram histogram = entry.getValue();
+			sb.append(String.format(Locale.ENGLISH, "\n%s: mean %.0f, p50 %d, p99 %d, p99.9 %d, max %d",
+					entry.getKey(), histogram.getMean(), histogram.getValueAtPercentile(50),
+					histogram.getValueAtPercentile(99), histogram.getValueAtPercentile(99.9),
+					histogram.getMax()));
+		}
+		sb.append("\nSlowest zones (total, max, calls):");
+		appendText(sb, getSlowestZones(n));
+		sb.append("\nSlowest turn listeners (total, max, calls):");
+		appendText(sb, getSlowestListeners(n));
+		return sb.toString();
+	}
+
+	private static void appendText(final StringBuilder sb, final List<Timing> timings) {
+		for (final Timing timing : timings) {
+			sb.append("\n  ");
+			sb.append(timing.name);
+			sb.append(": ");
+			sb.append(timing.total / 1000);
+			sb.append(", ");
+			sb.append(timing.max / 1000);
+			sb.append(", ");
+			sb.append(timing.count);
+		}
+	}
+
+	/**
+	 * Create a JSON document of the collected data.
+	 *
+	 * @param n amount of zones and listeners to list
+	 * @return JSON
+	 */
+	public String toJSON(final int n) {
+		final StringBuilder sb = new StringBuilder();
+		sb.append("{\"since\":");
+		sb.append(since);
+		sb.append(",\"unit\":\"us\",\"phases\":{");
+		boolean first = true;
+		for (final Map.Entry<String, LatencyHistogram> entry : phases.entrySet()) {
+			if (!first) {
+				sb.append(',');
+			}
+			first = false;
+			final LatencyHistogram histogram = entry.getValue();
+			StringUtils.appendJSONString(sb, entry.getKey());
+			sb.append(String.format(Locale.ENGLISH,
+					":{\"count\":%d,\"mean\":%.1f,\"p50\":%d,\"p90\":%d,\"p99\":%d,\"p999\":%d,\"max\":%d}",
+					histogram.getCount(), histogram.getMean(), histogram.getValueAtPercentile(50),
+					histogram.getValueAtPercentile(90), histogram.getValueAtPercentile(99),
+					histogram.getValueAtPercentile(99.9), histogram.getMax()));
+		}
+		sb.append("},\"zones\":");
+		appendJSON(sb, getSlowestZones(n));
+		sb.append(",\"listeners\":");
+		appendJSON(sb, getSlowestListeners(n));
+		sb.append('}');
+		return sb.toString();
+	}
+
+	private static void appendJSON(final StringBuilder sb, final List<Timing> timings) {
+		sb.append('[');
+		boolean first = true;
+		for (final Timing timing : timings) {
+			if (!first) {
+				sb.append(',');
+			}
+			first = false;
+			sb.append("{\"name\":");
+			StringUtils.appendJSONString(sb, timing.name);
+			sb.append(",\"calls\":");
+			sb.append(timing.count);
+			sb.append(",\"total\":");
+			sb.append(timing.total / 1000);
+			sb.append(",\"max\":");
+			sb.append(timing.max / 1000);
+			sb.append('}');
+		}
+		sb.append(']');
+	}
+
+	/**
+	 * Time used by a zone or a turn listener class.
+	 */
+	public static final class Timing {
+		private final String name;
+		private long count;
+		private long total;
+		private long max;
+
+		private Timing(final String name) {
+			this.name = name;
+		}
+
+		private void add(final long nanos) {
+			count++;
+			total += nanos;
+			if (nanos > max) {
+				max = nanos;
+			}
+		}
+
+		private Timing copy() {
+			final Timing copy = new Timing(name);
+			copy.count = count;
+			copy.total = total;
+			copy.max = max;
+			return copy;
+		}
+
+		/**
+		 * Get the zone or class name.
+		 *
+		 * @return name
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Get the amount of recorded calls.
+		 *
+		 * @return count
+		 */
+		public long getCount() {
+			return count;
+		}
+
+		/**
+		 * Get the total time.
+		 *
+		 * @return time in nanoseconds
+		 */
+		public long getTotal() {
+			return total;
+		}
+
+		/**
+		 * Get the longest call.
+		 *
+		 * @return time in nanoseconds
+		 */
+		public long getMax() {
+			return max;
+		}
+	}
+}
@@ -0,0 +1,426 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import games.stendhal.server.entity.Entity;
+
+/**
+ * A tile bucketed spatial index of the entities in a zone. The zone is split
+ * into square cells of {@link #CELL_SIZE} tiles, and each cell knows the
+ * entities whose area overlaps it. Lookups by position only need to look at
+ * the entities of one or a few cells instead of every object in the zone.
+ * <p>
+ * The index does not know anything about zone locking; the owning zone is
+ * responsible for synchronizing access.
+ */
+public class ZoneEntityIndex {
+	/** Size of a cell in tiles. */
+	static final int CELL_SIZE = 4;
+	/**
+	 * Upper limit of cells per axis. Coordinates beyond it are clamped to the
+	 * border cells, so that misplaced entities can not blow up the grid.
+	 */
+	private static final int MAX_CELLS = 1024;
+
+	/** Keeps results in the order the entities were added to the index. */
+	private static final Comparator<Entry> ADD_ORDER = new Comparator<Entry>() {
+		@Override
+		public int compare(Entry e1, Entry e2) {
+			return Long.compare(e1.sequence, e2.sequence);
+		}
+	};
+
+	/** Index entries of the contained entities. */
+	private final Map<Entity, Entry> entries = new IdentityHashMap<Entity, Entry>();
+	/** Cell buckets, indexed by <code>row * columns + column</code>. */
+	private List<Entry>[] cells;
+	private int columns;
+	private int rows;
+	/** Counter for ordering the entries. */
+	private long nextSequence;
+
+	/**
+	 * Create a new empty index.
+	 */
+	public ZoneEntityIndex() {
+		cells = createCells(1, 1);
+		columns = 1;
+		rows = 1;
+	}
+
+	/**
+	 * Add an entity to the index.
+	 *
+	 * @param entity added entity
+	 */
+	public void add(final Entity entity) {
+		if (entries.containsKey(entity)) {
+			update(entity);
+			return;
+		}
+		final Entry entry = new Entry(entity, nextSequence++);
+		entries.put(entity, entry);
+		place(entry);
+	}
+
+	/**
+	 * Remove an entity from the index.
+	 *
+	 * @param entity removed entity
+	 */
+	public void remove(final Entity entity) {
+		final Entry entry = entries.remove(entity);
+		if (entry != null) {
+			unplace(entry);
+		}
+	}
+
+	/**
+	 * Refresh the position of an entity that has moved or changed size. Does
+	 * nothing if the entity is not in the index, or if the cells it covers
+	 * did not change.
+	 *
+	 * @param entity changed entity
+	 */
+	public void update(final Entity entity) {
+		final Entry entry = entries.get(entity);
+		if (entry == null) {
+			return;
+		}
+		final Rectangle2D area = entity.getArea();
+		final int x1 = cell(tileStart(area.getX()));
+		final int y1 = cell(tileStart(area.getY()));
+		final int x2 = cell(tileEnd(area.getX(), area.getWidth()));
+		final int y2 = cell(tileEnd(area.getY(), area.getHeight()));
+		if ((x1 == entry.x1) && (y1 == entry.y1) && (x2 == entry.x2) && (y2 == entry.y2)) {
+			return;
+		}
+		unplace(entry);
+		place(entry);
+	}
+
+	/**
+	 * Check if an entity is in the index.
+	 *
+	 * @param entity checked entity
+	 * @return <code>true</code> if the entity has been added, and not removed
+	 */
+	public boolean contains(final Entity entity) {
+		return entries.containsKey(entity);
+	}
+
+	/**
+	 * Get the number of indexed entities.
+	 *
+	 * @return entity count
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Remove all entities from the index.
+	 */
+	public void clear() {
+		entries.clear();
+		cells = createCells(1, 1);
+		columns = 1;
+		rows = 1;
+	}
+
+	/**
+	 * Find the earliest added entity whose area contains a point.
+	 *
+	 * @param x x coordinate
+	 * @param y y coordinate
+	 * @return entity, or <code>null</code> if there is none at the point
+	 */
+	public Entity getEntityAt(final double x, final double y) {
+		final List<Entry> bucket = getBucket(x, y);
+		if (bucket == null) {
+			return null;
+		}
+		Entry found = null;
+		for (final Entry entry : bucket) {
+			if (((found == null) || (entry.sequence < found.sequence))
+					&& entry.entity.getArea().contains(x, y)) {
+				found = entry;
+			}
+		}
+
+		return (found != null) ? found.entity : null;
+	}
+
+	/**
+	 * Find all entities of a given type whose area contains a point.
+	 *
+	 * @param x x coordinate
+	 * @param y y coordinate
+	 * @param clazz required entity type
+	 * @return matching entities in the order they were added to the index
+	 */
+	public <T extends Entity> List<T> getEntitiesAt(final double x, final double y, final Class<T> clazz) {
+		final List<T> result = new LinkedList<T>();
+		final List<Entry> bucket = getBucket(x, y);
+		if (bucket == null) {
+			return result;
+		}
+		final List<Entry> found = new ArrayList<Entry>();
+		for (final Entry entry : bucket) {
+			if (clazz.isInstance(entry.entity) && entry.entity.getArea().contains(x, y)) {
+				found.add(entry);
+			}
+		}
+		Collections.sort(found, ADD_ORDER);
+		for (final Entry entry : found) {
+			result.add(clazz.cast(entry.entity));
+		}
+
+		return result;
+	}
+
+	/**
+	 * Find the earliest added entity that overlaps an area, and is an
+	 * obstacle for a given entity.
+	 *
+	 * @param entity entity that would be placed in the area. It is never
+	 * 	considered to be colliding with itself
+	 * @param area checked area
+	 * @return blocking entity, or <code>null</code> if there is none
+	 */
+	public Entity getCollidingObject(final Entity entity, final Rectangle2D area) {
+		final int x1 = cell(tileStart(area.getX()));
+		final int y1 = cell(tileStart(area.getY()));
+		final int x2 = cell(tileEnd(area.getX(), area.getWidth()));
+		final int y2 = cell(tileEnd(area.getY(), area.getHeight()));
+		if ((x1 >= columns) || (y1 >= rows)) {
+			return null;
+		}
+
+		Entry found = null;
+		for (int cy = y1; cy <= Math.min(y2, rows - 1); cy++) {
+			for (int cx = x1; cx <= Math.min(x2, columns - 1); cx++) {
+				final List<Entry> bucket = cells[cy * columns + cx];
+				if (bucket == null) {
+					continue;
+				}
+				for (final Entry entry : bucket) {
+					final Entity other = entry.entity;
+					if ((other != entity) && ((found == null) || (entry.sequence < found.sequence))
+							&& area.intersects(other.getX(), other.getY(), other.getWidth(), other.getHeight())
+							&& other.isObstacle(entity)) {
+						found = entry;
+					}
+				}
+			}
+		}
+
+		return (found != null) ? found.entity : null;
+	}
+
+	/**
+	 * Find the entities of a given type within a distance of an entity,
+	 * nearest first. The distance is measured between the areas of the
+	 * entities, like {@link Entity#squaredDistance(Entity)} does.
+	 *
+	 * @param center entity in the center. It is never included in the result
+	 * @param range maximum distance
+	 * @param clazz required entity type
+	 * @param result list for the found entities. It is cleared first
+	 */
+	public <T extends Entity> void getEntitiesNear(final Entity center, final double range, final Class<T> clazz,
+			final NearbyEntities<T> result) {
+		result.clear();
+		// one more tile on each side, so that entities exactly at the range
+		// are in the searched cells
+		final Rectangle2D area = center.getArea();
+		final double margin = range + 1;
+		final int x1 = cell(tileStart(area.getX() - margin));
+		final int y1 = cell(tileStart(area.getY() - margin));
+		final int x2 = Math.min(cell(tileEnd(area.getX() - margin, area.getWidth() + 2 * margin)), columns - 1);
+		final int y2 = Math.min(cell(tileEnd(area.getY() - margin, area.getHeight() + 2 * margin)), rows - 1);
+		final double maxDistance = range * range;
+
+		for (int cy = y1; cy <= y2; cy++) {
+			for (int cx = x1; cx <= x2; cx++) {
+				final List<Entry> bucket = cells[cy * columns + cx];
+				if (bucket == null) {
+					continue;
+				}
+				for (int i = 0; i < bucket.size(); i++) {
+					final Entry entry = bucket.get(i);
+					// entities covering several cells are only looked at in
+					// the first searched cell they are in
+					if ((Math.max(entry.x1, x1) != cx) || (Math.max(entry.y1, y1) != cy)) {
+						continue;
+					}
+					final Entity other = entry.entity;
+					if ((other == center) || !clazz.isInstance(other)) {
+						continue;
+					}
+					final double distance = center.squaredDistance(other);
+					if (distance <= maxDistance) {
+						result.add(clazz.cast(other), distance);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Get the bucket of the cell containing a point.
+	 *
+	 * @param x x coordinate
+	 * @param y y coordinate
+	 * @return bucket, or <code>null</code> if no entity can be at the point
+	 */
+	private List<Entry> getBucket(final double x, final double y) {
+		final int tx = tileStart(x);
+		final int ty = tileStart(y);
+		final int cx = cell(tx);
+		final int cy = cell(ty);
+		if ((cx >= columns) || (cy >= rows)) {
+			return null;
+		}
+
+		return cells[cy * columns + cx];
+	}
+
+	/**
+	 * Put an entry to the cells its entity currently covers.
+	 *
+	 * @param entry placed entry
+	 */
+	private void place(final Entry entry) {
+		final Rectangle2D area = entry.entity.getArea();
+		entry.x1 = cell(tileStart(area.getX()));
+		entry.y1 = cell(tileStart(area.getY()));
+		entry.x2 = cell(tileEnd(area.getX(), area.getWidth()));
+		entry.y2 = cell(tileEnd(area.getY(), area.getHeight()));
+		ensureCapacity(entry.x2 + 1, entry.y2 + 1);
+
+		for (int cy = entry.y1; cy <= entry.y2; cy++) {
+			for (int cx = entry.x1; cx <= entry.x2; cx++) {
+				final int index = cy * columns + cx;
+				List<Entry> bucket = cells[index];
+				if (bucket == null) {
+					bucket = new ArrayList<Entry>(4);
+					cells[index] = bucket;
+				}
+				bucket.add(entry);
+			}
+		}
+	}
+
+	/**
+	 * Remove an entry from the cells it was placed in.
+	 *
+	 * @param entry removed entry
+	 */
+	private void unplace(final Entry entry) {
+		for (int cy = entry.y1; cy <= entry.y2; cy++) {
+			for (int cx = entry.x1; cx <= entry.x2; cx++) {
+				final List<Entry> bucket = cells[cy * columns + cx];
+				if (bucket != null) {
+					bucket.remove(entry);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Grow the grid, if needed, so that it has at least the specified amount
+	 * of cells.
+	 *
+	 * @param minColumns required column count
+	 * @param minRows required row count
+	 */
+	private void ensureCapacity(final int minColumns, final int minRows) {
+		if ((minColumns <= columns) && (minRows <= rows)) {
+			return;
+		}
+		final int newColumns = Math.min(MAX_CELLS, Math.max(minColumns, 2 * columns));
+		final int newRows = Math.min(MAX_CELLS, Math.max(minRows, 2 * rows));
+		final List<Entry>[] newCells = createCells(newColumns, newRows);
+		for (int cy = 0; cy < rows; cy++) {
+			System.arraycopy(cells, cy * columns, newCells, cy * newColumns, columns);
+		}
+		cells = newCells;
+		columns = newColumns;
+		rows = newRows;
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static List<Entry>[] createCells(final int columns, final int rows) {
+		return new List[columns * rows];
+	}
+
+	/**
+	 * Get the first tile covered by an interval starting at a coordinate.
+	 *
+	 * @param start start coordinate
+	 * @return tile coordinate
+	 */
+	static int tileStart(final double start) {
+		return (int) Math.floor(start);
+	}
+
+	/**
+	 * Get the last tile covered by an interval. Empty intervals are treated as
+	 * if they covered the starting tile.
+	 *
+	 * @param start start coordinate
+	 * @param length interval length
+	 * @return tile coordinate
+	 */
+	static int tileEnd(final double start, final double length) {
+		return Math.max(tileStart(start), (int) Math.ceil(start + length) - 1);
+	}
+
+	/**
+	 * Get the cell coordinate of a tile coordinate. The clamping is monotonic,
+	 * so an entity covering a tile is always found in the cell of that tile.
+	 *
+	 * @param tile tile coordinate
+	 * @return cell coordinate
+	 */
+	private static int cell(final int tile) {
+		if (tile <= 0) {
+			return 0;
+		}
+		return Math.min(tile / CELL_SIZE, MAX_CELLS - 1);
+	}
+
+	/**
+	 * Index data of an entity.
+	 */
+	private static final class Entry {
+		private final Entity entity;
+		private final long sequence;
+		/** Covered cell range, inclusive. */
+		private int x1, y1, x2, y2;
+
+		Entry(final Entity entity, final long sequence) {
+			this.entity = entity;
+			this.sequence = sequence;
+		}
+	}
+}
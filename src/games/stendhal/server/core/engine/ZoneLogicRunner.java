@@ -0,0 +1,240 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import org.apache.log4j.Logger;
+
+import games.stendhal.common.Rand;
+import marauroa.server.db.command.DBCommand;
+import marauroa.server.db.command.DBCommandPriority;
+import marauroa.server.db.command.DBCommandQueue;
+
+/**
+ * Runs the logic of the zones, optionally in parallel. Dormant zones are
+ * skipped.
+ * <p>
+ * While a zone's logic runs, actions that affect other zones or global state
+ * (zone changes, turn notifier registrations, kills and database commands) are
+ * put in a queue of the zone with <code>runOrDefer()</code>, and run in zone
+ * order after the logic of all zones has finished. The results thus do not
+ * depend on the amount of threads. If a seed is set, each zone also gets its
+ * own random generator for <code>Rand</code>, so that a run can be replayed.
+ * Shared state that the zone logic changes directly, such as the word list
+ * of the conversation parser, has to be thread safe. Code that changes other
+ * shared state from the zone logic has to stay serial, or use
+ * <code>runOrDefer()</code>.
+ * <p>
+ * The runner is enabled by setting <code>zone_logic_threads</code> in
+ * server.ini. A value of 1 runs the zones in the game loop thread.
+ */
+public class ZoneLogicRunner {
+	private static final Logger logger = Logger.getLogger(ZoneLogicRunner.class);
+
+	/** The zone whose logic the current thread runs, with its deferred actions. */
+	private static final ThreadLocal<ZoneTask> current = new ThreadLocal<ZoneTask>();
+
+	/** Pool for running the zones, or <code>null</code> for sequential runs. */
+	private final ForkJoinPool pool;
+	/** Random generators of the zones, if a seed has been set. */
+	private final Map<StendhalRPZone, Random> zoneRandoms = new WeakHashMap<StendhalRPZone, Random>();
+	private Long seed;
+
+	/**
+	 * Create a new ZoneLogicRunner.
+	 *
+	 * @param threads amount of threads to use. 1 runs the zones in the calling
+	 * 	thread
+	 */
+	public ZoneLogicRunner(final int threads) {
+		if (threads > 1) {
+			pool = new ForkJoinPool(threads);
+		} else {
+			pool = null;
+		}
+	}
+
+	/**
+	 * Run an action after the current zone logic phase, or immediately if the
+	 * current thread is not running zone logic.
+	 *
+	 * @param action action
+	 */
+	public static void runOrDefer(final Runnable action) {
+		final ZoneTask task = current.get();
+		if (task != null) {
+			task.actions.add(action);
+		} else {
+			action.run();
+		}
+	}
+
+	/**
+	 * Check if the current thread is running the logic of a zone.
+	 *
+	 * @return <code>true</code> if actions passed to <code>runOrDefer</code>
+	 * 	are deferred
+	 */
+	public static boolean isDeferring() {
+		return current.get() != null;
+	}
+
+	/**
+	 * Check if the current thread may change a zone directly. That is the
+	 * case outside the zone logic, and for the zone whose logic the thread
+	 * runs. Changes of other zones have to be passed to
+	 * <code>runOrDefer()</code>.
+	 *
+	 * @param zone zone
+	 * @return <code>true</code> if the zone may be changed directly
+	 */
+	public static boolean isLocal(final StendhalRPZone zone) {
+		final ZoneTask task = current.get();
+		return (task == null) || (task.zone == zone);
+	}
+
+	/**
+	 * Enqueue a database command, or defer it if the current thread is running
+	 * zone logic.
+	 *
+	 * @param command database command
+	 */
+	public static void enqueue(final DBCommand command) {
+		runOrDefer(new Runnable() {
+			@Override
+			public void run() {
+				DBCommandQueue.get().enqueue(command);
+			}
+		});
+	}
+
+	/**
+	 * Enqueue a database command, or defer it if the current thread is running
+	 * zone logic.
+	 *
+	 * @param command database command
+	 * @param priority command priority
+	 */
+	public static void enqueue(final DBCommand command, final DBCommandPriority priority) {
+		runOrDefer(new Runnable() {
+			@Override
+			public void run() {
+				DBCommandQueue.get().enqueue(command, priority);
+			}
+		});
+	}
+
+	/**
+	 * Use per zone random generators derived from a seed.
+	 *
+	 * @param seed seed
+	 */
+	public synchronized void setSeed(final long seed) {
+		this.seed = Long.valueOf(seed);
+		zoneRandoms.clear();
+	}
+
+	/**
+	 * Run the logic of zones, and then the actions they deferred.
+	 *
+	 * @param zones zones in the order their deferred actions are run
+	 */
+	public synchronized void run(final Iterable<StendhalRPZone> zones) {
+		final List<ZoneTask> tasks = new ArrayList<ZoneTask>();
+		for (final StendhalRPZone zone : zones) {
+			zone.updateActivity();
+			tasks.add(new ZoneTask(zone, getRandom(zone)));
+		}
+
+		if (pool != null) {
+			final List<ForkJoinTask<Void>> futures = new ArrayList<ForkJoinTask<Void>>(tasks.size());
+			for (final ZoneTask task : tasks) {
+				futures.add(pool.submit(task));
+			}
+			for (final ForkJoinTask<Void> future : futures) {
+				future.join();
+			}
+		} else {
+			for (final ZoneTask task : tasks) {
+				task.call();
+			}
+		}
+
+		for (final ZoneTask task : tasks) {
+			for (final Runnable action : task.actions) {
+				try {
+					action.run();
+				} catch (final RuntimeException e) {
+					logger.error("Error in deferred action of zone " + task.zone.getName(), e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Stop the threads.
+	 */
+	public void shutdown() {
+		if (pool != null) {
+			pool.shutdown();
+		}
+	}
+
+	private Random getRandom(final StendhalRPZone zone) {
+		if (seed == null) {
+			return null;
+		}
+		Random random = zoneRandoms.get(zone);
+		if (random == null) {
+			random = new Random(seed.longValue() * 31 + zone.getName().hashCode());
+			zoneRandoms.put(zone, random);
+		}
+		return random;
+	}
+
+	/**
+	 * Logic of one zone.
+	 */
+	private static class ZoneTask implements Callable<Void> {
+		private final StendhalRPZone zone;
+		private final Random random;
+		private final List<Runnable> actions = new ArrayList<Runnable>();
+
+		ZoneTask(final StendhalRPZone zone, final Random random) {
+			this.zone = zone;
+			this.random = random;
+		}
+
+		@Override
+		public Void call() {
+			current.set(this);
+			Rand.setThreadRandom(random);
+			try {
+				zone.entityLogic();
+			} catch (final RuntimeException e) {
+				logger.error("Error in logic of zone " + zone.getName(), e);
+			} finally {
+				Rand.setThreadRandom(null);
+				current.remove();
+			}
+			return null;
+		}
+	}
+}
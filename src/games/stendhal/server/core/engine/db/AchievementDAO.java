@@ -14,8 +14,10 @@ package games.stendhal.server.core.engine.db;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -201,4 +203,34 @@ public class AchievementDAO {
 		return identifiers;
 	}
 
+	/**
+	 * Loads all achievements several players have reached.
+	 *
+	 * @param transaction DBTransaction
+	 * @param playerNames names of the players
+	 * @return identifiers of the reached achievements by lower case player
+	 * 	name, players without achievements are missing
+	 * @throws SQLException in case of an database error
+	 */
+	public Map<String, Set<String>> loadAllReachedAchievementsOfPlayers(DBTransaction transaction, Collection<String> playerNames) throws SQLException {
+		Map<String, Set<String>> res = new HashMap<String, Set<String>>();
+		for (List<String> chunk : CharacterNameList.split(playerNames)) {
+			Map<String, Object> params = new HashMap<String, Object>();
+			String query = "SELECT ra.charname, identifier FROM achievement a JOIN reached_achievement ra ON ra.achievement_id = a.id"
+					+ " WHERE ra.charname IN (" + CharacterNameList.toValueList(chunk, params) + ");";
+			ResultSet resultSet = transaction.query(query, params);
+			while (resultSet.next()) {
+				String key = CharacterNameList.key(resultSet.getString(1));
+				Set<String> identifiers = res.get(key);
+				if (identifiers == null) {
+					identifiers = new HashSet<String>();
+					res.put(key, identifiers);
+				}
+				identifiers.add(resultSet.getString(2));
+			}
+			resultSet.close();
+		}
+		return res;
+	}
+
 }
@@ -0,0 +1,82 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine.db;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Helpers for queries on the rows of several characters at once, using
+ * <code>charname IN (...)</code> conditions.
+ */
+public final class CharacterNameList {
+	/** Maximum number of names in one condition. */
+	static final int MAX_NAMES = 200;
+
+	private CharacterNameList() {
+		// static helpers only
+	}
+
+	/**
+	 * Split character names into chunks small enough for one query.
+	 *
+	 * @param charnames character names
+	 * @return chunks of at most MAX_NAMES names
+	 */
+	static List<List<String>> split(final Collection<String> charnames) {
+		final List<List<String>> res = new ArrayList<List<String>>();
+		List<String> chunk = null;
+		for (final String charname : charnames) {
+			if ((chunk == null) || (chunk.size() == MAX_NAMES)) {
+				chunk = new ArrayList<String>(Math.min(MAX_NAMES, charnames.size()));
+				res.add(chunk);
+			}
+			chunk.add(charname);
+		}
+		return res;
+	}
+
+	/**
+	 * Create the value list of an IN condition. The names are added as
+	 * parameters, so that they are escaped by the transaction.
+	 *
+	 * @param charnames character names
+	 * @param params query parameters
+	 * @return value list like <code>'[charname0]', '[charname1]'</code>
+	 */
+	static String toValueList(final List<String> charnames, final Map<String, Object> params) {
+		final StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < charnames.size(); i++) {
+			final String param = "charname" + i;
+			if (i > 0) {
+				sb.append(", ");
+			}
+			sb.append("'[").append(param).append("]'");
+			params.put(param, charnames.get(i));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Get the key of a character name in the result maps. Name comparisons
+	 * of the database may ignore the case.
+	 *
+	 * @param charname character name
+	 * @return key
+	 */
+	public static String key(final String charname) {
+		return charname.toLowerCase(Locale.ENGLISH);
+	}
+}
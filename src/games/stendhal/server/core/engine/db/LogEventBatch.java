@@ -0,0 +1,155 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine.db;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import marauroa.server.db.DBTransaction;
+import marauroa.server.game.db.DAORegister;
+
+/**
+ * Collects the rows of item log and kill log events, so that they can be
+ * written with a few batched statements instead of one or two statements per
+ * event. Kills of the same kind on the same day are counted together.
+ */
+public class LogEventBatch {
+	private final DBTransaction transaction;
+	private final List<Object[]> items = new ArrayList<Object[]>();
+	private final List<Object[]> entries = new ArrayList<Object[]>();
+	private final List<ItemRegistration> registrations = new ArrayList<ItemRegistration>();
+	private final Map<List<String>, Integer> kills = new LinkedHashMap<List<String>, Integer>();
+
+	/**
+	 * creates a new LogEventBatch
+	 *
+	 * @param transaction transaction to write the batch in
+	 */
+	public LogEventBatch(final DBTransaction transaction) {
+		this.transaction = transaction;
+	}
+
+	/**
+	 * gets the transaction the batch is written in
+	 *
+	 * @return DBTransaction
+	 */
+	public DBTransaction getTransaction() {
+		return transaction;
+	}
+
+	/**
+	 * adds a row of the item table, and the register row of the itemlog table
+	 *
+	 * @param row id, name, timedate
+	 * @param entry itemlog row of the register event
+	 */
+	void addItem(final Object[] row, final Object[] entry) {
+		addRegistration(new ItemRegistration(row, entry));
+	}
+
+	/**
+	 * adds the rows of an item that got its id
+	 *
+	 * @param registration item and register rows
+	 */
+	public void addRegistration(final ItemRegistration registration) {
+		items.add(registration.item);
+		entries.add(registration.entry);
+		registrations.add(registration);
+	}
+
+	/**
+	 * gets the items that got their id in this batch. If writing the batch
+	 * fails, their rows have to be written again, as the items keep the id.
+	 *
+	 * @return registered items
+	 */
+	public List<ItemRegistration> getRegistrations() {
+		return new ArrayList<ItemRegistration>(registrations);
+	}
+
+	/**
+	 * adds a row of the itemlog table
+	 *
+	 * @param row itemid, source, event, param1, param2, param3, param4, timedate
+	 */
+	void addEntry(final Object[] row) {
+		entries.add(row);
+	}
+
+	/**
+	 * counts a kill
+	 *
+	 * @param key killed, killed_type, killer, killer_type, day
+	 */
+	void addKill(final List<String> key) {
+		final Integer count = kills.get(key);
+		if (count == null) {
+			kills.put(key, Integer.valueOf(1));
+		} else {
+			kills.put(key, Integer.valueOf(count.intValue() + 1));
+		}
+	}
+
+	/**
+	 * gets the number of collected rows
+	 *
+	 * @return number of item, itemlog and kills rows
+	 */
+	public int size() {
+		return items.size() + entries.size() + kills.size();
+	}
+
+	/**
+	 * writes the collected rows to the database
+	 *
+	 * @throws SQLException in case of an database error
+	 */
+	public void flush() throws SQLException {
+		if (!items.isEmpty() || !entries.isEmpty()) {
+			DAORegister.get().get(StendhalItemDAO.class).itemLogWriteBatch(transaction, items, entries);
+		}
+		if (!kills.isEmpty()) {
+			DAORegister.get().get(StendhalKillLogDAO.class).logKills(transaction, kills);
+		}
+		items.clear();
+		entries.clear();
+		registrations.clear();
+		kills.clear();
+	}
+
+	/**
+	 * the rows written for an item when it gets its id
+	 */
+	public static final class ItemRegistration {
+		private final Object[] item;
+		private final Object[] entry;
+
+		ItemRegistration(final Object[] item, final Object[] entry) {
+			this.item = item;
+			this.entry = entry;
+		}
+
+		/**
+		 * gets the id of the item
+		 *
+		 * @return item id
+		 */
+		public int getId() {
+			return ((Integer) item[0]).intValue();
+		}
+	}
+}
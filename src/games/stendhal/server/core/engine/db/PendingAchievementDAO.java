@@ -13,7 +13,9 @@ package games.stendhal.server.core.engine.db;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import games.stendhal.server.util.MapOfMaps;
@@ -68,4 +70,34 @@ public class PendingAchievementDAO {
 		return map;
 	}
 
+	/**
+	 * Get details on pending achievements for several players
+	 *
+	 * @param transaction DBTransaction
+	 * @param charnames names of the players
+	 * @return details as param and count by identifier, by lower case player
+	 * 	name. Players without pending achievements are missing.
+	 * @throws SQLException in case of an database error
+	 */
+	public Map<String, Map<String, Map<String, Integer>>> getPendingAchievementDetails(DBTransaction transaction, Collection<String> charnames) throws SQLException {
+		Map<String, MapOfMaps<String, String, Integer>> maps = new HashMap<String, MapOfMaps<String, String, Integer>>();
+		for (List<String> chunk : CharacterNameList.split(charnames)) {
+			Map<String, Object> parameters = new HashMap<String, Object>();
+			String query  = "SELECT charname, identifier, param, cnt FROM pending_achievement " +
+			                "JOIN achievement on achievement_id = achievement.id " +
+							"WHERE charname IN (" + CharacterNameList.toValueList(chunk, parameters) + ");";
+			ResultSet set = transaction.query(query, parameters);
+			while (set.next()) {
+				String key = CharacterNameList.key(set.getString("charname"));
+				MapOfMaps<String, String, Integer> map = maps.get(key);
+				if (map == null) {
+					map = new MapOfMaps<String, String, Integer>();
+					maps.put(key, map);
+				}
+				map.put(set.getString("identifier"), set.getString("param"), set.getInt("cnt"));
+			}
+			set.close();
+		}
+		return new HashMap<String, Map<String, Map<String, Integer>>>(maps);
+	}
 }
@@ -14,6 +14,7 @@ package games.stendhal.server.core.engine.db;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -117,4 +118,56 @@ public class PostmanDAO {
 		}
 	}
 
+	/**
+	 * gets the ChatMessages for several characters
+	 *
+	 * @param transaction DBTransaction
+	 * @param charnames names of the characters
+	 * @return lists of ChatMessages by lower case character name, characters
+	 * 	without messages are missing
+	 * @throws SQLException in case of an database error
+	 */
+	public Map<String, List<ChatMessage>> getChatMessages(DBTransaction transaction, Collection<String> charnames) throws SQLException {
+		Map<String, List<ChatMessage>> res = new HashMap<String, List<ChatMessage>>();
+		for (List<String> chunk : CharacterNameList.split(charnames)) {
+			Map<String, Object> params = new HashMap<String, Object>();
+			String query = "SELECT target, source, message, timedate, messagetype FROM postman WHERE target IN ("
+					+ CharacterNameList.toValueList(chunk, params) + ") and delivered = 0 ORDER BY timedate FOR UPDATE";
+			logger.debug("getChatMessages is executing query " + query);
+
+			ResultSet chatMessagesSet = transaction.query(query, params);
+			while (chatMessagesSet.next()) {
+				String key = CharacterNameList.key(chatMessagesSet.getString("target"));
+				List<ChatMessage> list = res.get(key);
+				if (list == null) {
+					list = new LinkedList<ChatMessage>();
+					res.put(key, list);
+				}
+				String source = chatMessagesSet.getString("source");
+				String message = chatMessagesSet.getString("message");
+				String timedate = chatMessagesSet.getString("timedate");
+				String messagetype = chatMessagesSet.getString("messagetype");
+				list.add(new ChatMessage(source, message, timedate, messagetype));
+			}
+			chatMessagesSet.close();
+		}
+		return res;
+	}
+
+	/**
+	 * marks messages delivered for several characters
+	 *
+	 * @param transaction DBTransaction
+	 * @param charnames names of the characters
+	 * @throws SQLException in case of an database error
+	 */
+	public void markMessagesDelivered(DBTransaction transaction, Collection<String> charnames) throws SQLException {
+		for (List<String> chunk : CharacterNameList.split(charnames)) {
+			Map<String, Object> params = new HashMap<String, Object>();
+			String query = "UPDATE postman SET delivered = 1 WHERE target IN ("
+					+ CharacterNameList.toValueList(chunk, params) + ")";
+			logger.debug("markMessagesDelivered is using query: " + query);
+			transaction.execute(query, params);
+		}
+	}
 }
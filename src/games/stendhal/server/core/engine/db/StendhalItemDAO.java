@@ -11,9 +11,11 @@
  ***************************************************************************/
 package games.stendhal.server.core.engine.db;
 
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import games.stendhal.server.entity.RPEntity;
@@ -30,6 +32,19 @@ public class StendhalItemDAO {
 	/** attribute name of itemid */
 	public static final String ATTR_ITEM_LOGID = "logid";
 
+	/** amount of item ids reserved at once */
+	private static final int ID_BLOCK_SIZE = 100;
+	/** maximum amount of rows in one multi-row insert statement */
+	private static final int ROWS_PER_INSERT = 50;
+
+	private static final String ITEM_COLUMNS = "id, name, timedate";
+	private static final String ITEMLOG_COLUMNS = "itemid, source, event, param1, param2, param3, param4, timedate";
+
+	/** next free item id of the current block */
+	private int nextId;
+	/** end of the current block of item ids (exclusive) */
+	private int blockEnd;
+
 	/**
 	 * Assigns the next logid to the specified item in case it does not already have one.
 	 *
@@ -44,17 +59,135 @@ public class StendhalItemDAO {
 		}
 
 		// insert row into
-		String sql = "INSERT INTO item (name, timedate) VALUES ('[name]', '[timedate]')";
+		String sql = "INSERT INTO item (id, name, timedate) VALUES ([id], '[name]', '[timedate]')";
 		Map<String, Object> params = new HashMap<String, Object>();
+		int id = itemLogAllocateID(transaction);
+		params.put("id", id);
 		params.put("name", item.get("name"));
 		params.put("timedate", timestamp);
 		transaction.execute(sql, params);
 
-		// get the insert id and store it into the item
-		item.put(ATTR_ITEM_LOGID, transaction.getLastInsertId("item", "id"));
+		// store the id into the item
+		item.put(ATTR_ITEM_LOGID, id);
 		itemLogInsertName(transaction, item, timestamp);
 	}
 
+	/**
+	 * Assigns the next logid to the specified item in case it does not already
+	 * have one. The rows are written when the batch is flushed.
+	 *
+	 * @param batch batch of log events
+	 * @param item item
+	 * @param timestamp timestamp
+	 * @throws SQLException in case of a database error
+	 */
+	public void itemLogAssignIDIfNotPresent(final LogEventBatch batch, final RPObject item, Timestamp timestamp) throws SQLException {
+		if (item.has(ATTR_ITEM_LOGID)) {
+			return;
+		}
+
+		int id = itemLogAllocateID(batch.getTransaction());
+		batch.addItem(new Object[] { Integer.valueOf(id), item.get("name"), timestamp },
+				createEntry(timestamp, id, null, "register", getAttribute(item, "name"), getAttribute(item, "quantity"), getAttribute(item, "infostring"), getAttribute(item, "bound")));
+		item.put(ATTR_ITEM_LOGID, id);
+	}
+
+	/**
+	 * Gets an unused id for the item table. The ids are reserved in blocks,
+	 * so that the database is only asked for the highest id once per block.
+	 *
+	 * @param transaction database transaction
+	 * @return item id
+	 * @throws SQLException in case of a database error
+	 */
+	public synchronized int itemLogAllocateID(final DBTransaction transaction) throws SQLException {
+		if (nextId >= blockEnd) {
+			int maxId = transaction.querySingleCellInt("SELECT COALESCE(MAX(id), 0) FROM item", null);
+			nextId = Math.max(nextId, maxId + 1);
+			blockEnd = nextId + ID_BLOCK_SIZE;
+		}
+		return nextId++;
+	}
+
+	/**
+	 * Writes rows of the item and the itemlog tables collected in a batch.
+	 *
+	 * @param transaction database transaction
+	 * @param items rows for the item table: id, name, timedate
+	 * @param entries rows for the itemlog table: itemid, source, event,
+	 * 	param1, param2, param3, param4, timedate
+	 * @throws SQLException in case of a database error
+	 */
+	public void itemLogWriteBatch(final DBTransaction transaction, final List<Object[]> items, final List<Object[]> entries) throws SQLException {
+		insertRows(transaction, "item", ITEM_COLUMNS, 3, items);
+		insertRows(transaction, "itemlog", ITEMLOG_COLUMNS, 8, entries);
+	}
+
+	/**
+	 * Inserts rows with multi-row insert statements, which are sent to the
+	 * database as a JDBC batch.
+	 *
+	 * @param transaction database transaction
+	 * @param table name of table
+	 * @param columns column list
+	 * @param columnCount number of columns
+	 * @param rows values of the rows
+	 * @throws SQLException in case of a database error
+	 */
+	private void insertRows(final DBTransaction transaction, final String table, final String columns, final int columnCount, final List<Object[]> rows) throws SQLException {
+		final int fullStatements = rows.size() / ROWS_PER_INSERT;
+		int row = 0;
+		if (fullStatements > 0) {
+			PreparedStatement stmt = prepareInsert(transaction, table, columns, columnCount, ROWS_PER_INSERT);
+			for (int i = 0; i < fullStatements; i++) {
+				row = setRows(stmt, rows, row, ROWS_PER_INSERT);
+				stmt.addBatch();
+			}
+			stmt.executeBatch();
+		}
+		final int rest = rows.size() - row;
+		if (rest > 0) {
+			PreparedStatement stmt = prepareInsert(transaction, table, columns, columnCount, rest);
+			setRows(stmt, rows, row, rest);
+			stmt.executeUpdate();
+		}
+	}
+
+	private PreparedStatement prepareInsert(final DBTransaction transaction, final String table, final String columns, final int columnCount, final int rowCount) throws SQLException {
+		StringBuilder sql = new StringBuilder("INSERT INTO ");
+		sql.append(table).append(" (").append(columns).append(") VALUES ");
+		for (int i = 0; i < rowCount; i++) {
+			if (i > 0) {
+				sql.append(", ");
+			}
+			sql.append('(');
+			for (int j = 0; j < columnCount; j++) {
+				if (j > 0) {
+					sql.append(", ");
+				}
+				sql.append('?');
+			}
+			sql.append(')');
+		}
+		return transaction.prepareStatement(sql.toString(), null);
+	}
+
+	private int setRows(final PreparedStatement stmt, final List<Object[]> rows, final int first, final int count) throws SQLException {
+		int index = 1;
+		for (int i = first; i < first + count; i++) {
+			for (Object value : rows.get(i)) {
+				// like the parameter substitution of DBTransaction, write null as empty string
+				if (value == null) {
+					stmt.setString(index, "");
+				} else {
+					stmt.setObject(index, value);
+				}
+				index++;
+			}
+		}
+		return first + count;
+	}
+
 
 	/**
 	 * Logs the name of the item on first.
@@ -122,6 +255,51 @@ public class StendhalItemDAO {
 		transaction.execute(query, params);
 	}
 
+	/**
+	 * adds a log entry to a batch
+	 *
+	 * @param batch batch of log events
+	 * @param timestamp timestamp
+	 * @param item item
+	 * @param player player object
+	 * @param event  name of event
+	 * @param param1 param 1
+	 * @param param2 param 2
+	 * @param param3 param 3
+	 * @param param4 param 4
+	 */
+	public void itemLogWriteEntry(final LogEventBatch batch, Timestamp timestamp, final RPObject item, final RPEntity player, final String event, final String param1, final String param2, final String param3, final String param4) {
+		int itemid = item.getInt(StendhalItemDAO.ATTR_ITEM_LOGID);
+		itemLogWriteEntry(batch, timestamp, itemid, player, event, param1, param2, param3, param4);
+	}
+
+	/**
+	 * adds a log entry to a batch
+	 *
+	 * @param batch batch of log events
+	 * @param timestamp timestamp
+	 * @param itemid itemid of item
+	 * @param player player object
+	 * @param event  name of event
+	 * @param param1 param 1
+	 * @param param2 param 2
+	 * @param param3 param 3
+	 * @param param4 param 4
+	 */
+	public void itemLogWriteEntry(final LogEventBatch batch, Timestamp timestamp, final int itemid, final RPEntity player, final String event, final String param1, final String param2, final String param3, final String param4) {
+		batch.addEntry(createEntry(timestamp, itemid, player, event, param1, param2, param3, param4));
+	}
+
+	private Object[] createEntry(Timestamp timestamp, final int itemid, final RPEntity player, final String event, final String param1, final String param2, final String param3, final String param4) {
+		String playerName = null;
+		if (player != null) {
+			playerName = player.getName();
+		}
+		return new Object[] { Integer.valueOf(itemid), StringUtils.trimTo(playerName, 64),
+				StringUtils.trimTo(event, 64), StringUtils.trimTo(param1, 64), StringUtils.trimTo(param2, 64),
+				StringUtils.trimTo(param3, 64), StringUtils.trimTo(param4, 64), timestamp };
+	}
+
 	/**
 	 * gets an optional attribute .
 	 *
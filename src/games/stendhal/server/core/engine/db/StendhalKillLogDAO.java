@@ -11,10 +11,15 @@
  ***************************************************************************/
 package games.stendhal.server.core.engine.db;
 
+import java.sql.Date;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import games.stendhal.server.entity.Entity;
@@ -63,6 +68,65 @@ public class StendhalKillLogDAO {
 
 	}
 
+	/**
+	 * Adds a kill to a batch.
+	 *
+	 * @param batch batch of log events
+	 * @param killed killed entity
+	 * @param killer killer
+	 * @param timestamp timestamp
+	 */
+	public void logKill(final LogEventBatch batch, final Entity killed, final Killer killer, Timestamp timestamp) {
+		batch.addKill(Arrays.asList(killed.getName(), entityToType(killed), killer.getName(),
+				entityToType(killer), new SimpleDateFormat("yyyy-MM-dd").format(timestamp)));
+	}
+
+	/**
+	 * Logs counted kills with batched statements.
+	 *
+	 * @param transaction transaction
+	 * @param kills number of kills by killed, killed_type, killer, killer_type, day
+	 * @throws SQLException in case of an database error
+	 */
+	void logKills(final DBTransaction transaction, final Map<List<String>, Integer> kills) throws SQLException {
+		// try update in case we already have these combinations
+		PreparedStatement update = transaction.prepareStatement("UPDATE kills SET cnt = cnt + ?"
+				+ " WHERE killed = ? AND killed_type = ? AND killer = ? AND killer_type = ? AND day = ?", null);
+		List<Map.Entry<List<String>, Integer>> entries = new ArrayList<Map.Entry<List<String>, Integer>>(kills.entrySet());
+		for (Map.Entry<List<String>, Integer> entry : entries) {
+			update.setInt(1, entry.getValue().intValue());
+			setKey(update, 2, entry.getKey());
+			update.addBatch();
+		}
+		int[] rowCounts = update.executeBatch();
+
+		// insert the combinations we did not have yet. Drivers that do not
+		// report the row counts are treated as if the update was successful.
+		PreparedStatement insert = null;
+		for (int i = 0; i < rowCounts.length; i++) {
+			if (rowCounts[i] == 0) {
+				if (insert == null) {
+					insert = transaction.prepareStatement("INSERT INTO kills (killed, killed_type, killer, killer_type, day, cnt)"
+							+ " VALUES (?, ?, ?, ?, ?, ?)", null);
+				}
+				Map.Entry<List<String>, Integer> entry = entries.get(i);
+				setKey(insert, 1, entry.getKey());
+				insert.setInt(6, entry.getValue().intValue());
+				insert.addBatch();
+			}
+		}
+		if (insert != null) {
+			insert.executeBatch();
+		}
+	}
+
+	private void setKey(final PreparedStatement stmt, final int first, final List<String> key) throws SQLException {
+		for (int i = 0; i < 4; i++) {
+			stmt.setString(first + i, key.get(i));
+		}
+		stmt.setDate(first + 4, Date.valueOf(key.get(4)));
+	}
+
 	/**
 	 * Creates a one letter type string based on the class of the entity.
 	 *
@@ -13,6 +13,7 @@ package games.stendhal.server.core.engine.dbcommand;
 
 import java.sql.SQLException;
 
+import games.stendhal.server.core.engine.db.LogEventBatch;
 import marauroa.common.game.RPObject;
 import marauroa.server.db.DBTransaction;
 import marauroa.server.db.command.AbstractDBCommand;
@@ -22,23 +23,16 @@ import marauroa.server.db.command.AbstractDBCommand;
  *
  * @author hendrik
  */
-public abstract class AbstractLogItemEventCommand extends AbstractDBCommand {
+public abstract class AbstractLogItemEventCommand extends AbstractDBCommand implements LogEventCommand {
 
 
 	@Override
 	public void execute(DBTransaction transaction) throws SQLException {
-		log(transaction);
+		LogEventBatch batch = new LogEventBatch(transaction);
+		log(batch);
+		batch.flush();
 	}
 
-
-	/**
-	 * logs the event to the database.
-	 *
-	 * @param transaction DBTransaction
-	 * @throws SQLException in case of an database error
-	 */
-	protected abstract void log(DBTransaction transaction) throws SQLException;
-
 	/**
 	 * gets the quantity from an item; correctly handles non stackable items
 	 *
@@ -0,0 +1,31 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine.dbcommand;
+
+import java.sql.SQLException;
+
+import games.stendhal.server.core.engine.db.LogEventBatch;
+import marauroa.server.db.command.DBCommand;
+
+/**
+ * a log command that can be written together with other log commands
+ */
+public interface LogEventCommand extends DBCommand {
+
+	/**
+	 * adds the event to a batch.
+	 *
+	 * @param batch batch of log events
+	 * @throws SQLException in case of an database error
+	 */
+	void log(LogEventBatch batch) throws SQLException;
+}
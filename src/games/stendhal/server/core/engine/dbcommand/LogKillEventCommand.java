@@ -13,6 +13,7 @@ package games.stendhal.server.core.engine.dbcommand;
 
 import java.sql.SQLException;
 
+import games.stendhal.server.core.engine.db.LogEventBatch;
 import games.stendhal.server.core.engine.db.StendhalKillLogDAO;
 import games.stendhal.server.entity.Entity;
 import games.stendhal.server.entity.Killer;
@@ -25,7 +26,7 @@ import marauroa.server.game.db.DAORegister;
  *
  * @author hendrik
  */
-public class LogKillEventCommand extends AbstractDBCommand {
+public class LogKillEventCommand extends AbstractDBCommand implements LogEventCommand {
 
 	private Entity frozenKilled;
 	private Killer frozenKiller;
@@ -43,8 +44,15 @@ public class LogKillEventCommand extends AbstractDBCommand {
 
 	@Override
 	public void execute(DBTransaction transaction) throws SQLException {
+		LogEventBatch batch = new LogEventBatch(transaction);
+		log(batch);
+		batch.flush();
+	}
+
+	@Override
+	public void log(LogEventBatch batch) {
 		StendhalKillLogDAO killLog = DAORegister.get().get(StendhalKillLogDAO.class);
-		killLog.logKill(transaction, frozenKilled, frozenKiller, getEnqueueTime());
+		killLog.logKill(batch, frozenKilled, frozenKiller, getEnqueueTime());
 	}
 
 	/**
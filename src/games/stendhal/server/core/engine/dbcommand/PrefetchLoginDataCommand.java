@@ -0,0 +1,90 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine.dbcommand;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import games.stendhal.server.core.events.LoginPrefetchStage;
+import marauroa.server.db.DBTransaction;
+import marauroa.server.db.command.AbstractDBCommand;
+
+/**
+ * Reads the login data of several players in one transaction.
+ */
+public class PrefetchLoginDataCommand extends AbstractDBCommand {
+	private final List<LoginPrefetchStage<?>> stages;
+	private final Collection<String> charnames;
+	private final List<Map<String, ?>> results;
+	private final long[] readNanos;
+
+	/**
+	 * Creates a new PrefetchLoginDataCommand.
+	 *
+	 * @param stages stages to read
+	 * @param charnames names of the players
+	 */
+	public PrefetchLoginDataCommand(final List<LoginPrefetchStage<?>> stages, final Collection<String> charnames) {
+		this.stages = stages;
+		this.charnames = charnames;
+		this.results = new ArrayList<Map<String, ?>>(stages.size());
+		this.readNanos = new long[stages.size()];
+	}
+
+	@Override
+	public void execute(final DBTransaction transaction) throws SQLException {
+		// the command may be executed again after an error
+		results.clear();
+		for (int i = 0; i < stages.size(); i++) {
+			final long start = System.nanoTime();
+			results.add(stages.get(i).read(transaction, charnames));
+			readNanos[i] = System.nanoTime() - start;
+		}
+	}
+
+	/**
+	 * Get the data read by a stage.
+	 *
+	 * @param index index of the stage
+	 * @return data by lower case player name, or <code>null</code> if the
+	 * 	stage could not be read
+	 */
+	public Map<String, ?> getResult(final int index) {
+		if (index >= results.size()) {
+			return null;
+		}
+		return results.get(index);
+	}
+
+	/**
+	 * Get the time used to read a stage.
+	 *
+	 * @param index index of the stage
+	 * @return time in nanoseconds
+	 */
+	public long getReadNanos(final int index) {
+		return readNanos[index];
+	}
+
+	/**
+	 * returns a string suitable for debug output of this DBCommand.
+	 *
+	 * @return debug string
+	 */
+	@Override
+	public String toString() {
+		return "PrefetchLoginDataCommand [charnames=" + charnames + "]";
+	}
+}
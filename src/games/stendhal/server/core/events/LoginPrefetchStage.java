@@ -0,0 +1,80 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.events;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Map;
+
+import games.stendhal.server.core.engine.db.CharacterNameList;
+import games.stendhal.server.entity.player.Player;
+import marauroa.server.db.DBTransaction;
+
+/**
+ * A part of the player data that is read from the database on login. The
+ * LoginPrefetcher reads the data of all players that logged in during the
+ * same turn with one query per stage, and then applies it to each player.
+ *
+ * @param <T> type of the data of one player
+ */
+public abstract class LoginPrefetchStage<T> {
+	private final String name;
+
+	/**
+	 * Creates a LoginPrefetchStage.
+	 *
+	 * @param name name of the stage used in the timing statistics
+	 */
+	protected LoginPrefetchStage(final String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Get the name of the stage.
+	 *
+	 * @return name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Read the data of several players. This is called by the database
+	 * thread.
+	 *
+	 * @param transaction database transaction
+	 * @param charnames names of the players
+	 * @return data by lower case player name. Players without data may be
+	 * 	missing
+	 * @throws SQLException in case of a database error
+	 */
+	public abstract Map<String, T> read(DBTransaction transaction, Collection<String> charnames) throws SQLException;
+
+	/**
+	 * Apply the data of a player. This is called in the game loop.
+	 *
+	 * @param player player who logged in
+	 * @param data data of the player, or <code>null</code> if there was none
+	 */
+	public abstract void apply(Player player, T data);
+
+	/**
+	 * Apply the data of a player from the read results.
+	 *
+	 * @param player player who logged in
+	 * @param results result of read()
+	 */
+	@SuppressWarnings("unchecked")
+	void applyResult(final Player player, final Map<String, ?> results) {
+		apply(player, (T) results.get(CharacterNameList.key(player.getName())));
+	}
+}
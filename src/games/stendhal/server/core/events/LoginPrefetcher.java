@@ -0,0 +1,282 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.events;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+
+import games.stendhal.server.core.engine.LatencyHistogram;
+import games.stendhal.server.core.engine.dbcommand.PrefetchLoginDataCommand;
+import games.stendhal.server.entity.player.Player;
+import marauroa.server.db.command.DBCommandQueue;
+import marauroa.server.db.command.ResultHandle;
+
+/**
+ * Reads the player data that is needed on login, like reached achievements
+ * and postman messages. Instead of one query per player and kind of data,
+ * the data of all players that logged in during a turn is read in one
+ * database command with one query per stage. When the data has been read,
+ * all stages are applied to each player in the order they were added.
+ * <p>
+ * The time from the login to the application of the data, and the time of
+ * each stage, are collected in latency histograms.
+ */
+public final class LoginPrefetcher implements LoginListener, TurnListener {
+	private static final Logger logger = Logger.getLogger(LoginPrefetcher.class);
+
+	/** Name of the histogram of the time from login until the data was read. */
+	public static final String WAIT = "wait";
+	/** Name of the histogram of the time from login until the data was applied. */
+	public static final String TOTAL = "total";
+
+	/** The singleton instance. */
+	private static LoginPrefetcher instance;
+
+	private final List<LoginPrefetchStage<?>> stages = new ArrayList<LoginPrefetchStage<?>>();
+	/** Players who logged in since the last batch was started. */
+	private final List<Login> logins = new ArrayList<Login>();
+	/** Batches waiting for the database. */
+	private final List<Batch> batches = new LinkedList<Batch>();
+	private final Map<String, LatencyHistogram> timings = new LinkedHashMap<String, LatencyHistogram>();
+	private boolean scheduled;
+	private long since = System.currentTimeMillis();
+
+	/**
+	 * Returns the LoginPrefetcher instance. It is registered at the
+	 * LoginNotifier when it is created.
+	 *
+	 * @return LoginPrefetcher the Singleton instance
+	 */
+	public static LoginPrefetcher get() {
+		if (instance == null) {
+			instance = new LoginPrefetcher();
+			LoginNotifier.get().addListener(instance);
+		}
+		return instance;
+	}
+
+	/**
+	 * Creates a LoginPrefetcher that is not registered at the LoginNotifier.
+	 */
+	LoginPrefetcher() {
+		timings.put(WAIT, new LatencyHistogram());
+		timings.put(TOTAL, new LatencyHistogram());
+	}
+
+	/**
+	 * Add a stage. Stages are applied in the order they were added.
+	 *
+	 * @param stage stage
+	 */
+	public void addStage(final LoginPrefetchStage<?> stage) {
+		stages.add(stage);
+		timings.put(stage.getName() + " read", new LatencyHistogram());
+		timings.put(stage.getName() + " apply", new LatencyHistogram());
+	}
+
+	@Override
+	public void onLoggedIn(final Player player) {
+		if (stages.isEmpty()) {
+			return;
+		}
+		logins.add(new Login(player, System.nanoTime()));
+		schedule();
+	}
+
+	@Override
+	public void onTurnReached(final int currentTurn) {
+		scheduled = false;
+		if (!logins.isEmpty()) {
+			final Batch batch = createBatch();
+			DBCommandQueue.get().enqueueAndAwaitResult(batch.command, batch.handle);
+			batches.add(batch);
+		}
+
+		final Iterator<Batch> itr = batches.iterator();
+		while (itr.hasNext()) {
+			final Batch batch = itr.next();
+			final PrefetchLoginDataCommand command = DBCommandQueue.get().getOneResult(PrefetchLoginDataCommand.class, batch.handle);
+			if (command != null) {
+				itr.remove();
+				applyResults(batch);
+			}
+		}
+		if (!batches.isEmpty()) {
+			schedule();
+		}
+	}
+
+	/**
+	 * Check for new batches and results in the next turn.
+	 */
+	private void schedule() {
+		if (!scheduled) {
+			scheduled = true;
+			TurnNotifier.get().notifyInTurns(0, this);
+		}
+	}
+
+	/**
+	 * Create the batch of the players who logged in since the last batch.
+	 *
+	 * @return batch
+	 */
+	Batch createBatch() {
+		final Batch batch = new Batch(new ArrayList<Login>(logins), new ArrayList<LoginPrefetchStage<?>>(stages));
+		logins.clear();
+		return batch;
+	}
+
+	/**
+	 * Apply the read data to the players of a batch.
+	 *
+	 * @param batch batch with an executed command
+	 */
+	void applyResults(final Batch batch) {
+		final PrefetchLoginDataCommand command = batch.command;
+		final long read = System.nanoTime();
+		for (int i = 0; i < batch.stages.size(); i++) {
+			if (command.getResult(i) == null) {
+				logger.warn("Could not read login data " + batch.stages.get(i).getName() + " of " + batch.names);
+			} else {
+				record(batch.stages.get(i).getName() + " read", command.getReadNanos(i));
+			}
+		}
+
+		for (final Login login : batch.logins) {
+			record(WAIT, read - login.nanos);
+			for (int i = 0; i < batch.stages.size(); i++) {
+				final Map<String, ?> result = command.getResult(i);
+				if (result == null) {
+					continue;
+				}
+				final LoginPrefetchStage<?> stage = batch.stages.get(i);
+				final long start = System.nanoTime();
+				try {
+					stage.applyResult(login.player, result);
+				} catch (final RuntimeException e) {
+					logger.error("Error applying login data " + stage.getName() + " to " + login.player.getName(), e);
+				}
+				record(stage.getName() + " apply", System.nanoTime() - start);
+			}
+			record(TOTAL, System.nanoTime() - login.nanos);
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Applied login data of " + batch.logins.size() + " players in "
+					+ ((System.nanoTime() - read) / 1000) + " microseconds");
+		}
+	}
+
+	private void record(final String name, final long nanos) {
+		final LatencyHistogram histogram = timings.get(name);
+		if (histogram != null) {
+			histogram.record(nanos / 1000);
+		}
+	}
+
+	/**
+	 * Get a latency histogram.
+	 *
+	 * @param name {@link #WAIT}, {@link #TOTAL}, or the name of a stage
+	 * 	followed by " read" or " apply"
+	 * @return histogram in microseconds, or <code>null</code>
+	 */
+	public LatencyHistogram getTiming(final String name) {
+		return timings.get(name);
+	}
+
+	/**
+	 * Get the names of the latency histograms.
+	 *
+	 * @return names
+	 */
+	public Set<String> getTimingNames() {
+		return Collections.unmodifiableSet(new LinkedHashSet<String>(timings.keySet()));
+	}
+
+	/**
+	 * Reset the latency histograms.
+	 */
+	public void reset() {
+		for (final LatencyHistogram histogram : timings.values()) {
+			histogram.reset();
+		}
+		since = System.currentTimeMillis();
+	}
+
+	/**
+	 * Create a human readable summary of the latencies.
+	 *
+	 * @return summary
+	 */
+	public String toText() {
+		final StringBuilder sb = new StringBuilder();
+		sb.append("Login data of the last ");
+		sb.append((System.currentTimeMillis() - since) / 1000);
+		sb.append(" seconds (microseconds):");
+		for (final Map.Entry<String, LatencyHistogram> entry : timings.entrySet()) {
+			final LatencyHistogram histogram = entry.getValue();
+			sb.append(String.format(Locale.ENGLISH, "\n%s: count %d, mean %.0f, p50 %d, p99 %d, max %d",
+					entry.getKey(), histogram.getCount(), histogram.getMean(),
+					histogram.getValueAtPercentile(50), histogram.getValueAtPercentile(99),
+					histogram.getMax()));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * A player waiting for the login data.
+	 */
+	private static final class Login {
+		private final Player player;
+		/** Time of the login. */
+		private final long nanos;
+
+		Login(final Player player, final long nanos) {
+			this.player = player;
+			this.nanos = nanos;
+		}
+	}
+
+	/**
+	 * The players that logged in during a turn and the command reading
+	 * their data.
+	 */
+	static final class Batch {
+		private final List<Login> logins;
+		private final List<LoginPrefetchStage<?>> stages;
+		private final List<String> names;
+		final PrefetchLoginDataCommand command;
+		private final ResultHandle handle = new ResultHandle();
+
+		Batch(final List<Login> logins, final List<LoginPrefetchStage<?>> stages) {
+			this.logins = logins;
+			this.stages = stages;
+			final Set<String> unique = new LinkedHashSet<String>();
+			for (final Login login : logins) {
+				unique.add(login.player.getName());
+			}
+			this.names = new ArrayList<String>(unique);
+			this.command = new PrefetchLoginDataCommand(stages, names);
+		}
+	}
+}
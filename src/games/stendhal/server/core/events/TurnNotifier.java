@@ -13,9 +13,6 @@
 package games.stendhal.server.core.events;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -24,6 +21,8 @@ import org.apache.log4j.Logger;
 
 import games.stendhal.server.core.engine.SingletonRepository;
 import games.stendhal.server.core.engine.StendhalRPWorld;
+import games.stendhal.server.core.engine.TurnProfiler;
+import games.stendhal.server.core.engine.ZoneLogicRunner;
 
 /**
  * Other classes can register here to be notified at some time in the future.
@@ -37,14 +36,14 @@ public final class TurnNotifier {
 	/** The singleton instance. */
 	private static TurnNotifier instance;
 
-	private int currentTurn = -1;
+	/** Written by the turn thread, read by the zone threads. */
+	private volatile int currentTurn = -1;
 
 	/**
-	 * This Map maps each turn to the set of all events that will take place at
-	 * this turn. Turns at which no event should take place needn't be
-	 * registered here.
+	 * The registered events. The wheel keeps the events ordered by turn, and
+	 * indexed by the listener.
 	 */
-	private final Map<Integer, Set<TurnListener>> register = new HashMap<Integer, Set<TurnListener>>();
+	private final TurnTimingWheel register = new TurnTimingWheel(currentTurn);
 
 	/** Used for multi-threading synchronization. * */
 	private final Object sync = new Object();
@@ -85,34 +84,28 @@ public final class TurnNotifier {
 
 		this.currentTurn = currentTurn;
 
-		// get and remove the set for this turn
-		Set<TurnListener> set = null;
+		// get and remove the events for this turn
+		final List<TurnListener> due = new ArrayList<TurnListener>();
 		synchronized (sync) {
-			set = register.remove(Integer.valueOf(currentTurn));
+			register.advance(currentTurn, due);
 		}
 
 		if (logger.isDebugEnabled()) {
 			final StringBuilder os = new StringBuilder();
 			os.append("register: " + register.size() + "\n");
-			int setSize;
-			if (set != null) {
-				setSize = set.size();
-			} else {
-				setSize = 0;
-			}
-			os.append("set: " + setSize + "\n");
+			os.append("set: " + due.size() + "\n");
 			logger.info(os);
 		}
 
-		if (set != null) {
-			for (final TurnListener turnListener : set) {
-
-				try {
-					turnListener.onTurnReached(currentTurn);
-				} catch (final RuntimeException e) {
-					logger.error("Exception in " + turnListener, e);
-				}
+		final TurnProfiler profiler = TurnProfiler.get();
+		for (final TurnListener turnListener : due) {
+			final long start = System.nanoTime();
+			try {
+				turnListener.onTurnReached(currentTurn);
+			} catch (final RuntimeException e) {
+				logger.error("Exception in " + turnListener, e);
 			}
+			profiler.recordListener(turnListener.getClass(), System.nanoTime() - start);
 		}
 	}
 
@@ -176,16 +169,19 @@ public final class TurnNotifier {
 			return;
 		}
 
+		if (ZoneLogicRunner.isDeferring()) {
+			// keep the registration order independent of the zone threads
+			ZoneLogicRunner.runOrDefer(new Runnable() {
+				@Override
+				public void run() {
+					notifyAtTurn(turn, turnListener);
+				}
+			});
+			return;
+		}
+
 		synchronized (sync) {
-			// do we have other events for this turn?
-			final Integer turnInt = Integer.valueOf(turn);
-			Set<TurnListener> set = register.get(turnInt);
-			if (set == null) {
-				set = new HashSet<TurnListener>();
-				register.put(turnInt, set);
-			}
-			// add it to the list
-			set.add(turnListener);
+			register.schedule(turn, turnListener);
 		}
 	}
 
@@ -197,25 +193,29 @@ public final class TurnNotifier {
 	 */
 
 	public void dontNotify(final TurnListener turnListener) {
+		if (ZoneLogicRunner.isDeferring()) {
+			ZoneLogicRunner.runOrDefer(new Runnable() {
+				@Override
+				public void run() {
+					dontNotify(turnListener);
+				}
+			});
+			return;
+		}
 		// all events that are equal to this one should be forgotten.
-		// TurnEvent turnEvent = new TurnEvent(turnListener);
-		for (final Map.Entry<Integer, Set<TurnListener>> mapEntry : register.entrySet()) {
-			final Set<TurnListener> set = mapEntry.getValue();
-			// We don't remove directly, but first store in this
-			// set. This is to avoid ConcurrentModificationExceptions.
-			final Set<TurnListener> toBeRemoved = new HashSet<TurnListener>();
-			if (set.contains(turnListener)) {
-					toBeRemoved.add(turnListener);
-			}
-			for (final TurnListener event : toBeRemoved) {
-				set.remove(event);
-			}
+		synchronized (sync) {
+			register.cancel(turnListener);
 		}
 	}
 
 	/**
 	 * Finds out how many turns will pass until the given TurnListener will be
 	 * notified with the given message.
+	 * <p>
+	 * While the zones run their logic in parallel, registrations and
+	 * cancellations are deferred until all zone threads are done. Called from
+	 * zone logic, the result does not include the changes made earlier in
+	 * the same turn. It is exact only on the turn thread.
 	 *
 	 * @param turnListener
 	 * @return the number of remaining turns, or -1 if the given TurnListener
@@ -224,24 +224,14 @@ public final class TurnNotifier {
 
 	public int getRemainingTurns(final TurnListener turnListener) {
 		// all events match that are equal to this.
-		// TurnEvent turnEvent = new TurnEvent(turnListener);
-		// the HashMap is unsorted, so we need to run through
-		// all of it.
-		final List<Integer> matchingTurns = new ArrayList<Integer>();
-		for (final Map.Entry<Integer, Set<TurnListener>> mapEntry : register.entrySet()) {
-			final Set<TurnListener> set = mapEntry.getValue();
-			for (final TurnListener currentEvent : set) {
-				if (currentEvent.equals(turnListener)) {
-					matchingTurns.add(mapEntry.getKey());
-				}
+		synchronized (sync) {
+			final Integer turn = register.getFirstTurn(turnListener);
+			if (turn != null) {
+				return turn.intValue() - currentTurn;
+			} else {
+				return -1;
 			}
 		}
-		if (matchingTurns.size() > 0) {
-			Collections.sort(matchingTurns);
-			return matchingTurns.get(0).intValue() - currentTurn;
-		} else {
-			return -1;
-		}
 	}
 
 	/**
@@ -259,13 +249,25 @@ public final class TurnNotifier {
 	}
 
 	/**
-	 * Returns the list of events. Note this is only for debugging the
-	 * TurnNotifier
+	 * Returns a snapshot of the list of events, sorted by turn. Note this is
+	 * only for debugging the TurnNotifier
 	 *
 	 * @return eventList
 	 */
 	public Map<Integer, Set<TurnListener>> getEventListForDebugging() {
-		return register;
+		synchronized (sync) {
+			return register.toMap();
+		}
+	}
+
+	/**
+	 * Forgets all registered events. Note this is only for debugging the
+	 * TurnNotifier
+	 */
+	public void clearForDebugging() {
+		synchronized (sync) {
+			register.clear();
+		}
 	}
 
 	/**
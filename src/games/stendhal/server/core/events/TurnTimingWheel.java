@@ -0,0 +1,377 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.events;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * A hierarchical timing wheel for turn listeners. The wheel has four levels of
+ * 256 slots, one level for each byte of the turn number. A registration is
+ * put in the lowest level where its turn differs from the current turn, and
+ * moved down a level whenever the current turn enters the slot's range, so
+ * adding, removing and firing a registration are all constant time
+ * operations.
+ * <p>
+ * Registrations are also kept in a map keyed by the listener, so that
+ * cancelling and querying the remaining time of a listener do not need to
+ * search the whole wheel.
+ * <p>
+ * The wheel is not thread safe. TurnNotifier does the locking.
+ */
+final class TurnTimingWheel {
+	private static final int LEVELS = 4;
+	private static final int SLOT_BITS = 8;
+	private static final int SLOTS = 1 << SLOT_BITS;
+	private static final int SLOT_MASK = SLOTS - 1;
+	/** Upper limit for the amount of recycled timers that are kept around. */
+	private static final int MAX_POOL_SIZE = 4096;
+
+	/** Slot lists. The slot heads are sentinel timers. */
+	private final Timer[][] wheel = new Timer[LEVELS][SLOTS];
+	/**
+	 * Registrations for turns that were skipped when the turn counter
+	 * jumped. They are never fired unless the counter is moved back.
+	 */
+	private final Timer expired = new Timer();
+	/** First registration of each listener. */
+	private final Map<TurnListener, Timer> byListener = new HashMap<TurnListener, Timer>();
+	/** Turn the wheel has advanced to. */
+	private int currentTurn;
+	/** Total amount of registrations. */
+	private int size;
+	/** Recycled timers. */
+	private Timer pool;
+	private int poolSize;
+
+	/**
+	 * Create a new empty wheel.
+	 *
+	 * @param currentTurn the initial turn
+	 */
+	TurnTimingWheel(final int currentTurn) {
+		this.currentTurn = currentTurn;
+		for (int level = 0; level < LEVELS; level++) {
+			for (int slot = 0; slot < SLOTS; slot++) {
+				wheel[level][slot] = new Timer();
+			}
+		}
+	}
+
+	/**
+	 * Register a listener for a turn. Registering a listener that is equal to
+	 * one already registered for the same turn does nothing.
+	 *
+	 * @param turn turn to fire. Must be after the current turn
+	 * @param listener listener
+	 */
+	void schedule(final int turn, final TurnListener listener) {
+		final Timer first = byListener.get(listener);
+		for (Timer timer = first; timer != null; timer = timer.nextSame) {
+			if (timer.turn == turn) {
+				return;
+			}
+		}
+
+		final Timer timer = obtain();
+		timer.turn = turn;
+		timer.listener = listener;
+		timer.nextSame = first;
+		if (first != null) {
+			first.prevSame = timer;
+		}
+		byListener.put(listener, timer);
+		size++;
+		if (turn <= currentTurn) {
+			// the slot of the current turn has already been emptied
+			expired.append(timer);
+		} else {
+			insert(timer);
+		}
+	}
+
+	/**
+	 * Remove all registrations of listeners equal to the given one.
+	 *
+	 * @param listener listener
+	 */
+	void cancel(final TurnListener listener) {
+		Timer timer = byListener.remove(listener);
+		while (timer != null) {
+			final Timer next = timer.nextSame;
+			timer.unlink();
+			size--;
+			release(timer);
+			timer = next;
+		}
+	}
+
+	/**
+	 * Get the earliest turn a listener is registered for.
+	 *
+	 * @param listener listener
+	 * @return turn, or <code>null</code> if the listener is not registered
+	 */
+	Integer getFirstTurn(final TurnListener listener) {
+		Integer res = null;
+		for (Timer timer = byListener.get(listener); timer != null; timer = timer.nextSame) {
+			if ((res == null) || (timer.turn < res.intValue())) {
+				res = Integer.valueOf(timer.turn);
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * Move the wheel to a turn, and remove the listeners registered for it.
+	 * Moving to the turn right after the current one is a constant time
+	 * operation. Any other move rebuilds the wheel.
+	 *
+	 * @param turn new current turn
+	 * @param due list where the listeners registered for the turn are
+	 * 	appended in the order they were registered
+	 */
+	void advance(final int turn, final List<TurnListener> due) {
+		if (turn == currentTurn + 1) {
+			currentTurn = turn;
+			cascade();
+		} else {
+			rebuild(turn);
+		}
+
+		final Timer head = wheel[0][turn & SLOT_MASK];
+		Timer timer = head.next;
+		while (timer != head) {
+			final Timer next = timer.next;
+			due.add(timer.listener);
+			remove(timer);
+			timer = next;
+		}
+	}
+
+	/**
+	 * Get the amount of registrations.
+	 *
+	 * @return registration count
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Remove all registrations.
+	 */
+	void clear() {
+		for (final Timer timer : collect()) {
+			timer.unlink();
+			release(timer);
+		}
+		byListener.clear();
+		size = 0;
+	}
+
+	/**
+	 * Create a snapshot of the registrations grouped by turn.
+	 *
+	 * @return turn to listeners map, sorted by turn
+	 */
+	Map<Integer, Set<TurnListener>> toMap() {
+		final Map<Integer, Set<TurnListener>> res = new TreeMap<Integer, Set<TurnListener>>();
+		for (final Timer timer : collect()) {
+			final Integer turn = Integer.valueOf(timer.turn);
+			Set<TurnListener> set = res.get(turn);
+			if (set == null) {
+				set = new LinkedHashSet<TurnListener>();
+				res.put(turn, set);
+			}
+			set.add(timer.listener);
+		}
+		return res;
+	}
+
+	/**
+	 * Put a timer in the slot matching its turn.
+	 *
+	 * @param timer timer
+	 */
+	private void insert(final Timer timer) {
+		if (timer.turn < currentTurn) {
+			expired.append(timer);
+			return;
+		}
+		for (int level = 0; level < LEVELS - 1; level++) {
+			final int shift = SLOT_BITS * (level + 1);
+			if ((timer.turn >>> shift) == (currentTurn >>> shift)) {
+				wheel[level][(timer.turn >>> (SLOT_BITS * level)) & SLOT_MASK].append(timer);
+				return;
+			}
+		}
+		wheel[LEVELS - 1][(timer.turn >>> (SLOT_BITS * (LEVELS - 1))) & SLOT_MASK].append(timer);
+	}
+
+	/**
+	 * Move the timers of the higher level slots that the current turn has
+	 * just entered to lower levels. The highest levels go first, so that
+	 * timers end up in the lowest level slots in registration order.
+	 */
+	private void cascade() {
+		// The highest level whose range the turn entered is the one where all
+		// the lower digits of the turn are zero
+		int level = 0;
+		while ((level < LEVELS - 1) && (((currentTurn >>> (SLOT_BITS * level)) & SLOT_MASK) == 0)) {
+			level++;
+		}
+		for (; level > 0; level--) {
+			final Timer head = wheel[level][(currentTurn >>> (SLOT_BITS * level)) & SLOT_MASK];
+			Timer timer = head.next;
+			while (timer != head) {
+				final Timer next = timer.next;
+				timer.unlink();
+				insert(timer);
+				timer = next;
+			}
+		}
+	}
+
+	/**
+	 * Put all timers back to the wheel relative to a new current turn.
+	 * Registrations for earlier turns are kept aside as expired.
+	 *
+	 * @param turn new turn
+	 */
+	private void rebuild(final int turn) {
+		final List<Timer> timers = collect();
+		for (final Timer timer : timers) {
+			timer.unlink();
+		}
+		currentTurn = turn;
+		for (final Timer timer : timers) {
+			insert(timer);
+		}
+	}
+
+	/**
+	 * Get all timers, in registration order within each slot.
+	 *
+	 * @return timers
+	 */
+	private List<Timer> collect() {
+		final List<Timer> res = new ArrayList<Timer>(size);
+		collect(expired, res);
+		for (int level = LEVELS - 1; level >= 0; level--) {
+			for (final Timer head : wheel[level]) {
+				collect(head, res);
+			}
+		}
+		return res;
+	}
+
+	private void collect(final Timer head, final List<Timer> res) {
+		for (Timer timer = head.next; timer != head; timer = timer.next) {
+			res.add(timer);
+		}
+	}
+
+	/**
+	 * Remove a timer both from its slot and from the listener index.
+	 *
+	 * @param timer timer
+	 */
+	private void remove(final Timer timer) {
+		timer.unlink();
+		if (timer.prevSame != null) {
+			timer.prevSame.nextSame = timer.nextSame;
+		} else if (timer.nextSame != null) {
+			byListener.put(timer.nextSame.listener, timer.nextSame);
+		} else {
+			byListener.remove(timer.listener);
+		}
+		if (timer.nextSame != null) {
+			timer.nextSame.prevSame = timer.prevSame;
+		}
+		size--;
+		release(timer);
+	}
+
+	private Timer obtain() {
+		final Timer timer = pool;
+		if (timer == null) {
+			return new Timer();
+		}
+		pool = timer.next;
+		poolSize--;
+		timer.next = null;
+		return timer;
+	}
+
+	private void release(final Timer timer) {
+		timer.listener = null;
+		timer.prev = null;
+		timer.prevSame = null;
+		timer.nextSame = null;
+		if (poolSize < MAX_POOL_SIZE) {
+			timer.next = pool;
+			pool = timer;
+			poolSize++;
+		} else {
+			timer.next = null;
+		}
+	}
+
+	/**
+	 * A registration. Timers are in a doubly linked slot list, and in a
+	 * doubly linked list of the registrations of the same listener.
+	 */
+	private static final class Timer {
+		private int turn;
+		private TurnListener listener;
+		private Timer prev;
+		private Timer next;
+		private Timer prevSame;
+		private Timer nextSame;
+
+		/**
+		 * Create a timer. A fresh timer is an empty list head.
+		 */
+		Timer() {
+			prev = this;
+			next = this;
+		}
+
+		/**
+		 * Append a timer to the list this timer is the head of.
+		 *
+		 * @param timer appended timer
+		 */
+		void append(final Timer timer) {
+			timer.prev = prev;
+			timer.next = this;
+			prev.next = timer;
+			prev = timer;
+		}
+
+		/**
+		 * Remove this timer from the list it is in.
+		 */
+		void unlink() {
+			prev.next = next;
+			next.prev = prev;
+			prev = null;
+			next = null;
+		}
+	}
+}
@@ -0,0 +1,659 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.pathfinder;
+
+import java.awt.Rectangle;
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import games.stendhal.common.CollisionDetection;
+import games.stendhal.server.core.engine.StendhalRPZone;
+import games.stendhal.server.entity.Entity;
+import games.stendhal.server.entity.mapstuff.portal.Portal;
+import games.stendhal.server.entity.player.Player;
+import marauroa.common.game.RPObject;
+
+/**
+ * A* search working on primitive arrays indexed by <code>x + y * width</code>.
+ * The arrays are kept per zone and reused between searches. Instead of
+ * clearing them, each search increments a generation counter, and array
+ * entries stamped with an older generation are treated as empty.
+ * <p>
+ * The search expands the nodes in exactly the same order as
+ * <code>Pathfinder</code> does, including the way its priority queue breaks
+ * ties and handles nodes whose weight is changed after queueing, so the
+ * found paths are identical. Searches that the arrays can not represent, such
+ * as ones starting outside the zone, are passed to
+ * <code>EntityPathfinder</code> or <code>SimplePathfinder</code>.
+ */
+final class GridPathfinder {
+	/** Search engines of the zones. */
+	private static final Map<StendhalRPZone, GridPathfinder> engines = new WeakHashMap<StendhalRPZone, GridPathfinder>();
+
+	/** Resistance that corresponds to collision. */
+	private static final int COLLISION = 100;
+	/** Minimum resistance that is considered a collision. */
+	private static final int COLLIDE_THRESHOLD = 95;
+	/**
+	 * Distance at where another moving entity is considered to be close enough
+	 * that it's considered a collision.
+	 */
+	private static final double COLLISION_DISTANCE_SQUARED = 0.1;
+
+	private static final int NO_NODE = -1;
+	/** Tile validity cache values. */
+	private static final byte INVALID = 1;
+	private static final byte VALID = 2;
+
+	/** <code>true</code> while a search is running. */
+	private boolean busy;
+
+	/** Search generation. Array entries of other generations are unused. */
+	private int generation;
+	/** Generation in which a tile got a search node. */
+	private int[] nodeGeneration = new int[0];
+	/** Node f values. */
+	private double[] weight = new double[0];
+	/** Node g values. */
+	private double[] g = new double[0];
+	/** Cost of moving to a node. */
+	private double[] cost = new double[0];
+	/** Current parent of a node. */
+	private int[] parent = new int[0];
+	/** Nodes created by expanding a node, 4 for each node. */
+	private int[] children = new int[0];
+	private byte[] childCount = new byte[0];
+	private boolean[] open = new boolean[0];
+
+	/** Generation of the cached tile validity. */
+	private int[] validGeneration = new int[0];
+	private byte[] valid = new byte[0];
+
+	/** Generation of the entity resistance values. */
+	private int[] resistanceGeneration = new int[0];
+	/** Combined resistance of the entities on a tile. */
+	private int[] resistance = new int[0];
+
+	/** Open list as a binary heap, using the algorithm of PriorityQueue. */
+	private int[] heap = new int[16];
+	private int heapSize;
+	/** Work stack for updating subtrees. */
+	private int[] stack = new int[16];
+
+	/* Current search parameters. */
+	private StendhalRPZone zone;
+	private CollisionDetection collision;
+	private Entity entity;
+	private boolean checkEntities;
+	private int width;
+	private int height;
+	private double entityWidth;
+	private double entityHeight;
+	private int goalX;
+	private int goalY;
+	private double maxDistance;
+	private int status;
+	/** Range of the tiles whose resistance was looked at, inclusive. */
+	private int searchedX1;
+	private int searchedY1;
+	private int searchedX2;
+	private int searchedY2;
+	/** <code>false</code> if the last search may depend on the whole zone. */
+	private boolean searchedAreaKnown;
+
+	/**
+	 * Get the search engine of a zone for a search. The engine must be given
+	 * back with <code>release()</code>. If the engine of the zone is already in
+	 * use, a temporary engine is returned.
+	 *
+	 * @param zone zone
+	 * @return engine
+	 */
+	static GridPathfinder acquire(final StendhalRPZone zone) {
+		synchronized (engines) {
+			GridPathfinder engine = engines.get(zone);
+			if (engine == null) {
+				engine = new GridPathfinder();
+				engines.put(zone, engine);
+			} else if (engine.busy) {
+				engine = new GridPathfinder();
+			}
+			engine.busy = true;
+			return engine;
+		}
+	}
+
+	/**
+	 * Return an engine got with <code>acquire()</code>.
+	 */
+	void release() {
+		zone = null;
+		collision = null;
+		entity = null;
+		synchronized (engines) {
+			busy = false;
+		}
+	}
+
+	/**
+	 * Get the status of the last search.
+	 *
+	 * @return one of <code>Pathfinder.PATH_FOUND</code>,
+	 * 	<code>Pathfinder.PATH_NOT_FOUND</code> and
+	 * 	<code>Pathfinder.IN_PROGRESS</code> (the goal was unreachable)
+	 */
+	int getStatus() {
+		return status;
+	}
+
+	/**
+	 * Find a path for an entity. The result is the same as the one of
+	 * <code>EntityPathfinder</code>.
+	 *
+	 * @param entity moving entity
+	 * @param zone zone to search
+	 * @param startX x coordinate of the start
+	 * @param startY y coordinate of the start
+	 * @param destination destination area
+	 * @param maxDist maximum path length
+	 * @param checkEntities <code>true</code> if the other entities in the
+	 * 	zone should be taken in account
+	 * @return found path, or an empty list if no path was found
+	 */
+	List<Node> searchPath(final Entity entity, final StendhalRPZone zone, final int startX, final int startY,
+			final Rectangle2D destination, final double maxDist, final boolean checkEntities) {
+		/*
+		 * Tiles outside the zone get node IDs that clash with the ones of
+		 * tiles inside. Entities with a size of at least one tile can not
+		 * stand outside, so only the start position must be checked.
+		 */
+		if (!contains(zone.collisionMap, startX, startY) || (entity.getWidth() < 1) || (entity.getHeight() < 1)) {
+			final EntityPathfinder pathfinder = new EntityPathfinder(entity, zone, startX, startY,
+					destination, maxDist, checkEntities);
+			final List<Node> path = pathfinder.getPath();
+			status = pathfinder.getStatus();
+			searchedAreaKnown = false;
+			return path;
+		}
+
+		this.zone = zone;
+		this.entity = entity;
+		this.checkEntities = checkEntities;
+		entityWidth = entity.getWidth();
+		entityHeight = entity.getHeight();
+		prepare(zone.collisionMap, startX, startY, destination, maxDist);
+		if (checkEntities) {
+			createEntityResistance(startX, startY);
+		}
+		// entities touching the start position are treated differently
+		searchedX1 = startX - 1;
+		searchedY1 = startY - 1;
+		searchedX2 = startX + 1;
+		searchedY2 = startY + 1;
+		searchedAreaKnown = true;
+		return search(startX, startY, destination);
+	}
+
+	/**
+	 * Get the tiles whose obstacles could affect the result of the last
+	 * entity search. As long as the entities resisting movement within this
+	 * area do not change, the search would give the same result again.
+	 *
+	 * @return tile area, or <code>null</code> if the search may depend on
+	 * 	the whole zone
+	 */
+	Rectangle getSearchedArea() {
+		if (!searchedAreaKnown) {
+			return null;
+		}
+		return new Rectangle(searchedX1, searchedY1, searchedX2 - searchedX1 + 1, searchedY2 - searchedY1 + 1);
+	}
+
+	/**
+	 * Find an one tile wide path ignoring the entities. The result is the
+	 * same as the one of <code>SimplePathfinder</code>.
+	 *
+	 * @param zone zone to search
+	 * @param startX x coordinate of the start
+	 * @param startY y coordinate of the start
+	 * @param destination destination area
+	 * @param maxDist maximum path length
+	 * @return found path, or an empty list if no path was found
+	 */
+	List<Node> searchPath(final StendhalRPZone zone, final int startX, final int startY,
+			final Rectangle2D destination, final double maxDist) {
+		if (!contains(zone.collisionMap, startX, startY)) {
+			final Pathfinder pathfinder = new SimplePathfinder(zone, startX, startY, destination, maxDist);
+			final List<Node> path = pathfinder.getPath();
+			status = pathfinder.getStatus();
+			return path;
+		}
+
+		this.zone = null;
+		entity = null;
+		checkEntities = false;
+		prepare(zone.collisionMap, startX, startY, destination, maxDist);
+		return search(startX, startY, destination);
+	}
+
+	private static boolean contains(final CollisionDetection collision, final int x, final int y) {
+		return (x >= 0) && (y >= 0) && (x < collision.getWidth()) && (y < collision.getHeight());
+	}
+
+	/**
+	 * Start a new search generation and make sure the arrays are large
+	 * enough.
+	 *
+	 * @param collision collision map of the zone
+	 * @param startX x coordinate of the start
+	 * @param startY y coordinate of the start
+	 * @param destination destination area
+	 * @param maxDist maximum path length
+	 */
+	private void prepare(final CollisionDetection collision, final int startX, final int startY,
+			final Rectangle2D destination, final double maxDist) {
+		this.collision = collision;
+		width = collision.getWidth();
+		height = collision.getHeight();
+		ensureCapacity(width * height);
+
+		generation++;
+		if (generation == 0) {
+			// wrapped around; old stamps could match again
+			Arrays.fill(nodeGeneration, 0);
+			Arrays.fill(validGeneration, 0);
+			Arrays.fill(resistanceGeneration, 0);
+			generation = 1;
+		}
+		heapSize = 0;
+		status = Pathfinder.IN_PROGRESS;
+
+		goalX = (int) destination.getCenterX();
+		goalY = (int) destination.getCenterY();
+		// calculate shortest distance and allow a variance of X percent
+		final double startF = 1.1 * heuristic(startX, startY) + 1;
+		maxDistance = Math.max(maxDist, startF);
+	}
+
+	private void ensureCapacity(final int size) {
+		if (nodeGeneration.length >= size) {
+			return;
+		}
+		nodeGeneration = new int[size];
+		weight = new double[size];
+		g = new double[size];
+		cost = new double[size];
+		parent = new int[size];
+		children = new int[4 * size];
+		childCount = new byte[size];
+		open = new boolean[size];
+		validGeneration = new int[size];
+		valid = new byte[size];
+		resistanceGeneration = new int[size];
+		resistance = new int[size];
+	}
+
+	/**
+	 * Run the search.
+	 *
+	 * @param startX x coordinate of the start
+	 * @param startY y coordinate of the start
+	 * @param destination destination area
+	 * @return found path, or an empty list
+	 */
+	private List<Node> search(final int startX, final int startY, final Rectangle2D destination) {
+		final int start = startX + startY * width;
+		createNode(start);
+		// The start node cost is never used, and the old engine got it before
+		// the resistance data existed
+		cost[start] = 1.0;
+		offer(start);
+
+		final List<Node> list = new LinkedList<Node>();
+		if (unreachableGoal(destination)) {
+			return list;
+		}
+
+		int best;
+		while (true) {
+			best = poll();
+			if (best == NO_NODE) {
+				status = Pathfinder.PATH_NOT_FOUND;
+				return list;
+			}
+			open[best] = false;
+			if (destination.contains(best % width, best / width)) {
+				status = Pathfinder.PATH_FOUND;
+				break;
+			}
+			if (g[best] < maxDistance) {
+				final int x = best % width;
+				final int y = best / width;
+				linkChild(best, x - 1, y);
+				linkChild(best, x + 1, y);
+				linkChild(best, x, y - 1);
+				linkChild(best, x, y + 1);
+			}
+		}
+
+		for (int node = best; node != NO_NODE; node = parent[node]) {
+			list.add(0, new Node(node % width, node / width));
+		}
+		return list;
+	}
+
+	/**
+	 * Check if the goal is unreachable. Only the outer nodes of the goal are
+	 * checked.
+	 *
+	 * @param goalArea destination
+	 * @return <code>true</code> if none of the edge tiles can be entered
+	 */
+	private boolean unreachableGoal(final Rectangle2D goalArea) {
+		final int w = (int) goalArea.getWidth() - 1;
+		final int h = (int) goalArea.getHeight() - 1;
+		final int x = (int) goalArea.getX();
+		final int y = (int) goalArea.getY();
+
+		for (int i = 0; i <= w; i++) {
+			for (int j = 0; j <= h; j++) {
+				if ((i == 0) || (j == 0) || (i == w) || (j == h)) {
+					if (isValid(x + i, y + j)) {
+						return false;
+					}
+				}
+			}
+		}
+
+		return true;
+	}
+
+	private void createNode(final int node) {
+		nodeGeneration[node] = generation;
+		weight[node] = 0.0;
+		g[node] = 0.0;
+		parent[node] = NO_NODE;
+		childCount[node] = 0;
+		open[node] = true;
+	}
+
+	/**
+	 * Link a neighbour tile to a node, and update the parents if a shorter
+	 * path was found.
+	 *
+	 * @param node expanded node
+	 * @param x x coordinate of the neighbour
+	 * @param y y coordinate of the neighbour
+	 */
+	private void linkChild(final int node, final int x, final int y) {
+		if (!isValid(x, y)) {
+			return;
+		}
+
+		final int child = x + y * width;
+		if (nodeGeneration[child] != generation) {
+			createNode(child);
+			cost[child] = getCost(x, y);
+			children[4 * node + childCount[node]] = child;
+			childCount[node]++;
+			updateChild(node, child);
+			offer(child);
+		} else {
+			if (g[child] > g[node] + cost[child]) {
+				updateChild(node, child);
+			}
+			if (!open[child]) {
+				updateSubTree(child);
+			}
+		}
+	}
+
+	private void updateChild(final int node, final int child) {
+		parent[child] = node;
+		g[child] = g[node] + cost[child];
+
+		double childWeight = g[child] + heuristic(child % width, child / width);
+		// Prefer nodes that do not result in direction change
+		final int nodeParent = parent[node];
+		if (nodeParent != NO_NODE) {
+			final int x = node % width;
+			final int y = node / width;
+			if (((nodeParent % width) - x == x - (child % width))
+					&& ((nodeParent / width) - y == y - (child / width))) {
+				childWeight -= Pathfinder.STRAIGHT_PATH_PREFERENCE_FACTOR;
+			}
+		}
+		weight[child] = childWeight;
+	}
+
+	/**
+	 * Propagate a shorter path to the nodes created from a node.
+	 *
+	 * @param root root of the updated subtree
+	 */
+	private void updateSubTree(final int root) {
+		int top = 0;
+		stack[top++] = root;
+		while (top > 0) {
+			final int node = stack[--top];
+			final int count = childCount[node];
+			for (int i = 0; i < count; i++) {
+				final int child = children[4 * node + i];
+				if (g[node] + cost[child] < g[child]) {
+					updateChild(node, child);
+					if (top == stack.length) {
+						stack = Arrays.copyOf(stack, 2 * top);
+					}
+					stack[top++] = child;
+				}
+			}
+		}
+	}
+
+	/**
+	 * The heuristic of <code>Pathfinder</code>: manhattan distance with a
+	 * tie breaker of 1% of the square distance.
+	 *
+	 * @param x x coordinate
+	 * @param y y coordinate
+	 * @return heuristic distance to the goal
+	 */
+	private double heuristic(final int x, final int y) {
+		final int dx = x - goalX;
+		final int dy = y - goalY;
+		final double manhattan = Math.abs(dx) + Math.abs(dy);
+		final double tieBreaking = 0.01 * (dx * dx + dy * dy);
+
+		return manhattan + tieBreaking;
+	}
+
+	/**
+	 * Check if the searching entity can stand on a position. The result is
+	 * cached for the tiles within the zone.
+	 *
+	 * @param x x coordinate
+	 * @param y y coordinate
+	 * @return <code>true</code> if the position can be entered
+	 */
+	private boolean isValid(final int x, final int y) {
+		if ((x < 0) || (y < 0) || (x >= width) || (y >= height)) {
+			// collides for simple searches and entities of at least tile size
+			return false;
+		}
+		final int tile = x + y * width;
+		if (validGeneration[tile] != generation) {
+			validGeneration[tile] = generation;
+			valid[tile] = computeValid(x, y) ? VALID : INVALID;
+		}
+		return valid[tile] == VALID;
+	}
+
+	private boolean computeValid(final int x, final int y) {
+		if (entity == null) {
+			return !collision.collides(x, y);
+		}
+		if (zone.simpleCollides(entity, x, y, entityWidth, entityHeight)) {
+			return false;
+		}
+		return !checkEntities || (getResistance(x, y) <= COLLIDE_THRESHOLD);
+	}
+
+	private double getCost(final int x, final int y) {
+		if (checkEntities) {
+			return 100.0 / (100 - getResistance(x, y));
+		}
+		return 1.0;
+	}
+
+	/**
+	 * Fill the resistance data of the entities. The positions with entities
+	 * are only considered as not valid if they are next to the start position
+	 * or have stopped.
+	 *
+	 * @param startX x coordinate of the start
+	 * @param startY y coordinate of the start
+	 */
+	private void createEntityResistance(final int startX, final int startY) {
+		for (final RPObject obj : zone) {
+			final Entity otherEntity = (Entity) obj;
+			if (!entity.getID().equals(otherEntity.getID())
+					&& (otherEntity.stopped() || (otherEntity.squaredDistance(startX, startY) < COLLISION_DISTANCE_SQUARED))) {
+				final Rectangle2D area = otherEntity.getArea();
+				// Hack: Allow players to move onto portals as destination
+				if ((entity instanceof Player) && (otherEntity instanceof Portal) && area.contains(goalX, goalY)) {
+					continue;
+				}
+				addResistance(area, otherEntity.getResistance(entity));
+			}
+		}
+	}
+
+	/**
+	 * Add resistance of an area to the entity. Resistances combine like
+	 * probabilities.
+	 *
+	 * @param area affected area
+	 * @param res value between 0 and 100
+	 */
+	private void addResistance(final Rectangle2D area, final int res) {
+		final double x = area.getX();
+		final double y = area.getY();
+
+		final int startx = (int) Math.max(0, x);
+		final int endx = (int) Math.min(width, x + area.getWidth());
+		final int starty = (int) Math.max(0, y);
+		final int endy = (int) Math.min(height, y + area.getHeight());
+
+		for (int i = starty; i < endy; i++) {
+			for (int k = startx; k < endx; k++) {
+				final int tile = k + i * width;
+				int old = 0;
+				if (resistanceGeneration[tile] == generation) {
+					old = resistance[tile];
+				} else {
+					resistanceGeneration[tile] = generation;
+				}
+				resistance[tile] = 100 - ((100 - old) * (100 - res)) / 100;
+			}
+		}
+	}
+
+	/**
+	 * Get the resistance for placing the entity to a position within the
+	 * zone.
+	 *
+	 * @param x x coordinate
+	 * @param y y coordinate
+	 * @return resistance
+	 */
+	private int getResistance(final int x, final int y) {
+		final int endx = (int) Math.min(width, x + entityWidth);
+		final int endy = (int) Math.min(height, y + entityHeight);
+
+		searchedX1 = Math.min(searchedX1, x);
+		searchedY1 = Math.min(searchedY1, y);
+		searchedX2 = Math.max(searchedX2, endx - 1);
+		searchedY2 = Math.max(searchedY2, endy - 1);
+
+		final int entitySize = (int) (entityWidth * entityHeight);
+		int res = 0;
+		for (int k = x; k < endx; k++) {
+			for (int i = y; i < endy; i++) {
+				final int tile = k + i * width;
+				final int r = (resistanceGeneration[tile] == generation) ? resistance[tile] : 0;
+				if (r > COLLIDE_THRESHOLD) {
+					return COLLISION;
+				}
+				res += r / entitySize;
+			}
+		}
+
+		return res;
+	}
+
+	/*
+	 * The open list. The sift operations are the ones of PriorityQueue, so
+	 * that ties and stale weights are handled the same way.
+	 */
+
+	private void offer(final int node) {
+		if (heapSize == heap.length) {
+			heap = Arrays.copyOf(heap, 2 * heapSize);
+		}
+		int k = heapSize++;
+		final double w = weight[node];
+		while (k > 0) {
+			final int parentIndex = (k - 1) >>> 1;
+			final int e = heap[parentIndex];
+			if (w >= weight[e]) {
+				break;
+			}
+			heap[k] = e;
+			k = parentIndex;
+		}
+		heap[k] = node;
+	}
+
+	private int poll() {
+		if (heapSize == 0) {
+			return NO_NODE;
+		}
+		final int result = heap[0];
+		final int n = --heapSize;
+		if (n > 0) {
+			final int x = heap[n];
+			final double w = weight[x];
+			int k = 0;
+			final int half = n >>> 1;
+			while (k < half) {
+				int child = (k << 1) + 1;
+				int c = heap[child];
+				final int right = child + 1;
+				if ((right < n) && (weight[c] > weight[heap[right]])) {
+					child = right;
+					c = heap[child];
+				}
+				if (w <= weight[c]) {
+					break;
+				}
+				heap[k] = c;
+				k = child;
+			}
+			heap[k] = x;
+		}
+		return result;
+	}
+}
@@ -13,7 +13,12 @@ package games.stendhal.server.core.pathfinder;
 
 import java.util.List;
 
+import org.apache.log4j.Logger;
+
+import games.stendhal.server.core.engine.PortalGraph;
+import games.stendhal.server.core.engine.SingletonRepository;
 import games.stendhal.server.core.engine.StendhalRPZone;
+import games.stendhal.server.core.engine.ZoneLogicRunner;
 import games.stendhal.server.entity.GuidedEntity;
 import games.stendhal.server.entity.Registrator;
 import games.stendhal.server.util.Observable;
@@ -25,6 +30,8 @@ import games.stendhal.server.util.Observer;
  * @author yoriy
  */
 public class MultiZonesFixedPath implements Observer {
+	private static final Logger logger = Logger.getLogger(MultiZonesFixedPath.class);
+
 	private final GuidedEntity ent;
 	private final List<RPZonePath> route;
 	private Integer count;
@@ -43,6 +50,24 @@ public class MultiZonesFixedPath implements Observer {
 		count = -1;
 		route = rt;
 		finishnotifier.setObserver(o);
+		checkRoute();
+	}
+
+	/**
+	 * Warn about routes that contain zones without a connection to the
+	 * previous zone, which usually means that a zone name is wrong.
+	 */
+	private void checkRoute() {
+		final PortalGraph graph = SingletonRepository.getRPWorld().getPortalGraph();
+		for (int i = 1; i < route.size(); i++) {
+			final StendhalRPZone from = route.get(i - 1).get().first();
+			final StendhalRPZone to = route.get(i).get().first();
+			if ((from != null) && (to != null) && graph.containsZone(from.getName())
+					&& graph.containsZone(to.getName()) && !graph.isReachable(from.getName(), to.getName())) {
+				logger.warn("Route of " + ent.getName() + " goes from " + from.getName() + " to "
+						+ to.getName() + ", which cannot be reached from there");
+			}
+		}
 	}
 
 	/**
@@ -66,6 +91,7 @@ public class MultiZonesFixedPath implements Observer {
 		ent.setPosition(x, y);
 		StendhalRPZone zone = route.get(count).get().first();
 		ent.setPath(new FixedPath(route.get(count).get().second(), false));
+		ent.setTravelling(true);
 		if (ent.getZone() != null) {
 			ent.getZone().remove(ent);
 		}
@@ -76,11 +102,18 @@ public class MultiZonesFixedPath implements Observer {
 	public void update(Observable o, Object arg) {
 		// will run at local path's end; have to change path to another
 		if (count != (route.size() - 1)) {
-			removeFromZone();
-			++count;
-			addToZone();
+			// the next zone can be changed only after the zone logic
+			ZoneLogicRunner.runOrDefer(new Runnable() {
+				@Override
+				public void run() {
+					removeFromZone();
+					++count;
+					addToZone();
+				}
+			});
 		} else {
 			// last route finished
+			ent.setTravelling(false);
 			ent.pathnotifier.removeObserver(this);
 			finishnotifier.setChanges();
 			finishnotifier.notifyObservers();
@@ -115,21 +115,37 @@ public abstract class Path {
 			zone = sourceEntity.getZone();
 		}
 
+		final PathCache cache = PathCache.get(zone);
+		final PathCache.Key key = PathCache.createKey(sourceEntity, x, y, destination, maxDistance, withEntities);
+		final List<Node> cached = cache.get(zone, key);
+		if (cached != null) {
+			return cached;
+		}
+
 		//
 		// long startTimeNano = System.nanoTime();
 		final long startTime = System.currentTimeMillis();
 
-		final EntityPathfinder pathfinder = new EntityPathfinder(sourceEntity, zone, x, y,
-				destination, maxDistance, withEntities);
-
-		final List<Node> resultPath = pathfinder.getPath();
+		final GridPathfinder pathfinder = GridPathfinder.acquire(zone);
+		final List<Node> resultPath;
+		final int status;
+		final Rectangle searchedArea;
+		try {
+			resultPath = pathfinder.searchPath(sourceEntity, zone, x, y,
+					destination, maxDistance, withEntities);
+			status = pathfinder.getStatus();
+			searchedArea = pathfinder.getSearchedArea();
+		} finally {
+			pathfinder.release();
+		}
 		if (logger.isDebugEnabled()
-				&& (pathfinder.getStatus() == Pathfinder.PATH_NOT_FOUND)) {
+				&& (status == Pathfinder.PATH_NOT_FOUND)) {
 			logger.debug("Pathfinding aborted: " + zone.getID() + " "
 					+ sourceEntity.getTitle() + " (" + x + ", " + y + ") "
 					+ destination + " Pathfinding time: "
 					+ (System.currentTimeMillis() - startTime));
 		}
+		cache.put(zone, key, resultPath, searchedArea);
 
 		return resultPath;
 	}
@@ -148,8 +164,24 @@ public abstract class Path {
 	 */
 	public static List<Node> searchPath(final StendhalRPZone zone, final int startX, final int startY, final int destX,
 			final int destY, final double maxDistance) {
-		final Pathfinder pathfinder = new SimplePathfinder(zone, startX, startY, new Rectangle(destX, destY, 1, 1), maxDistance);
-		return pathfinder.getPath();
+		final Rectangle destination = new Rectangle(destX, destY, 1, 1);
+		final PathCache cache = PathCache.get(zone);
+		final PathCache.Key key = PathCache.createKey(startX, startY, destination, maxDistance);
+		final List<Node> cached = cache.get(zone, key);
+		if (cached != null) {
+			return cached;
+		}
+
+		final GridPathfinder pathfinder = GridPathfinder.acquire(zone);
+		final List<Node> resultPath;
+		try {
+			resultPath = pathfinder.searchPath(zone, startX, startY, destination, maxDistance);
+		} finally {
+			pathfinder.release();
+		}
+		cache.put(zone, key, resultPath, null);
+
+		return resultPath;
 	}
 
 	/**
@@ -0,0 +1,304 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.pathfinder;
+
+import java.awt.Rectangle;
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import games.stendhal.server.core.engine.StendhalRPZone;
+import games.stendhal.server.entity.Entity;
+import games.stendhal.server.entity.player.Player;
+import marauroa.server.game.Statistics;
+
+/**
+ * Cache for the search results of a zone. An entry is valid as long as the
+ * collision map of the zone does not change, and for searches that take the
+ * other entities in account, as long as the entities resisting movement do not
+ * change within the area the search looked at. Stale entries are dropped when
+ * they are next looked up, or pushed out by newer entries.
+ * <p>
+ * The cache does not refer to its zone, so that the zone, and with it the
+ * cache, can be garbage collected after the zone was removed from the world.
+ * <p>
+ * The hits and misses are counted in the server statistics as
+ * "Path cache hits" and "Path cache misses". The ones of the searches that
+ * take the other entities in account are also counted separately as
+ * "Path cache entity hits" and "Path cache entity misses".
+ */
+final class PathCache {
+	/** Caches of the zones. */
+	private static final Map<StendhalRPZone, PathCache> caches = new WeakHashMap<StendhalRPZone, PathCache>();
+
+	/** Maximum amount of cached searches per zone. */
+	private static final int MAX_ENTRIES = 512;
+
+	private static final String HITS = "Path cache hits";
+	private static final String MISSES = "Path cache misses";
+	private static final String ENTITY_HITS = "Path cache entity hits";
+	private static final String ENTITY_MISSES = "Path cache entity misses";
+
+	private final Map<Key, Entry> entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<Key, Entry> eldest) {
+			return size() > MAX_ENTRIES;
+		}
+	};
+	/** Collision map version the entries were created with. */
+	private long collisionVersion;
+
+	private PathCache(final StendhalRPZone zone) {
+		collisionVersion = zone.collisionMap.getVersion();
+	}
+
+	/**
+	 * Get the cache of a zone.
+	 *
+	 * @param zone zone
+	 * @return path cache
+	 */
+	static PathCache get(final StendhalRPZone zone) {
+		synchronized (caches) {
+			PathCache cache = caches.get(zone);
+			if (cache == null) {
+				cache = new PathCache(zone);
+				caches.put(zone, cache);
+			}
+			return cache;
+		}
+	}
+
+	/**
+	 * Create the key of an entity search.
+	 *
+	 * @param entity searching entity
+	 * @param x start x
+	 * @param y start y
+	 * @param destination destination area
+	 * @param maxDistance maximum path length
+	 * @param withEntities <code>true</code> if the other entities are taken in
+	 * 	account
+	 * @return key
+	 */
+	static Key createKey(final Entity entity, final int x, final int y, final Rectangle2D destination,
+			final double maxDistance, final boolean withEntities) {
+		if (!withEntities) {
+			return new Key(Key.ENTITY, x, y, destination, maxDistance, entity.getWidth(), entity.getHeight(), 0);
+		}
+		// The resistance of the searching entity affects the others. Players
+		// may enter portals. The searching entity is excluded from the
+		// obstacles, but it stands at the start, so entities searching from
+		// the same place can share the result. An entity moving away from or
+		// onto the start invalidates the entries that looked at it.
+		final int mode = (entity instanceof Player) ? Key.PLAYER_WITH_ENTITIES : Key.ENTITY_WITH_ENTITIES;
+		return new Key(mode, x, y, destination, maxDistance, entity.getWidth(), entity.getHeight(),
+				entity.getResistance());
+	}
+
+	/**
+	 * Create the key of a search that uses only the collision map.
+	 *
+	 * @param x start x
+	 * @param y start y
+	 * @param destination destination area
+	 * @param maxDistance maximum path length
+	 * @return key
+	 */
+	static Key createKey(final int x, final int y, final Rectangle2D destination, final double maxDistance) {
+		return new Key(Key.SIMPLE, x, y, destination, maxDistance, 1, 1, 0);
+	}
+
+	/**
+	 * Get a cached search result.
+	 *
+	 * @param zone zone of the cache
+	 * @param key search key
+	 * @return a copy of the cached path, or <code>null</code> if the search is
+	 * 	not cached
+	 */
+	synchronized List<Node> get(final StendhalRPZone zone, final Key key) {
+		final long currentCollision = zone.collisionMap.getVersion();
+		if (currentCollision != collisionVersion) {
+			entries.clear();
+			collisionVersion = currentCollision;
+		}
+
+		final Entry entry = entries.get(key);
+		if (entry != null) {
+			if (!key.withEntities() || entry.isValid(zone)) {
+				count(HITS, key.withEntities() ? ENTITY_HITS : null);
+				return new LinkedList<Node>(Arrays.asList(entry.path));
+			}
+			entries.remove(key);
+		}
+		count(MISSES, key.withEntities() ? ENTITY_MISSES : null);
+		return null;
+	}
+
+	/**
+	 * Store a search result. Must be called before the zone changes after
+	 * the search.
+	 *
+	 * @param zone zone of the cache
+	 * @param key search key
+	 * @param path found path
+	 * @param searchedArea tiles whose obstacles could affect the result, or
+	 * 	<code>null</code> if it may depend on the whole zone. Only used for
+	 * 	searches that take the other entities in account
+	 */
+	synchronized void put(final StendhalRPZone zone, final Key key, final List<Node> path,
+			final Rectangle searchedArea) {
+		if (zone.collisionMap.getVersion() != collisionVersion) {
+			return;
+		}
+		entries.put(key, new Entry(path.toArray(new Node[path.size()]), zone.getObstacleVersion(), searchedArea));
+	}
+
+	/**
+	 * Update statistics counters. The zones may search paths in parallel, so
+	 * the updates are synchronized.
+	 *
+	 * @param key counter name
+	 * @param detailKey name of a second counter, or <code>null</code>
+	 */
+	private static void count(final String key, final String detailKey) {
+		final Statistics statistics = Statistics.getStatistics();
+		synchronized (statistics) {
+			statistics.add(key, 1);
+			if (detailKey != null) {
+				statistics.add(detailKey, 1);
+			}
+		}
+	}
+
+	/**
+	 * Get the amount of cached searches.
+	 *
+	 * @return cache size
+	 */
+	synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * A cached search result.
+	 */
+	private static final class Entry {
+		private final Node[] path;
+		/** Obstacle version of the zone when the search was done. */
+		private final int obstacleVersion;
+		/** Tiles the search looked at, or <code>null</code> for the whole zone. */
+		private final Rectangle searchedArea;
+
+		Entry(final Node[] path, final int obstacleVersion, final Rectangle searchedArea) {
+			this.path = path;
+			this.obstacleVersion = obstacleVersion;
+			this.searchedArea = searchedArea;
+		}
+
+		/**
+		 * Check that no obstacles changed in the area of a search that takes
+		 * the other entities in account.
+		 *
+		 * @param zone zone of the search
+		 * @return <code>true</code> if the search would give the same result
+		 */
+		boolean isValid(final StendhalRPZone zone) {
+			if (searchedArea == null) {
+				return obstacleVersion == zone.getObstacleVersion();
+			}
+			return zone.getObstacleVersion(searchedArea) <= obstacleVersion;
+		}
+	}
+
+	/**
+	 * Search parameters.
+	 */
+	static final class Key {
+		private static final int SIMPLE = 0;
+		private static final int ENTITY = 1;
+		private static final int ENTITY_WITH_ENTITIES = 2;
+		private static final int PLAYER_WITH_ENTITIES = 3;
+
+		private final int mode;
+		private final int x;
+		private final int y;
+		private final double destX;
+		private final double destY;
+		private final double destWidth;
+		private final double destHeight;
+		private final double maxDistance;
+		private final double width;
+		private final double height;
+		private final int resistance;
+		private final int hash;
+
+		Key(final int mode, final int x, final int y, final Rectangle2D destination, final double maxDistance,
+				final double width, final double height, final int resistance) {
+			this.mode = mode;
+			this.x = x;
+			this.y = y;
+			destX = destination.getX();
+			destY = destination.getY();
+			destWidth = destination.getWidth();
+			destHeight = destination.getHeight();
+			this.maxDistance = maxDistance;
+			this.width = width;
+			this.height = height;
+			this.resistance = resistance;
+
+			int h = mode;
+			h = 31 * h + x;
+			h = 31 * h + y;
+			h = 31 * h + Double.hashCode(destX);
+			h = 31 * h + Double.hashCode(destY);
+			h = 31 * h + Double.hashCode(destWidth);
+			h = 31 * h + Double.hashCode(destHeight);
+			h = 31 * h + Double.hashCode(maxDistance);
+			h = 31 * h + Double.hashCode(width);
+			h = 31 * h + Double.hashCode(height);
+			hash = 31 * h + resistance;
+		}
+
+		/**
+		 * Check if the search result depends on the other entities.
+		 *
+		 * @return <code>true</code> if other entities are taken in account
+		 */
+		boolean withEntities() {
+			return mode >= ENTITY_WITH_ENTITIES;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			final Key other = (Key) obj;
+			return (hash == other.hash) && (mode == other.mode) && (x == other.x) && (y == other.y)
+					&& (destX == other.destX) && (destY == other.destY)
+					&& (destWidth == other.destWidth) && (destHeight == other.destHeight)
+					&& (maxDistance == other.maxDistance) && (width == other.width) && (height == other.height)
+					&& (resistance == other.resistance);
+		}
+	}
+}
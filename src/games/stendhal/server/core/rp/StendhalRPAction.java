@@ -29,6 +29,7 @@ import games.stendhal.server.core.engine.DataProvider;
 import games.stendhal.server.core.engine.GameEvent;
 import games.stendhal.server.core.engine.SingletonRepository;
 import games.stendhal.server.core.engine.StendhalRPZone;
+import games.stendhal.server.core.engine.ZoneLogicRunner;
 import games.stendhal.server.core.engine.db.StendhalKillLogDAO;
 import games.stendhal.server.core.events.TutorialNotifier;
 import games.stendhal.server.core.events.ZoneNotifier;
@@ -561,7 +562,7 @@ public class StendhalRPAction {
 						+ zone.getName() + "[" + nx + "," + ny + "]");
 			}
 
-			if (!placeat(zone, entity, nx, ny)) {
+			if (place(zone, entity, nx, ny, null) == Placement.FAILED) {
 				logger.warn("Could not place " + entity.getTitle() + " at "
 						+ zone.getName() + "[" + nx + "," + ny + "]");
 			}
@@ -606,6 +607,12 @@ public class StendhalRPAction {
 	 * Places an entity at a specified position in a specified zone. This will
 	 * remove the entity from any existing zone and add it to the target zone if
 	 * needed.
+	 * <p>
+	 * While the logic of a zone runs in parallel with other zones, placing
+	 * that touches another zone is deferred to the end of the zone logic, and
+	 * this returns <code>false</code> as the entity has not been placed yet.
+	 * Use {@link #place(StendhalRPZone, Entity, int, int, Shape)} to tell
+	 * deferred placing from failed placing.
 	 *
 	 * @param zone
 	 *     Zone to place the entity in.
@@ -619,12 +626,66 @@ public class StendhalRPAction {
 	 *     If not <code>null</code>, only search within this area for a possible
 	 *     new position.
 	 * @return
-	 *     <code>true</code> if it was possible to place the entity, false otherwise.
+	 *     <code>true</code> if the entity has been placed, false otherwise.
 	 */
 	public static boolean placeat(final StendhalRPZone zone, final Entity entity,
+			final int x, final int y, final Shape allowedArea) {
+		return place(zone, entity, x, y, allowedArea) == Placement.PLACED;
+	}
+
+	/**
+	 * Result of placing an entity.
+	 */
+	public enum Placement {
+		/** The entity has been placed. */
+		PLACED,
+		/**
+		 * Placing touches a zone other than the one whose logic is running.
+		 * It is done after the logic of all zones of the turn has finished.
+		 */
+		DEFERRED,
+		/** There is no place for the entity. */
+		FAILED
+	}
+
+	/**
+	 * Places an entity at a specified position in a specified zone, like
+	 * {@link #placeat(StendhalRPZone, Entity, int, int, Shape)}. If the
+	 * placing touches a zone other than the one whose logic the current thread
+	 * runs, it is done after the zone logic of the turn instead.
+	 *
+	 * @param zone
+	 *     Zone to place the entity in.
+	 * @param entity
+	 *     The entity to place.
+	 * @param x
+	 *     Zone X coordinate.
+	 * @param y
+	 *     Zone Y coordinate.
+	 * @param allowedArea
+	 *     If not <code>null</code>, only search within this area for a possible
+	 *     new position.
+	 * @return
+	 *     result of the placing
+	 */
+	public static Placement place(final StendhalRPZone zone, final Entity entity,
 			int x, int y, final Shape allowedArea) {
 		if (zone == null) {
-			return false;
+			return Placement.FAILED;
+		}
+
+		final StendhalRPZone currentZone = entity.getZone();
+		if (!ZoneLogicRunner.isLocal(zone)
+				|| ((currentZone != null) && !ZoneLogicRunner.isLocal(currentZone))) {
+			final int targetX = x;
+			final int targetY = y;
+			ZoneLogicRunner.runOrDefer(new Runnable() {
+				@Override
+				public void run() {
+					place(zone, entity, targetX, targetY, allowedArea);
+				}
+			});
+			return Placement.DEFERRED;
 		}
 
 		Player player = null;
@@ -633,7 +694,7 @@ public class StendhalRPAction {
 			// check in case of players that are still in game because the entity
 			// is added to the world again otherwise.
 			if (player.isDisconnected()) {
-				return true;
+				return Placement.PLACED;
 			}
 		}
 
@@ -652,7 +713,7 @@ public class StendhalRPAction {
 			if (newLocation == null) {
 				logger.info("Unable to place " + entity.getTitle() + " at "
 						+ zone.getName() + "[" + x + "," + y + "]");
-				return false;
+				return Placement.FAILED;
 			}
 
 			x = newLocation.x;
@@ -758,7 +819,7 @@ public class StendhalRPAction {
 					+ zone.getName() + "[" + x + "," + y + "]");
 		}
 
-		return true;
+		return Placement.PLACED;
 	}
 
 	/**
@@ -904,6 +965,14 @@ public class StendhalRPAction {
 				return true;
 			}
 
+			// Positions in different walkable regions are separated by
+			// static collisions. Skip the search in that case.
+			final int oldRegion = zone.getWalkableRegion(oldX, oldY);
+			if ((oldRegion >= 0) && (entity.getWidth() > 0) && (entity.getHeight() > 0)
+					&& (oldRegion != zone.getWalkableRegion(newX, newY))) {
+				return false;
+			}
+
 			// We verify that there is a walkable path between the original
 			// spot and the new destination. This is to prevent players to
 			// enter not allowed places by logging in on top of other players.
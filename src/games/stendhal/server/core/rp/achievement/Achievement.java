@@ -12,6 +12,8 @@
  ***************************************************************************/
 package games.stendhal.server.core.rp.achievement;
 
+import java.util.Collection;
+
 import games.stendhal.server.entity.npc.ChatCondition;
 import games.stendhal.server.entity.player.Player;
 /**
@@ -120,6 +122,16 @@ public class Achievement {
 		return condition.fire(p, null, null);
 	}
 
+	/**
+	 * Get the player counters the condition of this achievement depends on.
+	 *
+	 * @return counter keys, or <code>null</code> if the condition may depend
+	 * 	on anything
+	 */
+	public Collection<String> getCounters() {
+		return PlayerCounters.of(condition);
+	}
+
 	@Override
 	public String toString() {
 		return "Achievement<id: "+identifier+", title: "+title+">";
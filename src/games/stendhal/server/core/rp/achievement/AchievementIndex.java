@@ -0,0 +1,154 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.rp.achievement;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lookup tables of the achievements by identifier, by category and by the
+ * player counters their conditions depend on. The tables don't change after
+ * creation, so they can be used from several zone threads.
+ */
+final class AchievementIndex {
+	private final Map<Achievement, Integer> indices = new IdentityHashMap<Achievement, Integer>();
+	private final Map<String, Achievement> byIdentifier = new HashMap<String, Achievement>();
+	private final Map<Category, CategoryIndex> categories = new EnumMap<Category, CategoryIndex>(Category.class);
+	private final Map<String, String> zoneRegions;
+
+	/**
+	 * Creates an AchievementIndex.
+	 *
+	 * @param achievements achievements by category
+	 * @param zoneRegions regions by zone name
+	 */
+	AchievementIndex(final Map<Category, List<Achievement>> achievements, final Map<String, String> zoneRegions) {
+		this.zoneRegions = zoneRegions;
+		for (final Map.Entry<Category, List<Achievement>> entry : achievements.entrySet()) {
+			for (final Achievement achievement : entry.getValue()) {
+				indices.put(achievement, Integer.valueOf(indices.size()));
+				byIdentifier.put(achievement.getIdentifier(), achievement);
+			}
+			categories.put(entry.getKey(), new CategoryIndex(entry.getValue()));
+		}
+	}
+
+	/**
+	 * Get the index of an achievement.
+	 *
+	 * @param achievement achievement
+	 * @return index, unique for all achievements
+	 */
+	int indexOf(final Achievement achievement) {
+		return indices.get(achievement).intValue();
+	}
+
+	/**
+	 * Get an achievement by identifier.
+	 *
+	 * @param identifier identifier
+	 * @return achievement, or <code>null</code>
+	 */
+	Achievement get(final String identifier) {
+		return byIdentifier.get(identifier);
+	}
+
+	/**
+	 * Get the region of a zone.
+	 *
+	 * @param zone zone name
+	 * @return region, or <code>null</code> if the zone is not part of a
+	 * 	region
+	 */
+	String getRegion(final String zone) {
+		return zoneRegions.get(zone);
+	}
+
+	/**
+	 * Get all achievements of a category.
+	 *
+	 * @param category category
+	 * @return achievements
+	 */
+	List<Achievement> getAll(final Category category) {
+		final CategoryIndex index = categories.get(category);
+		if (index == null) {
+			return Collections.emptyList();
+		}
+		return index.all;
+	}
+
+	/**
+	 * Get the achievements of a category that may be affected by a change of
+	 * some player counters.
+	 *
+	 * @param category category
+	 * @param counters changed counters
+	 * @return achievements depending on one of the counters, and those with
+	 * 	unknown dependencies, in the order of the category
+	 */
+	List<Achievement> getCandidates(final Category category, final String... counters) {
+		final CategoryIndex index = categories.get(category);
+		if (index == null) {
+			return Collections.emptyList();
+		}
+		final BitSet selected = (BitSet) index.unkeyed.clone();
+		for (final String counter : counters) {
+			final BitSet keyed = index.byCounter.get(counter);
+			if (keyed != null) {
+				selected.or(keyed);
+			}
+		}
+		final List<Achievement> res = new ArrayList<Achievement>(selected.cardinality());
+		for (int i = selected.nextSetBit(0); i >= 0; i = selected.nextSetBit(i + 1)) {
+			res.add(index.all.get(i));
+		}
+		return res;
+	}
+
+	/**
+	 * The achievements of one category.
+	 */
+	private static final class CategoryIndex {
+		private final List<Achievement> all;
+		/** Positions of the achievements with unknown dependencies. */
+		private final BitSet unkeyed = new BitSet();
+		/** Positions of the achievements by counter. */
+		private final Map<String, BitSet> byCounter = new HashMap<String, BitSet>();
+
+		CategoryIndex(final List<Achievement> achievements) {
+			all = Collections.unmodifiableList(new ArrayList<Achievement>(achievements));
+			for (int i = 0; i < all.size(); i++) {
+				final Collection<String> counters = all.get(i).getCounters();
+				if (counters == null) {
+					unkeyed.set(i);
+					continue;
+				}
+				for (final String counter : counters) {
+					BitSet keyed = byCounter.get(counter);
+					if (keyed == null) {
+						keyed = new BitSet();
+						byCounter.put(counter, keyed);
+					}
+					keyed.set(i);
+				}
+			}
+		}
+	}
+}
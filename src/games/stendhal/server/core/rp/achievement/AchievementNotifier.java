@@ -13,7 +13,6 @@ package games.stendhal.server.core.rp.achievement;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.LinkedList;
@@ -30,15 +29,20 @@ import games.stendhal.common.constants.SoundLayer;
 import games.stendhal.common.grammar.Grammar;
 import games.stendhal.server.core.engine.GameEvent;
 import games.stendhal.server.core.engine.SingletonRepository;
+import games.stendhal.server.core.engine.StendhalRPWorld;
+import games.stendhal.server.core.engine.StendhalRPZone;
+import games.stendhal.server.core.engine.ZoneLogicRunner;
 import games.stendhal.server.core.engine.db.AchievementDAO;
 import games.stendhal.server.core.engine.dbcommand.WriteReachedAchievementCommand;
+import games.stendhal.server.core.events.LoginPrefetcher;
 import games.stendhal.server.core.rp.achievement.factory.AbstractAchievementFactory;
+import games.stendhal.server.core.rp.searchindex.SearchIndex;
+import games.stendhal.server.core.rp.searchindex.SearchIndexEntryType;
 import games.stendhal.server.entity.player.Player;
 import games.stendhal.server.entity.player.ReadAchievementsOnLogin;
 import games.stendhal.server.entity.player.UpdatePendingAchievementsOnLogin;
 import games.stendhal.server.events.ReachedAchievementEvent;
 import games.stendhal.server.events.SoundEvent;
-import marauroa.server.db.command.DBCommandQueue;
 import marauroa.server.game.db.DAORegister;
 
 /**
@@ -53,10 +57,21 @@ public final class AchievementNotifier {
 	/** The singleton instance. */
 	private static AchievementNotifier instance;
 
+	/** Categories checked when a quest changes. */
+	private static final Category[] QUEST_CATEGORIES = { Category.QUEST, Category.QUEST_ADOS_ITEMS,
+		Category.QUEST_SEMOS_MONSTER, Category.QUEST_KIRDNEH_ITEM, Category.FRIEND, Category.OBTAIN,
+		Category.PRODUCTION, Category.QUEST_MITHRILBOURGH_ENEMY_ARMY, Category.QUEST_KILL_BLORDROUGHS };
+
 	final private Map<Category, List<Achievement>> achievements;
 
 	final private Map<String, Integer> identifiersToIds;
 
+	/** Lookup tables of the achievements, created on initialization. */
+	private volatile AchievementIndex index = new AchievementIndex(
+			new EnumMap<Category, List<Achievement>>(Category.class), new HashMap<String, String>());
+
+	/** Achievements to check on login. */
+	private volatile List<Achievement> loginAchievements = new ArrayList<Achievement>();
 
 	/**
 	 * singleton accessor method
@@ -92,7 +107,9 @@ public final class AchievementNotifier {
 				achievements.put(a.getCategory(), new LinkedList<Achievement>());
 			}
 			achievements.get(a.getCategory()).add(a);
+			SearchIndex.get().invalidate(SearchIndexEntryType.ACHIEVEMENT, a.getTitle());
 		}
+		createIndex();
 		//collect all identifiers from database
 		final Map<String, Integer> allIdentifiersInDatabase = collectAllIdentifiersFromDatabase();
 		//update stored data with configured achievements
@@ -124,10 +141,36 @@ public final class AchievementNotifier {
 				logger.error("Error while saving new achievement "+a.getTitle(), e);
 			}
 		}
-		// register the login notifier that checks for each player the pending achievements on login
-		SingletonRepository.getLoginNotifier().addListener(new UpdatePendingAchievementsOnLogin());
-		// register the login notifier that checks for each player the reached achievements on login
-		SingletonRepository.getLoginNotifier().addListener(new ReadAchievementsOnLogin());
+		// apply the pending achievements on login before the reached achievements are checked
+		LoginPrefetcher.get().addStage(new UpdatePendingAchievementsOnLogin());
+		// read the reached achievements on login and check for new ones
+		LoginPrefetcher.get().addStage(new ReadAchievementsOnLogin());
+	}
+
+	/**
+	 * Creates the lookup tables of the achievements and the list of
+	 * achievements to check on login.
+	 */
+	private void createIndex() {
+		final Map<String, String> zoneRegions = new HashMap<String, String>();
+		final StendhalRPWorld world = SingletonRepository.getRPWorld();
+		for (final String region : world.getRegions()) {
+			for (final StendhalRPZone zone : world.getAllZonesFromRegion(region, null, null, null)) {
+				zoneRegions.put(zone.getName(), region);
+			}
+		}
+
+		final List<Achievement> onLogin = new ArrayList<Achievement>();
+		for (final Map.Entry<Category, List<Achievement>> entry : achievements.entrySet()) {
+			//Avoid checking of zone achievements on login to
+			//prevent double check when player is initially placed into a zone
+			if ((entry.getKey() != Category.OUTSIDE_ZONE) && (entry.getKey() != Category.UNDERGROUND_ZONE)) {
+				onLogin.addAll(entry.getValue());
+			}
+		}
+
+		index = new AchievementIndex(achievements, zoneRegions);
+		loginAchievements = onLogin;
 	}
 
 	/**
@@ -182,21 +225,46 @@ public final class AchievementNotifier {
 		getAndCheckAchievementsInCategory(player, Category.FIGHTING);
 	}
 
+	/**
+	 * checks the achievements for a player that depend on the kills of a creature
+	 *
+	 * @param player
+	 * @param creature name of the killed creature
+	 */
+	public void onKill(final Player player, final String creature) {
+		if (creature == null) {
+			onKill(player);
+			return;
+		}
+		checkCandidates(player, Category.FIGHTING, PlayerCounters.kill(creature));
+	}
+
 	/**
 	 * check all achievements for a player that are relevant on finishing a quest
 	 *
 	 * @param player
 	 */
 	public void onFinishQuest(final Player player) {
-		getAndCheckAchievementsInCategory(player, Category.QUEST);
-		getAndCheckAchievementsInCategory(player, Category.QUEST_ADOS_ITEMS);
-		getAndCheckAchievementsInCategory(player, Category.QUEST_SEMOS_MONSTER);
-		getAndCheckAchievementsInCategory(player, Category.QUEST_KIRDNEH_ITEM);
-		getAndCheckAchievementsInCategory(player, Category.FRIEND);
-		getAndCheckAchievementsInCategory(player, Category.OBTAIN);
-		getAndCheckAchievementsInCategory(player, Category.PRODUCTION);
-		getAndCheckAchievementsInCategory(player, Category.QUEST_MITHRILBOURGH_ENEMY_ARMY);
-		getAndCheckAchievementsInCategory(player, Category.QUEST_KILL_BLORDROUGHS);
+		for (final Category category : QUEST_CATEGORIES) {
+			getAndCheckAchievementsInCategory(player, category);
+		}
+	}
+
+	/**
+	 * check the achievements for a player that may depend on the state of a quest
+	 *
+	 * @param player
+	 * @param questSlot name of the changed quest slot
+	 */
+	public void onQuestChange(final Player player, final String questSlot) {
+		final String counter = PlayerCounters.quest(questSlot);
+		if (counter == null) {
+			onFinishQuest(player);
+			return;
+		}
+		for (final Category category : QUEST_CATEGORIES) {
+			checkCandidates(player, category, counter);
+		}
 	}
 
 	/**
@@ -219,6 +287,25 @@ public final class AchievementNotifier {
 		getAndCheckAchievementsInCategory(player, Category.INTERIOR_ZONE);
 	}
 
+	/**
+	 * check the achievements for a player that depend on visiting a zone
+	 *
+	 * @param player
+	 * @param zone the entered zone
+	 */
+	public void onZoneEnter(final Player player, final StendhalRPZone zone) {
+		final String region = index.getRegion(zone.getName());
+		if (region == null) {
+			onZoneEnter(player);
+			return;
+		}
+		final String zoneCounter = PlayerCounters.zone(zone.getName());
+		final String regionCounter = PlayerCounters.region(region);
+		checkCandidates(player, Category.OUTSIDE_ZONE, zoneCounter, regionCounter);
+		checkCandidates(player, Category.UNDERGROUND_ZONE, zoneCounter, regionCounter);
+		checkCandidates(player, Category.INTERIOR_ZONE, zoneCounter, regionCounter);
+	}
+
 	/**
 	 * check all achievements for a player that belong to the age category
 	 *
@@ -238,6 +325,18 @@ public final class AchievementNotifier {
 		getAndCheckAchievementsInCategory(player, Category.OBTAIN);
 	}
 
+	/**
+	 * check the achievements for a player that depend on the loots of an item
+	 *
+	 * @param player
+	 * @param item name of the looted item
+	 */
+	public void onItemLoot(final Player player, final String item) {
+		final String counter = PlayerCounters.loot(item);
+		checkCandidates(player, Category.ITEM, counter);
+		checkCandidates(player, Category.OBTAIN, counter);
+	}
+
 	/**
 	 * check all achievements for a player that belong to the production category
 	 *
@@ -275,19 +374,11 @@ public final class AchievementNotifier {
 	 */
 	public void awardAchievementIfNotYetReached(final Player player, final String achievementIdentifier) {
 		if(!player.hasReachedAchievement(achievementIdentifier)) {
-			boolean found = false;
-			for(List<Achievement> achievementList : this.achievements.values()) {
-				if(!found) {
-					for(Achievement achievement : achievementList) {
-						if (achievement.getIdentifier().equals(achievementIdentifier)) {
-							logReachingOfAnAchievement(player, achievement);
-							notifyPlayerAboutReachedAchievement(player, achievement);
-							found = true;
-						}
-					}
-				}
-			}
-			if(!found) {
+			final Achievement achievement = index.get(achievementIdentifier);
+			if (achievement != null) {
+				logReachingOfAnAchievement(player, achievement);
+				notifyPlayerAboutReachedAchievement(player, achievement);
+			} else {
 				logger.warn("Tried to award non existing achievement identifier "+achievementIdentifier+" to "+player.getName());
 			}
 		}
@@ -299,17 +390,7 @@ public final class AchievementNotifier {
 	 * @param player
 	 */
 	public void onLogin(final Player player) {
-		List<Achievement> toCheck = new ArrayList<Achievement>();
-		//Avoid checking of zone achievements on login to
-		//prevent double check when player is initially placed into a zone
-		final Map<Category,List<Achievement>> map = new HashMap<Category, List<Achievement>>(achievements);
-		map.remove(Category.OUTSIDE_ZONE);
-		map.remove(Category.UNDERGROUND_ZONE);
-		Collection<List<Achievement>> values = map.values();
-		for (List<Achievement> list : values) {
-			toCheck.addAll(list);
-		}
-		final List<Achievement> reached = checkAchievements(player, toCheck);
+		final List<Achievement> reached = checkAchievements(player, loginAchievements);
 		// only send notice if actually a new added achievement was reached by doing nothing
 		if(!reached.isEmpty()) {
 			StringBuilder sb = new StringBuilder();
@@ -327,11 +408,23 @@ public final class AchievementNotifier {
 	 * @param category
 	 */
 	private void getAndCheckAchievementsInCategory(final Player player, final Category category) {
-		if(achievements.containsKey(category)) {
-			List<Achievement> toCheck = achievements.get(category);
-			List<Achievement> reached = checkAchievements(player, toCheck);
-			notifyPlayerAboutReachedAchievements(player, reached);
+		List<Achievement> reached = checkAchievements(player, index.getAll(category));
+		notifyPlayerAboutReachedAchievements(player, reached);
+	}
+
+	/**
+	 * check the achievements of a category that may be affected by changed counters
+	 *
+	 * @param player
+	 * @param category
+	 * @param counters the changed counters
+	 */
+	private void checkCandidates(final Player player, final Category category, final String... counters) {
+		if (!player.arePlayerAchievementsLoaded()) {
+			return;
 		}
+		List<Achievement> reached = checkAchievements(player, index.getCandidates(category, counters));
+		notifyPlayerAboutReachedAchievements(player, reached);
 	}
 
 	/**
@@ -347,12 +440,18 @@ public final class AchievementNotifier {
 		List<Achievement> reached = new ArrayList<Achievement>();
 
 		// continue checking only if player's achievements are already loaded from the database
-		if (!player.arePlayerAchievementsLoaded()) {
+		final ReachedAchievements reachedAchievements = player.getReachedAchievements();
+		if (reachedAchievements == null) {
 			return reached;
 		}
 
+		final AchievementIndex current = index;
 		for (Achievement achievement : toCheck) {
-			if(achievement.isFulfilled(player) && !player.hasReachedAchievement(achievement.getIdentifier())) {
+			// skip reached achievements before evaluating the condition
+			if (reachedAchievements.contains(current.indexOf(achievement), achievement.getIdentifier())) {
+				continue;
+			}
+			if(achievement.isFulfilled(player)) {
 				logReachingOfAnAchievement(player, achievement);
 				if (achievement.isActive()) {
 					reached.add(achievement);
@@ -386,7 +485,7 @@ public final class AchievementNotifier {
 		String title = achievement.getTitle();
 		Category category = achievement.getCategory();
 		String playerName = player.getName();
-		DBCommandQueue.get().enqueue(new WriteReachedAchievementCommand(identifiersToIds.get(identifier), playerName, player.getAdminLevel() < 600));
+		ZoneLogicRunner.enqueue(new WriteReachedAchievementCommand(identifiersToIds.get(identifier), playerName, player.getAdminLevel() < 600));
 		player.addReachedAchievement(achievement.getIdentifier());
 		new GameEvent(playerName, "reach-achievement", category.toString(), title, identifier).raise();
 	}
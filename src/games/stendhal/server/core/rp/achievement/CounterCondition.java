@@ -0,0 +1,31 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.rp.achievement;
+
+import java.util.Collection;
+
+/**
+ * A condition that only depends on some counters of the player, like the
+ * kills of certain creatures or the state of a quest. The AchievementNotifier
+ * checks achievements with such conditions only when one of their counters
+ * changes.
+ */
+public interface CounterCondition {
+
+	/**
+	 * Get the player counters the result of the condition depends on.
+	 *
+	 * @return counter keys created by PlayerCounters, or <code>null</code>
+	 * 	if the condition may depend on anything
+	 */
+	Collection<String> getCounters();
+}
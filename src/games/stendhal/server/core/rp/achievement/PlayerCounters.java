@@ -0,0 +1,120 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.rp.achievement;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import games.stendhal.server.entity.npc.ChatCondition;
+
+/**
+ * Keys of the player counters used by CounterCondition.
+ */
+public final class PlayerCounters {
+
+	private PlayerCounters() {
+		// static helpers only
+	}
+
+	/**
+	 * @param creature creature name
+	 * @return key of the kills of a creature
+	 */
+	public static String kill(final String creature) {
+		return "kill:" + creature;
+	}
+
+	/**
+	 * @param item item name
+	 * @return key of the loots of an item
+	 */
+	public static String loot(final String item) {
+		return "loot:" + item;
+	}
+
+	/**
+	 * @param questSlot name of the quest slot
+	 * @return key of the state of a quest, or <code>null</code> if the slot
+	 * 	name contains variables evaluated at run time
+	 */
+	public static String quest(final String questSlot) {
+		if (questSlot.contains("$")) {
+			return null;
+		}
+		return "quest:" + questSlot;
+	}
+
+	/**
+	 * @param zone zone name
+	 * @return key of the visit of a zone
+	 */
+	public static String zone(final String zone) {
+		return "zone:" + zone;
+	}
+
+	/**
+	 * @param region region name
+	 * @return key of the visits of the zones of a region
+	 */
+	public static String region(final String region) {
+		return "region:" + region;
+	}
+
+	/**
+	 * Get a single counter as collection.
+	 *
+	 * @param key counter key, may be <code>null</code>
+	 * @return collection with the key, or <code>null</code> if the key is
+	 * 	<code>null</code>
+	 */
+	public static Collection<String> of(final String key) {
+		if (key == null) {
+			return null;
+		}
+		return Collections.singletonList(key);
+	}
+
+	/**
+	 * Get the counters of a condition.
+	 *
+	 * @param condition condition
+	 * @return counter keys, or <code>null</code> if the condition may depend
+	 * 	on anything
+	 */
+	public static Collection<String> of(final ChatCondition condition) {
+		if (condition instanceof CounterCondition) {
+			return ((CounterCondition) condition).getCounters();
+		}
+		return null;
+	}
+
+	/**
+	 * Get the counters of several conditions.
+	 *
+	 * @param conditions conditions
+	 * @return counter keys of all conditions, or <code>null</code> if any of
+	 * 	them may depend on anything
+	 */
+	public static Collection<String> of(final Collection<ChatCondition> conditions) {
+		final List<String> res = new ArrayList<String>();
+		for (final ChatCondition condition : conditions) {
+			final Collection<String> counters = of(condition);
+			if (counters == null) {
+				return null;
+			}
+			res.addAll(counters);
+		}
+		return res;
+	}
+}
@@ -0,0 +1,74 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.rp.achievement;
+
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The achievements a player has reached.
+ */
+public final class ReachedAchievements {
+	private final Set<String> identifiers = new HashSet<String>();
+	/**
+	 * Achievements of the AchievementNotifier by index that are known to be
+	 * reached, so that checks can skip them without a lookup.
+	 */
+	private final BitSet known = new BitSet();
+
+	/**
+	 * Add a reached achievement.
+	 *
+	 * @param identifier identifier of the achievement
+	 */
+	public void add(final String identifier) {
+		identifiers.add(identifier);
+	}
+
+	/**
+	 * Check if an achievement has been reached.
+	 *
+	 * @param identifier identifier of the achievement
+	 * @return <code>true</code> if the achievement has been reached
+	 */
+	public boolean contains(final String identifier) {
+		return identifiers.contains(identifier);
+	}
+
+	/**
+	 * Check if an achievement has been reached.
+	 *
+	 * @param index index of the achievement in the notifier
+	 * @param identifier identifier of the achievement
+	 * @return <code>true</code> if the achievement has been reached
+	 */
+	boolean contains(final int index, final String identifier) {
+		if (known.get(index)) {
+			return true;
+		}
+		if (identifiers.contains(identifier)) {
+			known.set(index);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Get the number of reached achievements.
+	 *
+	 * @return number of achievements
+	 */
+	public int size() {
+		return identifiers.size();
+	}
+}
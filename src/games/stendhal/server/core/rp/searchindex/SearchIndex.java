@@ -0,0 +1,613 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.rp.searchindex;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * In memory inverted index of the search index entries. It maps each search
+ * term to the entries (postings) that contain it, and supports exact, prefix
+ * and fuzzy (one edit) matches without looking at all entries.
+ * <p>
+ * The index is built from the entries of the SearchIndexManager, which reads
+ * the game state, so building and updating the index is done by the game loop
+ * with <code>update()</code>. Later changes of single items, creatures, NPCs
+ * or achievements are reported with <code>invalidate()</code> and the entries
+ * of these entities are regenerated on the next update. Each update publishes
+ * an immutable snapshot of the terms, which <code>search()</code> reads, so
+ * that searches can run in other threads, such as those of the web server.
+ * A snapshot consists of a copy of all terms, which is made rarely, and
+ * copies of the lists that changed since that copy.
+ */
+public class SearchIndex {
+	/** score penalty of a prefix match compared to an exact match */
+	static final int PREFIX_PENALTY = 500;
+	/** score penalty of a fuzzy match compared to an exact match */
+	static final int FUZZY_PENALTY = 1000;
+	/** minimum length of a query word for prefix matching */
+	private static final int MIN_PREFIX_LENGTH = 2;
+	/** minimum length of a query word for fuzzy matching */
+	private static final int MIN_FUZZY_LENGTH = 4;
+	/**
+	 * the terms are copied completely, when the changed lists exceed this
+	 * fraction of the copied terms
+	 */
+	private static final int MAX_CHANGED_FRACTION = 8;
+
+	private static SearchIndex instance;
+
+	/** terms of the current entries */
+	private final Terms terms = new Terms();
+	/** the terms as of the last update, read by searches */
+	private volatile Snapshot published;
+	/** a search has been made, so the index should be kept up to date */
+	private volatile boolean wanted;
+	/** entity key to the entries of the entity */
+	private final Map<String, Set<SearchIndexEntry>> entities = new HashMap<String, Set<SearchIndexEntry>>();
+	/** entities that have to be regenerated, by entity key */
+	private final Map<String, SearchIndexEntryType> dirty = new LinkedHashMap<String, SearchIndexEntryType>();
+	private boolean built;
+
+	/**
+	 * gets the SearchIndex
+	 *
+	 * @return SearchIndex
+	 */
+	public static synchronized SearchIndex get() {
+		if (instance == null) {
+			instance = new SearchIndex();
+		}
+		return instance;
+	}
+
+	/**
+	 * replaces the complete index
+	 *
+	 * @param entries all search index entries
+	 */
+	public synchronized void build(Collection<SearchIndexEntry> entries) {
+		terms.clear();
+		entities.clear();
+		dirty.clear();
+		Map<String, Set<SearchIndexEntry>> grouped = new HashMap<String, Set<SearchIndexEntry>>();
+		for (SearchIndexEntry entry : entries) {
+			String key = key(entry.getEntityType(), entry.getEntityName());
+			Set<SearchIndexEntry> set = grouped.get(key);
+			if (set == null) {
+				set = new HashSet<SearchIndexEntry>();
+				grouped.put(key, set);
+			}
+			set.add(entry);
+		}
+		for (Map.Entry<String, Set<SearchIndexEntry>> entity : grouped.entrySet()) {
+			entities.put(entity.getKey(), entity.getValue());
+			for (SearchIndexEntry entry : entity.getValue()) {
+				terms.addPosting(entry);
+			}
+		}
+		built = true;
+		published = new Snapshot(terms);
+	}
+
+	/**
+	 * replaces the entries of one entity
+	 *
+	 * @param entityType type of entity
+	 * @param entityName name of entity
+	 * @param entries new entries, an empty set removes the entity
+	 */
+	public synchronized void setEntries(char entityType, String entityName, Set<SearchIndexEntry> entries) {
+		replaceEntries(entityType, entityName, entries);
+		publish();
+	}
+
+	private void replaceEntries(char entityType, String entityName, Set<SearchIndexEntry> entries) {
+		String key = key(entityType, entityName);
+		Set<SearchIndexEntry> old = entities.remove(key);
+		if (old != null) {
+			for (SearchIndexEntry entry : old) {
+				terms.removePosting(entry);
+			}
+		}
+		if (!entries.isEmpty()) {
+			Set<SearchIndexEntry> set = new HashSet<SearchIndexEntry>(entries);
+			entities.put(key, set);
+			for (SearchIndexEntry entry : set) {
+				terms.addPosting(entry);
+			}
+		}
+	}
+
+	/**
+	 * marks an entity as changed, so that its entries are regenerated
+	 * before the next search
+	 *
+	 * @param type type of entity
+	 * @param entityName name of entity
+	 */
+	public synchronized void invalidate(SearchIndexEntryType type, String entityName) {
+		if (built) {
+			dirty.put(key(type.getEntityType(), entityName), type);
+		}
+	}
+
+	/**
+	 * checks whether a search has been made, so that the index should be
+	 * built and kept up to date
+	 *
+	 * @return true, if the index is in use
+	 */
+	public boolean isWanted() {
+		return wanted;
+	}
+
+	/**
+	 * builds the index, if that has not been done yet, and regenerates the
+	 * entries of changed entities. This reads the game state, so it has to
+	 * be called by the game loop.
+	 */
+	public synchronized void update() {
+		if (!built) {
+			build(new SearchIndexManager().generateIndex());
+		} else if (!dirty.isEmpty()) {
+			refresh();
+			publish();
+		}
+	}
+
+	/**
+	 * publishes the changes since the last update. Only the lists that
+	 * changed are copied, unless there are so many changes, that copying all
+	 * terms is cheaper than keeping track of them.
+	 */
+	private void publish() {
+		final Snapshot current = published;
+		if ((current == null) || (current.getChangeCount() + terms.getChangeCount()
+				> current.base.postings.size() / MAX_CHANGED_FRACTION)) {
+			published = new Snapshot(terms);
+		} else {
+			published = new Snapshot(current, terms);
+		}
+	}
+
+	/**
+	 * searches the index as of the last update. This can be called from any
+	 * thread.
+	 *
+	 * @param query one or more words
+	 * @param limit maximum number of results
+	 * @return best matching entities, best first. Before the index has been
+	 * 	built, the result is empty
+	 */
+	public List<SearchResult> search(String query, int limit) {
+		wanted = true;
+		final Snapshot current = published;
+		if (current == null) {
+			return Collections.emptyList();
+		}
+
+		List<String> words = SearchIndexManager.tokenize(query);
+		Map<String, SearchResult> hits = new HashMap<String, SearchResult>();
+		for (String word : words) {
+			for (SearchResult match : current.matchWord(word).values()) {
+				String key = key(match.getEntityType(), match.getEntityName());
+				SearchResult hit = hits.get(key);
+				if (hit == null) {
+					hits.put(key, match);
+				} else {
+					hit.add(match);
+				}
+			}
+		}
+
+		// boost the exact name of entities whose name consists of several words
+		if (words.size() > 1) {
+			Set<SearchIndexEntry> exact = current.getPostings(query.trim().toLowerCase(Locale.ENGLISH));
+			if (exact != null) {
+				for (SearchIndexEntry entry : exact) {
+					SearchResult hit = hits.get(key(entry.getEntityType(), entry.getEntityName()));
+					if (hit != null) {
+						hit.boost(entry.getSearchScore());
+					}
+				}
+			}
+		}
+
+		return top(hits.values(), limit);
+	}
+
+	/**
+	 * gets the number of distinct search terms
+	 *
+	 * @return number of terms
+	 */
+	public int getTermCount() {
+		final Snapshot current = published;
+		if (current == null) {
+			return 0;
+		}
+		return current.termCount;
+	}
+
+	/**
+	 * regenerates the entries of changed entities
+	 */
+	private void refresh() {
+		if (dirty.isEmpty()) {
+			return;
+		}
+		SearchIndexManager manager = new SearchIndexManager();
+		for (Map.Entry<String, SearchIndexEntryType> entry : dirty.entrySet()) {
+			String name = entry.getKey().substring(2);
+			SearchIndexEntryType type = entry.getValue();
+			replaceEntries(type.getEntityType(), name, manager.generateEntries(type, name));
+		}
+		dirty.clear();
+	}
+
+	/**
+	 * selects the best results without sorting all of them
+	 *
+	 * @param hits results
+	 * @param limit maximum number of results
+	 * @return best results, best first
+	 */
+	private static List<SearchResult> top(Collection<SearchResult> hits, int limit) {
+		if (limit <= 0) {
+			return Collections.emptyList();
+		}
+		Comparator<SearchResult> worstFirst = Collections.reverseOrder(SearchResult.BEST_FIRST);
+		PriorityQueue<SearchResult> queue = new PriorityQueue<SearchResult>(limit + 1, worstFirst);
+		for (SearchResult hit : hits) {
+			if (queue.size() < limit) {
+				queue.add(hit);
+			} else if (SearchResult.BEST_FIRST.compare(hit, queue.peek()) < 0) {
+				queue.poll();
+				queue.add(hit);
+			}
+		}
+		List<SearchResult> res = new ArrayList<SearchResult>(queue);
+		Collections.sort(res, SearchResult.BEST_FIRST);
+		return res;
+	}
+
+	/**
+	 * checks whether two different strings differ by one inserted, deleted,
+	 * changed or two swapped adjacent characters
+	 *
+	 * @param a first string
+	 * @param b second string
+	 * @return true, if the edit distance is one
+	 */
+	static boolean isOneEdit(String a, String b) {
+		int la = a.length();
+		int lb = b.length();
+		if (Math.abs(la - lb) > 1) {
+			return false;
+		}
+		int i = 0;
+		while ((i < la) && (i < lb) && (a.charAt(i) == b.charAt(i))) {
+			i++;
+		}
+		if (la == lb) {
+			if (i == la) {
+				return false;
+			}
+			if (a.regionMatches(i + 1, b, i + 1, la - i - 1)) {
+				return true;
+			}
+			return (i + 1 < la) && (a.charAt(i) == b.charAt(i + 1)) && (a.charAt(i + 1) == b.charAt(i))
+					&& a.regionMatches(i + 2, b, i + 2, la - i - 2);
+		}
+		if (la > lb) {
+			return a.regionMatches(i + 1, b, i, lb - i);
+		}
+		return b.regionMatches(i + 1, a, i, la - i);
+	}
+
+	private static List<String> deletions(String term) {
+		List<String> res = new ArrayList<String>(term.length());
+		for (int i = 0; i < term.length(); i++) {
+			res.add(term.substring(0, i) + term.substring(i + 1));
+		}
+		return res;
+	}
+
+	private static String key(char entityType, String entityName) {
+		return entityType + ":" + entityName;
+	}
+
+	/**
+	 * search terms of the entries, with the terms with one character removed
+	 * for fuzzy matching. The game loop changes these, and keeps track of the
+	 * changed lists for the next snapshot.
+	 */
+	private static final class Terms {
+		/** search term to entries */
+		private final NavigableMap<String, Set<SearchIndexEntry>> postings;
+		/** search term with one character removed to search terms */
+		private final Map<String, Set<String>> deletions;
+		/** search terms whose entries changed since the last snapshot */
+		private final Set<String> changedPostings = new HashSet<String>();
+		/** deletions whose terms changed since the last snapshot */
+		private final Set<String> changedDeletions = new HashSet<String>();
+
+		Terms() {
+			postings = new TreeMap<String, Set<SearchIndexEntry>>();
+			deletions = new HashMap<String, Set<String>>();
+		}
+
+		/**
+		 * creates a copy that does not change with the original
+		 *
+		 * @param terms original
+		 */
+		Terms(Terms terms) {
+			postings = new TreeMap<String, Set<SearchIndexEntry>>();
+			for (Map.Entry<String, Set<SearchIndexEntry>> entry : terms.postings.entrySet()) {
+				postings.put(entry.getKey(), new HashSet<SearchIndexEntry>(entry.getValue()));
+			}
+			deletions = new HashMap<String, Set<String>>(terms.deletions.size() * 4 / 3 + 1);
+			for (Map.Entry<String, Set<String>> entry : terms.deletions.entrySet()) {
+				deletions.put(entry.getKey(), new HashSet<String>(entry.getValue()));
+			}
+		}
+
+		void clear() {
+			postings.clear();
+			deletions.clear();
+			clearChanges();
+		}
+
+		void clearChanges() {
+			changedPostings.clear();
+			changedDeletions.clear();
+		}
+
+		/**
+		 * gets the number of lists that changed since the last snapshot
+		 *
+		 * @return number of changed lists
+		 */
+		int getChangeCount() {
+			return changedPostings.size() + changedDeletions.size();
+		}
+
+		private void addPosting(SearchIndexEntry entry) {
+			String term = entry.getSearchTerm();
+			Set<SearchIndexEntry> entries = postings.get(term);
+			if (entries == null) {
+				entries = new HashSet<SearchIndexEntry>();
+				postings.put(term, entries);
+				if (term.length() >= MIN_FUZZY_LENGTH - 1) {
+					for (String deletion : deletions(term)) {
+						Set<String> terms = deletions.get(deletion);
+						if (terms == null) {
+							terms = new HashSet<String>();
+							deletions.put(deletion, terms);
+						}
+						terms.add(term);
+						changedDeletions.add(deletion);
+					}
+				}
+			}
+			entries.add(entry);
+			changedPostings.add(term);
+		}
+
+		private void removePosting(SearchIndexEntry entry) {
+			String term = entry.getSearchTerm();
+			Set<SearchIndexEntry> entries = postings.get(term);
+			if (entries == null) {
+				return;
+			}
+			entries.remove(entry);
+			changedPostings.add(term);
+			if (entries.isEmpty()) {
+				postings.remove(term);
+				for (String deletion : deletions(term)) {
+					Set<String> terms = deletions.get(deletion);
+					if (terms != null) {
+						terms.remove(term);
+						changedDeletions.add(deletion);
+						if (terms.isEmpty()) {
+							deletions.remove(deletion);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * immutable state of the terms for searches. It consists of a complete
+	 * copy of the terms, and the lists that changed after the copy was made.
+	 * Removed lists are kept as empty lists.
+	 */
+	private static final class Snapshot {
+		/** copy of all terms, never changed */
+		private final Terms base;
+		/** search term to entries, for the terms changed after the copy */
+		private final NavigableMap<String, Set<SearchIndexEntry>> postings;
+		/** deletion to search terms, for the deletions changed after the copy */
+		private final Map<String, Set<String>> deletions;
+		/** number of distinct search terms */
+		private final int termCount;
+
+		/**
+		 * creates a snapshot with a complete copy of the terms
+		 *
+		 * @param terms current terms
+		 */
+		Snapshot(Terms terms) {
+			base = new Terms(terms);
+			postings = new TreeMap<String, Set<SearchIndexEntry>>();
+			deletions = new HashMap<String, Set<String>>();
+			termCount = terms.postings.size();
+			terms.clearChanges();
+		}
+
+		/**
+		 * creates a snapshot that copies only the lists that changed since
+		 * the previous snapshot
+		 *
+		 * @param previous previous snapshot
+		 * @param terms current terms
+		 */
+		Snapshot(Snapshot previous, Terms terms) {
+			base = previous.base;
+			// the unchanged lists are immutable, and can be shared
+			postings = new TreeMap<String, Set<SearchIndexEntry>>(previous.postings);
+			for (String term : terms.changedPostings) {
+				Set<SearchIndexEntry> entries = terms.postings.get(term);
+				if (entries == null) {
+					postings.put(term, Collections.<SearchIndexEntry>emptySet());
+				} else {
+					postings.put(term, new HashSet<SearchIndexEntry>(entries));
+				}
+			}
+			deletions = new HashMap<String, Set<String>>(previous.deletions);
+			for (String deletion : terms.changedDeletions) {
+				Set<String> similar = terms.deletions.get(deletion);
+				if (similar == null) {
+					deletions.put(deletion, Collections.<String>emptySet());
+				} else {
+					deletions.put(deletion, new HashSet<String>(similar));
+				}
+			}
+			termCount = terms.postings.size();
+			terms.clearChanges();
+		}
+
+		/**
+		 * gets the number of lists that changed since the complete copy
+		 *
+		 * @return number of changed lists
+		 */
+		int getChangeCount() {
+			return postings.size() + deletions.size();
+		}
+
+		/**
+		 * gets the entries of a search term
+		 *
+		 * @param term search term
+		 * @return entries, or <code>null</code> if there are none
+		 */
+		Set<SearchIndexEntry> getPostings(String term) {
+			Set<SearchIndexEntry> entries = postings.get(term);
+			if (entries == null) {
+				return base.postings.get(term);
+			}
+			return entries.isEmpty() ? null : entries;
+		}
+
+		private Set<String> getDeletions(String deletion) {
+			Set<String> terms = deletions.get(deletion);
+			if (terms == null) {
+				return base.deletions.get(deletion);
+			}
+			return terms;
+		}
+
+		/**
+		 * finds the best match of each entity for a single query word
+		 *
+		 * @param word query word
+		 * @return matches by entity key
+		 */
+		private Map<String, SearchResult> matchWord(String word) {
+			Map<String, SearchResult> best = new HashMap<String, SearchResult>();
+			addMatches(best, getPostings(word), 0);
+			if (word.length() >= MIN_PREFIX_LENGTH) {
+				String end = word + Character.MAX_VALUE;
+				for (Map.Entry<String, Set<SearchIndexEntry>> entry : base.postings.subMap(word, false, end, false).entrySet()) {
+					if (!postings.containsKey(entry.getKey())) {
+						addMatches(best, entry.getValue(), PREFIX_PENALTY);
+					}
+				}
+				for (Set<SearchIndexEntry> entries : postings.subMap(word, false, end, false).values()) {
+					addMatches(best, entries, PREFIX_PENALTY);
+				}
+			}
+			if (word.length() >= MIN_FUZZY_LENGTH) {
+				for (String term : fuzzyTerms(word)) {
+					addMatches(best, getPostings(term), FUZZY_PENALTY);
+				}
+			}
+			return best;
+		}
+
+		private void addMatches(Map<String, SearchResult> best, Set<SearchIndexEntry> entries, int penalty) {
+			if (entries == null) {
+				return;
+			}
+			for (SearchIndexEntry entry : entries) {
+				int score = entry.getSearchScore() - penalty;
+				String key = key(entry.getEntityType(), entry.getEntityName());
+				SearchResult old = best.get(key);
+				if ((old == null) || (old.getScore() < score)) {
+					best.put(key, new SearchResult(entry.getEntityType(), entry.getEntityName(), score));
+				}
+			}
+		}
+
+		/**
+		 * finds the terms with an edit distance of one to a word using the
+		 * index of terms with one deleted character
+		 *
+		 * @param word query word
+		 * @return similar terms, excluding the word itself
+		 */
+		private Set<String> fuzzyTerms(String word) {
+			Set<String> candidates = new HashSet<String>();
+			// terms with one additional character
+			addAll(candidates, getDeletions(word));
+			for (String deletion : deletions(word)) {
+				// terms with one character less
+				if (getPostings(deletion) != null) {
+					candidates.add(deletion);
+				}
+				// terms with a changed or moved character
+				addAll(candidates, getDeletions(deletion));
+			}
+			candidates.remove(word);
+
+			Set<String> res = new HashSet<String>();
+			for (String candidate : candidates) {
+				if (isOneEdit(word, candidate)) {
+					res.add(candidate);
+				}
+			}
+			return res;
+		}
+
+		private static void addAll(Set<String> target, Set<String> source) {
+			if (source != null) {
+				target.addAll(source);
+			}
+		}
+	}
+}
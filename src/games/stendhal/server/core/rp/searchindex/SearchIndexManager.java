@@ -11,6 +11,8 @@
  ***************************************************************************/
 package games.stendhal.server.core.rp.searchindex;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 import java.util.Set;
 import java.util.StringTokenizer;
@@ -23,6 +25,7 @@ import games.stendhal.server.core.rp.achievement.Achievement;
 import games.stendhal.server.core.rp.achievement.AchievementNotifier;
 import games.stendhal.server.core.rule.defaultruleset.DefaultCreature;
 import games.stendhal.server.core.rule.defaultruleset.DefaultItem;
+import games.stendhal.server.entity.npc.NPCList;
 import games.stendhal.server.entity.npc.SpeakerNPC;
 
 /**
@@ -34,7 +37,7 @@ public class SearchIndexManager {
 	private final Set<SearchIndexEntry> index = Sets.newHashSet();
 
 	// keep in sync with search.php
-	private final ImmutableSet<String> STOP_WORDS =
+	private static final ImmutableSet<String> STOP_WORDS =
 			ImmutableSet.of("a", "an", "and", "is", "it", "of", "see", "the", "to", "you");
 
 	/**
@@ -52,49 +55,139 @@ public class SearchIndexManager {
 
 	private void achievements() {
 		for (Achievement achievement : AchievementNotifier.get().getAchievements()) {
-			if (!achievement.isActive()) {
-				continue;
-			}
-			addName(achievement.getTitle(), SearchIndexEntryType.ACHIEVEMENT);
-			addDescription(achievement.getTitle(), achievement.getDescription(), SearchIndexEntryType.ACHIEVEMENT, 1000);
+			index.addAll(generateEntries(achievement));
 		}
 	}
 
 	private void npcs() {
 		for (SpeakerNPC npc : SingletonRepository.getNPCList()) {
-			addName(npc.getName(), SearchIndexEntryType.NPC);
-			addDescription(npc.getName(), npc.getDescription(), SearchIndexEntryType.NPC, 1000);
-			addDescription(npc.getName(), npc.getJob(), SearchIndexEntryType.NPC, 1000);
+			index.addAll(generateEntries(npc));
 		}
 	}
 
 	private void items() {
 		for (DefaultItem item : SingletonRepository.getEntityManager().getDefaultItems()) {
-			addName(item.getItemName(), SearchIndexEntryType.ITEM);
-			addDescription(item.getItemName(), item.getDescription(), SearchIndexEntryType.ITEM, 1000);
+			index.addAll(generateEntries(item));
 		}
 	}
 
 	private void creatures() {
 		for (DefaultCreature creature : SingletonRepository.getEntityManager().getDefaultCreatures()) {
-			addName(creature.getCreatureName(), SearchIndexEntryType.CREATURE);
-			addDescription(creature.getCreatureName(), creature.getDescription(), SearchIndexEntryType.CREATURE, 1000);
+			index.addAll(generateEntries(creature));
 		}
 	}
 
+	/**
+	 * generates the search index entries of the current version of an entity
+	 *
+	 * @param type type of entity
+	 * @param name name of entity
+	 * @return entries, empty if the entity does not exist anymore
+	 */
+	public Set<SearchIndexEntry> generateEntries(SearchIndexEntryType type, String name) {
+		switch (type) {
+		case ACHIEVEMENT:
+			for (Achievement achievement : AchievementNotifier.get().getAchievements()) {
+				if (achievement.getTitle().equals(name)) {
+					return generateEntries(achievement);
+				}
+			}
+			break;
+		case CREATURE:
+			DefaultCreature creature = SingletonRepository.getEntityManager().getDefaultCreature(name);
+			if (creature != null) {
+				return generateEntries(creature);
+			}
+			break;
+		case ITEM:
+			for (DefaultItem item : SingletonRepository.getEntityManager().getDefaultItems()) {
+				if (item.getItemName().equals(name)) {
+					return generateEntries(item);
+				}
+			}
+			break;
+		case NPC:
+			NPCList npcs = SingletonRepository.getNPCList();
+			SpeakerNPC npc = npcs.get(name);
+			if ((npc != null) && npc.getName().equals(name)) {
+				return generateEntries(npc);
+			}
+			break;
+		default:
+			break;
+		}
+		return Sets.newHashSet();
+	}
+
+	/**
+	 * generates the search index entries of an achievement
+	 *
+	 * @param achievement achievement
+	 * @return entries, empty for inactive achievements
+	 */
+	public Set<SearchIndexEntry> generateEntries(Achievement achievement) {
+		Set<SearchIndexEntry> entries = Sets.newHashSet();
+		if (achievement.isActive()) {
+			addName(entries, achievement.getTitle(), SearchIndexEntryType.ACHIEVEMENT);
+			addDescription(entries, achievement.getTitle(), achievement.getDescription(), SearchIndexEntryType.ACHIEVEMENT, 1000);
+		}
+		return entries;
+	}
+
+	/**
+	 * generates the search index entries of a NPC
+	 *
+	 * @param npc NPC
+	 * @return entries
+	 */
+	public Set<SearchIndexEntry> generateEntries(SpeakerNPC npc) {
+		Set<SearchIndexEntry> entries = Sets.newHashSet();
+		addName(entries, npc.getName(), SearchIndexEntryType.NPC);
+		addDescription(entries, npc.getName(), npc.getDescription(), SearchIndexEntryType.NPC, 1000);
+		addDescription(entries, npc.getName(), npc.getJob(), SearchIndexEntryType.NPC, 1000);
+		return entries;
+	}
+
+	/**
+	 * generates the search index entries of an item
+	 *
+	 * @param item item
+	 * @return entries
+	 */
+	public Set<SearchIndexEntry> generateEntries(DefaultItem item) {
+		Set<SearchIndexEntry> entries = Sets.newHashSet();
+		addName(entries, item.getItemName(), SearchIndexEntryType.ITEM);
+		addDescription(entries, item.getItemName(), item.getDescription(), SearchIndexEntryType.ITEM, 1000);
+		return entries;
+	}
+
+	/**
+	 * generates the search index entries of a creature
+	 *
+	 * @param creature creature
+	 * @return entries
+	 */
+	public Set<SearchIndexEntry> generateEntries(DefaultCreature creature) {
+		Set<SearchIndexEntry> entries = Sets.newHashSet();
+		addName(entries, creature.getCreatureName(), SearchIndexEntryType.CREATURE);
+		addDescription(entries, creature.getCreatureName(), creature.getDescription(), SearchIndexEntryType.CREATURE, 1000);
+		return entries;
+	}
+
 	/**
 	 * adds the search index entries for a name variable
 	 *
+	 * @param index       set to add the entries to
 	 * @param name        name of entity
 	 * @param type  type of entity
 	 */
-	private void addName(String name, SearchIndexEntryType type) {
+	private void addName(Set<SearchIndexEntry> index, String name, SearchIndexEntryType type) {
 		index.add(new SearchIndexEntry(name, type.getEntityType(), name, 3000 + type.getMinorScore()));
 
 		// If the name consists of multiple words, add each word individually
 		// to the index. They will get a lower score to boost exact matches.
 		if (name.indexOf(" ") > -1) {
-			addDescription(name, name, type, 2000);
+			addDescription(index, name, name, type, 2000);
 		}
 	}
 
@@ -102,12 +195,13 @@ public class SearchIndexManager {
 	/**
 	 * adds the search index entries for a name variable
 	 *
+	 * @param index       set to add the entries to
 	 * @param name        name of entity
 	 * @param description description to add
 	 * @param type        type of entity
 	 * @param baseScore   base score of the match type
 	 */
-	private void addDescription(String name, String description, SearchIndexEntryType type, int baseScore) {
+	private void addDescription(Set<SearchIndexEntry> index, String name, String description, SearchIndexEntryType type, int baseScore) {
 		if (description == null) {
 			return;
 		}
@@ -130,4 +224,23 @@ public class SearchIndexManager {
 			index.add(new SearchIndexEntry(token, type.getEntityType(), name, baseScore + type.getMinorScore()));
 		}
 	}
+
+	/**
+	 * splits a search query into words the same way as descriptions are
+	 * split for the index
+	 *
+	 * @param query query
+	 * @return words in lower case, without stop words
+	 */
+	static List<String> tokenize(String query) {
+		List<String> res = new ArrayList<String>();
+		StringTokenizer st = new StringTokenizer(query.toLowerCase(Locale.ENGLISH), " #;:,.-!\"");
+		while (st.hasMoreTokens()) {
+			String token = st.nextToken();
+			if (!STOP_WORDS.contains(token) && !res.contains(token)) {
+				res.add(token);
+			}
+		}
+		return res;
+	}
 }
@@ -0,0 +1,144 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.rp.searchindex;
+
+import java.util.Comparator;
+import java.util.List;
+
+import games.stendhal.server.util.StringUtils;
+
+/**
+ * an entity found by the SearchIndex
+ */
+public class SearchResult {
+	/** orders results by the number of matched words and the score */
+	static final Comparator<SearchResult> BEST_FIRST = new Comparator<SearchResult>() {
+		@Override
+		public int compare(SearchResult a, SearchResult b) {
+			if (a.matchedWords != b.matchedWords) {
+				return b.matchedWords - a.matchedWords;
+			}
+			if (a.score != b.score) {
+				return b.score - a.score;
+			}
+			int res = a.entityName.compareTo(b.entityName);
+			if (res != 0) {
+				return res;
+			}
+			return a.entityType - b.entityType;
+		}
+	};
+
+	private final char entityType;
+	private final String entityName;
+	private int score;
+	private int matchedWords = 1;
+
+	/**
+	 * creates a SearchResult for one matched word
+	 *
+	 * @param entityType type of entity
+	 * @param entityName name of entity
+	 * @param score score of the match
+	 */
+	SearchResult(char entityType, String entityName, int score) {
+		this.entityType = entityType;
+		this.entityName = entityName;
+		this.score = score;
+	}
+
+	/**
+	 * adds the match of another word
+	 *
+	 * @param other match of the same entity
+	 */
+	void add(SearchResult other) {
+		score += other.score;
+		matchedWords += other.matchedWords;
+	}
+
+	/**
+	 * increases the score
+	 *
+	 * @param bonus bonus
+	 */
+	void boost(int bonus) {
+		score += bonus;
+	}
+
+	/**
+	 * gets the type of the entity
+	 *
+	 * @return type character, see SearchIndexEntryType
+	 */
+	public char getEntityType() {
+		return entityType;
+	}
+
+	/**
+	 * gets the name of the entity
+	 *
+	 * @return name
+	 */
+	public String getEntityName() {
+		return entityName;
+	}
+
+	/**
+	 * gets the score
+	 *
+	 * @return sum of the scores of the matched words
+	 */
+	public int getScore() {
+		return score;
+	}
+
+	/**
+	 * gets the number of query words that matched
+	 *
+	 * @return number of words
+	 */
+	public int getMatchedWords() {
+		return matchedWords;
+	}
+
+	@Override
+	public String toString() {
+		return entityType + ":" + entityName + " (" + score + ")";
+	}
+
+	/**
+	 * converts search results to a JSON array
+	 *
+	 * @param results search results
+	 * @return JSON
+	 */
+	public static String toJSON(List<SearchResult> results) {
+		StringBuilder sb = new StringBuilder("[");
+		boolean first = true;
+		for (SearchResult result : results) {
+			if (!first) {
+				sb.append(',');
+			}
+			first = false;
+			sb.append("{\"type\":");
+			StringUtils.appendJSONString(sb, String.valueOf(result.entityType));
+			sb.append(",\"name\":");
+			StringUtils.appendJSONString(sb, result.entityName);
+			sb.append(",\"score\":");
+			sb.append(result.score);
+			sb.append('}');
+		}
+		sb.append(']');
+		return sb.toString();
+	}
+}
@@ -26,6 +26,8 @@ import games.stendhal.server.core.config.CreatureGroupsXMLLoader;
 import games.stendhal.server.core.config.ItemGroupsXMLLoader;
 import games.stendhal.server.core.config.ShopsXMLLoader;
 import games.stendhal.server.core.config.SpellGroupsXMLLoader;
+import games.stendhal.server.core.rp.searchindex.SearchIndex;
+import games.stendhal.server.core.rp.searchindex.SearchIndexEntryType;
 import games.stendhal.server.core.rule.EntityManager;
 import games.stendhal.server.entity.Entity;
 import games.stendhal.server.entity.creature.Creature;
@@ -165,6 +167,7 @@ public class DefaultEntityManager implements EntityManager {
 		}
 
 		classToItem.put(clazz, item);
+		SearchIndex.get().invalidate(SearchIndexEntryType.ITEM, clazz);
 
 		return true;
 	}
@@ -183,6 +186,7 @@ public class DefaultEntityManager implements EntityManager {
 		}
 		classToCreature.put(clazz, creature);
 		idToClass.put(id, clazz);
+		SearchIndex.get().invalidate(SearchIndexEntryType.CREATURE, clazz);
 
 		return true;
 	}
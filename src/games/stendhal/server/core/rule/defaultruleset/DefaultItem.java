@@ -14,7 +14,9 @@ package games.stendhal.server.core.rule.defaultruleset;
 
 import java.lang.reflect.Constructor;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -54,13 +56,17 @@ public class DefaultItem {
 	/** weight of this item. */
 	private double weight;
 
-	/** slots where this item can be equipped. */
+	/** slots where this item can be equipped, shared by all items. */
 	private List<String> slots = null;
 
 	/** Map Tile Id. */
 	private int tileid;
 
-	/** Attributes of the item.*/
+	/**
+	 * Attributes of the item. The map is immutable, so the created items can
+	 * share it and the strings in it. Changes of an item, like the quantity
+	 * or the owner, only replace the values in the item itself.
+	 */
 	private Map<String, String> attributes = null;
 
 	private Class< ? > implementation = null;
@@ -102,12 +108,32 @@ public class DefaultItem {
 		return attributes;
 	}
 
+	/**
+	 * Set the attributes of the item. The content of the mapping is copied,
+	 * so it can be safely modified afterwards.
+	 *
+	 * @param attributes attributes
+	 */
 	public void setAttributes(final Map<String, String> attributes) {
-		this.attributes = attributes;
+		if (attributes == null) {
+			this.attributes = null;
+		} else {
+			this.attributes = Collections.unmodifiableMap(new LinkedHashMap<String, String>(attributes));
+		}
 	}
 
+	/**
+	 * Set the slots where the item can be equipped. The list is copied, so it
+	 * can be safely modified afterwards.
+	 *
+	 * @param slots slot names
+	 */
 	public void setEquipableSlots(final List<String> slots) {
-		this.slots = slots;
+		if (slots == null) {
+			this.slots = null;
+		} else {
+			this.slots = Collections.unmodifiableList(new ArrayList<String>(slots));
+		}
 	}
 
 	public List<String> getEquipableSlots() {
@@ -12,16 +12,32 @@
  ***************************************************************************/
 package games.stendhal.server.core.rule.defaultruleset.creator;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
 
 import org.apache.log4j.Logger;
 
+/**
+ * Base class of the creators of configured entities. The constructor is
+ * looked up once and kept as a method handle that takes and returns plain
+ * objects, so that creating an entity does not need the reflective checks
+ * of <code>Constructor.newInstance</code>.
+ *
+ * @param <T> type of the created entities
+ */
 public abstract class AbstractCreator<T> {
 
 	private static final Logger logger = Logger.getLogger(AbstractCreator.class);
 
-	protected final Constructor< ? > construct;
+	/**
+	 * The constructor, or <code>null</code> if it is not accessible. The
+	 * parameters and the result are of type <code>Object</code>, so the
+	 * subclasses can call it with <code>invokeExact</code>, casting the
+	 * arguments and the result to <code>Object</code>.
+	 */
+	protected final MethodHandle construct;
 
 	private final String creatorFor;
 
@@ -33,27 +49,41 @@ public abstract class AbstractCreator<T> {
 	 */
 	public AbstractCreator(Constructor<?> construct, String creatorFor) {
 		super();
-		this.construct = construct;
+		this.construct = toHandle(construct);
 		this.creatorFor = creatorFor;
 	}
 
-	protected abstract T createObject() throws IllegalAccessException,
-			InstantiationException, InvocationTargetException;
+	private static MethodHandle toHandle(final Constructor<?> construct) {
+		try {
+			final MethodHandle handle = MethodHandles.publicLookup().unreflectConstructor(construct);
+			return handle.asType(MethodType.genericMethodType(construct.getParameterTypes().length));
+		} catch (final IllegalAccessException ex) {
+			logger.error("Error creating object: Used constructor is not accessible." , ex);
+			return null;
+		}
+	}
+
+	/**
+	 * Call the constructor.
+	 *
+	 * @return new object
+	 * @throws Throwable any exception thrown by the constructor
+	 */
+	protected abstract T createObject() throws Throwable;
 
 	public T create() {
+		if (construct == null) {
+			return null;
+		}
 		try {
 			return createObject();
-		} catch (final IllegalAccessException ex) {
-			logger.error("Error creating object: Used constructor is not accessible." , ex);
-		} catch (final InstantiationException ex) {
-			logger.error("Error creating object: Object cannot be instantiated (i.e. class may be abstract)", ex);
-		} catch (final InvocationTargetException ex) {
-			logger.error("Error creating object: Exception thrown during constructor call.", ex.getCause());
 		} catch (final ClassCastException ex) {
 			/*
 			 * Wrong type (i.e. not [subclass of])
 			 */
 			logger.error("Implementation for is no an subclass of "+creatorFor );
+		} catch (final Throwable ex) {
+			logger.error("Error creating object: Exception thrown during constructor call.", ex);
 		}
 
 		return null;
@@ -13,7 +13,6 @@
 package games.stendhal.server.core.rule.defaultruleset.creator;
 
 import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
 
 import games.stendhal.server.core.rule.defaultruleset.DefaultItem;
 import games.stendhal.server.entity.item.Item;
@@ -28,8 +27,7 @@ public class DefaultItemCreator extends AbstractItemCreator {
 	}
 
 	@Override
-	protected Item createObject() throws IllegalAccessException,
-			InstantiationException, InvocationTargetException {
-		return (Item) construct.newInstance(new Object[] {});
+	protected Item createObject() throws Throwable {
+		return (Item) (Object) construct.invokeExact();
 	}
 }
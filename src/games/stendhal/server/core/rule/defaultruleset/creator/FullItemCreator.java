@@ -12,7 +12,6 @@
 package games.stendhal.server.core.rule.defaultruleset.creator;
 
 import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
 
 import org.apache.log4j.Logger;
 
@@ -33,15 +32,14 @@ public class FullItemCreator extends AbstractItemCreator {
 	}
 
 	@Override
-	protected Item createObject() throws IllegalAccessException,
-			InstantiationException, InvocationTargetException {
+	protected Item createObject() throws Throwable {
 		try {
-			return (Item) construct.newInstance(new Object[] {
-					this.defaultItem.getItemName(),
-					this.defaultItem.getItemClass(),
-					this.defaultItem.getItemSubclass(),
-					this.defaultItem.getAttributes() });
-		} catch (IllegalAccessException | InstantiationException | InvocationTargetException | RuntimeException e) {
+			return (Item) (Object) construct.invokeExact(
+					(Object) this.defaultItem.getItemName(),
+					(Object) this.defaultItem.getItemClass(),
+					(Object) this.defaultItem.getItemSubclass(),
+					(Object) this.defaultItem.getAttributes());
+		} catch (Throwable e) {
 			logger.error("Creating item \"" + this.defaultItem.getItemName() + "\" failed.");
 			throw e;
 		}
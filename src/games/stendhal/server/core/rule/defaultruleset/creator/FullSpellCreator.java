@@ -13,7 +13,6 @@
 package games.stendhal.server.core.rule.defaultruleset.creator;
 
 import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
 
 import games.stendhal.server.core.rule.defaultruleset.DefaultSpell;
 import games.stendhal.server.entity.spell.Spell;
@@ -25,14 +24,15 @@ public class FullSpellCreator extends AbstractSpellCreator {
 	}
 
 	@Override
-	protected Spell createObject() throws IllegalAccessException,
-			InstantiationException, InvocationTargetException {
-		return (Spell) construct.newInstance(defaultSpell.getName(), defaultSpell.getNature(), defaultSpell.getAmount(),
-									defaultSpell.getAtk(), defaultSpell.getCooldown(),
-									defaultSpell.getDef(), defaultSpell.getLifesteal(),
-									defaultSpell.getMana(),
-									defaultSpell.getMinimumLevel(), defaultSpell.getRange(),
-									defaultSpell.getRate(), defaultSpell.getRegen(), defaultSpell.getModifier());
+	protected Spell createObject() throws Throwable {
+		return (Spell) (Object) construct.invokeExact((Object) defaultSpell.getName(), (Object) defaultSpell.getNature(),
+									(Object) defaultSpell.getAmount(),
+									(Object) defaultSpell.getAtk(), (Object) defaultSpell.getCooldown(),
+									(Object) defaultSpell.getDef(), (Object) defaultSpell.getLifesteal(),
+									(Object) defaultSpell.getMana(),
+									(Object) defaultSpell.getMinimumLevel(), (Object) defaultSpell.getRange(),
+									(Object) defaultSpell.getRate(), (Object) defaultSpell.getRegen(),
+									(Object) defaultSpell.getModifier());
 	}
 
 }
@@ -443,8 +443,13 @@ public abstract class ActiveEntity extends Entity {
 			return;
 		}
 
+		final boolean stoppedChanged = (speed == 0.0) || (this.speed == 0.0);
 		this.speed = speed;
 		put("speed", speed);
+		if (stoppedChanged && (getZone() != null)) {
+			// pathfinding treats stopped entities differently
+			getZone().notifyObstacleChanged(this);
+		}
 		notifyWorldAboutChanges();
 	}
 
@@ -164,6 +164,9 @@ public abstract class Entity extends RPObject implements Killer {
 	public void update() {
 		final int oldX = x;
 		final int oldY = y;
+		final double oldWidth = area.width;
+		final double oldHeight = area.height;
+		final int oldResistance = resistance;
 		boolean moved = false;
 
 		if (has("x")) {
@@ -200,6 +203,14 @@ public abstract class Entity extends RPObject implements Killer {
 			resistance = getInt("resistance");
 		}
 
+		if (zone != null) {
+			if (moved || (area.width != oldWidth) || (area.height != oldHeight)) {
+				// also tells the zone about the obstacle change
+				zone.notifyEntityAreaChanged(this);
+			} else if (resistance != oldResistance) {
+				zone.notifyObstacleChanged(this);
+			}
+		}
 	}
 
 	public boolean hasDescription() {
@@ -657,6 +668,7 @@ public abstract class Entity extends RPObject implements Killer {
 		}
 
 		if (moved && (zone != null)) {
+			zone.notifyEntityAreaChanged(this);
 			onMoved(oldX, oldY, x, y);
 		}
 	}
@@ -676,8 +688,12 @@ public abstract class Entity extends RPObject implements Killer {
 	 *            The amount of resistance (0-100).
 	 */
 	public final void setResistance(final int resistance) {
+		final int oldResistance = this.resistance;
 		this.resistance = resistance;
 		put("resistance", resistance);
+		if ((zone != null) && (resistance != oldResistance)) {
+			zone.notifyObstacleChanged(this);
+		}
 	}
 
 	/**
@@ -694,6 +710,10 @@ public abstract class Entity extends RPObject implements Killer {
 
 		this.area.height = height;
 		put("height", height);
+
+		if (zone != null) {
+			zone.notifyEntityAreaChanged(this);
+		}
 	}
 
 	/**
@@ -0,0 +1,109 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.entity;
+
+import java.util.List;
+
+import games.stendhal.server.entity.item.Item;
+import games.stendhal.server.entity.item.StackableItem;
+import marauroa.common.game.RPObject;
+import marauroa.common.game.RPSlot;
+
+/**
+ * The equipped items of an entity and the combat values derived from them.
+ * <p>
+ * The values stay valid as long as the equipment slots, which hold one item
+ * each, contain the same objects and the level of the entity does not
+ * change. That is checked with a few reference comparisons, so that attacks
+ * do not have to search the slots for weapons and armor on every hit.
+ * Changes of the attributes of the equipped items, and replaced slots, are
+ * reported by explicitly invalidating the stats of the entity.
+ */
+final class EquipmentStats {
+	/** Slots that can hold items with an effect on combat. */
+	static final String[] SLOTS = { "lhand", "rhand", "armor", "head", "legs", "feet", "cloak", "finger" };
+	static final int ARMOR = 2;
+	static final int FINGER = 7;
+
+	/** Equipment slots of the entity, <code>null</code> for missing ones. */
+	private final RPSlot[] slots = new RPSlot[SLOTS.length];
+	/** Number of objects in each slot when the values were computed. */
+	private final int[] sizes = new int[SLOTS.length];
+	/** First object in each slot when the values were computed. */
+	private final RPObject[] firsts = new RPObject[SLOTS.length];
+	/** Level used for the level modifier of the items. */
+	private final int level;
+
+	Item weapon;
+	List<Item> weapons;
+	Item rangeWeapon;
+	StackableItem ammunition;
+	StackableItem missile;
+	Item shield;
+	Item armor;
+	Item helmet;
+	Item legs;
+	Item boots;
+	Item cloak;
+	Item ring;
+	List<Item> defenseItems;
+	float itemAtk;
+	float itemRatk;
+	float itemDef;
+
+	/**
+	 * Creates the stats for the current equipment of an entity. The derived
+	 * values are filled in by the entity.
+	 *
+	 * @param entity entity
+	 */
+	EquipmentStats(final RPEntity entity) {
+		for (int i = 0; i < SLOTS.length; i++) {
+			final RPSlot slot = entity.getSlot(SLOTS[i]);
+			slots[i] = slot;
+			if (slot != null) {
+				sizes[i] = slot.size();
+				firsts[i] = slot.getFirst();
+			}
+		}
+		level = entity.getLevel();
+	}
+
+	/**
+	 * Check if the equipment of an entity is still the same.
+	 *
+	 * @param entity entity the stats were created for
+	 * @return <code>true</code> if the values can be used
+	 */
+	boolean isValid(final RPEntity entity) {
+		if (entity.getLevel() != level) {
+			return false;
+		}
+		for (int i = 0; i < SLOTS.length; i++) {
+			final RPSlot slot = slots[i];
+			if ((slot != null) && ((slot.size() != sizes[i]) || (slot.getFirst() != firsts[i]))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Get the first object of an equipment slot.
+	 *
+	 * @param index index of the slot in {@link #SLOTS}
+	 * @return object, or <code>null</code> if the slot is empty or missing
+	 */
+	RPObject getFirst(final int index) {
+		return firsts[index];
+	}
+}
@@ -65,6 +65,9 @@ public abstract class GuidedEntity extends ActiveEntity {
     // used to store & restore the entity's base speed for suspension
     private Double storedSpeed = null;
 
+	/** The entity is on a route across several zones. */
+	private boolean travelling;
+
 	/**
 	 * Create a guided entity.
 	 */
@@ -299,6 +302,27 @@ public abstract class GuidedEntity extends ActiveEntity {
 		guide.pathPosition = pathPos;
 	}
 
+	/**
+	 * Check if the entity is on a route across several zones. Such entities
+	 * keep their zone from becoming dormant, so that they can reach the end
+	 * of the route without players watching.
+	 *
+	 * @return <code>true</code> if the route has not been finished
+	 */
+	public boolean isTravelling() {
+		return travelling;
+	}
+
+	/**
+	 * Set whether the entity is on a route across several zones.
+	 *
+	 * @param travelling <code>true</code> while the route has not been
+	 * 	finished
+	 */
+	public void setTravelling(final boolean travelling) {
+		this.travelling = travelling;
+	}
+
 	/**
 	 * Plan a new path to the old destination.
 	 */
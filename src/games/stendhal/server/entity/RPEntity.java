@@ -14,6 +14,7 @@ package games.stendhal.server.entity;
 
 import java.awt.geom.Rectangle2D;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
@@ -41,6 +42,7 @@ import games.stendhal.common.constants.Testing;
 import games.stendhal.common.grammar.Grammar;
 import games.stendhal.common.parser.WordList;
 import games.stendhal.server.actions.equip.DropAction;
+import games.stendhal.server.core.engine.BatchedLogWriter;
 import games.stendhal.server.core.engine.GameEvent;
 import games.stendhal.server.core.engine.ItemLogger;
 import games.stendhal.server.core.engine.SingletonRepository;
@@ -72,8 +74,6 @@ import marauroa.common.game.RPAction;
 import marauroa.common.game.RPObject;
 import marauroa.common.game.RPSlot;
 import marauroa.common.game.SyntaxException;
-import marauroa.server.db.command.DBCommandPriority;
-import marauroa.server.db.command.DBCommandQueue;
 import marauroa.server.game.Statistics;
 import marauroa.server.game.db.DAORegister;
 
@@ -142,6 +142,12 @@ public abstract class RPEntity extends CombatEntity {
 	protected CounterMap<Entity> damageReceived;
 	protected int totalDamageReceived;
 
+	/**
+	 * Equipped items and the combat values derived from them, or
+	 * <code>null</code> if they need to be computed.
+	 */
+	private EquipmentStats equipmentStats;
+
 	/**
 	 * To avoid using karma for damage calculations when the natural ability of
 	 * the fighters would mean they need no luck, we only use karma when the
@@ -1661,7 +1667,7 @@ System.out.printf("  drop: %2d %2d\n", attackerRoll, defenderRoll);
 				}
 			}
 
-			SingletonRepository.getAchievementNotifier().onKill(killer);
+			SingletonRepository.getAchievementNotifier().onKill(killer, killedName);
 
 			killer.notifyWorldAboutChanges();
 		}
@@ -1773,7 +1779,7 @@ System.out.printf("  drop: %2d %2d\n", attackerRoll, defenderRoll);
 			new GameEvent(killerName, "killed", this.getName(), killLog.entityToType(killer), killLog.entityToType(this)).raise();
 		}
 
-		DBCommandQueue.get().enqueue(new LogKillEventCommand(this, killer), DBCommandPriority.LOW);
+		BatchedLogWriter.get().add(new LogKillEventCommand(this, killer));
 
 		die(killer, remove);
 	}
@@ -2504,6 +2510,83 @@ System.out.printf("  drop: %2d %2d\n", attackerRoll, defenderRoll);
 	}
 
 
+	/**
+	 * Get the equipped items and the combat values derived from them. They
+	 * are computed again when the equipment has changed.
+	 *
+	 * @return equipment stats
+	 */
+	private EquipmentStats getEquipmentStats() {
+		EquipmentStats stats = equipmentStats;
+		if ((stats == null) || !stats.isValid(this)) {
+			stats = computeEquipmentStats();
+			equipmentStats = stats;
+		}
+		return stats;
+	}
+
+	@Override
+	public void addSlot(final String name) {
+		super.addSlot(name);
+		invalidateEquipmentStats();
+	}
+
+	@Override
+	public void addSlot(final RPSlot slot) {
+		super.addSlot(slot);
+		invalidateEquipmentStats();
+	}
+
+	@Override
+	public RPSlot removeSlot(final String name) {
+		invalidateEquipmentStats();
+		return super.removeSlot(name);
+	}
+
+	/**
+	 * Tells the entity that the equipment or the attributes of equipped items
+	 * have changed, so that the combat values derived from them get computed
+	 * again. Items moved in or out of the equipment slots are noticed without
+	 * calling this.
+	 */
+	public void invalidateEquipmentStats() {
+		equipmentStats = null;
+	}
+
+	private EquipmentStats computeEquipmentStats() {
+		final EquipmentStats stats = new EquipmentStats(this);
+		stats.weapon = findWeapon();
+		stats.weapons = Collections.unmodifiableList(findWeapons(stats.weapon));
+		for (final Item weapon : stats.weapons) {
+			if (weapon.isOfClass("ranged")) {
+				stats.rangeWeapon = weapon;
+				break;
+			}
+		}
+		stats.ammunition = findAmmunition();
+		stats.missile = findMissileIfNotHoldingOtherWeapon(stats.weapons);
+
+		stats.shield = findShield();
+		stats.armor = getEquippedItemClass("armor", "armor");
+		stats.helmet = getEquippedItemClass("head", "helmet");
+		stats.legs = getEquippedItemClass("legs", "legs");
+		stats.boots = getEquippedItemClass("feet", "boots");
+		stats.cloak = getEquippedItemClass("cloak", "cloak");
+		stats.ring = getEquippedItemClass("finger", "ring");
+		final List<Item> defenseItems = new ArrayList<>();
+		for (final Item item : Arrays.asList(stats.shield, stats.armor, stats.helmet, stats.legs, stats.boots, stats.cloak)) {
+			if (item != null) {
+				defenseItems.add(item);
+			}
+		}
+		stats.defenseItems = Collections.unmodifiableList(defenseItems);
+
+		stats.itemAtk = computeItemAtk(stats);
+		stats.itemRatk = computeItemRatk(stats);
+		stats.itemDef = computeItemDef(stats);
+		return stats;
+	}
+
 	/**
 	 * Gets the weapon that this entity is holding in its hands.
 	 *
@@ -2512,6 +2595,10 @@ System.out.printf("  drop: %2d %2d\n", attackerRoll, defenderRoll);
 	 *         left hand.
 	 */
 	public Item getWeapon() {
+		return getEquipmentStats().weapon;
+	}
+
+	private Item findWeapon() {
 		final String[] weaponsClasses = {"club", "sword", "axe", "ranged", "missile"};
 
 		for (final String weaponClass : weaponsClasses) {
@@ -2527,9 +2614,18 @@ System.out.printf("  drop: %2d %2d\n", attackerRoll, defenderRoll);
 		return null;
 	}
 
+	/**
+	 * Gets the weapons that this entity uses in an attack. The list can not
+	 * be modified.
+	 *
+	 * @return weapons
+	 */
 	public List<Item> getWeapons() {
+		return getEquipmentStats().weapons;
+	}
+
+	private List<Item> findWeapons(Item weaponItem) {
 		final List<Item> weapons = new ArrayList<>();
-		Item weaponItem = getWeapon();
 		if (weaponItem != null) {
 			weapons.add(weaponItem);
 
@@ -2568,13 +2664,7 @@ System.out.printf("  drop: %2d %2d\n", attackerRoll, defenderRoll);
 	 *         one in its left hand.
 	 */
 	public Item getRangeWeapon() {
-		for (final Item weapon : getWeapons()) {
-			if (weapon.isOfClass("ranged")) {
-				return weapon;
-			}
-		}
-
-		return null;
+		return getEquipmentStats().rangeWeapon;
 	}
 
 	/**
@@ -2586,6 +2676,10 @@ System.out.printf("  drop: %2d %2d\n", attackerRoll, defenderRoll);
 	 *         in its left hand.
 	 */
 	public StackableItem getAmmunition() {
+		return getEquipmentStats().ammunition;
+	}
+
+	private StackableItem findAmmunition() {
 		final String[] slots = { "lhand", "rhand" };
 
 		for (final String slot : slots) {
@@ -2614,10 +2708,14 @@ System.out.printf("  drop: %2d %2d\n", attackerRoll, defenderRoll);
 	 *         left hand.
 	 */
 	public StackableItem getMissileIfNotHoldingOtherWeapon() {
+		return getEquipmentStats().missile;
+	}
+
+	private static StackableItem findMissileIfNotHoldingOtherWeapon(final List<Item> weapons) {
 		StackableItem missileWeaponItem = null;
 		boolean holdsOtherWeapon = false;
 
-		for (final Item weaponItem : getWeapons()) {
+		for (final Item weaponItem : weapons) {
 			if (weaponItem.isOfClass("missile")) {
 				missileWeaponItem = (StackableItem) weaponItem;
 			} else {
@@ -2634,11 +2732,14 @@ System.out.printf("  drop: %2d %2d\n", attackerRoll, defenderRoll);
 
 	/** @return true if the entity has an item of class shield equipped. */
 	public boolean hasShield() {
-		return isEquippedItemClass("lhand", "shield")
-				|| isEquippedItemClass("rhand", "shield");
+		return getShield() != null;
 	}
 
 	public Item getShield() {
+		return getEquipmentStats().shield;
+	}
+
+	private Item findShield() {
 		final Item item = getEquippedItemClass("lhand", "shield");
 		if (item != null) {
 			return item;
@@ -2648,51 +2749,51 @@ System.out.printf("  drop: %2d %2d\n", attackerRoll, defenderRoll);
 	}
 
 	public boolean hasArmor() {
-		return isEquippedItemClass("armor", "armor");
+		return getArmor() != null;
 	}
 
 	public Item getArmor() {
-		return getEquippedItemClass("armor", "armor");
+		return getEquipmentStats().armor;
 	}
 
 	public boolean hasHelmet() {
-		return isEquippedItemClass("head", "helmet");
+		return getHelmet() != null;
 	}
 
 	public Item getHelmet() {
-		return getEquippedItemClass("head", "helmet");
+		return getEquipmentStats().helmet;
 	}
 
 	public boolean hasLegs() {
-		return isEquippedItemClass("legs", "legs");
+		return getLegs() != null;
 	}
 
 	public Item getLegs() {
-		return getEquippedItemClass("legs", "legs");
+		return getEquipmentStats().legs;
 	}
 
 	public boolean hasBoots() {
-		return isEquippedItemClass("feet", "boots");
+		return getBoots() != null;
 	}
 
 	public Item getBoots() {
-		return getEquippedItemClass("feet", "boots");
+		return getEquipmentStats().boots;
 	}
 
 	public boolean hasCloak() {
-		return isEquippedItemClass("cloak", "cloak");
+		return getCloak() != null;
 	}
 
 	public Item getCloak() {
-		return getEquippedItemClass("cloak", "cloak");
+		return getEquipmentStats().cloak;
 	}
 
 	public boolean hasRing() {
-		return isEquippedItemClass("finger", "ring");
+		return getRing() != null;
 	}
 
 	public Item getRing() {
-		return getEquippedItemClass("finger", "ring");
+		return getEquipmentStats().ring;
 	}
 
 	@Override
@@ -2748,23 +2849,27 @@ System.out.printf("  drop: %2d %2d\n", attackerRoll, defenderRoll);
 	 * Retrieves total ATK value of held weapons.
 	 */
 	public float getItemAtk() {
+		return getEquipmentStats().itemAtk;
+	}
+
+	private float computeItemAtk(final EquipmentStats stats) {
 		int weapon = 0;
 		int ring = 0;
 
-		final List<Item> weapons = getWeapons();
+		final List<Item> weapons = stats.weapons;
 		for (final Item weaponItem : weapons) {
 			weapon += weaponItem.getAttack();
 		}
 
 		// calculate ammo when not using RATK stat
 		if (!Testing.COMBAT && weapons.size() > 0) {
-			if (getWeapons().get(0).isOfClass("ranged")) {
-				weapon += getAmmoAtk();
+			if (weapons.get(0).isOfClass("ranged")) {
+				weapon += getAmmoAtk(stats.ammunition);
 			}
 		}
 
-		if (hasRing()) {
-			ring = getRing().getAttack();
+		if (stats.ring != null) {
+			ring = stats.ring.getAttack();
 		}
 
 		return weapon + ring;
@@ -2774,15 +2879,19 @@ System.out.printf("  drop: %2d %2d\n", attackerRoll, defenderRoll);
 	 * Retrieves total range attack value of held weapon & ammunition.
 	 */
 	public float getItemRatk() {
+		return getEquipmentStats().itemRatk;
+	}
+
+	private float computeItemRatk(final EquipmentStats stats) {
 		float ratk = 0;
-		final List<Item> weapons = getWeapons();
+		final List<Item> weapons = stats.weapons;
 
 		if (weapons.size() > 0) {
-			final Item held = getWeapons().get(0);
+			final Item held = weapons.get(0);
 			ratk += held.getRangedAttack();
 
 			if (held.isOfClass("ranged")) {
-				ratk += getAmmoAtk();
+				ratk += getAmmoAtk(stats.ammunition);
 			}
 		}
 
@@ -2791,11 +2900,12 @@ System.out.printf("  drop: %2d %2d\n", attackerRoll, defenderRoll);
 
 	/**
 	 * Retrieves ATK or RATK (depending on testing.combat system property) value of equipped ammunition.
+	 *
+	 * @param ammoItem equipped ammunition, or <code>null</code>
 	 */
-	private float getAmmoAtk() {
+	private static float getAmmoAtk(final StackableItem ammoItem) {
 		float ammo = 0;
 
-		final StackableItem ammoItem = getAmmunition();
 		if (ammoItem != null) {
 			if (Testing.COMBAT) {
 				ammo = ammoItem.getRangedAttack();
@@ -2808,6 +2918,10 @@ System.out.printf("  drop: %2d %2d\n", attackerRoll, defenderRoll);
 	}
 
 	public float getItemDef() {
+		return getEquipmentStats().itemDef;
+	}
+
+	private float computeItemDef(final EquipmentStats stats) {
 		int shield = 0;
 		int armor = 0;
 		int helmet = 0;
@@ -2819,43 +2933,42 @@ System.out.printf("  drop: %2d %2d\n", attackerRoll, defenderRoll);
 
 		Item item;
 
-		if (hasShield()) {
-			item = getShield();
+		if (stats.shield != null) {
+			item = stats.shield;
 			shield = (int) (item.getDefense() / getItemLevelModifier(item));
 		}
 
-		if (hasArmor()) {
-			item = getArmor();
+		if (stats.armor != null) {
+			item = stats.armor;
 			armor = (int) (item.getDefense() / getItemLevelModifier(item));
 		}
 
-		if (hasHelmet()) {
-			item = getHelmet();
+		if (stats.helmet != null) {
+			item = stats.helmet;
 			helmet = (int) (item.getDefense() / getItemLevelModifier(item));
 		}
 
-		if (hasLegs()) {
-			item = getLegs();
+		if (stats.legs != null) {
+			item = stats.legs;
 			legs = (int) (item.getDefense() / getItemLevelModifier(item));
 		}
 
-		if (hasBoots()) {
-			item = getBoots();
+		if (stats.boots != null) {
+			item = stats.boots;
 			boots = (int) (item.getDefense() / getItemLevelModifier(item));
 		}
 
-		if (hasCloak()) {
-			item = getCloak();
+		if (stats.cloak != null) {
+			item = stats.cloak;
 			cloak = (int) (item.getDefense() / getItemLevelModifier(item));
 		}
 
-		if (hasRing()) {
-			item = getRing();
+		if (stats.ring != null) {
+			item = stats.ring;
 			ring = (int) (item.getDefense() / getItemLevelModifier(item));
 		}
 
-		final List<Item> targetWeapons = getWeapons();
-		for (final Item weaponItem : targetWeapons) {
+		for (final Item weaponItem : stats.weapons) {
 			weapon += weaponItem.getDefense() / getItemLevelModifier(weaponItem);
 		}
 
@@ -2868,36 +2981,48 @@ System.out.printf("  drop: %2d %2d\n", attackerRoll, defenderRoll);
 	/**
 	 * get all items that affect a player's defensive value except the weapon
 	 *
-	 * @return a list of all equipped defensive items
+	 * @return a list of all equipped defensive items. The list can not be
+	 * 	modified
 	 */
 	public List<Item> getDefenseItems() {
-		List<Item> items = new LinkedList<>();
-		if (hasShield()) {
-			items.add(getShield());
-		}
-		if (hasArmor()) {
-			items.add(getArmor());
-		}
-		if (hasHelmet()) {
-			items.add(getHelmet());
-		}
-		if (hasLegs()) {
-			items.add(getLegs());
-		}
+		return getEquipmentStats().defenseItems;
+	}
 
-		if (hasBoots()) {
-			items.add(getBoots());
+	/**
+	 * Get the multiplier of the damage of a given type caused by the
+	 * susceptibilities of the held weapon, the shield and the first items in
+	 * the armor slots.
+	 *
+	 * @param type type of the damage
+	 * @return damage multiplier
+	 */
+	protected double getEquipmentSusceptibility(final Nature type) {
+		final EquipmentStats stats = getEquipmentStats();
+		double sus = 1.0;
+		/*
+		 * check weapon and shield separately, so that holding 2 resistant
+		 * shields does not help
+		 */
+		if (stats.weapon != null) {
+			sus *= stats.weapon.getSusceptibility(type);
 		}
-		if (hasCloak()) {
-			items.add(getCloak());
+		if (stats.shield != null) {
+			sus *= stats.shield.getSusceptibility(type);
+		}
+		for (int i = EquipmentStats.ARMOR; i < EquipmentStats.FINGER; i++) {
+			final RPObject object = stats.getFirst(i);
+			if (object instanceof Item) {
+				sus *= ((Item) object).getSusceptibility(type);
+			}
 		}
-		return items;
+		return sus;
 	}
 
 	/**
 	 * Recalculates item based atk and def.
 	 */
 	public void updateItemAtkDef() {
+		invalidateEquipmentStats();
 		put("atk_item", ((int) getItemAtk()));
 		if (Testing.COMBAT) {
 			put("ratk_item", ((int) getItemRatk()));
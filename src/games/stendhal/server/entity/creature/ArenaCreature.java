@@ -16,6 +16,7 @@ import java.awt.Shape;
 import java.util.LinkedList;
 import java.util.List;
 
+import games.stendhal.server.core.engine.NearbyEntities;
 import games.stendhal.server.entity.RPEntity;
 
 /**
@@ -54,6 +55,19 @@ public class ArenaCreature extends Creature {
 		return resultList;
 	}
 
+	@Override
+	public NearbyEntities<RPEntity> getEnemiesNear(final double range) {
+		// only return those enemies which are in the arena
+		final NearbyEntities<RPEntity> enemies = super.getEnemiesNear(range);
+		for (int i = enemies.size() - 1; i >= 0; i--) {
+			final RPEntity enemy = enemies.get(i);
+			if (!arena.contains(enemy.getX(), enemy.getY())) {
+				enemies.remove(i);
+			}
+		}
+		return enemies;
+	}
+
 	@Override
 	public Creature getNewInstance() {
 		return new ArenaCreature(this, arena);
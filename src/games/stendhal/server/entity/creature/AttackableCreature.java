@@ -37,6 +37,12 @@ public class AttackableCreature extends Creature {
 		super(copy);
 	}
 
+	@Override
+	protected boolean attacksPlayersAndFriends() {
+		// fights only those attacking it or its master
+		return false;
+	}
+
 	@Override
 	public List<RPEntity> getEnemyList() {
 		List<RPEntity> res = this.getAttackingRPEntities();
@@ -26,6 +26,7 @@ import games.stendhal.common.Level;
 import games.stendhal.common.Rand;
 import games.stendhal.common.constants.Nature;
 import games.stendhal.common.constants.SoundLayer;
+import games.stendhal.server.core.engine.NearbyEntities;
 import games.stendhal.server.core.engine.SingletonRepository;
 import games.stendhal.server.core.engine.StendhalRPRuleProcessor;
 import games.stendhal.server.core.engine.StendhalRPZone;
@@ -150,6 +151,9 @@ public class Creature extends NPC {
 
 	private CounterMap<String> hitPlayers;
 
+	/** Result list of the enemy queries, created when first needed. */
+	private NearbyEntities<RPEntity> nearbyEnemies;
+
 	/**
 	 * creates a new Creature
 	 *
@@ -694,13 +698,23 @@ public class Creature extends NPC {
 	}
 
 
+	/**
+	 * Check if the creature attacks all players and friendly entities in its
+	 * zone, rather than only the entities attacking it.
+	 *
+	 * @return <code>true</code> if the creature is offensive
+	 */
+	protected boolean attacksPlayersAndFriends() {
+		return getAIProfiles().containsKey("offensive");
+	}
+
 	/**
 	 * Returns a list of enemies. One of it will be attacked.
 	 *
 	 * @return list of enemies
 	 */
 	public List<RPEntity> getEnemyList() {
-		if (getAIProfiles().containsKey("offensive")) {
+		if (attacksPlayersAndFriends()) {
 			return getZone().getPlayerAndFriends();
 		} else {
 			return getAttackingRPEntities();
@@ -708,53 +722,75 @@ public class Creature extends NPC {
 	}
 
 	/**
-	 * Returns the nearest enemy, which is reachable or otherwise attackable.
+	 * Get the enemies within a distance that are not invisible to creatures,
+	 * nearest first. Offensive creatures look them up in the spatial index of
+	 * the zone instead of checking all players and friends of the zone.
 	 *
-	 * @param range
-	 *            attack radius
-	 * @return chosen enemy or null if no enemy was found.
+	 * @param range maximum distance
+	 * @return enemies. The list belongs to the creature and is reused by the
+	 * 	next call
 	 */
-	public RPEntity getNearestEnemy(final double range) {
-		// create list of enemies
-		final List<RPEntity> enemyList = getEnemyList();
-		if (enemyList.isEmpty()) {
-			return null;
+	public NearbyEntities<RPEntity> getEnemiesNear(final double range) {
+		if (attacksPlayersAndFriends()) {
+			return getPlayersAndFriendsNear(range);
 		}
 
-		// calculate the distance of all possible enemies
-		final Map<RPEntity, Double> distances = new HashMap<RPEntity, Double>();
-		for (final RPEntity enemy : enemyList) {
-			if (enemy == this) {
-				continue;
+		final NearbyEntities<RPEntity> enemies = getNearbyEnemies();
+		enemies.clear();
+		for (final RPEntity enemy : getEnemyList()) {
+			if ((enemy != this) && !enemy.isInvisibleToCreatures()) {
+				final double squaredDistance = this.squaredDistance(enemy);
+				if (squaredDistance <= (range * range)) {
+					enemies.add(enemy, squaredDistance);
+				}
 			}
+		}
+		return enemies;
+	}
 
-			if (enemy.isInvisibleToCreatures()) {
-				continue;
+	/**
+	 * Get the players and friends of the zone within a distance that are not
+	 * invisible to creatures, nearest first.
+	 *
+	 * @param range maximum distance
+	 * @return players and friends. The list is reused by the next call
+	 */
+	private NearbyEntities<RPEntity> getPlayersAndFriendsNear(final double range) {
+		final NearbyEntities<RPEntity> res = getNearbyEnemies();
+		getZone().findPlayersAndFriendsNear(this, range, res);
+		for (int i = res.size() - 1; i >= 0; i--) {
+			if (res.get(i).isInvisibleToCreatures()) {
+				res.remove(i);
 			}
+		}
+		return res;
+	}
 
-			final double squaredDistance = this.squaredDistance(enemy);
-			if (squaredDistance <= (range * range)) {
-				distances.put(enemy, squaredDistance);
-			}
+	private NearbyEntities<RPEntity> getNearbyEnemies() {
+		if (nearbyEnemies == null) {
+			nearbyEnemies = new NearbyEntities<RPEntity>();
 		}
+		return nearbyEnemies;
+	}
+
+	/**
+	 * Returns the nearest enemy, which is reachable or otherwise attackable.
+	 *
+	 * @param range
+	 *            attack radius
+	 * @return chosen enemy or null if no enemy was found.
+	 */
+	public RPEntity getNearestEnemy(final double range) {
+		final NearbyEntities<RPEntity> enemies = getEnemiesNear(range);
 
-		// now choose the nearest enemy for which there is a path, or is
+		// choose the nearest enemy for which there is a path, or is
 		// attackable otherwise
 		RPEntity chosen = null;
-		while ((chosen == null) && !distances.isEmpty()) {
-			double shortestDistance = Double.MAX_VALUE;
-			for (final Map.Entry<RPEntity, Double> enemy : distances.entrySet()) {
-				final double distance = enemy.getValue();
-				if (distance < shortestDistance) {
-					chosen = enemy.getKey();
-					shortestDistance = distance;
-				}
-			}
-
-			if (shortestDistance >= 1) {
+		for (int i = 0; (chosen == null) && (i < enemies.size()); i++) {
+			chosen = enemies.get(i);
+			if (enemies.getSquaredDistance(i) >= 1) {
 				final List<Node> path = Path.searchPath(this, chosen, getMovementRange());
 				if ((path == null) || path.isEmpty() && !strategy.canAttackNow(this, chosen)) {
-					distances.remove(chosen);
 					chosen = null;
 				} else {
 					// set the path. if not setMovement() will search a new one
@@ -762,19 +798,37 @@ public class Creature extends NPC {
 				}
 			}
 		}
+		enemies.clear();
 		// return the chosen enemy or null if we could not find one in reach
 		return chosen;
 	}
 
 	public boolean isEnemyNear(final double range) {
+		if (!attacksPlayersAndFriends()) {
+			final List<RPEntity> enemyList = getEnemyList();
+			if (!enemyList.isEmpty()) {
+				return isAnyNear(enemyList, range);
+			}
+		}
+
+		// the entities are compared by their positions instead of the
+		// distances of their areas. Everything within range on both axes
+		// is within range * sqrt(2)
+		final NearbyEntities<RPEntity> candidates = getPlayersAndFriendsNear(range * Math.sqrt(2));
 		final int x = getX();
 		final int y = getY();
-
-		List<RPEntity> enemyList = getEnemyList();
-		if (enemyList.isEmpty()) {
-			final StendhalRPZone zone = getZone();
-			enemyList = zone.getPlayerAndFriends();
+		boolean res = false;
+		for (int i = 0; !res && (i < candidates.size()); i++) {
+			final RPEntity candidate = candidates.get(i);
+			res = (Math.abs(candidate.getX() - x) < range) && (Math.abs(candidate.getY() - y) < range);
 		}
+		candidates.clear();
+		return res;
+	}
+
+	private boolean isAnyNear(final List<RPEntity> enemyList, final double range) {
+		final int x = getX();
+		final int y = getY();
 
 		for (final RPEntity playerOrFriend : enemyList) {
 			if (playerOrFriend == this) {
@@ -908,6 +962,25 @@ public class Creature extends NPC {
 		// do nothing
 	}
 
+	/**
+	 * Give the creature the healing of turns when its logic did not run,
+	 * because the zone was dormant.
+	 *
+	 * @param turns amount of skipped turns
+	 */
+	public void healMissedTurns(final int turns) {
+		healer.healMissed(this, turns);
+	}
+
+	/**
+	 * Without players in the zone the logic of a creature only heals it,
+	 * which is caught up with {@link #healMissedTurns(int)}.
+	 */
+	@Override
+	public boolean isDormancyAllowed() {
+		return true;
+	}
+
 	@Override
 	public void logic() {
 		healer.heal(this);
@@ -93,6 +93,15 @@ public abstract class DomesticAnimal extends Creature {
 		setHP(storedHP);
 	}
 
+	/**
+	 * Domestic animals eat, grow and follow their owners without players
+	 * watching, so their logic keeps running in dormant zones.
+	 */
+	@Override
+	public boolean isDormancyAllowed() {
+		return false;
+	}
+
 	public void setOwner(final Player owner) {
 		this.owner = owner;
 		if (owner != null) {
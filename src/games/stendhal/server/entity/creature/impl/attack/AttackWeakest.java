@@ -12,8 +12,7 @@
  ***************************************************************************/
 package games.stendhal.server.entity.creature.impl.attack;
 
-import java.util.List;
-
+import games.stendhal.server.core.engine.NearbyEntities;
 import games.stendhal.server.entity.RPEntity;
 import games.stendhal.server.entity.creature.AttackableCreature;
 import games.stendhal.server.entity.creature.Creature;
@@ -45,12 +44,11 @@ public class AttackWeakest extends HandToHand {
 	 *         keeping the current target if that is the optimal one
 	 */
 	private boolean attackWeakest(Creature creature) {
-		// create list of possible enemies
-		final List<RPEntity> enemyList = creature.getEnemyList();
-		if (enemyList.isEmpty()) {
-			return false;
-		}
-
+		// possible enemies. The attack strategies can not attack anything
+		// beyond their range, or beyond the next tile when fighting hand to
+		// hand
+		final AttackStrategy strategy = creature.getAttackStrategy();
+		final NearbyEntities<RPEntity> enemies = creature.getEnemiesNear(Math.max(1, strategy.getRange()));
 		RPEntity target = null;
 
 		if (creature.isAttacking() && isPreferredTarget(creature.getAttackTarget())) {
@@ -65,13 +63,13 @@ public class AttackWeakest extends HandToHand {
 			level = 1000;
 		}
 
-		for (final RPEntity enemy : enemyList) {
+		for (int i = 0; i < enemies.size(); i++) {
+			final RPEntity enemy = enemies.get(i);
 			if (!isPreferredTarget(enemy)) {
 				continue;
 			}
 
-			if (creature.getAttackStrategy().canAttackNow(creature, enemy)
-					&& !enemy.isInvisibleToCreatures()) {
+			if (strategy.canAttackNow(creature, enemy)) {
 				/*
 				 * Use level as an approximation of the strength. Prefer keeping
 				 * the current target if the enemies are equally strong.
@@ -82,6 +80,7 @@ public class AttackWeakest extends HandToHand {
 				}
 			}
 		}
+		enemies.clear();
 
 		if (target != null) {
 			if (target != creature.getAttackTarget()) {
@@ -40,4 +40,18 @@ class Healer implements HealerBehavior {
 
 	}
 
+	@Override
+	public void healMissed(final Creature creature, final int turns) {
+		if ((turns <= 0) || (creature.getHP() <= 0)) {
+			return;
+		}
+		// healing turns in [currentTurn - turns, currentTurn)
+		final int currentTurn = SingletonRepository.getRuleProcessor().getTurn();
+		final long heals = Math.floorDiv(currentTurn - 1, frequency)
+				- Math.floorDiv(currentTurn - turns - 1, frequency);
+		if (heals > 0) {
+			creature.heal((int) Math.min(Integer.MAX_VALUE, heals * amount));
+		}
+	}
+
 }
@@ -18,4 +18,12 @@ public interface HealerBehavior {
 	void init(String healingProfile);
 	void heal(Creature creature);
 
+	/**
+	 * Give the healing of turns that were skipped.
+	 *
+	 * @param creature healed creature
+	 * @param turns amount of skipped turns before the current one
+	 */
+	void healMissed(Creature creature, int turns);
+
 }
@@ -22,6 +22,11 @@ final class NonHealingBehaviour implements HealerBehavior {
 		// does not heal;
 	}
 
+	@Override
+	public void healMissed(final Creature creature, final int turns) {
+		// does not heal;
+	}
+
 	@Override
 	public void init(final String healingProfile) {
 		// does not need init
@@ -12,8 +12,7 @@
  ***************************************************************************/
 package games.stendhal.server.entity.item;
 
-import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -67,8 +66,23 @@ public class Item extends PassiveEntity implements TurnListener, EquipListener,
 	// 10 minutes
 	public static final int DEGRADATION_TIMEOUT = 10 * MathHelper.SECONDS_IN_ONE_MINUTE;
 
+	/**
+	 * Attribute values of the numbers 0 to 1023. Items keep their numbers as
+	 * strings, and most of them are small, like positions, sizes and
+	 * quantities, so all items share the same strings for them.
+	 */
+	private static final String[] NUMBERS = new String[1024];
+	static {
+		for (int i = 0; i < NUMBERS.length; i++) {
+			NUMBERS[i] = Integer.toString(i);
+		}
+	}
+
 
-	/** list of possible slots for this item. */
+	/**
+	 * list of possible slots for this item. The list is shared with the item
+	 * definition and copies of the item, and must not be modified.
+	 */
 	private List<String> possibleSlots;
 
 	/**
@@ -127,8 +141,7 @@ public class Item extends PassiveEntity implements TurnListener, EquipListener,
 	private Item() {
 		setRPClass("item");
 		put("type", "item");
-		possibleSlots = new LinkedList<String>();
-		update();
+		possibleSlots = Collections.emptyList();
 	}
 
 	/**
@@ -140,11 +153,70 @@ public class Item extends PassiveEntity implements TurnListener, EquipListener,
 	public Item(final Item item) {
 		super(item);
 		setRPClass("item");
-		possibleSlots = new ArrayList<String>(item.possibleSlots);
+		possibleSlots = item.possibleSlots;
 		damageType = item.damageType;
 		susceptibilities = item.susceptibilities;
 	}
 
+	@Override
+	public void put(final String attribute, final int value) {
+		if ((value >= 0) && (value < NUMBERS.length)) {
+			put(attribute, NUMBERS[value]);
+		} else {
+			super.put(attribute, value);
+		}
+	}
+
+	@Override
+	public void put(final String attribute, final String value) {
+		super.put(attribute, value);
+		if (isCombatAttribute(attribute)) {
+			combatAttributeChanged();
+		}
+	}
+
+	@Override
+	public String remove(final String attribute) {
+		final String res = super.remove(attribute);
+		if (isCombatAttribute(attribute)) {
+			combatAttributeChanged();
+		}
+		return res;
+	}
+
+	/**
+	 * Check if an attribute is used for the combat values of the entity
+	 * that has the item equipped.
+	 *
+	 * @param attribute attribute name
+	 * @return <code>true</code> if changing the attribute changes the
+	 * 	combat values
+	 */
+	private static boolean isCombatAttribute(final String attribute) {
+		switch (attribute) {
+		case "atk":
+		case "def":
+		case "ratk":
+		case "deterioration":
+		case "min_level":
+		case "class":
+		case "name":
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * Let the entity holding this item compute its combat values again.
+	 */
+	private void combatAttributeChanged() {
+		final RPObject owner = getContainer();
+		if (owner instanceof RPEntity) {
+			((RPEntity) owner).invalidateEquipmentStats();
+		}
+	}
+
 	public static void generateRPClass() {
 		final RPClass entity = new RPClass("item");
 		entity.isA("entity");
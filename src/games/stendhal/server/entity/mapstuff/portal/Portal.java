@@ -114,6 +114,7 @@ public class Portal extends Entity implements UseListener {
 	 */
 	public void setIdentifier(final Object reference) {
 		this.identifier = reference;
+		notifyZone();
 	}
 
 	/**
@@ -146,6 +147,18 @@ public class Portal extends Entity implements UseListener {
 		this.destinationReference = reference;
 		this.destinationZone = zone;
 		this.isDestinationSet = true;
+		notifyZone();
+	}
+
+	/**
+	 * Tell the zone about a change of the identifier or destination, so that
+	 * it can update its portal lookups.
+	 */
+	private void notifyZone() {
+		final StendhalRPZone zone = getZone();
+		if (zone != null) {
+			zone.notifyPortalChanged(this);
+		}
 	}
 
 	public Object getDestinationReference() {
@@ -82,6 +82,12 @@ public class CreatureRespawnPoint implements TurnListener {
 	 */
 	private int respawnTime;
 
+	/**
+	 * Dormant turn count of the zone when a respawn was put off because the
+	 * zone was dormant, or -1 if no respawn is waiting for the zone to wake up.
+	 */
+	private int deferredAt = -1;
+
 	/**
 	 * Creates a new RespawnPoint.
 	 *
@@ -169,10 +175,41 @@ public class CreatureRespawnPoint implements TurnListener {
 	 */
 	@Override
 	public void onTurnReached(final int currentTurn) {
+		if (zone.isDormant()) {
+			// Nobody would see the creature. Respawn when the zone wakes up.
+			deferredAt = zone.getDormantTurns();
+			return;
+		}
 		respawn();
+		scheduleNextRespawn();
+	}
+
+	/**
+	 * Do the respawns that were put off while the zone was dormant. Besides
+	 * the delayed respawn, one creature is spawned for each respawn time that
+	 * passed after it.
+	 */
+	public void catchUp() {
+		if (deferredAt < 0) {
+			return;
+		}
+		final int elapsed = zone.getDormantTurns() - deferredAt;
+		deferredAt = -1;
+		int count = 1 + elapsed / Math.max(respawnTime, 1);
+		while ((count > 0) && (creatures.size() < maximum)) {
+			respawn();
+			count--;
+		}
+		scheduleNextRespawn();
+	}
 
+	/**
+	 * Stop respawning if the respawn point is full, or schedule the next
+	 * respawn.
+	 */
+	private void scheduleNextRespawn() {
 		// Is this all or should we spawn more creatures?
-		if (creatures.size() == maximum) {
+		if (creatures.size() >= maximum) {
 			respawning = false;
 		} else {
 			SingletonRepository.getTurnNotifier().notifyInTurns(
@@ -288,7 +325,9 @@ public class CreatureRespawnPoint implements TurnListener {
 		if (creatures.size() < maximum) {
 			SingletonRepository.getTurnNotifier().dontNotify(this);
 			//SingletonRepository.getTurnNotifier().notifyInTurns(1, this);
-			onTurnReached(0);
+			deferredAt = -1;
+			respawn();
+			scheduleNextRespawn();
 		}
 	}
 }
@@ -301,6 +301,17 @@ public abstract class NPC extends DressedEntity {
         }
 	}
 
+	/**
+	 * Check if the logic of the NPC may be skipped while its zone is dormant.
+	 * NPCs that allow it must catch up the skipped turns when the zone wakes
+	 * up.
+	 *
+	 * @return <code>true</code> if the logic can be skipped
+	 */
+	public boolean isDormancyAllowed() {
+		return false;
+	}
+
 	@Override
 	public void logic() {
 	    if (atMovementRadius()) {
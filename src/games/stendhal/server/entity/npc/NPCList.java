@@ -20,6 +20,9 @@ import java.util.TreeSet;
 
 import org.apache.log4j.Logger;
 
+import games.stendhal.server.core.rp.searchindex.SearchIndex;
+import games.stendhal.server.core.rp.searchindex.SearchIndexEntryType;
+
 /**
  * This Singleton should contain all NPCs in the Stendhal world that are unique.
  */
@@ -93,6 +96,7 @@ public class NPCList implements Iterable<SpeakerNPC> {
 					+ npc.getName());
 		} else {
 			contents.put(name, npc);
+			SearchIndex.get().invalidate(SearchIndexEntryType.NPC, npc.getName());
 		}
 	}
 
@@ -105,7 +109,11 @@ public class NPCList implements Iterable<SpeakerNPC> {
 	 * @return SpeakerNPC or null in case it was not in the list
 	 */
 	public SpeakerNPC remove(final String name) {
-		return contents.remove(name.toLowerCase());
+		final SpeakerNPC npc = contents.remove(name.toLowerCase());
+		if (npc != null) {
+			SearchIndex.get().invalidate(SearchIndexEntryType.NPC, npc.getName());
+		}
+		return npc;
 	}
 
 	/**
@@ -122,6 +130,9 @@ public class NPCList implements Iterable<SpeakerNPC> {
 	 * Removes all NPCs from this list.
 	 */
 	public void clear() {
+		for (final SpeakerNPC npc : contents.values()) {
+			SearchIndex.get().invalidate(SearchIndexEntryType.NPC, npc.getName());
+		}
 		contents.clear();
 	}
 
@@ -1,6 +1,7 @@
 // $Id$
 package games.stendhal.server.entity.npc.behaviour.impl;
 
+import java.awt.Point;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -187,9 +188,14 @@ public class TeleporterBehaviour implements TurnListener {
 		int y = -1;
 		while (!found) {
 			zone = zones.get(Rand.rand(zones.size()));
-			x = Rand.rand(zone.getWidth() - 4) + 2;
-			y = Rand.rand(zone.getHeight() - 5) + 2;
-			if (!zone.collides(x, y) && !zone.collides(x, y + 1)) {
+			final Point position = zone.getRandomFreePosition();
+			if (position == null) {
+				continue;
+			}
+			x = position.x;
+			y = position.y;
+			if ((x >= 2) && (x < zone.getWidth() - 2) && (y >= 2) && (y < zone.getHeight() - 3)
+					&& !zone.collides(x, y + 1)) {
 				speakerNPC.setPosition(x, y);
 				speakerNPC.setDirection(Direction.RIGHT);
 
@@ -13,11 +13,14 @@
 package games.stendhal.server.entity.npc.condition;
 
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 
 import games.stendhal.common.parser.Sentence;
 import games.stendhal.server.core.config.annotations.Dev;
 import games.stendhal.server.core.config.annotations.Dev.Category;
+import games.stendhal.server.core.rp.achievement.CounterCondition;
+import games.stendhal.server.core.rp.achievement.PlayerCounters;
 import games.stendhal.server.entity.Entity;
 import games.stendhal.server.entity.npc.ChatCondition;
 import games.stendhal.server.entity.player.Player;
@@ -27,7 +30,7 @@ import games.stendhal.server.entity.player.Player;
  * It evaluates to <code>true</code>, iff each condition evaluates to true.
  */
 @Dev(category=Category.LOGIC, label="And")
-public class AndCondition implements ChatCondition {
+public class AndCondition implements ChatCondition, CounterCondition {
 
 	private final List<ChatCondition> conditions;
 
@@ -57,6 +60,11 @@ public class AndCondition implements ChatCondition {
 		return conditions.toString();
 	}
 
+	@Override
+	public Collection<String> getCounters() {
+		return PlayerCounters.of(conditions);
+	}
+
 	@Override
 	public int hashCode() {
 		return 43613 * conditions.hashCode();
@@ -14,9 +14,13 @@ package games.stendhal.server.entity.npc.condition;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.util.Collection;
+
 import games.stendhal.common.parser.Sentence;
 import games.stendhal.server.core.config.annotations.Dev;
 import games.stendhal.server.core.config.annotations.Dev.Category;
+import games.stendhal.server.core.rp.achievement.CounterCondition;
+import games.stendhal.server.core.rp.achievement.PlayerCounters;
 import games.stendhal.server.entity.Entity;
 import games.stendhal.server.entity.npc.ChatCondition;
 import games.stendhal.server.entity.player.Player;
@@ -25,7 +29,7 @@ import games.stendhal.server.entity.player.Player;
  * An inverse condition.
  */
 @Dev(category=Category.LOGIC, label="Not")
-public class NotCondition implements ChatCondition {
+public class NotCondition implements ChatCondition, CounterCondition {
 
 	private final ChatCondition condition;
 
@@ -49,6 +53,11 @@ public class NotCondition implements ChatCondition {
 		return "NOT <" + condition + ">";
 	}
 
+	@Override
+	public Collection<String> getCounters() {
+		return PlayerCounters.of(condition);
+	}
+
 	@Override
 	public int hashCode() {
 		return 43777 * condition.hashCode();
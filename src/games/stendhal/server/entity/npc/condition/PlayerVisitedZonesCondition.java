@@ -12,6 +12,8 @@
  ***************************************************************************/
 package games.stendhal.server.entity.npc.condition;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -20,6 +22,8 @@ import games.stendhal.server.core.config.annotations.Dev;
 import games.stendhal.server.core.config.annotations.Dev.Category;
 import games.stendhal.server.core.engine.SingletonRepository;
 import games.stendhal.server.core.engine.StendhalRPZone;
+import games.stendhal.server.core.rp.achievement.CounterCondition;
+import games.stendhal.server.core.rp.achievement.PlayerCounters;
 import games.stendhal.server.entity.Entity;
 import games.stendhal.server.entity.npc.ChatCondition;
 import games.stendhal.server.entity.player.Player;
@@ -29,7 +33,7 @@ import games.stendhal.server.entity.player.Player;
  * @author madmetzger
  */
 @Dev(category=Category.LOCATION, label="Zone?")
-public class PlayerVisitedZonesCondition implements ChatCondition {
+public class PlayerVisitedZonesCondition implements ChatCondition, CounterCondition {
 
 	private final List<String> zoneNames;
 
@@ -58,6 +62,15 @@ public class PlayerVisitedZonesCondition implements ChatCondition {
 		return true;
 	}
 
+	@Override
+	public Collection<String> getCounters() {
+		final List<String> res = new ArrayList<String>();
+		for (final String zone : zoneNames) {
+			res.add(PlayerCounters.zone(zone));
+		}
+		return res;
+	}
+
 	@Override
 	public int hashCode() {
 		return 44029 * zoneNames.hashCode();
@@ -23,6 +23,8 @@ import games.stendhal.server.core.config.annotations.Dev;
 import games.stendhal.server.core.config.annotations.Dev.Category;
 import games.stendhal.server.core.engine.SingletonRepository;
 import games.stendhal.server.core.engine.StendhalRPZone;
+import games.stendhal.server.core.rp.achievement.CounterCondition;
+import games.stendhal.server.core.rp.achievement.PlayerCounters;
 import games.stendhal.server.entity.Entity;
 import games.stendhal.server.entity.npc.ChatCondition;
 import games.stendhal.server.entity.player.Player;
@@ -33,7 +35,7 @@ import games.stendhal.server.entity.player.Player;
  */
 // TODO: Replace Boolean with a 3 state enum
 @Dev(category=Category.IGNORE, label="Zone?")
-public class PlayerVisitedZonesInRegionCondition implements ChatCondition {
+public class PlayerVisitedZonesInRegionCondition implements ChatCondition, CounterCondition {
 
 	private final String region;
 
@@ -82,6 +84,11 @@ public class PlayerVisitedZonesInRegionCondition implements ChatCondition {
 		return true;
 	}
 
+	@Override
+	public Collection<String> getCounters() {
+		return PlayerCounters.of(PlayerCounters.region(region));
+	}
+
 	@Override
 	public int hashCode() {
 		return 45763 * region.hashCode();
@@ -14,9 +14,13 @@ package games.stendhal.server.entity.npc.condition;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.util.Collection;
+
 import games.stendhal.common.parser.Sentence;
 import games.stendhal.server.core.config.annotations.Dev;
 import games.stendhal.server.core.config.annotations.Dev.Category;
+import games.stendhal.server.core.rp.achievement.CounterCondition;
+import games.stendhal.server.core.rp.achievement.PlayerCounters;
 import games.stendhal.server.entity.Entity;
 import games.stendhal.server.entity.npc.ChatCondition;
 import games.stendhal.server.entity.player.Player;
@@ -25,7 +29,7 @@ import games.stendhal.server.entity.player.Player;
  * Was this quest started but not completed?
  */
 @Dev(category=Category.QUEST_SLOT, label="Active?")
-public class QuestActiveCondition implements ChatCondition {
+public class QuestActiveCondition implements ChatCondition, CounterCondition {
 
 	private final String questname;
 
@@ -50,6 +54,11 @@ public class QuestActiveCondition implements ChatCondition {
 		return "QuestActive <" + questname + ">";
 	}
 
+	@Override
+	public Collection<String> getCounters() {
+		return PlayerCounters.of(PlayerCounters.quest(questname));
+	}
+
 	@Override
 	public int hashCode() {
 		return 45767 * questname.hashCode();
@@ -14,9 +14,13 @@ package games.stendhal.server.entity.npc.condition;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.util.Collection;
+
 import games.stendhal.common.parser.Sentence;
 import games.stendhal.server.core.config.annotations.Dev;
 import games.stendhal.server.core.config.annotations.Dev.Category;
+import games.stendhal.server.core.rp.achievement.CounterCondition;
+import games.stendhal.server.core.rp.achievement.PlayerCounters;
 import games.stendhal.server.entity.Entity;
 import games.stendhal.server.entity.npc.ChatCondition;
 import games.stendhal.server.entity.player.Player;
@@ -25,7 +29,7 @@ import games.stendhal.server.entity.player.Player;
  * Is this quest not in this state?
  */
 @Dev(category=Category.IGNORE, label="State?")
-public class QuestNotInStateCondition implements ChatCondition {
+public class QuestNotInStateCondition implements ChatCondition, CounterCondition {
 
 	private final String questname;
 	private final String state;
@@ -78,6 +82,11 @@ public class QuestNotInStateCondition implements ChatCondition {
 		return "QuestNotInState <" + questname + "[" + index + "] = " + state + ">";
 	}
 
+	@Override
+	public Collection<String> getCounters() {
+		return PlayerCounters.of(PlayerCounters.quest(questname));
+	}
+
 	@Override
 	public int hashCode() {
 		return 45833 * questname.hashCode() + 45841 * index + state.hashCode();
@@ -14,9 +14,13 @@ package games.stendhal.server.entity.npc.condition;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.util.Collection;
+
 import games.stendhal.common.parser.Sentence;
 import games.stendhal.server.core.config.annotations.Dev;
 import games.stendhal.server.core.config.annotations.Dev.Category;
+import games.stendhal.server.core.rp.achievement.CounterCondition;
+import games.stendhal.server.core.rp.achievement.PlayerCounters;
 import games.stendhal.server.entity.Entity;
 import games.stendhal.server.entity.npc.ChatCondition;
 import games.stendhal.server.entity.player.Player;
@@ -25,7 +29,7 @@ import games.stendhal.server.entity.player.Player;
  * Was this quest at least started? See QuestActiveCondition to check that it was started but not completed.
  */
 @Dev(category=Category.QUEST_SLOT, label="Started?")
-public class QuestStartedCondition implements ChatCondition {
+public class QuestStartedCondition implements ChatCondition, CounterCondition {
 
 	private final String questname;
 
@@ -49,6 +53,11 @@ public class QuestStartedCondition implements ChatCondition {
 		return "QuestStarted <" + questname + ">";
 	}
 
+	@Override
+	public Collection<String> getCounters() {
+		return PlayerCounters.of(PlayerCounters.quest(questname));
+	}
+
 	@Override
 	public int hashCode() {
 		return 45893 * questname.hashCode();
@@ -14,10 +14,14 @@ package games.stendhal.server.entity.npc.condition;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.util.Collection;
+
 import games.stendhal.common.MathHelper;
 import games.stendhal.common.parser.Sentence;
 import games.stendhal.server.core.config.annotations.Dev;
 import games.stendhal.server.core.config.annotations.Dev.Category;
+import games.stendhal.server.core.rp.achievement.CounterCondition;
+import games.stendhal.server.core.rp.achievement.PlayerCounters;
 import games.stendhal.server.entity.Entity;
 import games.stendhal.server.entity.npc.ChatCondition;
 import games.stendhal.server.entity.player.Player;
@@ -27,7 +31,7 @@ import games.stendhal.server.entity.player.Player;
  * @author madmetzger
  */
 @Dev(category=Category.QUEST_SLOT, label="State?")
-public class QuestStateGreaterThanCondition implements ChatCondition {
+public class QuestStateGreaterThanCondition implements ChatCondition, CounterCondition {
 
 	/**
 	 * expected value to compare against
@@ -70,6 +74,11 @@ public class QuestStateGreaterThanCondition implements ChatCondition {
 		return false;
 	}
 
+	@Override
+	public Collection<String> getCounters() {
+		return PlayerCounters.of(PlayerCounters.quest(questname));
+	}
+
 	@Override
 	public int hashCode() {
 		return 45943 * questname.hashCode() + 45949 * index + 45953 * expectedSmallerValue;
@@ -14,9 +14,13 @@ package games.stendhal.server.entity.npc.condition;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.util.Collection;
+
 import games.stendhal.common.parser.Sentence;
 import games.stendhal.server.core.config.annotations.Dev;
 import games.stendhal.server.core.config.annotations.Dev.Category;
+import games.stendhal.server.core.rp.achievement.CounterCondition;
+import games.stendhal.server.core.rp.achievement.PlayerCounters;
 import games.stendhal.server.entity.Entity;
 import games.stendhal.server.entity.npc.ChatCondition;
 import games.stendhal.server.entity.player.Player;
@@ -25,7 +29,7 @@ import games.stendhal.server.entity.player.Player;
  * Does the quest state start with the specified String?
  */
 @Dev(category=Category.CHAT, label="State?")
-public class QuestStateStartsWithCondition implements ChatCondition {
+public class QuestStateStartsWithCondition implements ChatCondition, CounterCondition {
 
 	private final String questname;
 	private final String state;
@@ -53,6 +57,11 @@ public class QuestStateStartsWithCondition implements ChatCondition {
 		return "QuestStateStartsWith <" + questname + "," + state + ">";
 	}
 
+	@Override
+	public Collection<String> getCounters() {
+		return PlayerCounters.of(PlayerCounters.quest(questname));
+	}
+
 	@Override
 	public int hashCode() {
 		return 47123 * questname.hashCode() + state.hashCode();
@@ -36,9 +36,18 @@ public class Engine {
 	// FSM state transition table
 	private final List<Transition> stateTransitionTable = new LinkedList<Transition>();
 
+	// index of the transition table, created on first use after a change
+	private TransitionIndex transitionIndex;
+
 	// current FSM state
 	private ConversationStates currentState = ConversationStates.IDLE;
 
+	/**
+	 * Whether the transition index is used. A complete scan of the transition
+	 * table gives the same results, and is only used to compare the two.
+	 */
+	private boolean indexEnabled = true;
+
 	/**
 	 * Creates a new FSM.
 	 *
@@ -53,6 +62,16 @@ public class Engine {
 		this.speakerNPC = speakerNPC;
 	}
 
+	/**
+	 * Sets whether the transition index is used, to compare it with a scan
+	 * of the transition table.
+	 *
+	 * @param enabled <code>false</code> to scan the whole transition table
+	 */
+	void setIndexEnabled(final boolean enabled) {
+		indexEnabled = enabled;
+	}
+
 	/**
 	 * Looks for an already registered exactly matching transition.
 	 *
@@ -277,6 +296,7 @@ public class Engine {
 			boolean secondary, final ConversationStates nextState, final String reply, final ChatAction action, final String label) {
 		if (triggerExpressions!=null && !triggerExpressions.isEmpty()) {
 			stateTransitionTable.add(new Transition(state, triggerExpressions, condition, secondary, nextState, reply, action, label));
+			transitionIndex = null;
 		}
 	}
 
@@ -302,6 +322,7 @@ public class Engine {
 			boolean secondary, final ConversationStates nextState, final String reply, final ChatAction action) {
 		if (triggerExpressions!=null && !triggerExpressions.isEmpty()) {
 			stateTransitionTable.add(new Transition(state, triggerExpressions, condition, secondary, nextState, reply, action));
+			transitionIndex = null;
 		}
 	}
 
@@ -324,6 +345,7 @@ public class Engine {
 			if (transition.checkLabel(label)) {
 				itr.remove();
 				res = true;
+				transitionIndex = null;
 			}
 		}
 		return res;
@@ -515,16 +537,23 @@ public class Engine {
 	private boolean matchTransition(final MatchType type, final Player player,
 			final Sentence sentence) {
 		// We are using sets instead of plain lists to merge identical transitions.
-		final TransitionSet preferredTransitions = new TransitionSet();
-		final TransitionSet secondaryTransitions = new TransitionSet();
+		// They are only created if there is a matching transition.
+		TransitionSet preferredTransitions = null;
+		TransitionSet secondaryTransitions = null;
 
-		// match with all the registered transitions
-		for (final Transition transition : stateTransitionTable) {
+		// match with the registered transitions, which may match the input
+		for (final Transition transition : getCandidates(type, sentence)) {
 			if (matchesTransition(type, sentence, transition)) {
 				if (transition.isConditionFulfilled(player, sentence, speakerNPC)) {
 					if (transition.isPreferred()) {
+						if (preferredTransitions == null) {
+							preferredTransitions = new TransitionSet();
+						}
 						preferredTransitions.add(transition);
 					} else {
+						if (secondaryTransitions == null) {
+							secondaryTransitions = new TransitionSet();
+						}
 						secondaryTransitions.add(transition);
 					}
 				}
@@ -534,7 +563,7 @@ public class Engine {
 		Iterator<Transition> it = null;
 
 		// First we try to use one of the a preferred transitions (mainly with existing condition).
-		if (preferredTransitions.size() > 0) {
+		if (preferredTransitions != null) {
 			it = preferredTransitions.iterator();
 
 			if (preferredTransitions.size() > 1) {
@@ -547,7 +576,7 @@ public class Engine {
 		}
 
 		// Then look for the remaining transitions.
-		if ((it == null) && (secondaryTransitions.size() > 0)) {
+		if ((it == null) && (secondaryTransitions != null)) {
 			it = secondaryTransitions.iterator();
 
 			if (secondaryTransitions.size() > 1) {
@@ -570,6 +599,24 @@ public class Engine {
 		}
 	}
 
+	/**
+	 * Gets the transitions, which may match the sentence, in the order of the
+	 * transition table.
+	 *
+	 * @param type
+	 * @param sentence
+	 * @return transitions to check
+	 */
+	private List<Transition> getCandidates(final MatchType type, final Sentence sentence) {
+		if (!indexEnabled) {
+			return stateTransitionTable;
+		}
+		if (transitionIndex == null) {
+			transitionIndex = new TransitionIndex(stateTransitionTable);
+		}
+		return transitionIndex.getCandidates(type, currentState, sentence.getTriggerExpression());
+	}
+
 	/**
 	 * Look for a match between given sentence and transition in the current state.
 	 * TODO mf - refactor match type handling
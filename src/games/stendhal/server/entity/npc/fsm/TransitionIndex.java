@@ -0,0 +1,184 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.entity.npc.fsm;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import games.stendhal.common.parser.Expression;
+import games.stendhal.server.entity.npc.ConversationStates;
+
+/**
+ * Index of the transitions of an Engine by source state and trigger.
+ * <p>
+ * For each state, the transitions are grouped by the original and by the
+ * normalized form of their triggers, so that exact and normalized matches only
+ * have to look at the transitions with the same trigger. Transitions with an
+ * ExpressionMatcher (e.g. joker matches) cannot be looked up by key. They are
+ * part of every group of their state and are returned on a miss. Similar
+ * matches look at all transitions of the state.
+ * <p>
+ * All returned lists keep the order of the transition table, so the caller
+ * checks the same transitions and conditions in the same order as a complete
+ * scan would. The returned candidates still have to be checked with
+ * MatchType.match().
+ */
+class TransitionIndex {
+	private final Map<ConversationStates, StateTransitions> states =
+			new EnumMap<ConversationStates, StateTransitions>(ConversationStates.class);
+
+	/**
+	 * Creates the index of a transition table.
+	 *
+	 * @param transitions transition table
+	 */
+	TransitionIndex(final List<Transition> transitions) {
+		// first collect the keys, so that the transitions with matchers
+		// can be added to all groups in table order
+		for (final Transition transition : transitions) {
+			final StateTransitions entry = getOrCreate(transition.getState());
+			for (final Expression trigger : transition.getTriggers()) {
+				if (trigger.getMatcher() == null) {
+					entry.createGroup(entry.byOriginal, trigger.getOriginal());
+					entry.createGroup(entry.byNormalized, trigger.getNormalized());
+				}
+			}
+		}
+
+		for (final Transition transition : transitions) {
+			states.get(transition.getState()).add(transition);
+		}
+	}
+
+	/**
+	 * Gets the transitions, which may match the input.
+	 *
+	 * @param type type of match
+	 * @param currentState current state
+	 * @param trigger trigger expression of the input
+	 * @return candidates in table order
+	 */
+	List<Transition> getCandidates(final MatchType type, final ConversationStates currentState, final Expression trigger) {
+		switch (type) {
+		case EXACT_MATCH:
+			return lookup(currentState, trigger.getOriginal(), false);
+		case NORMALIZED_MATCH:
+			return lookup(currentState, trigger.getNormalized(), true);
+		case ABSOLUTE_JUMP:
+			return lookup(ConversationStates.ANY, trigger.getOriginal(), false);
+		case NORMALIZED_JUMP:
+			return lookup(ConversationStates.ANY, trigger.getNormalized(), true);
+		case SIMILAR_MATCH:
+			return all(currentState);
+		case SIMILAR_JUMP:
+			return all(ConversationStates.ANY);
+		default:
+			// unknown match types have to check everything
+			final List<Transition> res = new ArrayList<Transition>();
+			for (final StateTransitions entry : states.values()) {
+				res.addAll(entry.all);
+			}
+			return res;
+		}
+	}
+
+	private List<Transition> lookup(final ConversationStates state, final String key, final boolean normalized) {
+		final StateTransitions entry = states.get(state);
+		if (entry == null) {
+			return Collections.emptyList();
+		}
+		final List<Transition> group;
+		if (normalized) {
+			group = entry.byNormalized.get(key);
+		} else {
+			group = entry.byOriginal.get(key);
+		}
+		if (group == null) {
+			return entry.withMatcher;
+		}
+		return group;
+	}
+
+	private List<Transition> all(final ConversationStates state) {
+		final StateTransitions entry = states.get(state);
+		if (entry == null) {
+			return Collections.emptyList();
+		}
+		return entry.all;
+	}
+
+	private StateTransitions getOrCreate(final ConversationStates state) {
+		StateTransitions entry = states.get(state);
+		if (entry == null) {
+			entry = new StateTransitions();
+			states.put(state, entry);
+		}
+		return entry;
+	}
+
+	/**
+	 * transitions starting at one state
+	 */
+	private static class StateTransitions {
+		final List<Transition> all = new ArrayList<Transition>();
+		final List<Transition> withMatcher = new ArrayList<Transition>();
+		final Map<String, List<Transition>> byOriginal = new HashMap<String, List<Transition>>();
+		final Map<String, List<Transition>> byNormalized = new HashMap<String, List<Transition>>();
+
+		void createGroup(final Map<String, List<Transition>> groups, final String key) {
+			if (!groups.containsKey(key)) {
+				groups.put(key, new ArrayList<Transition>());
+			}
+		}
+
+		void add(final Transition transition) {
+			all.add(transition);
+
+			boolean hasMatcher = false;
+			final Set<String> originals = new HashSet<String>();
+			final Set<String> normalized = new HashSet<String>();
+			for (final Expression trigger : transition.getTriggers()) {
+				if (trigger.getMatcher() == null) {
+					originals.add(trigger.getOriginal());
+					normalized.add(trigger.getNormalized());
+				} else {
+					hasMatcher = true;
+				}
+			}
+
+			if (hasMatcher) {
+				withMatcher.add(transition);
+				addToAll(byOriginal, transition);
+				addToAll(byNormalized, transition);
+			} else {
+				for (final String key : originals) {
+					byOriginal.get(key).add(transition);
+				}
+				for (final String key : normalized) {
+					byNormalized.get(key).add(transition);
+				}
+			}
+		}
+
+		private static void addToAll(final Map<String, List<Transition>> groups, final Transition transition) {
+			for (final List<Transition> group : groups.values()) {
+				group.add(transition);
+			}
+		}
+	}
+}
@@ -28,7 +28,6 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map.Entry;
-import java.util.Random;
 import java.util.Set;
 
 import org.apache.log4j.Logger;
@@ -38,6 +37,7 @@ import games.stendhal.common.ItemTools;
 import games.stendhal.common.KeyedSlotUtil;
 import games.stendhal.common.Level;
 import games.stendhal.common.NotificationType;
+import games.stendhal.common.Rand;
 import games.stendhal.common.TradeState;
 import games.stendhal.common.Version;
 import games.stendhal.common.constants.Nature;
@@ -49,12 +49,14 @@ import games.stendhal.common.parser.WordList;
 import games.stendhal.server.core.engine.GameEvent;
 import games.stendhal.server.core.engine.SingletonRepository;
 import games.stendhal.server.core.engine.StendhalRPZone;
+import games.stendhal.server.core.engine.ZoneLogicRunner;
 import games.stendhal.server.core.events.TurnListener;
 import games.stendhal.server.core.events.TurnNotifier;
 import games.stendhal.server.core.events.TutorialNotifier;
 import games.stendhal.server.core.events.UseListener;
 import games.stendhal.server.core.rp.StendhalRPAction;
 import games.stendhal.server.core.rp.achievement.AchievementNotifier;
+import games.stendhal.server.core.rp.achievement.ReachedAchievements;
 import games.stendhal.server.entity.DressedEntity;
 import games.stendhal.server.entity.Entity;
 import games.stendhal.server.entity.Killer;
@@ -83,11 +85,6 @@ public class Player extends DressedEntity implements UseListener {
 	/** the logger instance. */
 	private static final Logger logger = Logger.getLogger(Player.class);
 
-	/**
-	 * A random generator (for karma payout).
-	 */
-	private static final Random KARMA_RANDOMIZER = new Random();
-
 	/**
 	 * Currently active client directions (in oldest-newest order).
 	 */
@@ -132,7 +129,7 @@ public class Player extends DressedEntity implements UseListener {
 	/**
 	 * all identifiers of reached achievements, filled on login of player
 	 */
-	private Set<String> reachedAchievements;
+	private ReachedAchievements reachedAchievements;
 
 	/**
 	 * preferred language
@@ -556,7 +553,7 @@ public class Player extends DressedEntity implements UseListener {
 		/*
 		 * Give at least 20% of possible payout
 		 */
-		score = (0.2 + KARMA_RANDOMIZER.nextDouble() * 0.8) * limit;
+		score = (0.2 + Rand.rand() * 0.8) * limit;
 
 		/*
 		 * Clip to granularity. Use floor() instead of round() so that the
@@ -1573,11 +1570,34 @@ public class Player extends DressedEntity implements UseListener {
 	 *            The player who initiated the teleporting, or null if no player
 	 *            is responsible. This is only to give feedback if something
 	 *            goes wrong. If no feedback is wanted, use null.
-	 * @return <code>true</code> if teleporting was successful.
+	 * @return <code>true</code> if teleporting was successful, or has been
+	 *            deferred to the end of the zone logic of the turn.
 	 */
 	public boolean teleport(final StendhalRPZone zone, final int x,
 			final int y, final Direction dir, final Player teleporter) {
-		if (StendhalRPAction.placeat(zone, this, x, y)) {
+		final StendhalRPAction.Placement placement = StendhalRPAction.place(zone, this, x, y, null);
+		if (placement == StendhalRPAction.Placement.DEFERRED) {
+			ZoneLogicRunner.runOrDefer(new Runnable() {
+				@Override
+				public void run() {
+					// runs after the deferred placing
+					if (getZone() == zone) {
+						if (dir != null) {
+							setDirection(dir);
+						}
+						notifyWorldAboutChanges();
+					} else {
+						final String text = "Position [" + x + "," + y + "] is occupied";
+						if (teleporter != null) {
+							teleporter.sendPrivateText(text);
+						} else {
+							sendPrivateText(text);
+						}
+					}
+				}
+			});
+			return true;
+		} else if (placement == StendhalRPAction.Placement.PLACED) {
 			if (dir != null) {
 				this.setDirection(dir);
 			}
@@ -1792,6 +1812,10 @@ public class Player extends DressedEntity implements UseListener {
 		} else if (has(GHOSTMODE)) {
 			remove(GHOSTMODE);
 		}
+		if (getZone() != null) {
+			// ghosts do not resist movement
+			getZone().notifyObstacleChanged(this);
+		}
 	}
 
 	/**
@@ -1951,6 +1975,21 @@ public class Player extends DressedEntity implements UseListener {
 		return Version.compare(clientVersion, version) > 0;
 	}
 
+	/**
+	 * checks if the client is older than the requested version. Clients that
+	 * did not tell their version count as older.
+	 *
+	 * @param version
+	 *            requested version
+	 * @return check the client is older
+	 */
+	public boolean isClientOlderThan(String version) {
+		if (clientVersion == null) {
+			return true;
+		}
+		return Version.compare(clientVersion, version) < 0;
+	}
+
 	/**
 	 * gets a list of all rings of life that are not broken
 	 *
@@ -2142,29 +2181,7 @@ public class Player extends DressedEntity implements UseListener {
 
 	@Override
 	protected double getSusceptibility(Nature type) {
-		double sus = 1.0;
-		/*
-		 * check weapon and shield separately, so that holding 2 resistant
-		 * shields does not help
-		 */
-		Item weapon = getWeapon();
-		if (weapon != null) {
-			sus *= weapon.getSusceptibility(type);
-		}
-		Item shield = getShield();
-		if (shield != null) {
-			sus *= shield.getSusceptibility(type);
-		}
-
-		String[] armorSlots = { "armor", "head", "legs", "feet", "cloak" };
-		for (String slot : armorSlots) {
-			RPObject object = getSlot(slot).getFirst();
-			if (object instanceof Item) {
-				sus *= ((Item) object).getSusceptibility(type);
-			}
-		}
-
-		return sus;
+		return getEquipmentSusceptibility(type);
 	}
 
 	/**
@@ -2181,6 +2198,9 @@ public class Player extends DressedEntity implements UseListener {
 				|| !getMap("buddies").containsKey(name);
 
 		put("buddies", name, online);
+		if (isNew) {
+			SingletonRepository.getRuleProcessor().getPlayerPresence().buddyAdded(this, name);
+		}
 
 		return isNew;
 	}
@@ -2193,6 +2213,7 @@ public class Player extends DressedEntity implements UseListener {
 	 * @return true if a buddy was removed
 	 */
 	public boolean removeBuddy(String name) {
+		SingletonRepository.getRuleProcessor().getPlayerPresence().buddyRemoved(this, name);
 		return remove("buddies", name) != null;
 	}
 
@@ -2251,15 +2272,21 @@ public class Player extends DressedEntity implements UseListener {
 	 * @param identifier
 	 */
 	public void addReachedAchievement(String identifier) {
-		getAchievements().add(identifier);
+		getReachedAchievements().add(identifier);
 	}
 
-	private Set<String> getAchievements() {
+	/**
+	 * Gets the reached achievements.
+	 *
+	 * @return reached achievements, or <code>null</code> if they have not
+	 * 	been loaded yet
+	 */
+	public ReachedAchievements getReachedAchievements() {
 		return reachedAchievements;
 	}
 
 	public void initReachedAchievements() {
-		reachedAchievements = new HashSet<String>();
+		reachedAchievements = new ReachedAchievements();
 	}
 
 	/**
@@ -2279,8 +2306,8 @@ public class Player extends DressedEntity implements UseListener {
 	 *         identifier
 	 */
 	public boolean hasReachedAchievement(String identifier) {
-		if (getAchievements() != null) {
-			return getAchievements().contains(identifier);
+		if (getReachedAchievements() != null) {
+			return getReachedAchievements().contains(identifier);
 		} else {
 			// if there were no reached achievements at all then the achievement
 			// can't have been reached
@@ -2494,7 +2521,7 @@ public class Player extends DressedEntity implements UseListener {
 	public void incLootForItem(String item, int count) {
 		itemCounter.incLootForItem(item, count);
 		// check achievements in item category
-		AchievementNotifier.get().onItemLoot(this);
+		AchievementNotifier.get().onItemLoot(this, item);
 	}
 
 	/**
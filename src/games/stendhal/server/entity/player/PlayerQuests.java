@@ -93,13 +93,14 @@ class PlayerQuests {
 	 *            reset the player's status for the quest.
 	 */
 	public void setQuest(final String name, final String status) {
-		final String oldStatus = player.getKeyedSlot("!quests", QuestUtils.evaluateQuestSlotName(name));
-		player.setKeyedSlot("!quests", QuestUtils.evaluateQuestSlotName(name), status);
+		final String slot = QuestUtils.evaluateQuestSlotName(name);
+		final String oldStatus = player.getKeyedSlot("!quests", slot);
+		player.setKeyedSlot("!quests", slot, status);
 		if ((status == null) || !status.equals(oldStatus)) {
-			new GameEvent(player.getName(), "quest", QuestUtils.evaluateQuestSlotName(name), status).raise();
+			new GameEvent(player.getName(), "quest", slot, status).raise();
 		}
 		// check for reached achievements
-		SingletonRepository.getAchievementNotifier().onFinishQuest(player);
+		SingletonRepository.getAchievementNotifier().onQuestChange(player, slot);
 	}
 
 
@@ -12,43 +12,41 @@
  ***************************************************************************/
 package games.stendhal.server.entity.player;
 
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Map;
 import java.util.Set;
 
 import games.stendhal.server.core.engine.SingletonRepository;
-import games.stendhal.server.core.engine.dbcommand.ReadAchievementsForPlayerCommand;
-import games.stendhal.server.core.events.LoginListener;
-import games.stendhal.server.core.events.TurnListener;
-import games.stendhal.server.core.events.TurnListenerDecorator;
-import games.stendhal.server.core.events.TurnNotifier;
-import marauroa.server.db.command.DBCommand;
-import marauroa.server.db.command.DBCommandQueue;
-import marauroa.server.db.command.ResultHandle;
+import games.stendhal.server.core.engine.db.AchievementDAO;
+import games.stendhal.server.core.events.LoginPrefetchStage;
+import marauroa.server.db.DBTransaction;
+import marauroa.server.game.db.DAORegister;
 
-public class ReadAchievementsOnLogin implements LoginListener, TurnListener {
+/**
+ * Reads the reached achievements of the players on login, and checks which
+ * achievements they have reached meanwhile.
+ */
+public class ReadAchievementsOnLogin extends LoginPrefetchStage<Set<String>> {
 
-	private ResultHandle handle = new ResultHandle();
+	public ReadAchievementsOnLogin() {
+		super("achievements");
+	}
 
 	@Override
-	public void onLoggedIn(Player player) {
-		DBCommand command = new ReadAchievementsForPlayerCommand(player);
-		DBCommandQueue.get().enqueueAndAwaitResult(command, handle);
-		TurnNotifier.get().notifyInTurns(1, new TurnListenerDecorator(this));
+	public Map<String, Set<String>> read(DBTransaction transaction, Collection<String> charnames) throws SQLException {
+		return DAORegister.get().get(AchievementDAO.class).loadAllReachedAchievementsOfPlayers(transaction, charnames);
 	}
 
 	@Override
-	public void onTurnReached(int currentTurn) {
-		ReadAchievementsForPlayerCommand command = DBCommandQueue.get().getOneResult(ReadAchievementsForPlayerCommand.class, handle);
-		if (command == null) {
-			TurnNotifier.get().notifyInTurns(0, new TurnListenerDecorator(this));
-			return;
-		}
-		Player p = command.getPlayer();
-		Set<String> identifiers = command.getIdentifiers();
+	public void apply(Player p, Set<String> identifiers) {
 		p.initReachedAchievements();
-		for (String identifier : identifiers) {
-			p.addReachedAchievement(identifier);
+		if (identifiers != null) {
+			for (String identifier : identifiers) {
+				p.addReachedAchievement(identifier);
+			}
 		}
-		SingletonRepository.getAchievementNotifier().onLogin(command.getPlayer());
+		SingletonRepository.getAchievementNotifier().onLogin(p);
 	}
 
 }
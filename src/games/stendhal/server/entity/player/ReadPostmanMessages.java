@@ -12,32 +12,44 @@
  ***************************************************************************/
 package games.stendhal.server.entity.player;
 
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.log4j.Logger;
 
 import games.stendhal.common.NotificationType;
 import games.stendhal.server.core.engine.ChatMessage;
+import games.stendhal.server.core.engine.db.CharacterNameList;
+import games.stendhal.server.core.engine.db.PostmanDAO;
 import games.stendhal.server.core.engine.dbcommand.GetPostmanMessagesCommand;
-import games.stendhal.server.core.events.LoginListener;
+import games.stendhal.server.core.events.LoginPrefetchStage;
 import games.stendhal.server.core.events.TurnListener;
 import games.stendhal.server.core.events.TurnListenerDecorator;
 import games.stendhal.server.core.events.TurnNotifier;
+import marauroa.server.db.DBTransaction;
 import marauroa.server.db.command.DBCommand;
 import marauroa.server.db.command.DBCommandQueue;
 import marauroa.server.db.command.ResultHandle;
+import marauroa.server.game.db.DAORegister;
 
 /**
  * Retrieves postman messages for the logging in player from the database
  *
  * @author kymara
  */
-public class ReadPostmanMessages implements LoginListener, TurnListener {
+public class ReadPostmanMessages extends LoginPrefetchStage<List<ChatMessage>> implements TurnListener {
 
 	private static final Logger LOGGER = Logger.getLogger(ReadPostmanMessages.class);
 
 	private ResultHandle handle = new ResultHandle();
 
+	public ReadPostmanMessages() {
+		super("postman messages");
+	}
+
 	public void readMessages(final Player player) {
 		DBCommand command = new GetPostmanMessagesCommand(player);
 		DBCommandQueue.get().enqueueAndAwaitResult(command, handle);
@@ -46,13 +58,41 @@ public class ReadPostmanMessages implements LoginListener, TurnListener {
 	}
 
 	/**
-	 * Execute command to get messages for the player when they log in
+	 * Get the messages of the players logging in, and mark them delivered
+	 * in the same transaction.
+	 *
+	 * @param transaction database transaction
+	 * @param charnames names of the players who logged in
+	 * @return messages by lower case player name
+	 * @throws SQLException in case of a database error
+	 */
+	@Override
+	public Map<String, List<ChatMessage>> read(final DBTransaction transaction, final Collection<String> charnames) throws SQLException {
+		PostmanDAO dao = DAORegister.get().get(PostmanDAO.class);
+		Map<String, List<ChatMessage>> messages = dao.getChatMessages(transaction, charnames);
+		List<String> recipients = new ArrayList<String>();
+		for (String charname : charnames) {
+			if (messages.containsKey(CharacterNameList.key(charname))) {
+				recipients.add(charname);
+			}
+		}
+		if (!recipients.isEmpty()) {
+			dao.markMessagesDelivered(transaction, recipients);
+		}
+		return messages;
+	}
+
+	/**
+	 * Deliver the messages to a player who logged in.
 	 *
 	 * @param player the player who logged in
+	 * @param messages messages, or <code>null</code> if there are none
 	 */
 	@Override
-	public void onLoggedIn(final Player player) {
-		readMessages(player);
+	public void apply(final Player player, final List<ChatMessage> messages) {
+		if (messages != null) {
+			deliver(player, messages);
+		}
 	}
 
 	/**
@@ -69,8 +109,10 @@ public class ReadPostmanMessages implements LoginListener, TurnListener {
 			return;
 		}
 
-		List<ChatMessage> messages = command.getMessages();
-		Player player = command.getPlayer();
+		deliver(command.getPlayer(), command.getMessages());
+	}
+
+	private void deliver(final Player player, final List<ChatMessage> messages) {
 		LOGGER.debug(messages.size()+ " messages left for " + player.getName());
 		for (ChatMessage chatmessage : messages) {
 			LOGGER.debug(player.getName() + " got message: " + chatmessage.toString());
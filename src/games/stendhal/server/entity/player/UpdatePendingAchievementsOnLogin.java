@@ -11,18 +11,18 @@
  ***************************************************************************/
 package games.stendhal.server.entity.player;
 
+import java.sql.SQLException;
+import java.util.Collection;
 import java.util.Map;
 
 import games.stendhal.common.MathHelper;
+import games.stendhal.server.core.engine.db.PendingAchievementDAO;
 import games.stendhal.server.core.engine.dbcommand.DeletePendingAchievementDetailsCommand;
-import games.stendhal.server.core.engine.dbcommand.ReadPendingAchievementDetailsCommand;
-import games.stendhal.server.core.events.LoginListener;
-import games.stendhal.server.core.events.TurnListener;
-import games.stendhal.server.core.events.TurnListenerDecorator;
-import games.stendhal.server.core.events.TurnNotifier;
+import games.stendhal.server.core.events.LoginPrefetchStage;
+import marauroa.server.db.DBTransaction;
 import marauroa.server.db.command.DBCommand;
 import marauroa.server.db.command.DBCommandQueue;
-import marauroa.server.db.command.ResultHandle;
+import marauroa.server.game.db.DAORegister;
 
 /**
  * Retrieves pending or partial achievement information from the database on login
@@ -31,38 +31,33 @@ import marauroa.server.db.command.ResultHandle;
  *
  * @author kymara
  */
-public class UpdatePendingAchievementsOnLogin implements LoginListener, TurnListener {
+public class UpdatePendingAchievementsOnLogin extends LoginPrefetchStage<Map<String, Map<String, Integer>>> {
 
-	private ResultHandle handle = new ResultHandle();
+	public UpdatePendingAchievementsOnLogin() {
+		super("pending achievements");
+	}
 
 	@Override
-	public void onLoggedIn(Player player) {
-		DBCommand command = new ReadPendingAchievementDetailsCommand(player);
-		DBCommandQueue.get().enqueueAndAwaitResult(command, handle);
-		TurnNotifier.get().notifyInTurns(1, new TurnListenerDecorator(this));
+	public Map<String, Map<String, Map<String, Integer>>> read(DBTransaction transaction, Collection<String> charnames) throws SQLException {
+		return DAORegister.get().get(PendingAchievementDAO.class).getPendingAchievementDetails(transaction, charnames);
 	}
 
 	@Override
-	public void onTurnReached(int currentTurn) {
-		ReadPendingAchievementDetailsCommand command = DBCommandQueue.get().getOneResult(ReadPendingAchievementDetailsCommand.class, handle);
-
-		if (command == null) {
-			TurnNotifier.get().notifyInTurns(0, new TurnListenerDecorator(this));
+	public void apply(Player player, Map<String, Map<String, Integer>> details) {
+		// nothing pending for this player
+		if (details == null) {
 			return;
 		}
-		Player player = command.getPlayer();
-
-		updateElfPrincessAchievement(player, command.getDetails("quest.special.elf_princess.0025"));
-		updateKillBlordroughsAchievement(player, command.getDetails("quest.special.kill_blordroughs.5"));
-		updateItemLoots(player, command.getDetails("item.set.black"));
-		updateItemLoots(player, command.getDetails("item.set.chaos"));
-		updateItemLoots(player, command.getDetails("item.set.shadow"));
-		updateItemLoots(player, command.getDetails("item.set.golden"));
-		updateItemLoots(player, command.getDetails("item.set.red"));
-		updateItemLoots(player, command.getDetails("item.set.mainio"));
-		updateItemHarvest(player, command.getDetails("obtain.apple"));
-
-		// Could also check for reached achievements here. This is also checked on login but the order may vary due to the async access?
+
+		updateElfPrincessAchievement(player, details.get("quest.special.elf_princess.0025"));
+		updateKillBlordroughsAchievement(player, details.get("quest.special.kill_blordroughs.5"));
+		updateItemLoots(player, details.get("item.set.black"));
+		updateItemLoots(player, details.get("item.set.chaos"));
+		updateItemLoots(player, details.get("item.set.shadow"));
+		updateItemLoots(player, details.get("item.set.golden"));
+		updateItemLoots(player, details.get("item.set.red"));
+		updateItemLoots(player, details.get("item.set.mainio"));
+		updateItemHarvest(player, details.get("obtain.apple"));
 
 		// delete the entries. We don't need feedback
 		DBCommand deletecommand = new DeletePendingAchievementDetailsCommand(player);
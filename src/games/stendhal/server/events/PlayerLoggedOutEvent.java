@@ -12,6 +12,8 @@
  ***************************************************************************/
 package games.stendhal.server.events;
 
+import java.util.Collection;
+
 import org.apache.log4j.Logger;
 
 import games.stendhal.common.constants.Events;
@@ -23,12 +25,14 @@ import marauroa.common.game.RPEvent;
 public class PlayerLoggedOutEvent extends RPEvent {
 
 	private static final String NAME_ATTRIBUTE = "name";
+	private static final String NAMES_ATTRIBUTE = "names";
 	private static final Logger logger = Logger.getLogger(PlayerLoggedOutEvent.class);
 
 	public static void generateRPClass() {
 		try {
 			RPClass clazz = new RPClass(Events.PLAYER_LOGGED_OUT);
 			clazz.add(DefinitionClass.ATTRIBUTE, NAME_ATTRIBUTE, Type.STRING);
+			clazz.add(DefinitionClass.ATTRIBUTE, NAMES_ATTRIBUTE, Type.VERY_LONG_STRING);
 		} catch (Exception e) {
 			logger.error("cannot generate RPClass", e);
 		}
@@ -39,4 +43,22 @@ public class PlayerLoggedOutEvent extends RPEvent {
 		put(NAME_ATTRIBUTE, name);
 	}
 
+	/**
+	 * Creates an event for several players that have logged out. A single
+	 * name is sent as <code>name</code>, more names as a comma separated
+	 * list in <code>names</code>. Only clients of the server version or newer
+	 * understand <code>names</code>, older clients need an event for each
+	 * name.
+	 *
+	 * @param names names of the players
+	 */
+	public PlayerLoggedOutEvent(Collection<String> names) {
+		super(Events.PLAYER_LOGGED_OUT);
+		if (names.size() == 1) {
+			put(NAME_ATTRIBUTE, names.iterator().next());
+		} else {
+			put(NAMES_ATTRIBUTE, String.join(",", names));
+		}
+	}
+
 }
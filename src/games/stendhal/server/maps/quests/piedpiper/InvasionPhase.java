@@ -146,6 +146,11 @@ public class InvasionPhase extends TPPQuest {
 				} else if (zone.getName().startsWith("0")) {
 					// If we can't make it here, we can't make it anywhere ...
 					// just checking the 0 level zones atm
+					final int centerRegion = zone.getWalkableRegion(zone.getWidth()/2, zone.getHeight()/2);
+					if ((centerRegion >= 0) && (centerRegion != zone.getWalkableRegion(x, y))) {
+						logger.debug("RATS " + zone.getName() + " " + x + " " + y + " walled off from the center");
+						continue;
+					}
 					// the rat is not in the zone yet so we can't call the smaller version of the searchPath method
 					final List<Node> path = Path.searchPath(zone, x, y, zone.getWidth()/2,
 							zone.getHeight()/2, (64+64)*2);
@@ -15,8 +15,8 @@ package games.stendhal.server.maps.semos.plains;
 import java.util.Map;
 
 import games.stendhal.server.core.config.ZoneConfigurator;
-import games.stendhal.server.core.engine.SingletonRepository;
 import games.stendhal.server.core.engine.StendhalRPZone;
+import games.stendhal.server.core.events.LoginPrefetcher;
 import games.stendhal.server.entity.player.ReadPostmanMessages;
 
 /**
@@ -32,7 +32,7 @@ public class AddPostmanListener implements ZoneConfigurator {
 	 */
 	@Override
 	public void configureZone(StendhalRPZone zone, Map<String, String> attributes) {
-		SingletonRepository.getLoginNotifier().addListener(new ReadPostmanMessages());
+		LoginPrefetcher.get().addStage(new ReadPostmanMessages());
 	}
 
 
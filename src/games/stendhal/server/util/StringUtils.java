@@ -165,4 +165,25 @@ public class StringUtils {
 		}
 		return res;
 	}
+
+	/**
+	 * appends a string as quoted JSON string.
+	 *
+	 * @param sb StringBuilder to append to
+	 * @param string string to quote
+	 */
+	public static void appendJSONString(StringBuilder sb, String string) {
+		sb.append('"');
+		for (int i = 0; i < string.length(); i++) {
+			final char c = string.charAt(i);
+			if ((c == '"') || (c == '\\')) {
+				sb.append('\\').append(c);
+			} else if (c < ' ') {
+				sb.append(String.format("\\u%04x", (int) c));
+			} else {
+				sb.append(c);
+			}
+		}
+		sb.append('"');
+	}
 }
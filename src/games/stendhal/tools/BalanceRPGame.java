@@ -12,13 +12,16 @@
  ***************************************************************************/
 package games.stendhal.tools;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 import games.stendhal.server.core.config.CreatureGroupsXMLLoader;
 import games.stendhal.server.core.engine.RPClassGenerator;
@@ -29,6 +32,10 @@ import games.stendhal.server.core.rule.defaultruleset.DefaultCreature;
 import games.stendhal.server.entity.creature.Creature;
 import games.stendhal.server.entity.item.Item;
 import games.stendhal.server.entity.player.Player;
+import games.stendhal.tools.simulation.CreatureDefinitions;
+import games.stendhal.tools.simulation.Matchup;
+import games.stendhal.tools.simulation.MatchupResult;
+import games.stendhal.tools.simulation.SimulationEngine;
 import marauroa.common.Pair;
 import marauroa.common.game.RPObject;
 
@@ -40,6 +47,12 @@ import marauroa.common.game.RPObject;
  * 	java -cp $CLASSPATH java -cp games/stendhal/tools/BalanceRPGame creature ...
  * 		calculates the values only for the specified creatures
  *
+ * 	Options, before the creature names:
+ * 		--threads <n>   number of creatures balanced in parallel (default: number of processors)
+ * 		--seed <seed>   seed of the random generators, runs with the same seed give the same results
+ * 		--output <file> CSV file to which the results are written as they complete
+ * 		--incremental   only balance creatures whose definition changed since the output file was written
+ *
  * 	CLASSPATH should be (with appropriate changes for OS and versions), assuming
  * 		the compiled .class for this file is under "bin":
  *		.:bin:libs/marauroa.jar:libs/log4j.jar:libs/mysql-connector-java-5.1.5-bin.jar:build/lib/stendhal-stendhal-server-0.71.jar
@@ -48,23 +61,22 @@ import marauroa.common.game.RPObject;
 
 public class BalanceRPGame {
 
-	// suggested stats output at end of run
-	private static final List<String> suggestions = new LinkedList<>();
-
-
 	/**
 	 * A Simple (dumb) optimizer to adjust creature stats.
 	 */
 	private static class Optimizer {
 		Creature creature;
+		Player player;
 
 		/**
 		 * Create an optimizer for a creature.
 		 *
 		 * @param creature
+		 * @param player the player the creature fights against
 		 */
-		public Optimizer(final Creature creature) {
+		public Optimizer(final Creature creature, final Player player) {
 			this.creature = creature;
+			this.player = player;
 		}
 
 		/**
@@ -73,8 +85,10 @@ public class BalanceRPGame {
 		 * @param leftHP the mean amount of HP the player had left when the
 		 * fights ended
 		 * @param rounds the amount of turns the fights took on average
+		 * @param durationThreshold allowed relative deviation from the
+		 * preferred fight duration
 		 */
-		public void step(final int leftHP, final int rounds) {
+		public void step(final int leftHP, final int rounds, final double durationThreshold) {
 			float stepSize = leftHP / (float) player.getBaseHP();
 			stepSize = Math.signum(stepSize) * Math.min(Math.abs(stepSize), 0.5f);
 
@@ -90,7 +104,7 @@ public class BalanceRPGame {
 			final int oldDef = creature.getDef();
 			int newDef = oldDef;
 			final double preferred = preferredDuration(level);
-			if (!isWithinDurationRange(preferred, rounds)) {
+			if (!isWithinDurationRange(preferred, rounds, durationThreshold)) {
 				// Don't grow it the monster is already stronger than the player
 				if ((leftHP > 0) || (preferred < rounds)) {
 				newDef = Math.max(1, (int) (creature.getDef()
@@ -112,90 +126,46 @@ public class BalanceRPGame {
 		}
 	}
 
-	private static final int ROUNDS = 100;
-	private static final int HIGHEST_LEVEL = 500;
-	private static final double DEFAULT_DURATION_THRESHOLD = 0.2;
-	private static double durationThreshold;
-	private static Player player;
-
-	public static void main(final String[] args) throws Exception {
-		new RPClassGenerator().createRPClasses();
-		final CreatureGroupsXMLLoader loader = new CreatureGroupsXMLLoader("/data/conf/creatures.xml");
-		final List<DefaultCreature> creatures = loader.load();
-
-		Collections.sort(creatures, new Comparator<DefaultCreature>() {
-			@Override
-			public int compare(final DefaultCreature o1, final DefaultCreature o2) {
-				return o1.getLevel() - o2.getLevel();
-			}
-		});
-
-		final int[] atkLevels = new int[HIGHEST_LEVEL + 1];
-		final int[] defLevels = new int[HIGHEST_LEVEL + 1];
-
-		for (int level = 0; level < atkLevels.length; level++) {
-			// help newbies a bit, so don't start at real stats, but a bit lower
-			atkLevels[level] = (int) Math.round(Math.log(level + 4) * 9  - 10);
-			defLevels[level] = (int) Math.round(Math.log(level + 4) * 20
-					+ level - 26);
+	/**
+	 * Balancing of one creature against a player of the same level.
+	 */
+	private static class BalanceMatchup extends Matchup {
+		private final DefaultCreature creature;
+		private Player player;
+		private Creature target;
+		private final StringBuilder report = new StringBuilder();
+
+		BalanceMatchup(final DefaultCreature creature, final String fingerprint) {
+			super(creature.getCreatureName(), creature.getLevel(), fingerprint);
+			this.creature = creature;
 		}
 
-		final EntityManager em = SingletonRepository.getEntityManager();
-
-		final Item shield = em.getItem("wooden shield");
-		final Item armor = em.getItem("dress");
-		final Item helmet = em.getItem("leather helmet");
-		final Item legs = em.getItem("leather legs");
-		final Item boots = em.getItem("leather boots");
-
-		player = (Player) new PlayerTransformer().transform(new RPObject());
-		player.equip("lhand", shield);
-		player.equip("rhand", em.getItem("club"));
-		player.equip("armor", armor);
-		player.equip("head", helmet);
-		player.equip("legs", legs);
-		player.equip("feet", boots);
-
-		// Setup the list of creatures to balance
-		Collection<DefaultCreature> creaturesToBalance;
-		if (args.length > 0) {
-			final List<String> names = new ArrayList<>();
-			names.addAll(Arrays.asList(args));
-			creaturesToBalance = new ArrayList<DefaultCreature>();
-
-			for (DefaultCreature creature : creatures) {
-				final String creatureName = creature.getCreatureName();
-				if (names.contains(creatureName)) {
-					creaturesToBalance.add(creature);
-					names.removeAll(Collections.singleton(creatureName));
-				}
-			}
-
-			if (!names.isEmpty()) {
-				final StringBuilder sb = new StringBuilder("\nWARNING: Unknown creature(s): ");
-				final int unknownCount = names.size();
-				for (int idx = 0; idx < unknownCount; idx ++) {
-					sb.append(names.get(idx));
-					if (idx < unknownCount - 1) {
-						sb.append(", ");
-					}
-				}
-				System.out.println(sb.toString() + "\n");
-			}
-		} else {
-			// default to all of them
-			creaturesToBalance = creatures;
+		@Override
+		protected void setUp() {
+			final EntityManager em = SingletonRepository.getEntityManager();
+
+			final Item shield = em.getItem("wooden shield");
+			final Item armor = em.getItem("dress");
+			final Item helmet = em.getItem("leather helmet");
+			final Item legs = em.getItem("leather legs");
+			final Item boots = em.getItem("leather boots");
+
+			player = (Player) new PlayerTransformer().transform(new RPObject());
+			player.equip("lhand", shield);
+			player.equip("rhand", em.getItem("club"));
+			player.equip("armor", armor);
+			player.equip("head", helmet);
+			player.equip("legs", legs);
+			player.equip("feet", boots);
+
+			target = creature.getCreature();
 		}
 
-		for (final DefaultCreature creature : creaturesToBalance) {
+		@Override
+		protected MatchupResult simulate() {
 			final int level = creature.getLevel();
 
-			if (creature.getLevel() > HIGHEST_LEVEL) {
-				continue;
-			}
-
-			final Creature target = creature.getCreature();
-			final Optimizer optimizer = new Optimizer(target);
+			final Optimizer optimizer = new Optimizer(target, player);
 
 			player.setLevel(level);
 			player.setBaseHP(100 + 10 * level);
@@ -204,10 +174,10 @@ public class BalanceRPGame {
 
 			equip(player, level);
 
-			System.out.println("\nPlayer(" + level + ") vs "
-					+ creature.getCreatureName());
+			report.append("\nPlayer(" + level + ") vs "
+					+ creature.getCreatureName() + "\n");
 
-			durationThreshold = DEFAULT_DURATION_THRESHOLD;
+			double durationThreshold = DEFAULT_DURATION_THRESHOLD;
 
 			Integer proposedXPValue = null;
 
@@ -222,7 +192,7 @@ public class BalanceRPGame {
 				proposedXPValue = (int) ((2 * creature.getLevel() + 1) * (meanTurns / 2.0));
 				creature.setLevel(creature.getLevel(), proposedXPValue);
 
-				System.out.println("Target ATK: "
+				report.append("Target ATK: "
 						+ target.getAtk()
 							+ "/DEF: "
 							+ target.getDef()
@@ -231,23 +201,23 @@ public class BalanceRPGame {
 							+ "\t Turns: "
 							+ meanTurns
 							+ "\tLeft HP:"
-							+ meanLeftHP);
+							+ meanLeftHP + "\n");
 
-				if (isCorrectResult(level, meanTurns, meanLeftHP / (double) player.getBaseHP())) {
+				if (isCorrectResult(level, meanTurns, meanLeftHP / (double) player.getBaseHP(), durationThreshold)) {
 					balanced = true;
 				} else {
-					optimizer.step(meanLeftHP, meanTurns);
+					optimizer.step(meanLeftHP, meanTurns, durationThreshold);
 
-					System.out.println("New ATK: " + target.getAtk()
+					report.append("New ATK: " + target.getAtk()
 							+ "/DEF: " + target.getDef() + "/HP: "
-							+ target.getBaseHP());
+							+ target.getBaseHP() + "\n");
 				}
 
 				// relax convergence criteria for pathological cases
 				tries++;
 				if (tries % 200 == 0) {
 					durationThreshold *= 1.1;
-					System.out.println(target.getName() + ": changed threshold to " + durationThreshold);
+					report.append(target.getName() + ": changed threshold to " + durationThreshold + "\n");
 				}
 			}
 
@@ -265,27 +235,154 @@ public class BalanceRPGame {
 				changed = true;
 			}
 
-			System.out.println(creature.getCreatureName() + " done!");
+			report.append(creature.getCreatureName() + " done!");
+
+			final List<String> values = Arrays.asList(Integer.toString(target.getAtk()),
+					Integer.toString(target.getDef()), Integer.toString(target.getBaseHP()),
+					Integer.toString(proposedXPValue), Boolean.toString(changed));
+
+			// the entities are not needed any more
+			player = null;
+			target = null;
+
+			return new MatchupResult(this, values, report.toString());
+		}
+	}
+
+	private static final int ROUNDS = 100;
+	private static final int HIGHEST_LEVEL = 500;
+	private static final double DEFAULT_DURATION_THRESHOLD = 0.2;
+
+	private static final int[] atkLevels = new int[HIGHEST_LEVEL + 1];
+	private static final int[] defLevels = new int[HIGHEST_LEVEL + 1];
+
+	/** Columns of the output file. */
+	private static final List<String> COLUMNS = Arrays.asList("atk", "def", "hp", "xp", "changed");
+
+	public static void main(final String[] args) throws Exception {
+		int threads = Runtime.getRuntime().availableProcessors();
+		long seed = 0;
+		File output = null;
+		boolean incremental = false;
+		final List<String> names = new ArrayList<>();
+		for (int idx = 0; idx < args.length; idx++) {
+			final String arg = args[idx];
+			if (arg.equals("--threads") && idx + 1 < args.length) {
+				threads = Integer.parseInt(args[++idx]);
+			} else if (arg.equals("--seed") && idx + 1 < args.length) {
+				seed = Long.parseLong(args[++idx]);
+			} else if (arg.equals("--output") && idx + 1 < args.length) {
+				output = new File(args[++idx]);
+			} else if (arg.equals("--incremental")) {
+				incremental = true;
+			} else {
+				names.add(arg);
+			}
+		}
+
+		new RPClassGenerator().createRPClasses();
+		final CreatureGroupsXMLLoader loader = new CreatureGroupsXMLLoader("/data/conf/creatures.xml");
+		final List<DefaultCreature> creatures = loader.load();
+
+		Collections.sort(creatures, new Comparator<DefaultCreature>() {
+			@Override
+			public int compare(final DefaultCreature o1, final DefaultCreature o2) {
+				return o1.getLevel() - o2.getLevel();
+			}
+		});
+
+		for (int level = 0; level < atkLevels.length; level++) {
+			// help newbies a bit, so don't start at real stats, but a bit lower
+			atkLevels[level] = (int) Math.round(Math.log(level + 4) * 9  - 10);
+			defLevels[level] = (int) Math.round(Math.log(level + 4) * 20
+					+ level - 26);
+		}
+
+		// Setup the list of creatures to balance
+		Collection<DefaultCreature> creaturesToBalance;
+		if (!names.isEmpty()) {
+			creaturesToBalance = new ArrayList<DefaultCreature>();
+
+			for (DefaultCreature creature : creatures) {
+				final String creatureName = creature.getCreatureName();
+				if (names.contains(creatureName)) {
+					creaturesToBalance.add(creature);
+					names.removeAll(Collections.singleton(creatureName));
+				}
+			}
+
+			if (!names.isEmpty()) {
+				final StringBuilder sb = new StringBuilder("\nWARNING: Unknown creature(s): ");
+				final int unknownCount = names.size();
+				for (int idx = 0; idx < unknownCount; idx ++) {
+					sb.append(names.get(idx));
+					if (idx < unknownCount - 1) {
+						sb.append(", ");
+					}
+				}
+				System.out.println(sb.toString() + "\n");
+			}
+		} else {
+			// default to all of them
+			creaturesToBalance = creatures;
+		}
+
+		Map<String, String> fingerprints = Collections.emptyMap();
+		final SimulationEngine engine = new SimulationEngine(threads, seed);
+		if (output != null) {
+			fingerprints = CreatureDefinitions.getFingerprints("/data/conf/creatures.xml",
+					"rounds=" + ROUNDS + " threshold=" + DEFAULT_DURATION_THRESHOLD);
+			engine.setOutput(output, COLUMNS, incremental);
+		}
+
+		final List<BalanceMatchup> matchups = new ArrayList<>();
+		for (final DefaultCreature creature : creaturesToBalance) {
+			if (creature.getLevel() > HIGHEST_LEVEL) {
+				continue;
+			}
+
+			final String fingerprint = fingerprints.get(creature.getCreatureName());
+			matchups.add(new BalanceMatchup(creature, fingerprint != null ? fingerprint : ""));
+		}
+
+		final Map<String, MatchupResult> results = new HashMap<>();
+		engine.run(matchups, new SimulationEngine.Listener() {
+			@Override
+			public void completed(final MatchupResult result, final boolean reused) {
+				if (reused) {
+					System.out.println("\n" + result.getCreatureName() + ": unchanged since last run");
+				} else {
+					System.out.println(result.getReport());
+				}
+				results.put(result.getCreatureName(), result);
+			}
+		});
+
+		// suggested stats output at end of run, in the order of the creatures
+		final List<String> suggestions = new LinkedList<>();
+		for (final BalanceMatchup matchup : matchups) {
+			final MatchupResult result = results.get(matchup.getCreatureName());
+			final List<String> values = result.getValues();
 
 			final StringBuilder stringBuilder = new StringBuilder();
-			stringBuilder.append(creature.getCreatureName());
+			stringBuilder.append(result.getCreatureName());
 			stringBuilder.append(" (level ");
-			stringBuilder.append(creature.getLevel());
+			stringBuilder.append(result.getLevel());
 			stringBuilder.append("):");
-			if (changed) {
+			if (Boolean.parseBoolean(values.get(4))) {
 				stringBuilder.append(" *\t");
 			} else {
 				stringBuilder.append("  \t");
 			}
 			stringBuilder.append("ATK: ");
-			stringBuilder.append(target.getAtk());
+			stringBuilder.append(values.get(0));
 			stringBuilder.append("\t\tDEF: ");
-			stringBuilder.append(target.getDef());
+			stringBuilder.append(values.get(1));
 			stringBuilder.append("\t\tHP: ");
-			stringBuilder.append(target.getBaseHP());
+			stringBuilder.append(values.get(2));
 
-			if (System.getProperty("showxp") != null && proposedXPValue != null) {
-				stringBuilder.append("\t\tXP: " + proposedXPValue);
+			if (System.getProperty("showxp") != null) {
+				stringBuilder.append("\t\tXP: " + values.get(3));
 			}
 
 			suggestions.add(stringBuilder.toString());
@@ -300,8 +397,6 @@ public class BalanceRPGame {
 			}
 			System.out.println();
 		}
-
-		// FIXME: why does balancer not exit automatically?
 	}
 
 	private static Pair<Integer, Integer> combat(final Player player, final Creature target) {
@@ -390,8 +485,8 @@ public class BalanceRPGame {
 	}
 
 	private static boolean isCorrectResult(final int level,
-			final int meanTurns, final double relativeLeftHP) {
-		if (!isWithinDurationRange(preferredDuration(level), meanTurns)) {
+			final int meanTurns, final double relativeLeftHP, final double durationThreshold) {
+		if (!isWithinDurationRange(preferredDuration(level), meanTurns, durationThreshold)) {
 			return false;
 		}
 
@@ -399,7 +494,7 @@ public class BalanceRPGame {
 	}
 
 	private static boolean isWithinDurationRange(final double preferred,
-			final double real) {
+			final double real, final double durationThreshold) {
 		return (real < (1.0 + durationThreshold) * preferred)
 			&& (real > (1.0 - durationThreshold) * preferred);
 	}
@@ -0,0 +1,183 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.tools;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import games.stendhal.common.tiled.LayerDefinition;
+import games.stendhal.common.tiled.StendhalMapStructure;
+import games.stendhal.server.core.config.XMLUtil;
+import games.stendhal.server.core.config.zone.MapCache;
+import games.stendhal.server.core.engine.ContentPool;
+import games.stendhal.server.core.engine.StendhalRPWorld;
+
+/**
+ * Reports the memory used by the map data of all zones in zones.xml.
+ * <p>
+ * For each zone it compares the old storage of the tiles, a little endian
+ * byte array and an int array, with the storage of the layers as the zone
+ * loader of the server gets them from the MapCache, once decoded from the
+ * TMX file and once read from the cache file. It also reports the size of
+ * the encoded layers that are kept for the transfer to the clients with and
+ * without sharing identical layers between zones.
+ * <p>
+ * The server keeps the layers only while a zone is loaded, so the tile
+ * storage affects the memory needed for loading. The transfer data is kept
+ * for the lifetime of the zones.
+ */
+public class MapMemoryReport {
+	private long zones;
+	private long layers;
+	private long oldTiles;
+	private long decodedTiles;
+	private long cachedTiles;
+	private long transfer;
+	private final Map<byte[], Boolean> sharedTransfer = new IdentityHashMap<byte[], Boolean>();
+	private long sharedTransferBytes;
+	private final MapCache cache;
+
+	/**
+	 * Creates a MapMemoryReport.
+	 *
+	 * @param cache map cache, which should not contain the maps yet
+	 */
+	MapMemoryReport(final MapCache cache) {
+		this.cache = cache;
+	}
+
+	private void addZone(final String name, final String file) throws Exception {
+		final String filename = StendhalRPWorld.MAPS_FOLDER + file;
+		final long zoneDecoded = getTileSize(cache.load(filename));
+		final StendhalMapStructure map = cache.load(filename);
+		final long zoneCached = getTileSize(map);
+		long zoneOld = 0;
+		long zoneTransfer = 0;
+		for (final LayerDefinition layer : map.getLayers()) {
+			final byte[] encoded = layer.encode();
+			final byte[] shared = ContentPool.get().intern(encoded);
+			if (sharedTransfer.put(shared, Boolean.TRUE) == null) {
+				sharedTransferBytes += shared.length;
+			}
+			zoneTransfer += encoded.length;
+
+			// raw bytes and decoded ints
+			zoneOld += 8L * layer.getWidth() * layer.getHeight();
+			layers++;
+		}
+		System.out.println(String.format("%-40s %4dx%-4d %10d %10d %10d %10d", name, map.getWidth(), map.getHeight(),
+				zoneOld, zoneDecoded, zoneCached, zoneTransfer));
+		zones++;
+		oldTiles += zoneOld;
+		decodedTiles += zoneDecoded;
+		cachedTiles += zoneCached;
+		transfer += zoneTransfer;
+	}
+
+	/**
+	 * Get the memory used by the tiles of a map, as loaded.
+	 *
+	 * @param map map
+	 * @return size of the tile data
+	 */
+	private static long getTileSize(final StendhalMapStructure map) {
+		long size = 0;
+		for (final LayerDefinition layer : map.getLayers()) {
+			size += layer.getDataSize();
+		}
+		return size;
+	}
+
+	private static Document parse(final URI uri) throws Exception {
+		final InputStream in = MapMemoryReport.class.getResourceAsStream(uri.getPath());
+		if (in == null) {
+			throw new FileNotFoundException("Cannot find resource: " + uri.getPath());
+		}
+		try {
+			return XMLUtil.parse(in);
+		} finally {
+			in.close();
+		}
+	}
+
+	private void addGroups(final URI groups) throws Exception {
+		for (final Element group : XMLUtil.getElements(parse(groups).getDocumentElement(), "group")) {
+			addGroup(groups.resolve(group.getAttribute("uri")));
+		}
+	}
+
+	private void addGroup(final URI uri) throws Exception {
+		for (final Element element : XMLUtil.getElements(parse(uri).getDocumentElement(), "zone")) {
+			if (element.hasAttribute("name") && element.hasAttribute("file")) {
+				try {
+					addZone(element.getAttribute("name"), element.getAttribute("file"));
+				} catch (final Exception e) {
+					System.err.println("Cannot load " + element.getAttribute("name") + ": " + e);
+				}
+			}
+		}
+	}
+
+	private void printTotals() {
+		System.out.println();
+		System.out.println(zones + " zones, " + layers + " layers");
+		System.out.println(String.format("tiles, raw and int arrays:     %12d bytes", oldTiles));
+		System.out.println(String.format("tiles, decoded by the loader:  %12d bytes (%.1f%%)", decodedTiles,
+				100.0 * decodedTiles / Math.max(1, oldTiles)));
+		System.out.println(String.format("tiles, read from the cache:    %12d bytes (%.1f%%)", cachedTiles,
+				100.0 * cachedTiles / Math.max(1, oldTiles)));
+		System.out.println(String.format("map cache:                     %d decoded, %d read from cache",
+				cache.getMisses(), cache.getHits()));
+		System.out.println(String.format("transfer data, per zone:       %12d bytes", transfer));
+		System.out.println(String.format("transfer data, shared:         %12d bytes (%.1f%%)", sharedTransferBytes,
+				100.0 * sharedTransferBytes / Math.max(1, transfer)));
+	}
+
+	/**
+	 * Prints the report. The maps are cached in a temporary directory,
+	 * which is removed afterwards.
+	 *
+	 * @param args optional zone groups file, defaults to /data/conf/zones.xml
+	 * @throws Exception on any error
+	 */
+	public static void main(final String[] args) throws Exception {
+		String file = "/data/conf/zones.xml";
+		if (args.length > 0) {
+			file = args[0];
+		}
+
+		final File dir = File.createTempFile("mapcache", "");
+		dir.delete();
+		try {
+			final MapMemoryReport report = new MapMemoryReport(new MapCache(dir));
+			System.out.println(String.format("%-40s %9s %10s %10s %10s %10s", "zone", "size", "old tiles", "decoded",
+					"cached", "transfer"));
+			report.addGroups(new URI(file));
+			report.printTotals();
+		} finally {
+			final File[] files = dir.listFiles();
+			if (files != null) {
+				for (final File cached : files) {
+					cached.delete();
+				}
+			}
+			dir.delete();
+		}
+	}
+}
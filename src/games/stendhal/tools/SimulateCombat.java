@@ -11,6 +11,8 @@
  ***************************************************************************/
 package games.stendhal.tools;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -29,6 +31,10 @@ import games.stendhal.server.core.rule.defaultruleset.DefaultCreature;
 import games.stendhal.server.entity.creature.Creature;
 import games.stendhal.server.entity.item.Item;
 import games.stendhal.server.entity.player.Player;
+import games.stendhal.tools.simulation.CreatureDefinitions;
+import games.stendhal.tools.simulation.Matchup;
+import games.stendhal.tools.simulation.MatchupResult;
+import games.stendhal.tools.simulation.SimulationEngine;
 import marauroa.common.Pair;
 import marauroa.common.game.RPObject;
 
@@ -68,6 +74,14 @@ import marauroa.common.game.RPObject;
  *     Denotes enemy is boss type (currently doesn't affect anything).
  * @param --all
  *     Runs simulation for each predefined creature.
+ * @param --threads
+ *     Number of creatures simulated in parallel (default: number of processors).
+ * @param --seed
+ *     Seed of the random generators of the simulations (default: 0).
+ * @param --output
+ *     CSV file to which the results are written as they complete.
+ * @param --incremental
+ *     Only simulate creatures whose definition changed since the output file was written.
  * @param --help
  *     Show usage information & exit.
  */
@@ -83,8 +97,6 @@ public class SimulateCombat {
 	private static Integer atk;
 	private static Integer def;
 
-	private static Player player;
-	private static Creature enemy;
 	private static String creature_name;
 
 	/**
@@ -98,17 +110,25 @@ public class SimulateCombat {
 	private static boolean boss = false;
 	private static boolean all = false;
 
+	private static int threads = Runtime.getRuntime().availableProcessors();
+	private static long seed = 0;
+	private static File output;
+	private static boolean incremental = false;
+
 	private static EntityManager em;
 	private static List<DefaultCreature> creatures;
 	private static final List<String> filtered_creatures = new ArrayList<>();
 
+	/** Columns of the output file. */
+	private static final List<String> COLUMNS = Arrays.asList("wins", "losses", "ties",
+		"incomplete", "difference", "beneficiary", "balanced");
+
 	/**
 	 * If a round exceeds this number of turns round will be terminated.
 	 *
 	 * Used as protection against infinite loop.
 	 */
 	private static final int TURN_LIMIT = 1000;
-	private static int incomplete_rounds = 0;
 
 
 	public static void main(final String[] argv) throws Exception {
@@ -118,6 +138,10 @@ public class SimulateCombat {
 			showUsageErrorAndExit("rounds argument must be a postive number", 1);
 		} else if (balance_threshold < 1 || balance_threshold > 100) {
 			showUsageErrorAndExit("threshold argument must be a number between 1 & 100", 1);
+		} else if (threads < 1) {
+			showUsageErrorAndExit("threads argument must be a postive number", 1);
+		} else if (incremental && output == null) {
+			showUsageErrorAndExit("incremental argument requires output argument", 1);
 		}
 
 		if (creature_name == null && !all) {
@@ -132,11 +156,13 @@ public class SimulateCombat {
 			}
 		}
 
+		new RPClassGenerator().createRPClasses();
+		em = SingletonRepository.getEntityManager();
+
 		if (all) {
 			runFullSimulation();
 		} else {
-			initEntities();
-			runSimulation();
+			runSingleSimulation();
 		}
 	}
 
@@ -160,7 +186,8 @@ public class SimulateCombat {
 			+ "\n\t" + exe + " --creature <name>"
 				+ "[ --rounds <rounds>][ --threshold <threshold>][ flags...]"
 			+ "\n\t" + exe + " --all"
-				+ "[ --rounds <rounds>][ --threshold <threshold>][ flags...][ names...]"
+				+ "[ --rounds <rounds>][ --threshold <threshold>][ --threads <threads>]"
+				+ "[ --output <file>][ flags...][ names...]"
 			+ "\n\t" + exe + " --help"
 			+ "\n\nRegular Arguments:"
 			+ "\n\t--lvl:        Level at which player & enemy should be set."
@@ -171,6 +198,10 @@ public class SimulateCombat {
 			+ "\n\t--threshold:  Difference threshold used to determine if combat was balanced (default: "
 				+ default_balance_threshold + ")."
 			+ "\n\t--creature:   Use a predefined creature as enemy."
+			+ "\n\t--threads:    Number of creatures simulated in parallel (default: number of processors)."
+			+ "\n\t--seed:       Seed of the random generators. Runs with the same seed give the same"
+				+ " results (default: 0)."
+			+ "\n\t--output:     CSV file to which the results are written as they complete."
 			+ "\n\t--help|-h:    Show usage information & exit."
 			+ "\n\nFlag Arguments:"
 			+ "\n\t--barehanded: Entities will not be equipped with weapons & armor."
@@ -179,7 +210,9 @@ public class SimulateCombat {
 			+ "\n\t--fair:       Gives player weapon with atk 5 & no other equipment (overrides --barehanded & assumes --noboost)."
 			+ "\n\t--boss:       Denotes enemy is boss type (currently doesn't affect anything)."
 			+ "\n\t--all:        Runs simulation for each predefined creature. If names are"
-				+ " supplied, only those creatures will be simulated.");
+				+ " supplied, only those creatures will be simulated."
+			+ "\n\t--incremental: Only simulate creatures whose definition or simulation settings"
+				+ " changed since the output file was written.");
 	}
 
 	private static void showUsageErrorAndExit(final String msg, final int err) {
@@ -269,6 +302,38 @@ public class SimulateCombat {
 					showUsageErrorAndExit("threshold argument must be an integer number", 1);
 				}
 
+				idx++;
+			} else if (st.equals("--threads")) {
+				if (argv.length < idx + 2) {
+					showUsageErrorAndExit("threads argument requires value", 1);
+				}
+
+				try {
+					threads = Integer.parseInt(argv[idx + 1]);
+				} catch (final NumberFormatException e) {
+					showUsageErrorAndExit("threads argument must be an integer number", 1);
+				}
+
+				idx++;
+			} else if (st.equals("--seed")) {
+				if (argv.length < idx + 2) {
+					showUsageErrorAndExit("seed argument requires value", 1);
+				}
+
+				try {
+					seed = Long.parseLong(argv[idx + 1]);
+				} catch (final NumberFormatException e) {
+					showUsageErrorAndExit("seed argument must be an integer number", 1);
+				}
+
+				idx++;
+			} else if (st.equals("--output")) {
+				if (argv.length < idx + 2) {
+					showUsageErrorAndExit("output argument requires value", 1);
+				}
+
+				output = new File(argv[idx + 1]);
+
 				idx++;
 			} else if (st.equals("--creature")) {
 				if (argv.length < idx + 2) {
@@ -290,6 +355,8 @@ public class SimulateCombat {
 				boss = true;
 			} else if (st.equals("--all")) {
 				all = true;
+			} else if (st.equals("--incremental")) {
+				incremental = true;
 			} else {
 				if (all) {
 					filtered_creatures.add(st);
@@ -304,340 +371,418 @@ public class SimulateCombat {
 		}
 	}
 
-	private static void initEntities() {
-		if (em == null) {
-			new RPClassGenerator().createRPClasses();
-			em = SingletonRepository.getEntityManager();
-		}
-
-		final int HIGHEST_LEVEL = 597;
-
-		final int[] atkLevels = new int[HIGHEST_LEVEL + 1];
-		final int[] defLevels = new int[HIGHEST_LEVEL + 1];
+	/**
+	 * Get the settings that affect the results, for the fingerprints of the
+	 * creature definitions.
+	 *
+	 * @return settings
+	 */
+	private static String getSettings() {
+		return "rounds=" + rounds + " threshold=" + balance_threshold
+			+ " barehanded=" + barehanded + " equipsame=" + equipsame
+			+ " noboost=" + noboost + " fair=" + fair;
+	}
 
-		for (int l = 0; l < atkLevels.length; l++) {
-			// help newbies a bit, so don't start at real stats, but a bit lower
-			atkLevels[l] = (int) Math.round(Math.log(l + 4) * 9  - 10);
-			defLevels[l] = (int) Math.round(Math.log(l + 4) * 20
-					+ l - 26);
+	/**
+	 * Get the fingerprints of the creature definitions, if they are needed
+	 * for the output file.
+	 *
+	 * @return fingerprints by creature name
+	 * @throws IOException if the creature definitions cannot be read
+	 */
+	private static Map<String, String> getFingerprints() throws IOException {
+		if (output == null) {
+			return Collections.emptyMap();
 		}
+		return CreatureDefinitions.getFingerprints("/data/conf/creatures.xml", getSettings());
+	}
 
-		final Item weapon = em.getItem("club");
-		final Item weapon_5 = em.getItem("soul dagger");
-		final Item shield = em.getItem("wooden shield");
-		final Item armor = em.getItem("dress");
-		final Item helmet = em.getItem("leather helmet");
-		final Item legs = em.getItem("leather legs");
-		final Item boots = em.getItem("leather boots");
+	private static SimulationEngine createEngine() {
+		final SimulationEngine engine = new SimulationEngine(threads, seed);
+		if (output != null) {
+			engine.setOutput(output, COLUMNS, incremental);
+		}
+		return engine;
+	}
 
+	private static void runSingleSimulation() throws Exception {
+		final CombatMatchup matchup;
 		if (creature_name == null) {
-			enemy = new Creature("dummy", "dummy", "(generic creature)", hp, atk, atk, def, lvl,
-				1, 1, 1, 1.0, new ArrayList<>(), new HashMap<>(), new LinkedHashMap<>(), 1, "dummy");
+			// the generic creature is defined by the arguments
+			matchup = new CombatMatchup(null, "dummy", lvl, "lvl=" + lvl + " hp=" + hp
+				+ " atk=" + atk + " def=" + def + " " + getSettings());
+			System.out.println("\nRunning simulation ...");
 		} else {
-			if (creatures == null) {
-				creatures = new CreatureGroupsXMLLoader("/data/conf/creatures.xml").load();
-			}
+			creatures = new CreatureGroupsXMLLoader("/data/conf/creatures.xml").load();
 
-			if (enemy == null) {
-				for (final DefaultCreature df: creatures) {
-					if (df.getCreatureName().equals(creature_name)) {
-						enemy = df.getCreature();
-						boss = df.getAIProfiles().containsKey("boss");
-						break;
-					}
+			DefaultCreature creature = null;
+			for (final DefaultCreature df: creatures) {
+				if (df.getCreatureName().equals(creature_name)) {
+					creature = df;
+					break;
 				}
+			}
 
-				if (enemy == null) {
-					System.out.println("\nERROR: unknown creature \"" + creature_name + "\"");
-					System.exit(1);
-				}
+			if (creature == null) {
+				System.out.println("\nERROR: unknown creature \"" + creature_name + "\"");
+				System.exit(1);
 			}
+
+			final String fingerprint = getFingerprints().get(creature_name);
+			matchup = new CombatMatchup(creature, creature_name, creature.getLevel(),
+				fingerprint != null ? fingerprint : "");
+			System.out.println("\nRunning simulation for " + creature_name + " ...");
 		}
 
-		player = (Player) new PlayerTransformer().transform(new RPObject());
-
-		final int p_lvl = enemy.getLevel();
-
-		player.setLevel(p_lvl);
-		player.setBaseHP(100 + 10 * p_lvl);
-		player.setAtk(atkLevels[p_lvl]);
-		player.setDef(defLevels[p_lvl]);
-
-		if (fair) {
-			player.equip("rhand", weapon_5);
-		} else if (!barehanded) {
-			player.equip("lhand", shield);
-			player.equip("rhand", weapon);
-			player.equip("armor", armor);
-			player.equip("head", helmet);
-			player.equip("legs", legs);
-			player.equip("feet", boots);
-
-			if (!noboost) {
-				// not sure what this does (copied from games.stendhal.tools.BalanceRPGame)
-				player.getWeapon().put("atk", 7 + p_lvl * 2 / 6);
-				if (p_lvl == 0) {
-					player.getShield().put("def", 0);
+		createEngine().run(Collections.singletonList(matchup), new SimulationEngine.Listener() {
+			@Override
+			public void completed(final MatchupResult result, final boolean reused) {
+				if (reused) {
+					System.out.println("\nUnchanged since last simulation, result: " + result.getValues());
 				} else {
-					player.getShield().put("def", 12 + p_lvl / 8);
+					System.out.println(result.getReport());
 				}
-				player.getArmor().put("def", 1 + p_lvl / 4);
-				player.getHelmet().put("def", 1 + p_lvl / 7);
-				player.getLegs().put("def", 1 + p_lvl / 7);
-				player.getBoots().put("def", 1 + p_lvl / 10);
 			}
+		});
+	}
+
+	/**
+	 * Simulation of the rounds between a player and one enemy.
+	 */
+	private static class CombatMatchup extends Matchup {
+		/** Definition of the enemy, or <code>null</code> for a generic creature. */
+		private final DefaultCreature definition;
+		private Player player;
+		private Creature enemy;
+		private boolean enemyIsBoss;
+		private int incomplete_rounds = 0;
+		private final StringBuilder report = new StringBuilder();
+
+		CombatMatchup(final DefaultCreature definition, final String name, final int level, final String fingerprint) {
+			super(name, level, fingerprint);
+			this.definition = definition;
 		}
 
-		if (!barehanded && equipsame) {
-			// doesn't appear to actually do anything
-			final Item pWeapon = player.getWeapon();
-			if (weapon != null) {
-				enemy.equip("rhand", pWeapon);
-			}
-			if (player.hasShield()) {
-				enemy.equip("lhand", player.getShield());
-			}
-			if (player.hasArmor()) {
-				enemy.equip("armor", player.getArmor());
-			}
-			if (player.hasHelmet()) {
-				enemy.equip("head", player.getHelmet());
-			}
-			if (player.hasLegs()) {
-				enemy.equip("legs", player.getLegs());
+		@Override
+		protected void setUp() {
+			final int HIGHEST_LEVEL = 597;
+
+			final int[] atkLevels = new int[HIGHEST_LEVEL + 1];
+			final int[] defLevels = new int[HIGHEST_LEVEL + 1];
+
+			for (int l = 0; l < atkLevels.length; l++) {
+				// help newbies a bit, so don't start at real stats, but a bit lower
+				atkLevels[l] = (int) Math.round(Math.log(l + 4) * 9  - 10);
+				defLevels[l] = (int) Math.round(Math.log(l + 4) * 20
+						+ l - 26);
 			}
-			if (player.hasBoots()) {
-				enemy.equip("feet", player.getBoots());
+
+			final Item weapon = em.getItem("club");
+			final Item weapon_5 = em.getItem("soul dagger");
+			final Item shield = em.getItem("wooden shield");
+			final Item armor = em.getItem("dress");
+			final Item helmet = em.getItem("leather helmet");
+			final Item legs = em.getItem("leather legs");
+			final Item boots = em.getItem("leather boots");
+
+			if (definition == null) {
+				enemy = new Creature("dummy", "dummy", "(generic creature)", hp, atk, atk, def, lvl,
+					1, 1, 1, 1.0, new ArrayList<>(), new HashMap<>(), new LinkedHashMap<>(), 1, "dummy");
+				enemyIsBoss = boss;
+			} else {
+				enemy = definition.getCreature();
+				enemyIsBoss = definition.getAIProfiles().containsKey("boss");
 			}
-			if (player.hasRing()) {
-				enemy.equip("finger", player.getRing());
+
+			player = (Player) new PlayerTransformer().transform(new RPObject());
+
+			// some creatures are above the highest player level
+			final int p_lvl = Math.min(enemy.getLevel(), HIGHEST_LEVEL);
+
+			player.setLevel(p_lvl);
+			player.setBaseHP(100 + 10 * p_lvl);
+			player.setAtk(atkLevels[p_lvl]);
+			player.setDef(defLevels[p_lvl]);
+
+			if (fair) {
+				player.equip("rhand", weapon_5);
+			} else if (!barehanded) {
+				player.equip("lhand", shield);
+				player.equip("rhand", weapon);
+				player.equip("armor", armor);
+				player.equip("head", helmet);
+				player.equip("legs", legs);
+				player.equip("feet", boots);
+
+				if (!noboost) {
+					// not sure what this does (copied from games.stendhal.tools.BalanceRPGame)
+					player.getWeapon().put("atk", 7 + p_lvl * 2 / 6);
+					if (p_lvl == 0) {
+						player.getShield().put("def", 0);
+					} else {
+						player.getShield().put("def", 12 + p_lvl / 8);
+					}
+					player.getArmor().put("def", 1 + p_lvl / 4);
+					player.getHelmet().put("def", 1 + p_lvl / 7);
+					player.getLegs().put("def", 1 + p_lvl / 7);
+					player.getBoots().put("def", 1 + p_lvl / 10);
+				}
 			}
-		}
-	}
 
-	private static void runSimulation() {
-		if (!all) {
-			if (creature_name != null) {
-				System.out.println("\nRunning simulation for " + creature_name + " ...");
-			} else {
-				System.out.println("\nRunning simulation ...");
+			if (!barehanded && equipsame) {
+				// doesn't appear to actually do anything
+				final Item pWeapon = player.getWeapon();
+				if (weapon != null) {
+					enemy.equip("rhand", pWeapon);
+				}
+				if (player.hasShield()) {
+					enemy.equip("lhand", player.getShield());
+				}
+				if (player.hasArmor()) {
+					enemy.equip("armor", player.getArmor());
+				}
+				if (player.hasHelmet()) {
+					enemy.equip("head", player.getHelmet());
+				}
+				if (player.hasLegs()) {
+					enemy.equip("legs", player.getLegs());
+				}
+				if (player.hasBoots()) {
+					enemy.equip("feet", player.getBoots());
+				}
+				if (player.hasRing()) {
+					enemy.equip("finger", player.getRing());
+				}
 			}
 		}
 
-		int wins = 0;
-		int losses = 0;
-		int ties = 0;
+		@Override
+		protected MatchupResult simulate() {
+			int wins = 0;
+			int losses = 0;
+			int ties = 0;
 
-		int ridx;
-		for (ridx = 0; ridx < rounds; ridx++) {
-			final Pair<Integer, Integer> result = simulateRound();
+			int ridx;
+			for (ridx = 0; ridx < rounds; ridx++) {
+				final Pair<Integer, Integer> result = simulateRound();
 
-			final int playerHP = result.first();
-			final int enemyHP = result.second();
+				final int playerHP = result.first();
+				final int enemyHP = result.second();
 
-			String winner = "tie";
-			if (playerHP > enemyHP) {
-				winner = "player";
-			} else if (playerHP < enemyHP) {
-				winner = "enemy";
-			}
+				String winner = "tie";
+				if (playerHP > enemyHP) {
+					winner = "player";
+				} else if (playerHP < enemyHP) {
+					winner = "enemy";
+				}
 
-			// don't output detailed round info for full simulation of all defined creatures
-			if (!all) {
-				System.out.println("\nRound " + (ridx+1) + "/" + rounds + " winner: " + winner
-					+ "\n  player HP: " + playerHP + "\n  enemy  HP: " + enemyHP);
-			}
+				// don't output detailed round info for full simulation of all defined creatures
+				if (!all) {
+					report.append("\nRound " + (ridx+1) + "/" + rounds + " winner: " + winner
+						+ "\n  player HP: " + playerHP + "\n  enemy  HP: " + enemyHP + "\n");
+				}
 
-			if (playerHP > enemyHP) {
-				wins++;
-			} else if (playerHP < enemyHP) {
-				losses++;
-			} else {
-				ties++;
+				if (playerHP > enemyHP) {
+					wins++;
+				} else if (playerHP < enemyHP) {
+					losses++;
+				} else {
+					ties++;
+				}
 			}
-		}
 
-		final long win_ratio = Math.round((Double.valueOf(wins) / rounds) * 100);
-		final long loss_ratio = Math.round((Double.valueOf(losses) / rounds) * 100);
-		final long tie_ratio = Math.round((Double.valueOf(ties) / rounds) * 100);
-
-		System.out.println("\nFINAL RESULT (" + ridx + " rounds):");
-
-		final int pAtk = player.getAtk();
-		final int pDef = player.getDef();
-		final double pItemAtk = player.getItemAtk();
-		final double pItemDef = player.getItemDef();
-		final double pAtkTotal = pAtk * (pItemAtk + 1);
-		final double pDefTotal = pDef * (pItemDef + 1);
-
-		final int eAtk = enemy.getAtk();
-		final int eDef = enemy.getDef();
-		final double eItemAtk = enemy.getItemAtk();
-		final double eItemDef = enemy.getItemDef();
-		final double eAtkTotal = eAtk * (eItemAtk + 1);
-		final double eDefTotal = eDef * (eItemDef + 1);
-
-		final List<String> equip_types = Arrays.asList("weapon", "shield",
-			"helmet", "armor", "legs", "boots", "cloak", "ring");
-
-		final Map<String, Item> pEquip = new HashMap<String, Item>() {{
-			put("weapon", player.getWeapon());
-			put("shield", player.getShield());
-			put("helmet", player.getHelmet());
-			put("armor", player.getArmor());
-			put("legs", player.getLegs());
-			put("boots", player.getBoots());
-			put("cloak", player.getCloak());
-			put("ring", player.getRing());
-		}};
-		final Map<String, Item> eEquip = new HashMap<String, Item>() {{
-			put("weapon", enemy.getWeapon());
-			put("shield", enemy.getShield());
-			put("helmet", enemy.getHelmet());
-			put("armor", enemy.getArmor());
-			put("legs", enemy.getLegs());
-			put("boots", enemy.getBoots());
-			put("cloak", enemy.getCloak());
-			put("ring", enemy.getRing());
-		}};
-
-
-		// *** player info ***
-
-		final StringBuilder sb = new StringBuilder("\n  Player stats:"
-			+ "\n    Level: " + player.getLevel()
-			+ "\n    HP:    " + player.getBaseHP()
-			+ "\n    ATK:   " + pAtk
-			+ "\n           (item: " + pItemAtk + ", total: " + pAtkTotal + ")"
-			+ "\n    DEF:   " + pDef
-			+ "\n           (item: " + pItemDef + ", total: " + pDefTotal + ")"
-			+ "\n    Equip: ");
-
-		boolean has_equip = false;
-		final StringBuilder equip_sb = new StringBuilder();
-		for (final String item_type: equip_types) {
-			final Item e = pEquip.get(item_type);
-			if (e != null) {
-				final String e_name = e.getName();
-				if (e_name != null && e_name != "") {
-					if (has_equip) {
-						equip_sb.append(", ");
-					}
+			final long win_ratio = Math.round((Double.valueOf(wins) / rounds) * 100);
+			final long loss_ratio = Math.round((Double.valueOf(losses) / rounds) * 100);
+			final long tie_ratio = Math.round((Double.valueOf(ties) / rounds) * 100);
+
+			report.append("\nFINAL RESULT (" + ridx + " rounds):\n");
+
+			final int pAtk = player.getAtk();
+			final int pDef = player.getDef();
+			final double pItemAtk = player.getItemAtk();
+			final double pItemDef = player.getItemDef();
+			final double pAtkTotal = pAtk * (pItemAtk + 1);
+			final double pDefTotal = pDef * (pItemDef + 1);
+
+			final int eAtk = enemy.getAtk();
+			final int eDef = enemy.getDef();
+			final double eItemAtk = enemy.getItemAtk();
+			final double eItemDef = enemy.getItemDef();
+			final double eAtkTotal = eAtk * (eItemAtk + 1);
+			final double eDefTotal = eDef * (eItemDef + 1);
+
+			final List<String> equip_types = Arrays.asList("weapon", "shield",
+				"helmet", "armor", "legs", "boots", "cloak", "ring");
+
+			final Map<String, Item> pEquip = new HashMap<String, Item>() {{
+				put("weapon", player.getWeapon());
+				put("shield", player.getShield());
+				put("helmet", player.getHelmet());
+				put("armor", player.getArmor());
+				put("legs", player.getLegs());
+				put("boots", player.getBoots());
+				put("cloak", player.getCloak());
+				put("ring", player.getRing());
+			}};
+			final Map<String, Item> eEquip = new HashMap<String, Item>() {{
+				put("weapon", enemy.getWeapon());
+				put("shield", enemy.getShield());
+				put("helmet", enemy.getHelmet());
+				put("armor", enemy.getArmor());
+				put("legs", enemy.getLegs());
+				put("boots", enemy.getBoots());
+				put("cloak", enemy.getCloak());
+				put("ring", enemy.getRing());
+			}};
+
+
+			// *** player info ***
+
+			final StringBuilder sb = new StringBuilder("\n  Player stats:"
+				+ "\n    Level: " + player.getLevel()
+				+ "\n    HP:    " + player.getBaseHP()
+				+ "\n    ATK:   " + pAtk
+				+ "\n           (item: " + pItemAtk + ", total: " + pAtkTotal + ")"
+				+ "\n    DEF:   " + pDef
+				+ "\n           (item: " + pItemDef + ", total: " + pDefTotal + ")"
+				+ "\n    Equip: ");
+
+			boolean has_equip = false;
+			final StringBuilder equip_sb = new StringBuilder();
+			for (final String item_type: equip_types) {
+				final Item e = pEquip.get(item_type);
+				if (e != null) {
+					final String e_name = e.getName();
+					if (e_name != null && e_name != "") {
+						if (has_equip) {
+							equip_sb.append(", ");
+						}
 
-					equip_sb.append(item_type + "=" + e_name);
-					has_equip = true;
+						equip_sb.append(item_type + "=" + e_name);
+						has_equip = true;
+					}
 				}
 			}
-		}
-		if (!has_equip) {
-			equip_sb.append("none");
-		}
-		sb.append(equip_sb.toString());
-		System.out.println(sb.toString());
+			if (!has_equip) {
+				equip_sb.append("none");
+			}
+			sb.append(equip_sb.toString());
+			report.append(sb.toString()).append('\n');
 
 
-		// *** enemy info ***
+			// *** enemy info ***
 
-		sb.delete(0, sb.length()); // reset info
+			sb.delete(0, sb.length()); // reset info
 
-		sb.append("\n  Enemy stats:"
-			+ "\n    Name:  " + enemy.getName());
-		if (boss) {
-			sb.append(" (boss)");
-		}
-		sb.append("\n    Level: " + enemy.getLevel()
-			+ "\n    HP:    " + enemy.getBaseHP()
-			+ "\n    ATK:   " + eAtk
-			+ "\n           (item: " + eItemAtk + ", total: " + eAtkTotal + ")"
-			+ "\n    DEF:   " + eDef
-			+ "\n           (item: " + eItemDef + ", total: " + eDefTotal + ")"
-			+ "\n    Equip: ");
-
-		// reset equipment string
-		has_equip = false;
-		equip_sb.delete(0, equip_sb.length());
-		for (final String item_type: equip_types) {
-			final Item e = eEquip.get(item_type);
-			if (e != null) {
-				String e_name = e.getName();
-				if (e_name != null && e_name != "") {
-					if (has_equip) {
-						equip_sb.append(", ");
-					}
+			sb.append("\n  Enemy stats:"
+				+ "\n    Name:  " + enemy.getName());
+			if (enemyIsBoss) {
+				sb.append(" (boss)");
+			}
+			sb.append("\n    Level: " + enemy.getLevel()
+				+ "\n    HP:    " + enemy.getBaseHP()
+				+ "\n    ATK:   " + eAtk
+				+ "\n           (item: " + eItemAtk + ", total: " + eAtkTotal + ")"
+				+ "\n    DEF:   " + eDef
+				+ "\n           (item: " + eItemDef + ", total: " + eDefTotal + ")"
+				+ "\n    Equip: ");
+
+			// reset equipment string
+			has_equip = false;
+			equip_sb.delete(0, equip_sb.length());
+			for (final String item_type: equip_types) {
+				final Item e = eEquip.get(item_type);
+				if (e != null) {
+					String e_name = e.getName();
+					if (e_name != null && e_name != "") {
+						if (has_equip) {
+							equip_sb.append(", ");
+						}
 
-					if (item_type.equals("weapon")) {
-						final Item e_weapon = enemy.getWeapon();
-						if (e_weapon != null && e_weapon.getName() == "") {
-							e_name = "unnamed weapon";
+						if (item_type.equals("weapon")) {
+							final Item e_weapon = enemy.getWeapon();
+							if (e_weapon != null && e_weapon.getName() == "") {
+								e_name = "unnamed weapon";
+							}
 						}
-					}
 
-					equip_sb.append(item_type + "=" + e_name);
-					has_equip = true;
+						equip_sb.append(item_type + "=" + e_name);
+						has_equip = true;
+					}
 				}
 			}
-		}
-		if (!has_equip) {
-			equip_sb.append("none");
-		}
-		sb.append(equip_sb.toString());
-		System.out.println(sb.toString());
+			if (!has_equip) {
+				equip_sb.append("none");
+			}
+			sb.append(equip_sb.toString());
+			report.append(sb.toString()).append('\n');
+
+
+			report.append("\n  Player wins:       " + wins + " (" + win_ratio + "%)"
+				+ "\n  Enemy wins:        " + losses + " (" + loss_ratio + "%)"
+				+ "\n  Ties:              " + ties + " (" + tie_ratio + "%)"
+				+ "\n  Incomplete rounds: " + incomplete_rounds + "\n");
+
+			long diff_ratio = 0;
+			String beneficiary = "none";
+			if (wins > losses) {
+				diff_ratio = win_ratio - loss_ratio - tie_ratio;
+				beneficiary = "player";
+			} else if (wins < losses) {
+				diff_ratio = loss_ratio - win_ratio - tie_ratio;
+				beneficiary = "enemy";
+			}
 
+			final boolean balanced = diff_ratio <= balance_threshold;
+			report.append("\n  Resulting difference ratio: " + Math.abs(diff_ratio) + "%\n");
+			if (balanced) {
+				report.append("    Result is within balance threshold of "
+					+ balance_threshold + "%\n");
+			} else {
+				report.append("    Result is not within balance threshold of "
+					+ balance_threshold + "%\n");
+			}
+			report.append("    Beneficiary: " + beneficiary);
 
-		System.out.println("\n  Player wins:       " + wins + " (" + win_ratio + "%)"
-			+ "\n  Enemy wins:        " + losses + " (" + loss_ratio + "%)"
-			+ "\n  Ties:              " + ties + " (" + tie_ratio + "%)"
-			+ "\n  Incomplete rounds: " + incomplete_rounds);
+			final List<String> values = Arrays.asList(Integer.toString(wins), Integer.toString(losses),
+				Integer.toString(ties), Integer.toString(incomplete_rounds),
+				Long.toString(Math.abs(diff_ratio)), beneficiary, Boolean.toString(balanced));
+			final MatchupResult result = new MatchupResult(this, values, report.toString());
 
-		long diff_ratio = 0;
-		String beneficiary = "none";
-		if (wins > losses) {
-			diff_ratio = win_ratio - loss_ratio - tie_ratio;
-			beneficiary = "player";
-		} else if (wins < losses) {
-			diff_ratio = loss_ratio - win_ratio - tie_ratio;
-			beneficiary = "enemy";
-		}
+			// the entities are not needed any more
+			player = null;
+			enemy = null;
 
-		System.out.println("\n  Resulting difference ratio: " + Math.abs(diff_ratio) + "%");
-		if (diff_ratio <= balance_threshold) {
-			System.out.println("    Result is within balance threshold of "
-				+ balance_threshold + "%");
-		} else {
-			System.out.println("    Result is not within balance threshold of "
-				+ balance_threshold + "%");
+			return result;
 		}
-		System.out.println("    Beneficiary: " + beneficiary);
-	}
 
-	private static Pair<Integer, Integer> simulateRound() {
-		// make sure entities have full HP for each round
-		player.heal();
-		enemy.heal();
+		private Pair<Integer, Integer> simulateRound() {
+			// make sure entities have full HP for each round
+			player.heal();
+			enemy.heal();
 
-		int turn = 0;
-		while (player.getHP() > 0 && enemy.getHP() > 0) {
-			turn++;
+			int turn = 0;
+			while (player.getHP() > 0 && enemy.getHP() > 0) {
+				turn++;
 
-			final int damageDealt = player.damageDone(enemy, player.getItemAtk(), player.getDamageType());
-			final int damageReceived = enemy.damageDone(player, enemy.getItemAtk(), player.getDamageType());
+				final int damageDealt = player.damageDone(enemy, player.getItemAtk(), player.getDamageType());
+				final int damageReceived = enemy.damageDone(player, enemy.getItemAtk(), player.getDamageType());
 
-			player.setHP(player.getHP() - damageReceived);
-			enemy.setHP(enemy.getHP() - damageDealt);
+				player.setHP(player.getHP() - damageReceived);
+				enemy.setHP(enemy.getHP() - damageDealt);
 
-			if (turn == TURN_LIMIT && player.getHP() > 0 && enemy.getHP() > 0) {
-				System.out.println("\nWARNING: Turn limit reached (" + TURN_LIMIT + "), terminating round ...");
-				incomplete_rounds++;
-				break;
+				if (turn == TURN_LIMIT && player.getHP() > 0 && enemy.getHP() > 0) {
+					report.append("\nWARNING: Turn limit reached (" + TURN_LIMIT + "), terminating round ...\n");
+					incomplete_rounds++;
+					break;
+				}
 			}
-		}
 
-		return new Pair<Integer, Integer>(player.getHP(), enemy.getHP());
+			return new Pair<Integer, Integer>(player.getHP(), enemy.getHP());
+		}
 	}
 
-	private static void runFullSimulation() {
-		new RPClassGenerator().createRPClasses();
-		em = SingletonRepository.getEntityManager();
+	private static void runFullSimulation() throws Exception {
 		creatures = new CreatureGroupsXMLLoader("/data/conf/creatures.xml").load();
 
 		Collections.sort(creatures, new Comparator<DefaultCreature>() {
@@ -647,13 +792,7 @@ public class SimulateCombat {
 			}
 		});
 
-		boolean filtered = false;
-		int c_count = filtered_creatures.size();
-		if (c_count > 0) {
-			filtered = true;
-		} else {
-			c_count = creatures.size();
-		}
+		final boolean filtered = filtered_creatures.size() > 0;
 
 		if (filtered) {
 			System.out.println("\nRunning simulation of select predefined creatures ...");
@@ -661,29 +800,40 @@ public class SimulateCombat {
 			System.out.println("\nRunning simulation of all predefined creatures ...");
 		}
 
-		int c_idx = 0;
-
+		final Map<String, String> fingerprints = getFingerprints();
+		final List<CombatMatchup> matchups = new ArrayList<>();
 		for (final DefaultCreature df: creatures) {
-			creature_name = df.getCreatureName();
-			if (filtered && !filtered_creatures.contains(creature_name)) {
+			final String name = df.getCreatureName();
+			if (filtered && !filtered_creatures.contains(name)) {
 				continue;
 			}
 
-			c_idx++;
-			enemy = df.getCreature();
-			boss = df.getAIProfiles().containsKey("boss");
-
-			initEntities();
-
-			System.out.println("\nRunning simulation for " + creature_name
-				+ " (" + c_idx + "/" + c_count + ") ...");
-			runSimulation();
+			final String fingerprint = fingerprints.get(name);
+			matchups.add(new CombatMatchup(df, name, df.getLevel(), fingerprint != null ? fingerprint : ""));
 
 			if (filtered) {
-				filtered_creatures.remove(creature_name);
+				filtered_creatures.remove(name);
 			}
 		}
 
+		final int c_count = matchups.size();
+		createEngine().run(matchups, new SimulationEngine.Listener() {
+			private int c_idx = 0;
+
+			@Override
+			public void completed(final MatchupResult result, final boolean reused) {
+				c_idx++;
+				if (reused) {
+					System.out.println("\nUnchanged since last simulation: " + result.getCreatureName()
+						+ " (" + c_idx + "/" + c_count + ")");
+				} else {
+					System.out.println("\nSimulation for " + result.getCreatureName()
+						+ " (" + c_idx + "/" + c_count + "):");
+					System.out.println(result.getReport());
+				}
+			}
+		});
+
 		if (filtered_creatures.size() > 0) {
 			System.out.println("\nSkipped unknown creatures:");
 			for (final String c_name: filtered_creatures) {
@@ -0,0 +1,116 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.tools.simulation;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.xml.sax.SAXException;
+
+import games.stendhal.server.core.config.XMLUtil;
+
+/**
+ * Fingerprints of the creature definitions in the XML files, used to find
+ * the creatures that changed since a previous simulation.
+ */
+public final class CreatureDefinitions {
+	private CreatureDefinitions() {
+		// utility class
+	}
+
+	/**
+	 * Get the fingerprints of all creatures of a creature groups file.
+	 *
+	 * @param groupsFile resource path of the groups file, for example
+	 * 	<code>/data/conf/creatures.xml</code>
+	 * @param settings settings of the simulation. They are included in the
+	 * 	fingerprints, so that results are not reused after the settings
+	 * 	changed
+	 * @return fingerprints by creature name
+	 * @throws IOException if a file cannot be read or parsed
+	 */
+	public static Map<String, String> getFingerprints(final String groupsFile, final String settings) throws IOException {
+		final URI base;
+		try {
+			base = new URI(groupsFile);
+		} catch (final URISyntaxException e) {
+			throw new IllegalArgumentException(e);
+		}
+
+		final Map<String, String> fingerprints = new HashMap<String, String>();
+		try {
+			final Transformer transformer = TransformerFactory.newInstance().newTransformer();
+			transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+
+			final Document groups = parse(base.getPath());
+			for (final Element group : XMLUtil.getElements(groups.getDocumentElement(), "group")) {
+				final Document document = parse(base.resolve(group.getAttribute("uri")).getPath());
+				for (final Element creature : XMLUtil.getElements(document.getDocumentElement(), "creature")) {
+					final StringWriter xml = new StringWriter();
+					transformer.transform(new DOMSource(creature), new StreamResult(xml));
+					xml.append('\n').append(settings);
+					fingerprints.put(creature.getAttribute("name"), hash(xml.toString()));
+				}
+			}
+		} catch (final SAXException e) {
+			throw new IOException(e);
+		} catch (final TransformerException e) {
+			throw new IOException(e);
+		}
+		return fingerprints;
+	}
+
+	private static Document parse(final String path) throws IOException, SAXException {
+		final InputStream in = CreatureDefinitions.class.getResourceAsStream(path);
+		if (in == null) {
+			throw new FileNotFoundException("Cannot find resource: " + path);
+		}
+		try {
+			return XMLUtil.parse(in);
+		} finally {
+			in.close();
+		}
+	}
+
+	private static String hash(final String content) {
+		final MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-1");
+		} catch (final NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		final StringBuilder sb = new StringBuilder();
+		for (final byte b : digest.digest(content.getBytes(StandardCharsets.UTF_8))) {
+			sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+			sb.append(Character.forDigit(b & 0xF, 16));
+		}
+		return sb.toString();
+	}
+}
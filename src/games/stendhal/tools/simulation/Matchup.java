@@ -0,0 +1,96 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.tools.simulation;
+
+/**
+ * A simulation of the fights of a player against one creature, run by the
+ * {@link SimulationEngine}.
+ * <p>
+ * Each matchup has to use its own entities, as matchups run in parallel.
+ * Random numbers have to be taken from {@link games.stendhal.common.Rand},
+ * which uses a generator seeded for the matchup while it runs.
+ */
+public abstract class Matchup {
+	private final String creatureName;
+	private final int level;
+	private final String fingerprint;
+	private long seed;
+
+	/**
+	 * Create a new Matchup.
+	 *
+	 * @param creatureName name of the creature
+	 * @param level level at which the fight takes place
+	 * @param fingerprint fingerprint of the creature definition and of the
+	 * 	settings of the simulation. A previous result is reused only if it
+	 * 	has the same fingerprint
+	 */
+	protected Matchup(final String creatureName, final int level, final String fingerprint) {
+		this.creatureName = creatureName;
+		this.level = level;
+		this.fingerprint = fingerprint;
+	}
+
+	/**
+	 * Get the name of the creature.
+	 *
+	 * @return creature name
+	 */
+	public String getCreatureName() {
+		return creatureName;
+	}
+
+	/**
+	 * Get the level at which the fight takes place.
+	 *
+	 * @return level
+	 */
+	public int getLevel() {
+		return level;
+	}
+
+	/**
+	 * Get the fingerprint of the creature definition and of the settings.
+	 *
+	 * @return fingerprint
+	 */
+	public String getFingerprint() {
+		return fingerprint;
+	}
+
+	/**
+	 * Get the seed of the random generator used for the matchup.
+	 *
+	 * @return seed
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	void setSeed(final long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Create the entities of the matchup. This is called by one thread at a
+	 * time, because creating entities uses shared data that is not thread
+	 * safe.
+	 */
+	protected abstract void setUp();
+
+	/**
+	 * Run the simulation.
+	 *
+	 * @return result
+	 */
+	protected abstract MatchupResult simulate();
+}
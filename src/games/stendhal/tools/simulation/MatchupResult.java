@@ -0,0 +1,114 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.tools.simulation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of a {@link Matchup}.
+ */
+public final class MatchupResult {
+	private final String creatureName;
+	private final int level;
+	private final String fingerprint;
+	private final long seed;
+	private final List<String> values;
+	private final String report;
+
+	/**
+	 * Create the result of a simulated matchup.
+	 *
+	 * @param matchup matchup
+	 * @param values values of the result columns of the simulation
+	 * @param report human readable description of the result
+	 */
+	public MatchupResult(final Matchup matchup, final List<String> values, final String report) {
+		this(matchup.getCreatureName(), matchup.getLevel(), matchup.getFingerprint(),
+				matchup.getSeed(), values, report);
+	}
+
+	/**
+	 * Create a result.
+	 *
+	 * @param creatureName name of the creature
+	 * @param level level of the fight
+	 * @param fingerprint fingerprint of the matchup
+	 * @param seed seed of the random generator used for the matchup
+	 * @param values values of the result columns
+	 * @param report human readable description of the result
+	 */
+	MatchupResult(final String creatureName, final int level, final String fingerprint,
+			final long seed, final List<String> values, final String report) {
+		this.creatureName = creatureName;
+		this.level = level;
+		this.fingerprint = fingerprint;
+		this.seed = seed;
+		this.values = Collections.unmodifiableList(new ArrayList<String>(values));
+		this.report = report;
+	}
+
+	/**
+	 * Get the name of the creature.
+	 *
+	 * @return creature name
+	 */
+	public String getCreatureName() {
+		return creatureName;
+	}
+
+	/**
+	 * Get the level of the fight.
+	 *
+	 * @return level
+	 */
+	public int getLevel() {
+		return level;
+	}
+
+	/**
+	 * Get the fingerprint of the matchup.
+	 *
+	 * @return fingerprint
+	 */
+	public String getFingerprint() {
+		return fingerprint;
+	}
+
+	/**
+	 * Get the seed of the random generator used for the matchup.
+	 *
+	 * @return seed
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Get the values of the result columns.
+	 *
+	 * @return values
+	 */
+	public List<String> getValues() {
+		return values;
+	}
+
+	/**
+	 * Get the human readable description of the result.
+	 *
+	 * @return report, or <code>null</code> for results read from a file
+	 */
+	public String getReport() {
+		return report;
+	}
+}
@@ -0,0 +1,179 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.tools.simulation;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * CSV file of matchup results. Each line is written and flushed as soon as
+ * the result is complete, so the file of an interrupted run holds all
+ * results that were finished, and can be used for an incremental rerun.
+ */
+public class ResultFile implements Closeable {
+	private static final List<String> KEY_COLUMNS = Arrays.asList("creature", "level", "fingerprint", "seed");
+
+	private final PrintWriter writer;
+
+	/**
+	 * Create a new result file, replacing an existing one.
+	 *
+	 * @param file file
+	 * @param columns names of the result columns of the simulation
+	 * @throws IOException if the file cannot be created
+	 */
+	public ResultFile(final File file, final List<String> columns) throws IOException {
+		writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8));
+		writeLine(header(columns));
+	}
+
+	/**
+	 * Append a result to the file.
+	 *
+	 * @param result result
+	 */
+	public void write(final MatchupResult result) {
+		final List<String> fields = new ArrayList<String>(KEY_COLUMNS.size() + result.getValues().size());
+		fields.add(result.getCreatureName());
+		fields.add(Integer.toString(result.getLevel()));
+		fields.add(result.getFingerprint());
+		fields.add(Long.toString(result.getSeed()));
+		fields.addAll(result.getValues());
+		writeLine(fields);
+	}
+
+	@Override
+	public void close() {
+		writer.close();
+	}
+
+	private void writeLine(final List<String> fields) {
+		final StringBuilder sb = new StringBuilder();
+		for (final String field : fields) {
+			if (sb.length() > 0) {
+				sb.append(',');
+			}
+			sb.append(quote(field));
+		}
+		writer.println(sb.toString());
+		writer.flush();
+	}
+
+	/**
+	 * Read the results of a previous run.
+	 *
+	 * @param file file written by a previous run
+	 * @param columns names of the result columns of the simulation
+	 * @return results by creature name. The map is empty if the file does not
+	 * 	exist or was written by a simulation with other columns
+	 * @throws IOException if the file cannot be read
+	 */
+	public static Map<String, MatchupResult> read(final File file, final List<String> columns) throws IOException {
+		final Map<String, MatchupResult> results = new HashMap<String, MatchupResult>();
+		if (!file.isFile()) {
+			return results;
+		}
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+		try {
+			String line = reader.readLine();
+			if ((line == null) || !parse(line).equals(header(columns))) {
+				return results;
+			}
+			final int size = KEY_COLUMNS.size() + columns.size();
+			while ((line = reader.readLine()) != null) {
+				final List<String> fields = parse(line);
+				if (fields.size() != size) {
+					// line of an interrupted run
+					continue;
+				}
+				try {
+					final MatchupResult result = new MatchupResult(fields.get(0),
+							Integer.parseInt(fields.get(1)), fields.get(2),
+							Long.parseLong(fields.get(3)),
+							fields.subList(KEY_COLUMNS.size(), size), null);
+					results.put(result.getCreatureName(), result);
+				} catch (final NumberFormatException e) {
+					continue;
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		return results;
+	}
+
+	private static List<String> header(final List<String> columns) {
+		final List<String> header = new ArrayList<String>(KEY_COLUMNS);
+		header.addAll(columns);
+		return header;
+	}
+
+	/**
+	 * Quote a field if it contains characters that have a meaning in CSV.
+	 *
+	 * @param field field
+	 * @return field as written to the file
+	 */
+	static String quote(final String field) {
+		if ((field.indexOf(',') < 0) && (field.indexOf('"') < 0)) {
+			return field;
+		}
+		return '"' + field.replace("\"", "\"\"") + '"';
+	}
+
+	/**
+	 * Split a line into its fields.
+	 *
+	 * @param line line written by {@link #writeLine(List)}
+	 * @return fields
+	 */
+	static List<String> parse(final String line) {
+		final List<String> fields = new ArrayList<String>();
+		final StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+		for (int i = 0; i < line.length(); i++) {
+			final char c = line.charAt(i);
+			if (quoted) {
+				if (c != '"') {
+					field.append(c);
+				} else if ((i + 1 < line.length()) && (line.charAt(i + 1) == '"')) {
+					field.append('"');
+					i++;
+				} else {
+					quoted = false;
+				}
+			} else if (c == '"') {
+				quoted = true;
+			} else if (c == ',') {
+				fields.add(field.toString());
+				field.setLength(0);
+			} else {
+				field.append(c);
+			}
+		}
+		fields.add(field.toString());
+		return fields;
+	}
+}
@@ -0,0 +1,197 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.tools.simulation;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import games.stendhal.common.Rand;
+
+/**
+ * Runs matchups in parallel.
+ * <p>
+ * Each matchup uses its own random generator. Its seed depends only on the
+ * seed of the engine and on the creature and level of the matchup, so the
+ * results are the same for every run with the same seed, regardless of the
+ * number of threads and of the order in which the matchups finish.
+ * <p>
+ * Results are reported, and written to the output file, as soon as they are
+ * complete. In incremental mode the results of the previous output file are
+ * reused for matchups whose fingerprint did not change, and only the other
+ * matchups are simulated.
+ */
+public class SimulationEngine {
+	/** Lock held while the entities of a matchup are created. */
+	private static final Object SETUP_LOCK = new Object();
+
+	/**
+	 * Receiver of the results of a run.
+	 */
+	public interface Listener {
+		/**
+		 * Called on the thread that runs the engine for each result.
+		 *
+		 * @param result result
+		 * @param reused <code>true</code> if the result was taken from the
+		 * 	previous output file, <code>false</code> if it was simulated
+		 */
+		void completed(MatchupResult result, boolean reused);
+	}
+
+	private final int threads;
+	private final long seed;
+	private File output;
+	private List<String> columns;
+	private boolean incremental;
+
+	/**
+	 * Create a new SimulationEngine.
+	 *
+	 * @param threads number of threads to use
+	 * @param seed base seed of the random generators of the matchups
+	 */
+	public SimulationEngine(final int threads, final long seed) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("threads must be at least 1: " + threads);
+		}
+		this.threads = threads;
+		this.seed = seed;
+	}
+
+	/**
+	 * Write the results to a CSV file.
+	 *
+	 * @param file output file
+	 * @param columns names of the result columns of the matchups
+	 * @param incremental if <code>true</code>, results of an existing output
+	 * 	file are reused for matchups with the same fingerprint
+	 */
+	public void setOutput(final File file, final List<String> columns, final boolean incremental) {
+		this.output = file;
+		this.columns = columns;
+		this.incremental = incremental;
+	}
+
+	/**
+	 * Get the seed of the random generator of a matchup.
+	 *
+	 * @param baseSeed seed of the engine
+	 * @param creatureName name of the creature
+	 * @param level level of the matchup
+	 * @return seed
+	 */
+	public static long getSeed(final long baseSeed, final String creatureName, final int level) {
+		return mix(mix(baseSeed ^ creatureName.hashCode()) + level);
+	}
+
+	/**
+	 * Scramble the bits of a number, as done by the SplitMix64 generator, so
+	 * that similar inputs give unrelated seeds.
+	 *
+	 * @param value value
+	 * @return scrambled value
+	 */
+	private static long mix(final long value) {
+		long z = value + 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Run matchups.
+	 *
+	 * @param matchups matchups to run
+	 * @param listener receiver of the results
+	 * @throws IOException if the output file cannot be read or written
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 * 	for results
+	 * @throws ExecutionException if a matchup failed
+	 */
+	public void run(final List<? extends Matchup> matchups, final Listener listener)
+			throws IOException, InterruptedException, ExecutionException {
+		Map<String, MatchupResult> previous = Collections.emptyMap();
+		if ((output != null) && incremental) {
+			previous = ResultFile.read(output, columns);
+		}
+
+		final ResultFile results = (output != null) ? new ResultFile(output, columns) : null;
+		try {
+			final List<Matchup> pending = new ArrayList<Matchup>();
+			for (final Matchup matchup : matchups) {
+				final MatchupResult result = previous.get(matchup.getCreatureName());
+				if ((result != null) && (result.getLevel() == matchup.getLevel())
+						&& result.getFingerprint().equals(matchup.getFingerprint())) {
+					completed(results, result, true, listener);
+				} else {
+					matchup.setSeed(getSeed(seed, matchup.getCreatureName(), matchup.getLevel()));
+					pending.add(matchup);
+				}
+			}
+			if (!pending.isEmpty()) {
+				simulate(pending, results, listener);
+			}
+		} finally {
+			if (results != null) {
+				results.close();
+			}
+		}
+	}
+
+	private void simulate(final List<Matchup> matchups, final ResultFile results, final Listener listener)
+			throws InterruptedException, ExecutionException {
+		final ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, matchups.size()));
+		try {
+			final CompletionService<MatchupResult> completion = new ExecutorCompletionService<MatchupResult>(executor);
+			for (final Matchup matchup : matchups) {
+				completion.submit(new Callable<MatchupResult>() {
+					@Override
+					public MatchupResult call() {
+						Rand.setThreadRandom(new Random(matchup.getSeed()));
+						try {
+							synchronized (SETUP_LOCK) {
+								matchup.setUp();
+							}
+							return matchup.simulate();
+						} finally {
+							Rand.setThreadRandom(null);
+						}
+					}
+				});
+			}
+			for (int i = 0; i < matchups.size(); i++) {
+				completed(results, completion.take().get(), false, listener);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static void completed(final ResultFile results, final MatchupResult result,
+			final boolean reused, final Listener listener) {
+		if (results != null) {
+			results.write(result);
+		}
+		listener.completed(result, reused);
+	}
+}
@@ -16,8 +16,12 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
+import java.awt.Point;
 import java.awt.geom.Rectangle2D;
+import java.util.ArrayDeque;
 import java.util.BitSet;
+import java.util.Deque;
+import java.util.Random;
 
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -353,4 +357,195 @@ public class CollisionMapTest {
 				.getWidth(), (int) bob.getHeight()));
 	}
 
+	/**
+	 * Tests for getFreeArea.
+	 */
+	@Test
+	public void testFreeArea() {
+		final CollisionMap map = new CollisionMap(4, 5);
+		assertThat(map.getFreeArea(), is(20));
+		map.set(1, 1);
+		map.set(1, 1);
+		assertThat(map.getFreeArea(), is(19));
+		map.set(new Rectangle2D.Double(0.0, 0.0, 2.0, 3.0));
+		assertThat(map.getFreeArea(), is(14));
+		map.unset(1, 1);
+		map.unset(3, 3);
+		assertThat(map.getFreeArea(), is(15));
+		map.clear();
+		assertThat(map.getFreeArea(), is(20));
+	}
+
+	/**
+	 * Tests that positions below the map are not stored.
+	 */
+	@Test
+	public void testOutOfBounds() {
+		final CollisionMap map = new CollisionMap(4, 4);
+		map.set(3, 4);
+		assertFalse(map.get(3, 4));
+		assertThat(map.getFreeArea(), is(16));
+		assertThat(map.getRegionCount(), is(1));
+		map.set(3, 3);
+		map.unset(3, 4);
+		assertTrue(map.get(3, 3));
+		assertThat(map.getFreeArea(), is(15));
+	}
+
+	/**
+	 * Tests that positions left of or above the map are rejected.
+	 */
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testNegativeOutOfBounds() {
+		new CollisionMap(4, 4).set(0, -1);
+	}
+
+	/**
+	 * Tests for getRegion.
+	 */
+	@Test
+	public void testRegions() {
+		// a wall splits the map, with a hole at the bottom
+		final CollisionMap map = new CollisionMap(5, 4);
+		for (int y = 0; y < 3; y++) {
+			map.set(2, y);
+		}
+		map.set(4, 0);
+		assertThat(map.getRegionCount(), is(1));
+		assertThat(map.getRegion(0, 0), is(map.getRegion(4, 1)));
+		assertThat(map.getRegion(2, 0), is(-1));
+		assertThat(map.getRegion(5, 0), is(-1));
+		assertThat(map.getRegionSize(0), is(16));
+
+		map.set(2, 3);
+		assertThat(map.getRegionCount(), is(2));
+		assertFalse(map.getRegion(0, 0) == map.getRegion(4, 1));
+		assertThat(map.getRegionSize(map.getRegion(0, 0)), is(8));
+		assertThat(map.getRegionSize(map.getRegion(3, 3)), is(7));
+
+		map.unset(2, 1);
+		assertThat(map.getRegionCount(), is(1));
+	}
+
+	/**
+	 * Compares the regions of random maps to a flood fill.
+	 */
+	@Test
+	public void testRandomRegions() {
+		final Random random = new Random(1);
+		for (int round = 0; round < 20; round++) {
+			final int width = 1 + random.nextInt(30);
+			final int height = 1 + random.nextInt(30);
+			final CollisionMap map = new CollisionMap(width, height);
+			for (int x = 0; x < width; x++) {
+				for (int y = 0; y < height; y++) {
+					if (random.nextInt(5) < 2) {
+						map.set(x, y);
+					}
+				}
+			}
+			final int[][] fill = new int[width][height];
+			int regions = 0;
+			for (int x = 0; x < width; x++) {
+				for (int y = 0; y < height; y++) {
+					if (!map.get(x, y) && (fill[x][y] == 0)) {
+						regions++;
+						fill(map, fill, x, y, regions);
+					}
+				}
+			}
+			assertThat(map.getRegionCount(), is(regions));
+			int free = 0;
+			for (int x = 0; x < width; x++) {
+				for (int y = 0; y < height; y++) {
+					if (map.get(x, y)) {
+						assertThat(map.getRegion(x, y), is(-1));
+						continue;
+					}
+					assertThat(map.getFreePosition(free), is(new Point(x, y)));
+					free++;
+					// same region exactly when the flood fill agrees
+					assertThat(map.getRegion(x, y) == map.getRegion(0, 0), is(fill[x][y] == fill[0][0]));
+				}
+			}
+			assertThat(map.getFreeArea(), is(free));
+			assertThat(map.getFreePosition(free), is((Point) null));
+		}
+	}
+
+	/**
+	 * Compares rectangle and line queries to position by position checks,
+	 * on a map that is higher than one bit word.
+	 */
+	@Test
+	public void testRandomQueries() {
+		final Random random = new Random(2);
+		final int width = 40;
+		final int height = 150;
+		final CollisionMap map = new CollisionMap(width, height);
+		for (int i = 0; i < 400; i++) {
+			map.set(random.nextInt(width), random.nextInt(height));
+		}
+		for (int i = 0; i < 5000; i++) {
+			final int x = random.nextInt(width + 4) - 2;
+			final int y = random.nextInt(height + 4) - 2;
+			final int w = random.nextInt(5);
+			final int h = 1 + random.nextInt(i % 10 == 0 ? 130 : 5);
+			assertThat("rectangle " + x + "," + y + "," + w + "," + h, map.collides(x, y, w, h), is(collidesSlowly(map, x, y, w, h)));
+
+			final int x2 = random.nextInt(width + 4) - 2;
+			final int y2 = random.nextInt(height + 4) - 2;
+			assertThat("line " + x + "," + y + " " + x2 + "," + y2, map.collidesOnLine(x, y, x2, y2), is(collidesOnLineSlowly(map, x, y, x2, y2)));
+		}
+		// a single point line
+		map.set(3, 3);
+		map.unset(3, 4);
+		assertTrue(map.collidesOnLine(3, 3, 3, 3));
+		assertFalse(map.collidesOnLine(3, 4, 3, 4));
+	}
+
+	private static boolean collidesSlowly(final CollisionMap map, final int x, final int y, final int w, final int h) {
+		if ((x < 0) || (y < 0) || (x + w > map.getWidth()) || (y + h > map.getHeight())) {
+			return true;
+		}
+		for (int i = x; i < x + w; i++) {
+			for (int j = y; j < y + h; j++) {
+				if (map.get(i, j)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private static boolean collidesOnLineSlowly(final CollisionMap map, final int x1, final int y1, final int x2, final int y2) {
+		if ((x1 == x2) && (y1 == y2)) {
+			return collidesSlowly(map, x1, y1, 1, 1);
+		}
+		for (final Point point : Line.renderLine(x1, y1, x2, y2)) {
+			if (collidesSlowly(map, point.x, point.y, 1, 1)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static void fill(final CollisionMap map, final int[][] fill, final int startX, final int startY, final int label) {
+		final Deque<int[]> queue = new ArrayDeque<int[]>();
+		fill[startX][startY] = label;
+		queue.add(new int[] { startX, startY });
+		while (!queue.isEmpty()) {
+			final int[] pos = queue.poll();
+			final int[][] steps = { { 1, 0 }, { -1, 0 }, { 0, 1 }, { 0, -1 } };
+			for (final int[] step : steps) {
+				final int x = pos[0] + step[0];
+				final int y = pos[1] + step[1];
+				if ((x >= 0) && (y >= 0) && (x < map.getWidth()) && (y < map.getHeight())
+						&& !map.get(x, y) && (fill[x][y] == 0)) {
+					fill[x][y] = label;
+					queue.add(new int[] { x, y });
+				}
+			}
+		}
+	}
 }
@@ -17,6 +17,7 @@ import static org.hamcrest.CoreMatchers.equalTo;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
@@ -593,4 +594,46 @@ public class ConversationParserTest {
 		assertNull(sentence.getObjectName());
 		assertFalse(sentence.hasError());
 	}
+
+	/**
+	 * Tests that cached sentences equal freshly parsed ones, and that
+	 * changes of the word list are taken into account.
+	 */
+	@Test
+	public final void testSentenceCache() {
+		final String[] texts = {"buy 3 cookies", "  hello  ", "what is the ultimate answer?", "_ignored", "wibblefoo"};
+		for (final String text : texts) {
+			final Sentence fresh = ConversationParser.parse(text, new ConversationContext());
+			assertSameSentence(fresh, ConversationParser.parse(text));
+			final Sentence cached = ConversationParser.parse(text);
+			assertNotSame(cached, ConversationParser.parse(text));
+			assertSameSentence(fresh, cached);
+		}
+		assertTrue(ConversationParser.getSentenceCache().size() > 0);
+
+		// changes of a returned sentence do not reach the cache
+		final Sentence changed = ConversationParser.parse("buy 3 cookies");
+		changed.getExpressions().get(1).setAmount(5);
+		changed.getExpressions().get(1).setNormalized("cake");
+		changed.getExpressions().remove(0);
+		assertSameSentence(ConversationParser.parse("buy 3 cookies", new ConversationContext()),
+				ConversationParser.parse("buy 3 cookies"));
+
+		final Sentence before = ConversationParser.parse("zorkel bot");
+		WordList.getInstance().registerSubjectName("zorkel bot");
+		try {
+			final Sentence after = ConversationParser.parse("zorkel bot");
+			assertNotSame(before, after);
+			assertSameSentence(ConversationParser.parse("zorkel bot", new ConversationContext()), after);
+		} finally {
+			WordList.getInstance().unregisterSubjectName("zorkel bot");
+		}
+	}
+
+	private static void assertSameSentence(final Sentence expected, final Sentence actual) {
+		assertEquals(expected.toString(), actual.toString());
+		assertEquals(expected.getOriginalText(), actual.getOriginalText());
+		assertEquals(expected.getNormalized(), actual.getNormalized());
+		assertEquals(expected.getType(), actual.getType());
+	}
 }
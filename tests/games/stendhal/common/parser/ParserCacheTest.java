@@ -0,0 +1,114 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.common.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests for ParserCache.
+ */
+public class ParserCacheTest {
+
+	/**
+	 * Tests lookups and the hit counters.
+	 */
+	@Test
+	public void testGetPut() {
+		final ParserCache<String, Integer> cache = new ParserCache<String, Integer>(100);
+		assertNull(cache.get("a"));
+		cache.put("a", Integer.valueOf(1));
+		assertEquals(Integer.valueOf(1), cache.get("a"));
+		assertEquals(1, cache.size());
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+		assertEquals(50, cache.getHitRate());
+
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getHitRate());
+	}
+
+	/**
+	 * Tests that the cache stays in its bounds and keeps recently used
+	 * entries.
+	 */
+	@Test
+	public void testEviction() {
+		final ParserCache<Integer, Integer> cache = new ParserCache<Integer, Integer>(64);
+		final Integer key = Integer.valueOf(0);
+		cache.put(key, key);
+		for (int i = 1; i < 1000; i++) {
+			cache.put(Integer.valueOf(i), Integer.valueOf(i));
+			assertEquals(key, cache.get(key));
+		}
+		assertTrue(cache.size() <= 64);
+
+		cache.setMaxSize(8);
+		assertTrue(cache.size() <= 8);
+		assertEquals(key, cache.get(key));
+
+		cache.setMaxSize(0);
+		assertEquals(0, cache.size());
+		cache.put(key, key);
+		assertNull(cache.get(key));
+	}
+
+	/**
+	 * Tests concurrent use of the cache.
+	 *
+	 * @throws InterruptedException if interrupted while waiting for the threads
+	 */
+	@Test
+	public void testConcurrentAccess() throws InterruptedException {
+		final ParserCache<Integer, Integer> cache = new ParserCache<Integer, Integer>(128);
+		final List<Thread> threads = new ArrayList<Thread>();
+		final List<Throwable> errors = new ArrayList<Throwable>();
+		for (int t = 0; t < 4; t++) {
+			final int offset = t;
+			final Thread thread = new Thread() {
+				@Override
+				public void run() {
+					try {
+						for (int i = 0; i < 20000; i++) {
+							final Integer key = Integer.valueOf((i * 7 + offset) % 500);
+							final Integer value = cache.get(key);
+							if (value == null) {
+								cache.put(key, key);
+							} else if (!value.equals(key)) {
+								throw new AssertionError("wrong value " + value + " for " + key);
+							}
+						}
+					} catch (final Throwable e) {
+						synchronized (errors) {
+							errors.add(e);
+						}
+					}
+				}
+			};
+			threads.add(thread);
+			thread.start();
+		}
+		for (final Thread thread : threads) {
+			thread.join();
+		}
+		assertTrue(errors.toString(), errors.isEmpty());
+		assertTrue(cache.size() <= 128);
+		assertEquals(80000, cache.getHits() + cache.getMisses());
+	}
+}
@@ -14,12 +14,16 @@ package games.stendhal.common.tiled;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -113,4 +117,114 @@ public class LayerDefinitionTest {
 		assertArrayEquals(rawData, serializedData);
 	}
 
+	/**
+	 * Tests that building the compact storage keeps the tiles.
+	 */
+	@Test
+	public void testBuild() {
+		final LayerDefinition layer = new LayerDefinition(20, 10);
+		for (int y = 0; y < 10; y++) {
+			for (int x = 0; x < 20; x++) {
+				layer.set(x, y, (x * 7 + y) % 5);
+			}
+		}
+		final int[] tiles = layer.expose();
+		layer.build();
+		assertEquals(4 * 5 + 200, layer.getDataSize());
+		assertArrayEquals(tiles, layer.expose());
+		assertEquals(4, layer.getTileAt(3, 3));
+
+		layer.set(3, 3, 100000);
+		assertEquals(100000, layer.getTileAt(3, 3));
+		assertEquals(4 * 6 + 200, layer.getDataSize());
+
+		// back to the raw array
+		final byte[] raw = layer.exposeRaw();
+		assertEquals(800, raw.length);
+		assertEquals(100000, layer.getTileAt(3, 3));
+		assertEquals(tiles[5], layer.getTileAt(5, 0));
+	}
+
+	/**
+	 * Tests that the indices get wider when there are many distinct tiles.
+	 */
+	@Test
+	public void testPaletteWidening() {
+		final LayerDefinition layer = new LayerDefinition(30, 30);
+		layer.build();
+		for (int i = 0; i < 900; i++) {
+			layer.set(i % 30, i / 30, i + 1);
+		}
+		assertEquals(4 * 901 + 2 * 900, layer.getDataSize());
+		for (int i = 0; i < 900; i++) {
+			assertEquals(i + 1, layer.getTileAt(i % 30, i / 30));
+		}
+	}
+
+	/**
+	 * Tests that the encoded layer is the same before and after building.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testEncode() throws Exception {
+		final LayerDefinition layer = map.getLayer("layer1");
+		final byte[] built = layer.encode();
+		layer.exposeRaw();
+		assertArrayEquals(built, layer.encode());
+
+		final LayerDefinition decoded = LayerDefinition.decode(new ByteArrayInputStream(built));
+		assertEquals("layer1", decoded.getName());
+		assertArrayEquals(layer.expose(), decoded.expose());
+		decoded.build();
+		assertTrue(decoded.getDataSize() < 64 * 64 * 4);
+		assertEquals(120, decoded.getTileAt(11, 2));
+	}
+
+	/**
+	 * Tests that the compact storage is written and read for all index
+	 * widths.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testTiles() throws IOException {
+		final LayerDefinition few = map.getLayer("layer1");
+		final LayerDefinition many = new LayerDefinition(30, 30);
+		for (int i = 0; i < 900; i++) {
+			many.set(i % 30, i / 30, i + 1);
+		}
+		for (final LayerDefinition layer : new LayerDefinition[] { few, many }) {
+			final ByteArrayOutputStream array = new ByteArrayOutputStream();
+			layer.writeTiles(new DataOutputStream(array));
+			assertTrue(layer.isBuilt());
+
+			final ByteBuffer buffer = ByteBuffer.wrap(array.toByteArray());
+			final LayerDefinition read = LayerDefinition.readTiles(buffer);
+			assertFalse(buffer.hasRemaining());
+			assertTrue(read.isBuilt());
+			assertEquals(layer.getWidth(), read.getWidth());
+			assertEquals(layer.getDataSize(), read.getDataSize());
+			assertArrayEquals(layer.expose(), read.expose());
+		}
+	}
+
+	/**
+	 * Tests that indices outside the palette are rejected.
+	 *
+	 * @throws IOException
+	 */
+	@Test(expected = IOException.class)
+	public void testInvalidTiles() throws IOException {
+		final ByteArrayOutputStream array = new ByteArrayOutputStream();
+		final DataOutputStream out = new DataOutputStream(array);
+		out.writeInt(2);
+		out.writeInt(1);
+		// 8 bit indices, one tile in the palette
+		out.writeByte(0);
+		out.writeInt(1);
+		out.writeInt(42);
+		out.write(new byte[] { 0, 1 });
+		LayerDefinition.readTiles(ByteBuffer.wrap(array.toByteArray()));
+	}
 }
@@ -0,0 +1,145 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.config.zone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import games.stendhal.common.tiled.LayerDefinition;
+import games.stendhal.common.tiled.StendhalMapStructure;
+import games.stendhal.common.tiled.TileSetDefinition;
+
+/**
+ * Tests for MapCache.
+ */
+public class MapCacheTest {
+	private static final String MAP = "tiled/interiors/abstract/burrow.tmx";
+
+	private File dir;
+
+	/**
+	 * Creates an empty cache directory.
+	 *
+	 * @throws IOException on error
+	 */
+	@Before
+	public void setUp() throws IOException {
+		dir = File.createTempFile("mapcache", "");
+		dir.delete();
+		dir.mkdirs();
+	}
+
+	/**
+	 * Removes the cache directory.
+	 */
+	@After
+	public void tearDown() {
+		for (final File file : dir.listFiles()) {
+			file.delete();
+		}
+		dir.delete();
+	}
+
+	/**
+	 * Tests that a cached map equals the decoded TMX file, and that the
+	 * layers are built when written to and read from the cache.
+	 *
+	 * @throws Exception on error
+	 */
+	@Test
+	public void testLoadFromCache() throws Exception {
+		final StendhalMapStructure expected = TMXLoader.load(MAP);
+
+		final MapCache cache = new MapCache(dir);
+		assertSameMap(expected, cache.load(MAP));
+		assertEquals(0, cache.getHits());
+		assertEquals(1, cache.getMisses());
+		assertEquals(1, dir.listFiles().length);
+
+		final MapCache second = new MapCache(dir);
+		assertSameMap(expected, second.load(MAP));
+		assertEquals(1, second.getHits());
+		assertEquals(0, second.getMisses());
+	}
+
+	/**
+	 * Tests that a damaged cache file is replaced.
+	 *
+	 * @throws Exception on error
+	 */
+	@Test
+	public void testDamagedFile() throws Exception {
+		new MapCache(dir).load(MAP);
+		final File file = dir.listFiles()[0];
+		final FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(new byte[] {0x53, 0x54, 0x4d, 0x43, 0, 0, 0, MapCache.VERSION, 0, 0});
+		} finally {
+			out.close();
+		}
+
+		final MapCache cache = new MapCache(dir);
+		assertSameMap(TMXLoader.load(MAP), cache.load(MAP));
+		assertEquals(1, cache.getMisses());
+		assertTrue(file.length() > 10);
+
+		final MapCache repaired = new MapCache(dir);
+		repaired.load(MAP);
+		assertEquals(1, repaired.getHits());
+	}
+
+	/**
+	 * Tests that a disabled cache writes no files.
+	 *
+	 * @throws Exception on error
+	 */
+	@Test
+	public void testDisabled() throws Exception {
+		final MapCache cache = new MapCache(null);
+		assertSameMap(TMXLoader.load(MAP), cache.load(MAP));
+		assertEquals(1, cache.getMisses());
+		assertEquals(0, dir.listFiles().length);
+	}
+
+	private static void assertSameMap(final StendhalMapStructure expected, final StendhalMapStructure actual) {
+		assertEquals(expected.getWidth(), actual.getWidth());
+		assertEquals(expected.getHeight(), actual.getHeight());
+		assertEquals(expected.getTilesets().size(), actual.getTilesets().size());
+		for (int i = 0; i < expected.getTilesets().size(); i++) {
+			final TileSetDefinition set = expected.getTilesets().get(i);
+			final TileSetDefinition other = actual.getTilesets().get(i);
+			assertEquals(set.getName(), other.getName());
+			assertEquals(set.getSource(), other.getSource());
+			assertEquals(set.getFirstGid(), other.getFirstGid());
+		}
+		assertEquals(expected.getLayers().size(), actual.getLayers().size());
+		for (final LayerDefinition layer : expected.getLayers()) {
+			final LayerDefinition other = actual.getLayer(layer.getName());
+			assertEquals(layer.getWidth(), other.getWidth());
+			assertEquals(layer.getHeight(), other.getHeight());
+			assertTrue(other.isBuilt());
+			for (int y = 0; y < layer.getHeight(); y++) {
+				for (int x = 0; x < layer.getWidth(); x++) {
+					assertEquals(layer.getTileAt(x, y), other.getTileAt(x, y));
+				}
+			}
+		}
+	}
+}
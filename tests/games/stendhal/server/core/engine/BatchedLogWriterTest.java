@@ -0,0 +1,127 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import games.stendhal.server.core.engine.db.LogEventBatch;
+import games.stendhal.server.core.engine.db.StendhalItemDAO;
+import games.stendhal.server.core.engine.dbcommand.LogEventCommand;
+import games.stendhal.server.core.engine.dbcommand.LogSimpleItemEventCommand;
+import games.stendhal.server.entity.player.Player;
+import games.stendhal.server.maps.MockStendlRPWorld;
+import marauroa.common.Log4J;
+import marauroa.common.game.RPObject;
+import marauroa.server.db.DBTransaction;
+import marauroa.server.db.TransactionPool;
+import marauroa.server.db.command.AbstractDBCommand;
+import marauroa.server.db.command.DBCommand;
+import marauroa.server.game.db.DatabaseFactory;
+import utilities.PlayerTestHelper;
+
+/**
+ * Tests for BatchedLogWriter.
+ */
+public class BatchedLogWriterTest {
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		Log4J.init();
+		MockStendlRPWorld.get();
+		new DatabaseFactory().initializeDatabase();
+	}
+
+	/**
+	 * A log event that cannot be written.
+	 */
+	private static class FailingCommand extends AbstractDBCommand implements LogEventCommand {
+		@Override
+		public void log(final LogEventBatch batch) throws SQLException {
+			throw new SQLException("failing log event");
+		}
+
+		@Override
+		public void execute(final DBTransaction transaction) throws SQLException {
+			log(null);
+		}
+	}
+
+	/**
+	 * Tests that the other events of a failed batch are written, with the
+	 * item ids assigned in the failed batch.
+	 *
+	 * @throws Exception in case of an database error
+	 */
+	@Test
+	public void testRetryFailedBatch() throws Exception {
+		final Player bob = PlayerTestHelper.createPlayer("retrybob");
+		final RPObject sword = new RPObject();
+		sword.put("name", "retry sword");
+		sword.put("quantity", 1);
+
+		final List<DBCommand> retried = new ArrayList<DBCommand>();
+		final BatchedLogWriter writer = new BatchedLogWriter() {
+			@Override
+			void requeue(final DBCommand command) {
+				retried.add(command);
+			}
+		};
+		writer.add(new LogSimpleItemEventCommand(sword, bob, "create", "retry sword", "1", "test", null));
+		writer.add(new FailingCommand());
+
+		DBTransaction transaction = TransactionPool.get().beginWork();
+		try {
+			writer.flush(transaction);
+			fail("the batch should fail");
+		} catch (final SQLException e) {
+			// expected
+		} finally {
+			TransactionPool.get().rollback(transaction);
+		}
+		final int id = sword.getInt(StendhalItemDAO.ATTR_ITEM_LOGID);
+		// the registration of the sword, and the two events
+		assertEquals(3, retried.size());
+
+		transaction = TransactionPool.get().beginWork();
+		try {
+			int failed = 0;
+			for (final DBCommand command : retried) {
+				try {
+					command.execute(transaction);
+				} catch (final SQLException e) {
+					failed++;
+				}
+			}
+			assertEquals(1, failed);
+			assertEquals(1, count(transaction, "SELECT count(*) FROM item WHERE id = " + id + " AND name = 'retry sword'"));
+			// register and create
+			assertEquals(2, count(transaction, "SELECT count(*) FROM itemlog WHERE itemid = " + id));
+		} finally {
+			TransactionPool.get().rollback(transaction);
+		}
+	}
+
+	private static int count(final DBTransaction transaction, final String query) throws SQLException {
+		final Map<String, Object> params = new HashMap<String, Object>();
+		return transaction.querySingleCellInt(query, params);
+	}
+}
@@ -0,0 +1,66 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+/**
+ * Tests for ContentPool.
+ */
+public class ContentPoolTest {
+
+	/**
+	 * Tests that equal data is shared and different data is not.
+	 */
+	@Test
+	public void testIntern() {
+		final ContentPool pool = new ContentPool();
+		final byte[] first = new byte[] {1, 2, 3, 4};
+		assertSame(first, pool.intern(first));
+		assertSame(first, pool.intern(new byte[] {1, 2, 3, 4}));
+		assertEquals(1, pool.getSharedCount());
+		assertEquals(4, pool.getSavedBytes());
+
+		final byte[] other = new byte[] {1, 2, 3, 5};
+		assertSame(other, pool.intern(other));
+		assertSame(first, pool.intern(first));
+		assertEquals(2, pool.getSharedCount());
+	}
+
+	/**
+	 * Tests that the buckets of garbage collected data are removed.
+	 *
+	 * @throws InterruptedException
+	 */
+	@Test
+	public void testRemoveCollected() throws InterruptedException {
+		final ContentPool pool = new ContentPool();
+		for (int i = 0; i < 100; i++) {
+			pool.intern(new byte[] {(byte) i, 1, 2, 3});
+		}
+		final byte[] kept = new byte[] {1, 2, 3, 4, 5};
+		pool.intern(kept);
+		assertEquals(101, pool.getBucketCount());
+
+		// the entries are removed on the next use after the collection
+		for (int i = 0; (i < 50) && (pool.getBucketCount() > 1); i++) {
+			System.gc();
+			Thread.sleep(10);
+			pool.intern(kept);
+		}
+		assertEquals(1, pool.getBucketCount());
+		assertSame(kept, pool.intern(new byte[] {1, 2, 3, 4, 5}));
+	}
+}
@@ -0,0 +1,67 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests for LatencyHistogram.
+ */
+public class LatencyHistogramTest {
+
+	/**
+	 * Tests small values, which are counted exactly.
+	 */
+	@Test
+	public void testSmallValues() {
+		final LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.getValueAtPercentile(50));
+		for (int i = 1; i <= 50; i++) {
+			histogram.record(i);
+		}
+		assertEquals(50, histogram.getCount());
+		assertEquals(50, histogram.getMax());
+		assertEquals(25.5, histogram.getMean(), 0.001);
+		assertEquals(25, histogram.getValueAtPercentile(50));
+		assertEquals(50, histogram.getValueAtPercentile(100));
+		assertEquals(1, histogram.getValueAtPercentile(0));
+	}
+
+	/**
+	 * Tests that large values are reported within the bucket precision.
+	 */
+	@Test
+	public void testPrecision() {
+		final LatencyHistogram histogram = new LatencyHistogram();
+		for (long i = 1; i <= 100000; i++) {
+			histogram.record(i);
+		}
+		for (final double percentile : new double[] { 10, 50, 90, 99, 99.9 }) {
+			final double expected = percentile * 1000;
+			final long value = histogram.getValueAtPercentile(percentile);
+			assertTrue(percentile + ": " + value, value >= expected);
+			assertTrue(percentile + ": " + value, value <= expected * 1.04);
+		}
+		assertEquals(100000, histogram.getValueAtPercentile(100));
+
+		histogram.record(-5);
+		histogram.record(Long.MAX_VALUE);
+		assertEquals(100002, histogram.getCount());
+
+		histogram.reset();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getMax());
+	}
+}
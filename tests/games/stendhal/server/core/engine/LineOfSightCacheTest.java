@@ -0,0 +1,91 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import games.stendhal.common.CollisionDetection;
+
+/**
+ * Tests for LineOfSightCache.
+ */
+public class LineOfSightCacheTest {
+	/**
+	 * Tests that cached results are reused, and dropped when the collision
+	 * map changes.
+	 */
+	@Test
+	public void testInvalidation() {
+		final CollisionDetection map = new CollisionDetection();
+		map.init(20, 20);
+		final LineOfSightCache cache = new LineOfSightCache();
+
+		assertFalse(cache.collidesOnLine(map, 2, 2, 12, 7));
+		assertFalse(cache.collidesOnLine(map, 2, 2, 12, 7));
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+
+		map.setCollide(7, 4);
+		assertTrue(cache.collidesOnLine(map, 2, 2, 12, 7));
+		assertEquals(2, cache.getMisses());
+
+		// another map with the same version
+		final CollisionDetection other = new CollisionDetection();
+		other.init(20, 20);
+		assertFalse(cache.collidesOnLine(other, 2, 2, 12, 7));
+
+		// outside the map
+		assertTrue(cache.collidesOnLine(map, -1, 2, 12, 7));
+	}
+
+	/**
+	 * Compares the cached results with walking the lines.
+	 */
+	@Test
+	public void testRandomLines() {
+		final Random random = new Random(1);
+		final CollisionDetection map = new CollisionDetection();
+		map.init(64, 64);
+		for (int i = 0; i < 400; i++) {
+			map.setCollide(random.nextInt(64), random.nextInt(64));
+		}
+		final LineOfSightCache cache = new LineOfSightCache();
+		for (int i = 0; i < 20000; i++) {
+			// few positions, so that many lines are checked repeatedly
+			final int x1 = random.nextInt(16);
+			final int y1 = random.nextInt(16);
+			final int x2 = 30 + random.nextInt(16);
+			final int y2 = random.nextInt(64);
+			assertEquals(map.collidesOnLine(x1, y1, x2, y2), cache.collidesOnLine(map, x1, y1, x2, y2));
+		}
+		assertTrue(cache.getHits() > 0);
+	}
+
+	/**
+	 * Tests the table sizes for zones of different areas.
+	 */
+	@Test
+	public void testTableSize() {
+		assertEquals(64, LineOfSightCache.tableSize(0));
+		assertEquals(64, LineOfSightCache.tableSize(20));
+		assertEquals(512, LineOfSightCache.tableSize(400));
+		assertEquals(1024, LineOfSightCache.tableSize(1024));
+		assertEquals(4096, LineOfSightCache.tableSize(64 * 64));
+		assertEquals(4096, LineOfSightCache.tableSize(128 * 128));
+	}
+}
@@ -0,0 +1,148 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import games.stendhal.server.core.events.MovementListener;
+import games.stendhal.server.entity.ActiveEntity;
+
+/**
+ * Tests for MovementListenerIndex, comparing the candidates with a scan of
+ * all listeners.
+ */
+public class MovementListenerIndexTest {
+	private final Random random = new Random(4711);
+
+	/**
+	 * Tests that the candidates contain all intersecting listeners in the
+	 * order they were added, while listeners are added, moved and removed.
+	 */
+	@Test
+	public void testAgainstBruteForce() {
+		final MovementListenerIndex index = new MovementListenerIndex();
+		final List<TestListener> listeners = new ArrayList<TestListener>();
+		for (int i = 0; i < 200; i++) {
+			final TestListener listener = new TestListener(randomArea());
+			listeners.add(listener);
+			index.add(listener);
+		}
+		// areas covering a whole zone
+		final TestListener large = new TestListener(new Rectangle2D.Double(0, 0, 200, 200));
+		listeners.add(large);
+		index.add(large);
+		check(index, listeners);
+
+		for (int i = 0; i < 50; i++) {
+			final TestListener listener = listeners.get(random.nextInt(listeners.size()));
+			listener.area = randomArea();
+			index.update(listener);
+		}
+		large.area = new Rectangle2D.Double(10, 10, 1, 1);
+		index.update(large);
+		check(index, listeners);
+
+		for (int i = 0; i < 50; i++) {
+			index.remove(listeners.remove(random.nextInt(listeners.size())));
+		}
+		assertEquals(listeners.size(), index.size());
+		check(index, listeners);
+	}
+
+	/**
+	 * Tests that adding a listener twice does not report it twice.
+	 */
+	@Test
+	public void testAddTwice() {
+		final MovementListenerIndex index = new MovementListenerIndex();
+		final TestListener listener = new TestListener(new Rectangle2D.Double(3, 3, 5, 5));
+		index.add(listener);
+		index.add(listener);
+		assertEquals(1, index.size());
+		assertEquals(1, index.getCandidates(new Rectangle2D.Double(4, 4, 1, 1),
+				new Rectangle2D.Double(5, 4, 1, 1)).size());
+	}
+
+	private void check(final MovementListenerIndex index, final List<TestListener> listeners) {
+		for (int i = 0; i < 500; i++) {
+			final int x = random.nextInt(120) - 5;
+			final int y = random.nextInt(120) - 5;
+			final Rectangle2D oldArea = new Rectangle2D.Double(x, y, 1, 1);
+			final Rectangle2D newArea = new Rectangle2D.Double(x + random.nextInt(3) - 1, y + random.nextInt(3) - 1, 1, 1);
+
+			final List<MovementListener> expected = new ArrayList<MovementListener>();
+			for (final TestListener listener : listeners) {
+				if (listener.area.intersects(oldArea) || listener.area.intersects(newArea)) {
+					expected.add(listener);
+				}
+			}
+			final List<MovementListener> candidates = index.getCandidates(oldArea, newArea);
+			final List<MovementListener> found = new ArrayList<MovementListener>();
+			for (final MovementListener listener : candidates) {
+				if (listener.getArea().intersects(oldArea) || listener.getArea().intersects(newArea)) {
+					found.add(listener);
+				}
+			}
+			assertTrue(candidates.size() <= listeners.size());
+			// the test list is in the order the listeners were added
+			assertEquals(expected, found);
+		}
+	}
+
+	private Rectangle2D randomArea() {
+		return new Rectangle2D.Double(random.nextInt(100), random.nextInt(100),
+				1 + random.nextInt(20), 1 + random.nextInt(20));
+	}
+
+	private static class TestListener implements MovementListener {
+		private Rectangle2D area;
+
+		TestListener(final Rectangle2D area) {
+			this.area = area;
+		}
+
+		@Override
+		public Rectangle2D getArea() {
+			return area;
+		}
+
+		@Override
+		public void onEntered(final ActiveEntity entity, final StendhalRPZone zone, final int newX, final int newY) {
+			// not used
+		}
+
+		@Override
+		public void onExited(final ActiveEntity entity, final StendhalRPZone zone, final int oldX, final int oldY) {
+			// not used
+		}
+
+		@Override
+		public void beforeMove(final ActiveEntity entity, final StendhalRPZone zone, final int oldX, final int oldY,
+				final int newX, final int newY) {
+			// not used
+		}
+
+		@Override
+		public void onMoved(final ActiveEntity entity, final StendhalRPZone zone, final int oldX, final int oldY,
+				final int newX, final int newY) {
+			// not used
+		}
+	}
+}
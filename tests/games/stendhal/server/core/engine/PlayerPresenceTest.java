@@ -0,0 +1,290 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import games.stendhal.common.Debug;
+import games.stendhal.common.constants.Events;
+import games.stendhal.server.entity.player.Player;
+import games.stendhal.server.maps.MockStendlRPWorld;
+import marauroa.common.game.RPEvent;
+import utilities.PlayerTestHelper;
+
+/**
+ * Tests for the buddy index and the online list changes.
+ */
+public class PlayerPresenceTest {
+	private PlayerList list;
+	private PlayerPresence presence;
+
+	@BeforeClass
+	public static void setUpBeforeClass() {
+		MockStendlRPWorld.get();
+	}
+
+	@AfterClass
+	public static void tearDownAfterClass() {
+		MockStendlRPWorld.reset();
+	}
+
+	@Before
+	public void setUp() {
+		list = new PlayerList();
+		presence = new PlayerPresence(list);
+	}
+
+	private Player login(final String name, final boolean ghost, final String... buddies) {
+		return login(name, Debug.VERSION, ghost, buddies);
+	}
+
+	private Player login(final String name, final String clientVersion, final boolean ghost, final String... buddies) {
+		final Player player = PlayerTestHelper.createPlayer(name);
+		player.setClientVersion(clientVersion);
+		player.setGhost(ghost);
+		for (final String buddy : buddies) {
+			player.put("buddies", buddy, false);
+		}
+		list.add(player);
+		presence.playerLoggedIn(player);
+		return player;
+	}
+
+	private void logout(final Player player) {
+		presence.playerLoggedOut(player);
+		list.remove(player);
+	}
+
+	private void clearEvents() {
+		for (final Player player : list.getAllPlayers()) {
+			player.clearEvents();
+		}
+	}
+
+	/**
+	 * Get the names of the events of a kind a player has received.
+	 *
+	 * @param player player
+	 * @param kind event name
+	 * @return names, or <code>null</code> if there was no such event
+	 */
+	private static Set<String> getNames(final Player player, final String kind) {
+		Set<String> res = null;
+		for (final RPEvent event : player.events()) {
+			if (!kind.equals(event.getName())) {
+				continue;
+			}
+			assertTrue("one event of each kind", res == null);
+			if (event.has("names")) {
+				res = new HashSet<String>(Arrays.asList(event.get("names").split(",")));
+			} else {
+				res = Collections.singleton(event.get("name"));
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * Get the names of the events of a kind a player has received, for
+	 * clients that get an event for each name.
+	 *
+	 * @param player player
+	 * @param kind event name
+	 * @return names
+	 */
+	private static Set<String> getSingleNames(final Player player, final String kind) {
+		final Set<String> res = new HashSet<String>();
+		for (final RPEvent event : player.events()) {
+			if (kind.equals(event.getName())) {
+				assertFalse(event.has("names"));
+				assertTrue(res.add(event.get("name")));
+			}
+		}
+		return res;
+	}
+
+	private static Set<String> names(final String... names) {
+		return new HashSet<String>(Arrays.asList(names));
+	}
+
+	/**
+	 * Tests that buddies are only told about the players they have as buddy.
+	 */
+	@Test
+	public void testBuddyIndex() {
+		final Player alice = login("alice", false, "bob");
+		final Player carol = login("carol", false);
+		final Player bob = login("bob", false);
+		presence.notifyOnlineStatus(true, bob);
+		assertEquals("bob", alice.get("online"));
+		assertTrue(alice.getMap("buddies").get("bob").equals("true"));
+		assertFalse(carol.has("online"));
+		assertEquals(Collections.singletonList(alice), presence.getPlayersWithBuddy("bob"));
+
+		carol.put("buddies", "bob", true);
+		presence.buddyAdded(carol, "bob");
+		assertEquals(2, presence.getPlayersWithBuddy("bob").size());
+		presence.buddyRemoved(alice, "bob");
+		assertEquals(Collections.singletonList(carol), presence.getPlayersWithBuddy("bob"));
+
+		// players that are not online are not indexed
+		final Player dave = PlayerTestHelper.createPlayer("dave");
+		presence.buddyAdded(dave, "bob");
+		assertEquals(Collections.singletonList(carol), presence.getPlayersWithBuddy("bob"));
+
+		logout(carol);
+		assertTrue(presence.getPlayersWithBuddy("bob").isEmpty());
+	}
+
+	/**
+	 * Tests that the changes of a turn are sent as one event of each kind.
+	 */
+	@Test
+	public void testBatchedChanges() {
+		final Player xavier = login("xavier", false);
+		final Player yvonne = login("yvonne", false);
+		final Player admin = login("admin", true);
+		presence.sendChanges();
+		assertEquals(names("xavier", "yvonne"), getNames(xavier, Events.PLAYER_LOGGED_ON));
+		assertEquals(names("xavier", "yvonne", "admin"), getNames(admin, Events.PLAYER_LOGGED_ON));
+		clearEvents();
+
+		final Player p1 = login("p1", false);
+		final Player p2 = login("p2", false);
+		final Player ghost = login("ghost", true);
+		logout(yvonne);
+		final Player gone = login("gone", false);
+		logout(gone);
+		assertEquals(7, presence.sendChanges());
+
+		assertEquals(names("yvonne", "gone"), getNames(xavier, Events.PLAYER_LOGGED_OUT));
+		assertEquals(names("p1", "p2"), getNames(xavier, Events.PLAYER_LOGGED_ON));
+		assertEquals(names("yvonne", "gone"), getNames(admin, Events.PLAYER_LOGGED_OUT));
+		assertEquals(names("p1", "p2", "ghost"), getNames(admin, Events.PLAYER_LOGGED_ON));
+
+		// new players get the complete list and no logouts
+		assertEquals(null, getNames(p1, Events.PLAYER_LOGGED_OUT));
+		assertEquals(names("xavier", "p1", "p2"), getNames(p1, Events.PLAYER_LOGGED_ON));
+		assertEquals(names("xavier", "admin", "p1", "p2", "ghost"), getNames(ghost, Events.PLAYER_LOGGED_ON));
+		assertEquals(names("xavier", "p1", "p2"), getNames(p2, Events.PLAYER_LOGGED_ON));
+
+		// nothing to send in the next turn
+		clearEvents();
+		assertEquals(0, presence.sendChanges());
+		assertTrue(xavier.events().isEmpty());
+	}
+
+	/**
+	 * Tests that older clients get an event for each name.
+	 */
+	@Test
+	public void testOldClients() {
+		final Player xavier = login("xavier", false);
+		final Player old = login("old", "1.39", false);
+		final Player unknown = login("unknown", null, false);
+		presence.sendChanges();
+		assertEquals(names("xavier", "old", "unknown"), getNames(xavier, Events.PLAYER_LOGGED_ON));
+		assertEquals(names("xavier", "old", "unknown"), getSingleNames(old, Events.PLAYER_LOGGED_ON));
+		assertEquals(3, unknown.events().size());
+		clearEvents();
+
+		login("p1", false);
+		login("p2", false);
+		logout(xavier);
+		// three events for each old client, the complete list for each new player
+		assertEquals(2 * 3 + 2, presence.sendChanges());
+		assertEquals(names("p1", "p2"), getSingleNames(old, Events.PLAYER_LOGGED_ON));
+		assertEquals(names("xavier"), getSingleNames(old, Events.PLAYER_LOGGED_OUT));
+		assertEquals(names("p1", "p2"), getSingleNames(unknown, Events.PLAYER_LOGGED_ON));
+	}
+
+	/**
+	 * Tests a logout and login in the same turn.
+	 */
+	@Test
+	public void testReconnect() {
+		final Player xavier = login("xavier", false);
+		final Player yvonne = login("yvonne", false);
+		presence.sendChanges();
+		clearEvents();
+
+		logout(yvonne);
+		final Player again = login("yvonne", false);
+		presence.sendChanges();
+		assertEquals(null, getNames(xavier, Events.PLAYER_LOGGED_OUT));
+		assertEquals(names("yvonne"), getNames(xavier, Events.PLAYER_LOGGED_ON));
+		assertEquals(names("xavier", "yvonne"), getNames(again, Events.PLAYER_LOGGED_ON));
+		clearEvents();
+
+		// coming back as a ghost removes the name from the lists of the others
+		logout(again);
+		login("yvonne", true);
+		presence.sendChanges();
+		assertEquals(names("yvonne"), getNames(xavier, Events.PLAYER_LOGGED_OUT));
+		assertEquals(null, getNames(xavier, Events.PLAYER_LOGGED_ON));
+	}
+
+	/**
+	 * Simulates 1000 players logging in at the same time, as after a restart,
+	 * while 100 players are already online.
+	 */
+	@Test
+	public void testLoginStorm() {
+		final int online = 100;
+		final int logins = 1000;
+		final Random random = new Random(1);
+		final List<Player> players = new ArrayList<Player>();
+		for (int i = 0; i < online + logins; i++) {
+			final String[] buddies = new String[5];
+			for (int j = 0; j < buddies.length; j++) {
+				buddies[j] = "player" + random.nextInt(online + logins);
+			}
+			final Player player = login("player" + i, false, buddies);
+			presence.notifyOnlineStatus(true, player);
+			players.add(player);
+			if (i == online - 1) {
+				presence.sendChanges();
+				clearEvents();
+			}
+		}
+
+		assertEquals(online + logins, presence.sendChanges());
+		for (int i = 0; i < players.size(); i++) {
+			final Player player = players.get(i);
+			assertEquals(1, player.events().size());
+			final int expected = (i < online) ? logins : online + logins;
+			assertEquals(expected, getNames(player, Events.PLAYER_LOGGED_ON).size());
+
+			// buddies that logged in later, or the player itself, have been told
+			for (final String buddy : player.getBuddies()) {
+				final int index = Integer.parseInt(buddy.substring("player".length()));
+				assertEquals(Boolean.toString(index >= i),
+						player.getMap("buddies").get(buddy));
+			}
+		}
+	}
+}
@@ -0,0 +1,185 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import games.stendhal.server.entity.mapstuff.portal.Portal;
+import games.stendhal.server.maps.MockStendlRPWorld;
+import utilities.RPClass.EntityTestHelper;
+import utilities.RPClass.PortalTestHelper;
+
+/**
+ * Tests for the portal lookups of the zones and the portal graph.
+ */
+public class PortalGraphTest {
+	private final List<StendhalRPZone> zones = new ArrayList<StendhalRPZone>();
+	private PortalGraph graph;
+
+	@BeforeClass
+	public static void setUpBeforeClass() {
+		MockStendlRPWorld.get();
+		EntityTestHelper.generateRPClasses();
+		PortalTestHelper.generateRPClasses();
+	}
+
+	@Before
+	public void setUp() {
+		graph = MockStendlRPWorld.get().getPortalGraph();
+	}
+
+	@After
+	public void tearDown() {
+		for (final StendhalRPZone zone : zones) {
+			MockStendlRPWorld.get().removeZone(zone);
+		}
+	}
+
+	private StendhalRPZone createZone(final String name, final int x, final int y, final boolean interior) {
+		final StendhalRPZone zone = new StendhalRPZone(name, 20, 20);
+		if (interior) {
+			zone.setPosition();
+		} else {
+			zone.setPosition(0, x, y);
+		}
+		MockStendlRPWorld.get().addRPZone(zone);
+		zones.add(zone);
+		return zone;
+	}
+
+	private static Portal addPortal(final StendhalRPZone zone, final int x, final int y, final Object id,
+			final String destination, final Object destinationId) {
+		final Portal portal = new Portal();
+		portal.setPosition(x, y);
+		portal.setIdentifier(id);
+		if (destination != null) {
+			portal.setDestination(destination, destinationId);
+		}
+		zone.add(portal);
+		return portal;
+	}
+
+	/**
+	 * Tests the lookups of portals by position and identifier.
+	 */
+	@Test
+	public void testGetPortal() {
+		final StendhalRPZone zone = createZone("portal_test_lookup", 0, 0, true);
+		final Portal first = addPortal(zone, 3, 4, "door", null, null);
+		final Portal second = addPortal(zone, 3, 4, Integer.valueOf(1), null, null);
+		assertSame(first, zone.getPortal(3, 4));
+		assertSame(first, zone.getPortal("door"));
+		assertSame(second, zone.getPortal(Integer.valueOf(1)));
+		assertNull(zone.getPortal("1"));
+		assertNull(zone.getPortal(4, 3));
+
+		second.setIdentifier("window");
+		assertNull(zone.getPortal(Integer.valueOf(1)));
+		assertSame(second, zone.getPortal("window"));
+
+		zone.remove(first);
+		assertSame(second, zone.getPortal(3, 4));
+		assertNull(zone.getPortal("door"));
+
+		second.setPosition(5, 6);
+		assertNull(zone.getPortal(3, 4));
+		assertSame(second, zone.getPortal(5, 6));
+
+		// a changed portal keeps its place in the order of adding
+		final Portal third = addPortal(zone, 5, 6, "window", null, null);
+		second.setIdentifier("door");
+		second.setIdentifier("window");
+		assertSame(second, zone.getPortal("window"));
+		assertSame(second, zone.getPortal(5, 6));
+		zone.remove(second);
+		assertSame(third, zone.getPortal("window"));
+	}
+
+	/**
+	 * Tests that the graph follows changes after it has been used.
+	 */
+	@Test
+	public void testIncrementalChanges() {
+		final StendhalRPZone north = createZone("0_portal_test_north", 2000, 2000, false);
+		final StendhalRPZone shop = createZone("int_portal_test_shop", 0, 0, true);
+		addPortal(north, 5, 5, "door", "int_portal_test_shop", "door");
+		assertFalse(graph.isConnected("0_portal_test_north", "int_portal_test_shop"));
+
+		// the destination portal appears later
+		addPortal(shop, 5, 5, "door", "0_portal_test_north", "door");
+		assertTrue(graph.isConnected("0_portal_test_north", "int_portal_test_shop"));
+		assertTrue(graph.isReachable("int_portal_test_shop", "0_portal_test_north"));
+
+		// a new zone next to an existing one
+		final StendhalRPZone south = createZone("0_portal_test_south", 2000, 2020, false);
+		assertTrue(graph.isReachable("int_portal_test_shop", "0_portal_test_south"));
+		assertTrue(graph.isReachable("0_portal_test_south", "int_portal_test_shop"));
+
+		// moving the zone away breaks the border connection
+		south.setPosition(0, 3000, 3000);
+		assertFalse(graph.isReachable("0_portal_test_south", "int_portal_test_shop"));
+		assertFalse(graph.isConnected("0_portal_test_north", "0_portal_test_south"));
+		assertTrue(graph.isReachable("int_portal_test_shop", "0_portal_test_north"));
+	}
+
+	/**
+	 * Tests the connections by portals and borders.
+	 */
+	@Test
+	public void testReachable() {
+		final StendhalRPZone west = createZone("0_portal_test_west", 1000, 1000, false);
+		final StendhalRPZone east = createZone("0_portal_test_east", 1020, 1000, false);
+		final StendhalRPZone house = createZone("int_portal_test_house", 0, 0, true);
+		final StendhalRPZone cellar = createZone("int_portal_test_cellar", 0, 0, true);
+		// touches west only at a corner
+		createZone("0_portal_test_corner", 980, 980, false);
+
+		addPortal(east, 5, 5, "door", "int_portal_test_house", "door");
+		addPortal(house, 5, 5, "door", "0_portal_test_east", "door");
+		// leads into the cellar without a way back
+		addPortal(house, 8, 8, "trap", "int_portal_test_cellar", "bottom");
+		final Portal bottom = addPortal(cellar, 5, 5, "bottom", null, null);
+
+		assertTrue(graph.isConnected("0_portal_test_west", "0_portal_test_east"));
+		assertTrue(graph.isConnected("0_portal_test_east", "0_portal_test_west"));
+		assertFalse(graph.isConnected("0_portal_test_west", "0_portal_test_corner"));
+		assertFalse(graph.isConnected("0_portal_test_west", "int_portal_test_house"));
+		assertTrue(graph.isReachable("0_portal_test_west", "int_portal_test_house"));
+		assertTrue(graph.isReachable("0_portal_test_west", "int_portal_test_cellar"));
+		assertFalse(graph.isReachable("int_portal_test_cellar", "0_portal_test_west"));
+		assertTrue(graph.isReachable("int_portal_test_cellar", "int_portal_test_cellar"));
+		assertFalse(graph.isReachable("0_portal_test_west", "0_portal_test_corner"));
+		assertFalse(graph.isReachable("0_portal_test_west", "no_such_zone"));
+
+		// the graph follows changes of the portals
+		bottom.setDestination("int_portal_test_house", "trap");
+		assertTrue(graph.isReachable("int_portal_test_cellar", "0_portal_test_west"));
+		cellar.remove(bottom);
+		assertFalse(graph.isReachable("int_portal_test_cellar", "0_portal_test_west"));
+		assertFalse(graph.isConnected("int_portal_test_house", "int_portal_test_cellar"));
+
+		MockStendlRPWorld.get().removeZone(west);
+		assertFalse(graph.containsZone("0_portal_test_west"));
+		assertFalse(graph.isReachable("int_portal_test_house", "0_portal_test_west"));
+	}
+}
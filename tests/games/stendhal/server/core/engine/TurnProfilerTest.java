@@ -0,0 +1,82 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+import games.stendhal.server.core.engine.TurnProfiler.Timing;
+
+/**
+ * Tests for TurnProfiler.
+ */
+public class TurnProfilerTest {
+
+	@After
+	public void tearDown() {
+		TurnProfiler.get().reset();
+	}
+
+	/**
+	 * Tests recording phases.
+	 */
+	@Test
+	public void testPhases() {
+		final TurnProfiler profiler = TurnProfiler.get();
+		profiler.reset();
+		final long start = System.nanoTime() - 5000000;
+		final long end = profiler.phase(TurnProfiler.PLAYER_LOGIC, start);
+		assertTrue(end >= start + 5000000);
+		final LatencyHistogram histogram = profiler.getPhase(TurnProfiler.PLAYER_LOGIC);
+		assertEquals(1, histogram.getCount());
+		assertTrue(histogram.getMax() >= 5000);
+
+		// unknown phases are ignored
+		profiler.phase("no such phase", start);
+	}
+
+	/**
+	 * Tests listing the slowest zones and listeners.
+	 */
+	@Test
+	public void testSlowest() {
+		final TurnProfiler profiler = TurnProfiler.get();
+		profiler.reset();
+		profiler.recordZone("fast", 1000);
+		profiler.recordZone("slow", 3000);
+		profiler.recordZone("slow", 5000);
+		profiler.recordZone("medium", 2000);
+		profiler.recordListener(String.class, 10);
+
+		final List<Timing> zones = profiler.getSlowestZones(2);
+		assertEquals(2, zones.size());
+		assertEquals("slow", zones.get(0).getName());
+		assertEquals(8000, zones.get(0).getTotal());
+		assertEquals(5000, zones.get(0).getMax());
+		assertEquals(2, zones.get(0).getCount());
+		assertEquals("medium", zones.get(1).getName());
+		assertEquals("java.lang.String", profiler.getSlowestListeners(5).get(0).getName());
+
+		final String json = profiler.toJSON(1);
+		assertTrue(json, json.contains("\"zones\":[{\"name\":\"slow\",\"calls\":2,\"total\":8,\"max\":5}]"));
+		assertTrue(json, json.contains("\"executePlayerLogic\":{\"count\":0"));
+		assertTrue(profiler.toText(3).contains("medium: 2, 2, 1"));
+
+		profiler.reset();
+		assertTrue(profiler.getSlowestZones(2).isEmpty());
+	}
+}
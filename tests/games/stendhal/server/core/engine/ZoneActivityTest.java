@@ -0,0 +1,261 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import games.stendhal.server.core.engine.StendhalRPZone.Activity;
+import games.stendhal.server.core.pathfinder.MultiZonesFixedPath;
+import games.stendhal.server.core.pathfinder.Node;
+import games.stendhal.server.core.pathfinder.RPZonePath;
+import games.stendhal.server.entity.creature.Creature;
+import games.stendhal.server.entity.mapstuff.spawner.CreatureRespawnPoint;
+import games.stendhal.server.entity.npc.ActorNPC;
+import games.stendhal.server.entity.npc.SpeakerNPC;
+import games.stendhal.server.entity.player.Player;
+import games.stendhal.server.maps.MockStendhalRPRuleProcessor;
+import games.stendhal.server.maps.MockStendlRPWorld;
+import games.stendhal.server.util.Observable;
+import games.stendhal.server.util.Observer;
+import utilities.PlayerTestHelper;
+import utilities.QuestHelper;
+
+/**
+ * Tests for the activity states of StendhalRPZone.
+ */
+public class ZoneActivityTest {
+	private StendhalRPZone zone;
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		QuestHelper.setUpBeforeClass();
+	}
+
+	@Before
+	public void setUp() {
+		StendhalRPZone.setDormancyEnabled(true);
+		zone = new StendhalRPZone("zone_activity_test", 30, 30);
+		MockStendlRPWorld.get().addRPZone(zone);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		MockStendlRPWorld.get().removeRPZone(zone.getID());
+		MockStendhalRPRuleProcessor.get().setTurn(0);
+		StendhalRPZone.setDormancyEnabled(false);
+	}
+
+	/**
+	 * Tests that zones stay active when dormancy is not enabled.
+	 */
+	@Test
+	public void testDisabled() {
+		StendhalRPZone.setDormancyEnabled(false);
+		for (int i = 0; i < 2 * StendhalRPZone.DORMANCY_DELAY; i++) {
+			zone.logic();
+		}
+		assertEquals(Activity.ACTIVE, zone.getActivity());
+	}
+
+	/**
+	 * Tests the state changes.
+	 */
+	@Test
+	public void testStates() {
+		assertEquals(Activity.ACTIVE, zone.getActivity());
+		makeDormant();
+
+		final Player player = PlayerTestHelper.createPlayer("bob");
+		player.setPosition(10, 10);
+		zone.add(player);
+		assertEquals(Activity.ACTIVE, zone.getActivity());
+		zone.logic();
+		assertEquals(Activity.ACTIVE, zone.getActivity());
+
+		zone.remove(player);
+		zone.logic();
+		assertEquals(Activity.COOLING, zone.getActivity());
+	}
+
+	/**
+	 * Tests that the logic of creatures does not run in dormant zones, and
+	 * the logic of other NPCs does.
+	 */
+	@Test
+	public void testNPCLogic() {
+		final int[] count = new int[2];
+		final SpeakerNPC npc = new SpeakerNPC("activity counter") {
+			@Override
+			public void logic() {
+				count[0]++;
+			}
+		};
+		npc.setPosition(3, 3);
+		zone.add(npc);
+		final Creature creature = new Creature() {
+			@Override
+			public void logic() {
+				count[1]++;
+			}
+		};
+		creature.setPosition(6, 6);
+		zone.add(creature);
+		try {
+			makeDormant();
+			assertEquals(StendhalRPZone.DORMANCY_DELAY, count[0]);
+			assertEquals(StendhalRPZone.DORMANCY_DELAY - 1, count[1]);
+			for (int i = 0; i < 10; i++) {
+				zone.logic();
+			}
+			assertEquals(StendhalRPZone.DORMANCY_DELAY + 10, count[0]);
+			assertEquals(StendhalRPZone.DORMANCY_DELAY - 1, count[1]);
+		} finally {
+			zone.remove(npc);
+			zone.remove(creature);
+		}
+	}
+
+	/**
+	 * Tests that creatures get the healing they missed when the zone wakes up.
+	 */
+	@Test
+	public void testHealingCatchUp() {
+		final Creature rat = SingletonRepository.getEntityManager().getCreature("rat");
+		rat.setHealer("1,10");
+		rat.setPosition(5, 5);
+		zone.add(rat);
+		rat.setBaseHP(1000);
+		rat.setHP(1);
+
+		// not a healing turn
+		MockStendhalRPRuleProcessor.get().setTurn(1);
+		makeDormant();
+		for (int i = 0; i < 100; i++) {
+			zone.logic();
+		}
+		assertEquals(100, zone.getDormantTurns());
+		assertEquals(1, rat.getHP());
+
+		// turns 1000 - 1099 were skipped, and 10 of them are healing turns
+		MockStendhalRPRuleProcessor.get().setTurn(1100);
+		final Player player = PlayerTestHelper.createPlayer("bob");
+		player.setPosition(20, 20);
+		zone.add(player);
+		assertEquals(11, rat.getHP());
+	}
+
+	/**
+	 * Tests that respawns are put off until the zone wakes up.
+	 */
+	@Test
+	public void testDeferredRespawn() {
+		final Creature rat = SingletonRepository.getEntityManager().getCreature("rat");
+		final CreatureRespawnPoint point = new CreatureRespawnPoint(zone, 10, 10, rat, 3);
+		zone.add(point);
+		SingletonRepository.getTurnNotifier().dontNotify(point);
+
+		makeDormant();
+		point.onTurnReached(0);
+		assertEquals(0, point.size());
+		for (int i = 0; i < rat.getRespawnTime(); i++) {
+			zone.logic();
+		}
+
+		final Player player = PlayerTestHelper.createPlayer("bob");
+		player.setPosition(20, 20);
+		zone.add(player);
+		// the delayed respawn, and one more for the passed respawn time
+		assertEquals(2, point.size());
+		SingletonRepository.getTurnNotifier().dontNotify(point);
+	}
+
+	/**
+	 * Tests that an NPC on a route across several zones walks through empty
+	 * zones.
+	 *
+	 * @throws Exception on remove zone errors
+	 */
+	@Test
+	public void testTravellingNPC() throws Exception {
+		final StendhalRPZone next = new StendhalRPZone("zone_activity_next", 30, 30);
+		MockStendlRPWorld.get().addRPZone(next);
+		try {
+			makeDormant();
+			makeDormant(next);
+
+			final ActorNPC npc = new ActorNPC(false);
+			npc.setBaseSpeed(1.0);
+			npc.setPosition(2, 5);
+			zone.add(npc);
+			final List<RPZonePath> route = Arrays.asList(
+					new RPZonePath("zone_activity_test", Arrays.asList(new Node(2, 5), new Node(12, 5))),
+					new RPZonePath("zone_activity_next", Arrays.asList(new Node(3, 3), new Node(3, 8))));
+			final boolean[] finished = new boolean[1];
+			final MultiZonesFixedPath path = new MultiZonesFixedPath(npc, route, new Observer() {
+				@Override
+				public void update(final Observable o, final Object arg) {
+					finished[0] = true;
+				}
+			});
+			path.update(null, null);
+			assertTrue(npc.isTravelling());
+
+			for (int i = 0; (i < 100) && !finished[0]; i++) {
+				zone.logic();
+				next.logic();
+			}
+			assertTrue(finished[0]);
+			assertFalse(npc.isTravelling());
+			assertTrue(npc.getZone() == next);
+			assertEquals(8, npc.getY());
+			assertEquals(Activity.ACTIVE, next.getActivity());
+
+			// without the travelling NPC the zone cools down again
+			next.logic();
+			assertEquals(Activity.COOLING, next.getActivity());
+			next.remove(npc);
+		} finally {
+			MockStendlRPWorld.get().removeRPZone(next.getID());
+		}
+	}
+
+	/**
+	 * Run the zone logic until the zone becomes dormant.
+	 */
+	private void makeDormant() {
+		makeDormant(zone);
+	}
+
+	/**
+	 * Run the logic of a zone until the zone becomes dormant.
+	 *
+	 * @param zone zone
+	 */
+	private static void makeDormant(final StendhalRPZone zone) {
+		for (int i = 1; i < StendhalRPZone.DORMANCY_DELAY; i++) {
+			zone.logic();
+			assertEquals(Activity.COOLING, zone.getActivity());
+		}
+		zone.logic();
+		assertTrue(zone.isDormant());
+	}
+}
@@ -0,0 +1,236 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import games.stendhal.server.entity.Entity;
+import games.stendhal.server.entity.mapstuff.area.AreaEntity;
+import games.stendhal.server.maps.MockStendlRPWorld;
+import marauroa.common.game.RPClass;
+import marauroa.common.game.RPObject;
+import utilities.RPClass.EntityTestHelper;
+
+/**
+ * Tests for the zone entity index, comparing the results of the zone lookups
+ * with a scan of all the zone objects.
+ */
+public class ZoneEntityIndexTest {
+	private static final int WIDTH = 50;
+	private static final int HEIGHT = 40;
+
+	private StendhalRPZone zone;
+	private Random random;
+
+	@BeforeClass
+	public static void setUpBeforeClass() {
+		MockStendlRPWorld.get();
+		EntityTestHelper.generateRPClasses();
+		if (!RPClass.hasRPClass("area")) {
+			AreaEntity.generateRPClass();
+		}
+	}
+
+	@Before
+	public void setUp() {
+		zone = new StendhalRPZone("index_test_zone", WIDTH, HEIGHT);
+		MockStendlRPWorld.get().addRPZone(zone);
+		random = new Random(4711);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		MockStendlRPWorld.get().removeRPZone(zone.getID());
+	}
+
+	/**
+	 * Tests that the lookups agree with a brute force scan while entities are
+	 * added, moved, resized and removed.
+	 */
+	@Test
+	public void testAgainstBruteForce() {
+		final List<Entity> entities = new ArrayList<Entity>();
+		for (int i = 0; i < 300; i++) {
+			final Entity entity = createEntity();
+			entities.add(entity);
+			zone.add(entity);
+		}
+		verifyAll(entities);
+
+		for (int round = 0; round < 5; round++) {
+			for (int i = 0; i < 100; i++) {
+				final Entity entity = entities.get(random.nextInt(entities.size()));
+				switch (random.nextInt(4)) {
+				case 0:
+					entity.setPosition(random.nextInt(WIDTH + 4) - 2, random.nextInt(HEIGHT + 4) - 2);
+					break;
+				case 1:
+					entity.setSize(1 + random.nextInt(5), 1 + random.nextInt(5));
+					break;
+				case 2:
+					// change through the attributes, as the perception code does
+					entity.put("x", random.nextInt(WIDTH));
+					entity.update();
+					entity.notifyWorldAboutChanges();
+					break;
+				default:
+					zone.remove(entity);
+					entities.remove(entity);
+					final Entity added = createEntity();
+					entities.add(added);
+					zone.add(added);
+				}
+			}
+			verifyAll(entities);
+		}
+	}
+
+	/**
+	 * Tests that removed entities are not found anymore.
+	 */
+	@Test
+	public void testRemove() {
+		final Entity entity = createEntity();
+		entity.setPosition(10, 10);
+		entity.setSize(2, 2);
+		zone.add(entity);
+		assertEquals(entity, zone.getEntityAt(11.5, 11.5));
+		zone.remove(entity);
+		assertNull(zone.getEntityAt(11.5, 11.5));
+		assertTrue(zone.getEntitiesAt(11.5, 11.5).isEmpty());
+	}
+
+	/**
+	 * Tests the range query against the distances of all entities.
+	 */
+	@Test
+	public void testGetEntitiesNear() {
+		final ZoneEntityIndex index = new ZoneEntityIndex();
+		final List<Entity> entities = new ArrayList<Entity>();
+		for (int i = 0; i < 300; i++) {
+			final Entity entity = createEntity();
+			entity.setSize(1 + random.nextInt(5), 1 + random.nextInt(5));
+			entities.add(entity);
+			index.add(entity);
+		}
+
+		final NearbyEntities<Entity> result = new NearbyEntities<Entity>();
+		for (int i = 0; i < 200; i++) {
+			final Entity center = entities.get(random.nextInt(entities.size()));
+			final double range = random.nextInt(20) + random.nextDouble();
+			index.getEntitiesNear(center, range, Entity.class, result);
+
+			// entities outside a zone have no ID, so equal ones must be told
+			// apart by identity
+			final Set<Entity> expected = Collections.newSetFromMap(new IdentityHashMap<Entity, Boolean>());
+			for (final Entity entity : entities) {
+				if ((entity != center) && (center.squaredDistance(entity) <= range * range)) {
+					expected.add(entity);
+				}
+			}
+			final Set<Entity> found = Collections.newSetFromMap(new IdentityHashMap<Entity, Boolean>());
+			for (int j = 0; j < result.size(); j++) {
+				found.add(result.get(j));
+				assertEquals(center.squaredDistance(result.get(j)), result.getSquaredDistance(j), 0.0);
+				if (j > 0) {
+					assertTrue("nearest first", result.getSquaredDistance(j - 1) <= result.getSquaredDistance(j));
+				}
+			}
+			assertEquals(expected, found);
+			assertEquals("no duplicates", expected.size(), result.size());
+
+			// move something for the next round
+			entities.get(random.nextInt(entities.size())).setPosition(random.nextInt(WIDTH), random.nextInt(HEIGHT));
+			for (final Entity entity : entities) {
+				index.update(entity);
+			}
+		}
+	}
+
+	private Entity createEntity() {
+		final Entity entity = new AreaEntity(1 + random.nextInt(3), 1 + random.nextInt(3));
+		entity.setPosition(random.nextInt(WIDTH), random.nextInt(HEIGHT));
+		entity.setResistance(random.nextBoolean() ? 100 : 0);
+		return entity;
+	}
+
+	private void verifyAll(final List<Entity> entities) {
+		for (int y = -3; y < HEIGHT + 3; y++) {
+			for (int x = -3; x < WIDTH + 3; x++) {
+				verifyPoint(x + 0.5, y + 0.5);
+				verifyPoint(x, y);
+			}
+		}
+		for (final Entity entity : entities) {
+			for (int i = 0; i < 3; i++) {
+				final double x = entity.getX() + random.nextInt(7) - 3;
+				final double y = entity.getY() + random.nextInt(7) - 3;
+				final Rectangle2D area = entity.getArea(x, y);
+				final Set<Entity> expected = bruteForceColliding(entity, area);
+				assertEquals(!expected.isEmpty(), zone.collidesObjects(entity, area));
+			}
+		}
+	}
+
+	private void verifyPoint(final double x, final double y) {
+		final Set<Entity> expected = bruteForceAt(x, y);
+		assertEquals(expected, new HashSet<Entity>(zone.getEntitiesAt(x, y)));
+		assertEquals(expected.size(), zone.getEntitiesAt(x, y).size());
+		assertEquals(expected, new HashSet<AreaEntity>(zone.getEntitiesAt(x, y, AreaEntity.class)));
+		final Entity first = zone.getEntityAt(x, y);
+		if (expected.isEmpty()) {
+			assertNull(first);
+		} else {
+			assertTrue(expected.contains(first));
+		}
+	}
+
+	private Set<Entity> bruteForceAt(final double x, final double y) {
+		final Set<Entity> result = new HashSet<Entity>();
+		for (final RPObject object : zone) {
+			final Entity entity = (Entity) object;
+			if (entity.getArea().contains(x, y)) {
+				result.add(entity);
+			}
+		}
+		return result;
+	}
+
+	private Set<Entity> bruteForceColliding(final Entity entity, final Rectangle2D area) {
+		final Set<Entity> result = new HashSet<Entity>();
+		for (final RPObject object : zone) {
+			final Entity other = (Entity) object;
+			if ((other != entity)
+					&& area.intersects(other.getX(), other.getY(), other.getWidth(), other.getHeight())
+					&& other.isObstacle(entity)) {
+				result.add(other);
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,243 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import games.stendhal.common.Rand;
+import games.stendhal.server.core.rp.StendhalRPAction;
+import games.stendhal.server.entity.Blood;
+import games.stendhal.server.entity.Entity;
+import games.stendhal.server.entity.creature.Creature;
+import games.stendhal.server.entity.player.Player;
+import games.stendhal.server.maps.MockStendlRPWorld;
+import utilities.PlayerTestHelper;
+import utilities.QuestHelper;
+
+/**
+ * Tests for ZoneLogicRunner.
+ */
+public class ZoneLogicRunnerTest {
+	private static final int ZONES = 6;
+	private static final int TURNS = 60;
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		QuestHelper.setUpBeforeClass();
+	}
+
+	/**
+	 * Tests that parallel runs give the same results as sequential runs.
+	 *
+	 * @throws Exception on remove zone errors
+	 */
+	@Test
+	public void testDeterminism() throws Exception {
+		final String sequential = simulate(1);
+		// the rats should have found the players
+		assertTrue(sequential.contains("true"));
+		assertEquals(sequential, simulate(1));
+		assertEquals(sequential, simulate(4));
+		assertEquals(sequential, simulate(ZONES));
+		// the runner gives the same results as the plain loop over the zones
+		assertEquals(sequential, simulate(0));
+	}
+
+	/**
+	 * Tests that actions are deferred only during the zone logic.
+	 */
+	@Test
+	public void testRunOrDefer() {
+		final List<String> log = Collections.synchronizedList(new ArrayList<String>());
+		ZoneLogicRunner.runOrDefer(new Runnable() {
+			@Override
+			public void run() {
+				log.add("immediate");
+			}
+		});
+		assertEquals(Collections.singletonList("immediate"), log);
+		assertFalse(ZoneLogicRunner.isDeferring());
+
+		final List<StendhalRPZone> zones = new ArrayList<StendhalRPZone>();
+		for (int i = 0; i < 3; i++) {
+			final String name = "deferred" + i;
+			final StendhalRPZone zone = new StendhalRPZone(name) {
+				@Override
+				public void entityLogic() {
+					assertTrue(ZoneLogicRunner.isDeferring());
+					ZoneLogicRunner.runOrDefer(new Runnable() {
+						@Override
+						public void run() {
+							log.add(name);
+						}
+					});
+					log.add("logic");
+				}
+			};
+			zones.add(zone);
+		}
+		final ZoneLogicRunner runner = new ZoneLogicRunner(3);
+		try {
+			runner.run(zones);
+		} finally {
+			runner.shutdown();
+		}
+		assertEquals(7, log.size());
+		assertEquals("deferred0", log.get(4));
+		assertEquals("deferred1", log.get(5));
+		assertEquals("deferred2", log.get(6));
+		assertFalse(ZoneLogicRunner.isDeferring());
+	}
+
+	/**
+	 * Tests that zones without players and travelling NPCs are considered
+	 * idle.
+	 */
+	@Test
+	public void testIsLogicActive() {
+		final StendhalRPZone zone = new StendhalRPZone("idle_zone", 20, 20);
+		final Creature rat = SingletonRepository.getEntityManager().getCreature("rat");
+		rat.setPosition(5, 5);
+		zone.add(rat);
+		assertFalse(zone.isLogicActive());
+
+		final Player player = PlayerTestHelper.createPlayer("bob");
+		player.setPosition(10, 10);
+		zone.add(player);
+		assertTrue(zone.isLogicActive());
+		zone.remove(player);
+		assertFalse(zone.isLogicActive());
+
+		rat.setTravelling(true);
+		assertTrue(zone.isLogicActive());
+	}
+
+	/**
+	 * Tests that placing entities in other zones is deferred, and placing
+	 * them in the zone whose logic runs is not.
+	 */
+	@Test
+	public void testPlaceDeferred() {
+		final StendhalRPZone other = new StendhalRPZone("place_other", 10, 10);
+		final Entity local = new Blood();
+		final Entity moved = new Blood();
+		final List<StendhalRPAction.Placement> results = new ArrayList<StendhalRPAction.Placement>();
+		final StendhalRPZone zone = new StendhalRPZone("place_zone", 10, 10) {
+			@Override
+			public void entityLogic() {
+				results.add(StendhalRPAction.place(this, local, 2, 2, null));
+				results.add(StendhalRPAction.place(other, moved, 3, 3, null));
+				assertTrue(local.getZone() == this);
+				assertTrue(moved.getZone() == null);
+				assertFalse(StendhalRPAction.placeat(other, new Blood(), 4, 4));
+			}
+		};
+		final ZoneLogicRunner runner = new ZoneLogicRunner(1);
+		try {
+			runner.run(Collections.singletonList(zone));
+		} finally {
+			runner.shutdown();
+		}
+		assertEquals(StendhalRPAction.Placement.PLACED, results.get(0));
+		assertEquals(StendhalRPAction.Placement.DEFERRED, results.get(1));
+		assertTrue(moved.getZone() == other);
+		assertEquals(3, moved.getX());
+	}
+
+	/**
+	 * Run zones with players and rats.
+	 *
+	 * @param threads amount of threads, or 0 to call the logic of the zones
+	 * 	in a loop without the runner, as the game loop does without it
+	 * @return description of the resulting state
+	 * @throws Exception on remove zone errors
+	 */
+	private static String simulate(final int threads) throws Exception {
+		final Random random = new Random(7);
+		final List<StendhalRPZone> zones = new ArrayList<StendhalRPZone>();
+		final List<Player> players = new ArrayList<Player>();
+		final List<List<Creature>> creatures = new ArrayList<List<Creature>>();
+		for (int i = 0; i < ZONES; i++) {
+			final StendhalRPZone zone = new StendhalRPZone("logic_runner_zone_" + i, 30, 30);
+			MockStendlRPWorld.get().addRPZone(zone);
+			zones.add(zone);
+
+			final Player player = PlayerTestHelper.createPlayer("runner" + i);
+			player.setBaseHP(30000);
+			player.setHP(30000);
+			player.setPosition(15, 15);
+			zone.add(player);
+			players.add(player);
+
+			final List<Creature> rats = new ArrayList<Creature>();
+			for (int j = 0; j < 4; j++) {
+				// creatures pick their attack turns at random when created
+				Rand.setThreadRandom(new Random(random.nextLong()));
+				final Creature rat = SingletonRepository.getEntityManager().getCreature("rat");
+				Rand.setThreadRandom(null);
+				rat.setPosition(random.nextInt(28) + 1, random.nextInt(28) + 1);
+				zone.add(rat);
+				rats.add(rat);
+			}
+			creatures.add(rats);
+		}
+
+		final ZoneLogicRunner runner = new ZoneLogicRunner(Math.max(1, threads));
+		runner.setSeed(1234);
+		final List<Random> zoneRandoms = new ArrayList<Random>();
+		for (final StendhalRPZone zone : zones) {
+			// the same generators that the runner uses for the zones
+			zoneRandoms.add(new Random(1234L * 31 + zone.getName().hashCode()));
+		}
+		final StringBuilder state = new StringBuilder();
+		try {
+			for (int turn = 0; turn < TURNS; turn++) {
+				if (threads == 0) {
+					for (int i = 0; i < ZONES; i++) {
+						Rand.setThreadRandom(zoneRandoms.get(i));
+						try {
+							zones.get(i).logic();
+						} finally {
+							Rand.setThreadRandom(null);
+						}
+					}
+				} else {
+					runner.run(zones);
+				}
+			}
+			for (int i = 0; i < ZONES; i++) {
+				state.append(players.get(i).getHP()).append(':');
+				for (final Creature rat : creatures.get(i)) {
+					state.append(rat.getX()).append(',').append(rat.getY()).append(',')
+						.append(rat.getHP()).append(',').append(rat.isAttacking()).append(';');
+				}
+				state.append('\n');
+			}
+		} finally {
+			runner.shutdown();
+			for (final StendhalRPZone zone : zones) {
+				MockStendlRPWorld.get().removeRPZone(zone.getID());
+			}
+		}
+		return state.toString();
+	}
+}
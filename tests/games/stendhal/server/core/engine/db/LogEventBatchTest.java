@@ -0,0 +1,129 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import games.stendhal.server.core.engine.dbcommand.LogEventCommand;
+import games.stendhal.server.core.engine.dbcommand.LogKillEventCommand;
+import games.stendhal.server.core.engine.dbcommand.LogMergeItemEventCommand;
+import games.stendhal.server.core.engine.dbcommand.LogSimpleItemEventCommand;
+import games.stendhal.server.entity.player.Player;
+import games.stendhal.server.maps.MockStendlRPWorld;
+import marauroa.common.Log4J;
+import marauroa.common.game.RPObject;
+import marauroa.server.db.DBTransaction;
+import marauroa.server.db.TransactionPool;
+import marauroa.server.game.db.DatabaseFactory;
+import utilities.PlayerTestHelper;
+
+/**
+ * Tests for LogEventBatch.
+ */
+public class LogEventBatchTest {
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		Log4J.init();
+		MockStendlRPWorld.get();
+		new DatabaseFactory().initializeDatabase();
+	}
+
+	/**
+	 * Tests writing item and kill events in one batch.
+	 *
+	 * @throws SQLException in case of an database error
+	 */
+	@Test
+	public void testFlush() throws SQLException {
+		final Player bob = PlayerTestHelper.createPlayer("batchbob");
+		final Player alice = PlayerTestHelper.createPlayer("batchalice");
+		final RPObject sword = createItem("batch sword", 1);
+		final RPObject money = createItem("batch money", 5);
+		final RPObject moreMoney = createItem("batch money", 3);
+
+		final List<LogEventCommand> commands = new ArrayList<LogEventCommand>();
+		commands.add(new LogSimpleItemEventCommand(sword, bob, "create", "batch sword", "1", "test", null));
+		commands.add(new LogSimpleItemEventCommand(money, bob, "create", "batch money", "5", "test", null));
+		commands.add(new LogMergeItemEventCommand(bob, moreMoney, money));
+		commands.add(new LogSimpleItemEventCommand(sword, bob, "slot-to-slot", "batchbob", "bag", "batchbob", "lhand"));
+		// destroying items that have not been logged is ignored
+		commands.add(new LogSimpleItemEventCommand(createItem("batch axe", 1), bob, "destroy", "batch axe", "1", "test", null));
+		for (int i = 0; i < 3; i++) {
+			commands.add(new LogKillEventCommand(alice, bob));
+		}
+		commands.add(new LogKillEventCommand(bob, alice));
+
+		final DBTransaction transaction = TransactionPool.get().beginWork();
+		try {
+			final LogEventBatch batch = new LogEventBatch(transaction);
+			for (final LogEventCommand command : commands) {
+				command.setEnqueueTime(new Timestamp(System.currentTimeMillis()));
+				command.log(batch);
+			}
+			// 3 items, 8 itemlog entries and 2 kill counters
+			assertEquals(13, batch.size());
+			batch.flush();
+			assertEquals(0, batch.size());
+
+			final int swordId = sword.getInt(StendhalItemDAO.ATTR_ITEM_LOGID);
+			final int moneyId = money.getInt(StendhalItemDAO.ATTR_ITEM_LOGID);
+			final int moreMoneyId = moreMoney.getInt(StendhalItemDAO.ATTR_ITEM_LOGID);
+			assertNotEquals(swordId, moneyId);
+			assertNotEquals(moneyId, moreMoneyId);
+
+			assertEquals(3, count(transaction, "SELECT count(*) FROM item WHERE name LIKE 'batch %'"));
+			// register, create and slot-to-slot of the sword, register, create
+			// and merged in of the money, and register and merge in of the other money
+			assertEquals(8, count(transaction, "SELECT count(*) FROM itemlog WHERE itemid IN ("
+					+ swordId + ", " + moneyId + ", " + moreMoneyId + ")"));
+			assertEquals(1, count(transaction, "SELECT count(*) FROM itemlog WHERE itemid = " + swordId
+					+ " AND event = 'slot-to-slot' AND source = 'batchbob' AND param4 = 'lhand'"));
+			assertEquals(1, count(transaction, "SELECT count(*) FROM itemlog WHERE itemid = " + moneyId
+					+ " AND event = 'merged in' AND param4 = '8'"));
+
+			assertEquals(3, count(transaction, "SELECT cnt FROM kills WHERE killed = 'batchalice' AND killer = 'batchbob'"));
+			assertEquals(1, count(transaction, "SELECT cnt FROM kills WHERE killed = 'batchbob' AND killer = 'batchalice'"));
+
+			// later kills update the existing rows
+			final LogKillEventCommand kill = new LogKillEventCommand(alice, bob);
+			kill.setEnqueueTime(new Timestamp(System.currentTimeMillis()));
+			kill.execute(transaction);
+			assertEquals(4, count(transaction, "SELECT cnt FROM kills WHERE killed = 'batchalice' AND killer = 'batchbob'"));
+		} finally {
+			TransactionPool.get().rollback(transaction);
+		}
+	}
+
+	private static RPObject createItem(final String name, final int quantity) {
+		final RPObject item = new RPObject();
+		item.put("name", name);
+		item.put("quantity", quantity);
+		return item;
+	}
+
+	private static int count(final DBTransaction transaction, final String query) throws SQLException {
+		final Map<String, Object> params = new HashMap<String, Object>();
+		return transaction.querySingleCellInt(query, params);
+	}
+}
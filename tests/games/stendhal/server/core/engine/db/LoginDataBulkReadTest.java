@@ -0,0 +1,134 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import games.stendhal.server.core.engine.ChatMessage;
+import games.stendhal.server.maps.MockStendlRPWorld;
+import marauroa.common.Log4J;
+import marauroa.server.db.DBTransaction;
+import marauroa.server.db.TransactionPool;
+import marauroa.server.game.db.DatabaseFactory;
+
+/**
+ * Tests for reading the login data of several players at once.
+ */
+public class LoginDataBulkReadTest {
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		Log4J.init();
+		MockStendlRPWorld.get();
+		new DatabaseFactory().initializeDatabase();
+	}
+
+	/**
+	 * Tests reading the reached and pending achievements of several players.
+	 *
+	 * @throws SQLException in case of an database error
+	 */
+	@Test
+	public void testAchievements() throws SQLException {
+		final DBTransaction transaction = TransactionPool.get().beginWork();
+		try {
+			final int first = insertAchievement(transaction, "bulk.first");
+			final int second = insertAchievement(transaction, "bulk.second");
+			execute(transaction, "INSERT INTO reached_achievement (charname, achievement_id) VALUES ('bulkbob', " + first + ")");
+			execute(transaction, "INSERT INTO reached_achievement (charname, achievement_id) VALUES ('bulkbob', " + second + ")");
+			execute(transaction, "INSERT INTO reached_achievement (charname, achievement_id) VALUES ('bulkalice', " + second + ")");
+			execute(transaction, "INSERT INTO reached_achievement (charname, achievement_id) VALUES ('bulkeve', " + first + ")");
+			execute(transaction, "INSERT INTO pending_achievement (charname, achievement_id, param, cnt) VALUES ('bulkbob', " + first + ", 'apple', 3)");
+			execute(transaction, "INSERT INTO pending_achievement (charname, achievement_id, param, cnt) VALUES ('bulkbob', " + first + ", 'pear', 2)");
+			execute(transaction, "INSERT INTO pending_achievement (charname, achievement_id, param, cnt) VALUES ('bulkalice', " + second + ", '', 7)");
+
+			final List<String> names = Arrays.asList("bulkbob", "bulkalice", "bulkcarl");
+			final Map<String, Set<String>> reached = new AchievementDAO().loadAllReachedAchievementsOfPlayers(transaction, names);
+			assertEquals(2, reached.size());
+			assertEquals(new HashSet<String>(Arrays.asList("bulk.first", "bulk.second")), reached.get("bulkbob"));
+			assertEquals(new HashSet<String>(Arrays.asList("bulk.second")), reached.get("bulkalice"));
+			// the same as reading each player on its own
+			assertEquals(reached.get("bulkbob"), new AchievementDAO().loadAllReachedAchievementsOfPlayer(transaction, "bulkbob"));
+
+			final Map<String, Map<String, Map<String, Integer>>> pending = new PendingAchievementDAO().getPendingAchievementDetails(transaction, names);
+			assertEquals(2, pending.size());
+			assertEquals(Integer.valueOf(3), pending.get("bulkbob").get("bulk.first").get("apple"));
+			assertEquals(Integer.valueOf(2), pending.get("bulkbob").get("bulk.first").get("pear"));
+			assertNull(pending.get("bulkbob").get("bulk.second"));
+			assertEquals(Integer.valueOf(7), pending.get("bulkalice").get("bulk.second").get(""));
+		} finally {
+			TransactionPool.get().rollback(transaction);
+		}
+	}
+
+	/**
+	 * Tests reading and marking delivered the postman messages of more
+	 * players than fit into one query.
+	 *
+	 * @throws SQLException in case of an database error
+	 */
+	@Test
+	public void testPostman() throws SQLException {
+		final DBTransaction transaction = TransactionPool.get().beginWork();
+		try {
+			final List<String> names = new ArrayList<String>();
+			for (int i = 0; i < CharacterNameList.MAX_NAMES + 10; i++) {
+				names.add("bulkreader" + i);
+			}
+			final PostmanDAO dao = new PostmanDAO();
+			dao.storeMessage(transaction, "bulkwriter", "bulkreader1", "first", "P", new Timestamp(1000000));
+			dao.storeMessage(transaction, "bulkwriter", "bulkreader1", "second", "S", new Timestamp(2000000));
+			dao.storeMessage(transaction, "bulkwriter", "bulkreader" + (CharacterNameList.MAX_NAMES + 5), "last", "P", new Timestamp(3000000));
+			dao.storeMessage(transaction, "bulkwriter", "bulkother", "other", "P", new Timestamp(4000000));
+
+			final Map<String, List<ChatMessage>> messages = dao.getChatMessages(transaction, names);
+			assertEquals(2, messages.size());
+			assertEquals(2, messages.get("bulkreader1").size());
+			assertEquals("first", messages.get("bulkreader1").get(0).getMessage());
+			assertEquals("S", messages.get("bulkreader1").get(1).getMessagetype());
+			assertEquals(1, messages.get("bulkreader" + (CharacterNameList.MAX_NAMES + 5)).size());
+			assertEquals("last", messages.get("bulkreader" + (CharacterNameList.MAX_NAMES + 5)).get(0).getMessage());
+
+			dao.markMessagesDelivered(transaction, names);
+			assertFalse(dao.getChatMessages(transaction, names).containsKey("bulkreader1"));
+			assertEquals(1, dao.getChatMessages(transaction, Arrays.asList("bulkother")).get("bulkother").size());
+		} finally {
+			TransactionPool.get().rollback(transaction);
+		}
+	}
+
+	private static int insertAchievement(final DBTransaction transaction, final String identifier) throws SQLException {
+		execute(transaction, "INSERT INTO achievement (identifier, title, category, description, base_score, active)"
+				+ " VALUES ('" + identifier + "', 'Bulk', 'QUEST', 'bulk test', 1, 1)");
+		final Map<String, Object> params = new HashMap<String, Object>();
+		return transaction.querySingleCellInt("SELECT id FROM achievement WHERE identifier = '" + identifier + "'", params);
+	}
+
+	private static void execute(final DBTransaction transaction, final String query) throws SQLException {
+		transaction.execute(query, new HashMap<String, Object>());
+	}
+}
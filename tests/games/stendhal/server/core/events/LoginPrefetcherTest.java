@@ -0,0 +1,109 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.events;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import games.stendhal.server.entity.player.Player;
+import games.stendhal.server.maps.MockStendlRPWorld;
+import marauroa.server.db.DBTransaction;
+import utilities.PlayerTestHelper;
+
+/**
+ * Tests for LoginPrefetcher.
+ */
+public class LoginPrefetcherTest {
+	/** Stage reads and applications in the order they happened. */
+	private final List<String> calls = new ArrayList<String>();
+
+	@BeforeClass
+	public static void setUpBeforeClass() {
+		MockStendlRPWorld.get();
+	}
+
+	/**
+	 * Tests that the players of a turn are read together and that the stages
+	 * are applied to each player in order.
+	 *
+	 * @throws SQLException not thrown by the test stages
+	 */
+	@Test
+	public void testBatch() throws SQLException {
+		final LoginPrefetcher prefetcher = new LoginPrefetcher();
+		prefetcher.addStage(new TestStage("first"));
+		prefetcher.addStage(new TestStage("second"));
+
+		final Player bob = PlayerTestHelper.createPlayer("prefetchbob");
+		final Player alice = PlayerTestHelper.createPlayer("PrefetchAlice");
+		final Player fail = PlayerTestHelper.createPlayer("prefetchfail");
+		prefetcher.onLoggedIn(bob);
+		prefetcher.onLoggedIn(alice);
+		prefetcher.onLoggedIn(fail);
+		final LoginPrefetcher.Batch batch = prefetcher.createBatch();
+		batch.command.execute(null);
+		// later logins belong to the next batch
+		prefetcher.onLoggedIn(bob);
+
+		prefetcher.applyResults(batch);
+		assertEquals(Arrays.asList(
+				"read first [prefetchbob, PrefetchAlice, prefetchfail]",
+				"read second [prefetchbob, PrefetchAlice, prefetchfail]",
+				"first prefetchbob: 1", "second prefetchbob: 1",
+				"first PrefetchAlice: 2", "second PrefetchAlice: 2",
+				"second prefetchfail: null"), calls);
+
+		assertEquals(3, prefetcher.getTiming(LoginPrefetcher.TOTAL).getCount());
+		assertEquals(1, prefetcher.getTiming("first read").getCount());
+		assertEquals(3, prefetcher.getTiming("second apply").getCount());
+		assertNull(prefetcher.getTiming("third read"));
+		prefetcher.reset();
+		assertEquals(0, prefetcher.getTiming(LoginPrefetcher.TOTAL).getCount());
+	}
+
+	/**
+	 * A stage that has a number for some players.
+	 */
+	private class TestStage extends LoginPrefetchStage<Integer> {
+		TestStage(final String name) {
+			super(name);
+		}
+
+		@Override
+		public Map<String, Integer> read(final DBTransaction transaction, final Collection<String> charnames) {
+			calls.add("read " + getName() + " " + charnames);
+			final Map<String, Integer> res = new HashMap<String, Integer>();
+			res.put("prefetchbob", Integer.valueOf(1));
+			res.put("prefetchalice", Integer.valueOf(2));
+			return res;
+		}
+
+		@Override
+		public void apply(final Player player, final Integer data) {
+			if ("first".equals(getName()) && (data == null)) {
+				throw new IllegalStateException("missing data");
+			}
+			calls.add(getName() + " " + player.getName() + ": " + data);
+		}
+	}
+}
@@ -0,0 +1,185 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.events;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests for TurnTimingWheel.
+ */
+public class TurnTimingWheelTest {
+	/**
+	 * Tests that listeners fire at their turn in registration order.
+	 */
+	@Test
+	public void testOrder() {
+		final TurnTimingWheel wheel = new TurnTimingWheel(-1);
+		final TurnListener a = new Listener(1);
+		final TurnListener b = new Listener(2);
+		final TurnListener c = new Listener(3);
+		wheel.schedule(3, b);
+		wheel.schedule(70000, c);
+		wheel.schedule(3, a);
+		wheel.schedule(3, b);
+		wheel.schedule(300, a);
+
+		final List<TurnListener> due = new ArrayList<TurnListener>();
+		for (int turn = 0; turn < 3; turn++) {
+			wheel.advance(turn, due);
+		}
+		assertTrue(due.isEmpty());
+		wheel.advance(3, due);
+		assertEquals(Arrays.asList(b, a), due);
+		assertEquals(Integer.valueOf(300), wheel.getFirstTurn(a));
+		assertNull(wheel.getFirstTurn(b));
+		assertEquals(2, wheel.size());
+
+		due.clear();
+		for (int turn = 4; turn <= 70000; turn++) {
+			wheel.advance(turn, due);
+			if (turn == 300) {
+				assertEquals(Collections.singletonList(a), due);
+				due.clear();
+			}
+		}
+		assertEquals(Collections.singletonList(c), due);
+		assertEquals(0, wheel.size());
+	}
+
+	/**
+	 * Tests cancelling listeners.
+	 */
+	@Test
+	public void testCancel() {
+		final TurnTimingWheel wheel = new TurnTimingWheel(10);
+		final TurnListener a = new Listener(1);
+		wheel.schedule(12, a);
+		wheel.schedule(1000, a);
+		// an equal listener is cancelled too
+		wheel.cancel(new Listener(1));
+		assertNull(wheel.getFirstTurn(a));
+		assertEquals(0, wheel.size());
+
+		final List<TurnListener> due = new ArrayList<TurnListener>();
+		for (int turn = 11; turn < 1100; turn++) {
+			wheel.advance(turn, due);
+		}
+		assertTrue(due.isEmpty());
+	}
+
+	/**
+	 * Tests that the wheel behaves like the turn map used earlier, including
+	 * the cases where the turn counter jumps.
+	 */
+	@Test
+	public void testAgainstMap() {
+		final Random random = new Random(42);
+		final TurnTimingWheel wheel = new TurnTimingWheel(-1);
+		final Map<Integer, Set<TurnListener>> reference = new HashMap<Integer, Set<TurnListener>>();
+		final List<TurnListener> listeners = new ArrayList<TurnListener>();
+		for (int i = 0; i < 200; i++) {
+			listeners.add(new Listener(i));
+		}
+
+		int current = -1;
+		for (int step = 0; step < 20000; step++) {
+			final int action = random.nextInt(100);
+			final TurnListener listener = listeners.get(random.nextInt(listeners.size()));
+			if (action < 45) {
+				final int delay = 1 + ((random.nextInt(10) == 0) ? random.nextInt(200000) : random.nextInt(600));
+				wheel.schedule(current + delay, listener);
+				Set<TurnListener> set = reference.get(current + delay);
+				if (set == null) {
+					set = new LinkedHashSet<TurnListener>();
+					reference.put(current + delay, set);
+				}
+				set.add(listener);
+			} else if (action < 50) {
+				wheel.cancel(listener);
+				for (final Set<TurnListener> set : reference.values()) {
+					set.remove(listener);
+				}
+			} else if (action < 55) {
+				Integer first = null;
+				for (final Map.Entry<Integer, Set<TurnListener>> entry : reference.entrySet()) {
+					if (entry.getValue().contains(listener) && ((first == null) || (entry.getKey() < first))) {
+						first = entry.getKey();
+					}
+				}
+				assertEquals(first, wheel.getFirstTurn(listener));
+			} else {
+				if (random.nextInt(500) == 0) {
+					// occasional jump, forwards or backwards
+					current += random.nextInt(2000) - 1000;
+				} else {
+					current++;
+				}
+				final List<TurnListener> due = new ArrayList<TurnListener>();
+				wheel.advance(current, due);
+				final Set<TurnListener> expected = reference.remove(current);
+				if (expected == null) {
+					assertTrue(due.isEmpty());
+				} else {
+					assertEquals(expected, new HashSet<TurnListener>(due));
+					assertEquals(expected.size(), due.size());
+				}
+			}
+		}
+
+		int total = 0;
+		for (final Set<TurnListener> set : reference.values()) {
+			total += set.size();
+		}
+		assertEquals(total, wheel.size());
+	}
+
+	/**
+	 * A listener with value based equality.
+	 */
+	private static class Listener implements TurnListener {
+		private final int id;
+
+		Listener(final int id) {
+			this.id = id;
+		}
+
+		@Override
+		public void onTurnReached(final int currentTurn) {
+			// not called by the wheel
+		}
+
+		@Override
+		public int hashCode() {
+			return id;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			return (obj instanceof Listener) && (((Listener) obj).id == id);
+		}
+	}
+}
@@ -0,0 +1,139 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.pathfinder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.awt.Rectangle;
+import java.awt.geom.Rectangle2D;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import games.stendhal.server.core.engine.StendhalRPZone;
+import games.stendhal.server.entity.Entity;
+import games.stendhal.server.entity.mapstuff.area.AreaEntity;
+import games.stendhal.server.maps.MockStendlRPWorld;
+import marauroa.common.game.RPClass;
+import utilities.RPClass.EntityTestHelper;
+
+/**
+ * Tests that GridPathfinder finds the same paths as the object based
+ * pathfinders.
+ */
+public class GridPathfinderTest {
+	private static final int WIDTH = 60;
+	private static final int HEIGHT = 45;
+
+	private StendhalRPZone zone;
+	private Random random;
+
+	@BeforeClass
+	public static void setUpBeforeClass() {
+		MockStendlRPWorld.get();
+		EntityTestHelper.generateRPClasses();
+		if (!RPClass.hasRPClass("area")) {
+			AreaEntity.generateRPClass();
+		}
+	}
+
+	@Before
+	public void setUp() {
+		zone = new StendhalRPZone("grid_pathfinder_test_zone", WIDTH, HEIGHT);
+		MockStendlRPWorld.get().addRPZone(zone);
+		random = new Random(1234);
+		// walls with gaps, and scattered blocks
+		for (int x = 8; x < WIDTH; x += 10) {
+			for (int y = 0; y < HEIGHT; y++) {
+				if (random.nextInt(12) != 0) {
+					zone.collisionMap.setCollide(x, y);
+				}
+			}
+		}
+		for (int i = 0; i < 300; i++) {
+			zone.collisionMap.setCollide(random.nextInt(WIDTH), random.nextInt(HEIGHT));
+		}
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		MockStendlRPWorld.get().removeRPZone(zone.getID());
+	}
+
+	/**
+	 * Tests simple searches on the collision map.
+	 */
+	@Test
+	public void testSimpleSearch() {
+		final GridPathfinder grid = new GridPathfinder();
+		int found = 0;
+		for (int i = 0; i < 300; i++) {
+			final int startX = random.nextInt(WIDTH);
+			final int startY = random.nextInt(HEIGHT);
+			final Rectangle2D destination = new Rectangle(random.nextInt(WIDTH), random.nextInt(HEIGHT), 1, 1);
+			final double maxDist = random.nextInt(200);
+
+			final Pathfinder legacy = new SimplePathfinder(zone, startX, startY, destination, maxDist);
+			final List<Node> expected = legacy.getPath();
+			assertEquals(expected, grid.searchPath(zone, startX, startY, destination, maxDist));
+			assertEquals(legacy.getStatus(), grid.getStatus());
+			if (!expected.isEmpty()) {
+				found++;
+			}
+		}
+		assertFalse(found == 0);
+	}
+
+	/**
+	 * Tests entity searches with resistant entities in the zone.
+	 */
+	@Test
+	public void testEntitySearch() {
+		for (int i = 0; i < 80; i++) {
+			final Entity blocker = new AreaEntity(1 + random.nextInt(3), 1 + random.nextInt(3));
+			blocker.setPosition(random.nextInt(WIDTH), random.nextInt(HEIGHT));
+			blocker.setResistance(random.nextInt(4) * 33);
+			zone.add(blocker);
+		}
+
+		final GridPathfinder grid = new GridPathfinder();
+		int found = 0;
+		for (int i = 0; i < 300; i++) {
+			final int size = 1 + random.nextInt(2);
+			final Entity entity = new AreaEntity(size, size);
+			entity.setPosition(random.nextInt(WIDTH + 2) - 1, random.nextInt(HEIGHT));
+			zone.add(entity);
+
+			final Rectangle2D destination = new Rectangle(random.nextInt(WIDTH), random.nextInt(HEIGHT),
+					1 + random.nextInt(3), 1 + random.nextInt(3));
+			final double maxDist = random.nextInt(200);
+			final boolean checkEntities = random.nextBoolean();
+
+			final EntityPathfinder legacy = new EntityPathfinder(entity, zone, entity.getX(), entity.getY(),
+					destination, maxDist, checkEntities);
+			final List<Node> expected = legacy.getPath();
+			assertEquals(expected, grid.searchPath(entity, zone, entity.getX(), entity.getY(),
+					destination, maxDist, checkEntities));
+			assertEquals(legacy.getStatus(), grid.getStatus());
+			if (!expected.isEmpty()) {
+				found++;
+			}
+			zone.remove(entity);
+		}
+		assertFalse(found == 0);
+	}
+}
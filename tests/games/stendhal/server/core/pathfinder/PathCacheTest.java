@@ -0,0 +1,207 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.pathfinder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+import java.awt.Rectangle;
+import java.lang.ref.WeakReference;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import games.stendhal.server.core.engine.StendhalRPZone;
+import games.stendhal.server.entity.Entity;
+import games.stendhal.server.entity.mapstuff.area.AreaEntity;
+import games.stendhal.server.maps.MockStendlRPWorld;
+import marauroa.common.game.RPClass;
+import marauroa.server.game.Statistics;
+import utilities.RPClass.EntityTestHelper;
+
+/**
+ * Tests for PathCache.
+ */
+public class PathCacheTest {
+	private StendhalRPZone zone;
+	private Entity walker;
+
+	@BeforeClass
+	public static void setUpBeforeClass() {
+		MockStendlRPWorld.get();
+		EntityTestHelper.generateRPClasses();
+		if (!RPClass.hasRPClass("area")) {
+			AreaEntity.generateRPClass();
+		}
+		// make sure the counter exists
+		Statistics.getStatistics().add("Path cache hits", 0);
+	}
+
+	@Before
+	public void setUp() {
+		zone = new StendhalRPZone("path_cache_test_zone", 20, 20);
+		MockStendlRPWorld.get().addRPZone(zone);
+		walker = new AreaEntity(1, 1);
+		walker.setPosition(0, 0);
+		walker.setResistance(100);
+		zone.add(walker);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		MockStendlRPWorld.get().removeRPZone(zone.getID());
+	}
+
+	/**
+	 * Tests that repeated searches are served from the cache, and that
+	 * collision changes invalidate them.
+	 */
+	@Test
+	public void testCollisionChange() {
+		final long hits = hits();
+		final List<Node> first = Path.searchPath(walker, 10, 0);
+		assertEquals(11, first.size());
+		final List<Node> second = Path.searchPath(walker, 10, 0);
+		assertEquals(first, second);
+		assertNotSame(first, second);
+		assertEquals(hits + 1, hits());
+
+		// block the straight route
+		zone.collisionMap.setCollide(5, 0);
+		final List<Node> third = Path.searchPath(walker, 10, 0);
+		assertEquals(hits + 1, hits());
+		assertFalse(third.contains(new Node(5, 0)));
+		assertEquals(third, Path.searchPath(walker, 10, 0));
+		assertEquals(hits + 2, hits());
+
+		final List<Node> simple = Path.searchPath(zone, 0, 0, 10, 5, 100);
+		assertEquals(simple, Path.searchPath(zone, 0, 0, 10, 5, 100));
+		assertEquals(hits + 3, hits());
+	}
+
+	/**
+	 * Tests that searches avoiding entities are invalidated by changes of the
+	 * obstacles, and other searches are not.
+	 */
+	@Test
+	public void testObstacleChange() {
+		final Rectangle destination = new Rectangle(10, 0, 1, 1);
+		final List<Node> path = Path.searchPath(walker, zone, 0, 0, destination, 100, true);
+		final List<Node> ignoring = Path.searchPath(walker, zone, 0, 0, destination, 100, false);
+		assertEquals(path, ignoring);
+
+		final long hits = hits();
+		final Entity blocker = new AreaEntity(1, 1);
+		blocker.setPosition(5, 0);
+		blocker.setResistance(100);
+		zone.add(blocker);
+		final List<Node> avoiding = Path.searchPath(walker, zone, 0, 0, destination, 100, true);
+		assertFalse(avoiding.contains(new Node(5, 0)));
+		assertEquals(ignoring, Path.searchPath(walker, zone, 0, 0, destination, 100, false));
+		assertEquals(hits + 1, hits());
+
+		blocker.setPosition(5, 5);
+		assertEquals(path, Path.searchPath(walker, zone, 0, 0, destination, 100, true));
+		assertEquals(hits + 1, hits());
+
+		// entities without resistance do not invalidate the searches
+		final Entity passable = new AreaEntity(1, 1);
+		passable.setPosition(3, 0);
+		passable.setResistance(0);
+		zone.add(passable);
+		assertEquals(path, Path.searchPath(walker, zone, 0, 0, destination, 100, true));
+		assertEquals(hits + 2, hits());
+
+		blocker.setPosition(5, 0);
+		assertFalse(Path.searchPath(walker, zone, 0, 0, destination, 100, true).contains(new Node(5, 0)));
+		blocker.setResistance(0);
+		assertEquals(path, Path.searchPath(walker, zone, 0, 0, destination, 100, true));
+		assertEquals(hits + 2, hits());
+	}
+
+	/**
+	 * Tests that entities of the same size share the cached searches, and
+	 * that updates which change nothing keep them.
+	 */
+	@Test
+	public void testSharedBetweenEntities() {
+		final Rectangle destination = new Rectangle(10, 0, 1, 1);
+		final List<Node> path = Path.searchPath(walker, zone, 0, 0, destination, 100, true);
+
+		final long hits = hits();
+		final Entity other = new AreaEntity(1, 1);
+		other.setPosition(0, 5);
+		other.setResistance(100);
+		zone.add(other);
+		walker.update();
+		assertEquals(path, Path.searchPath(other, zone, 0, 0, destination, 100, true));
+		assertEquals(hits + 1, hits());
+	}
+
+	/**
+	 * Tests that searches avoiding entities stay cached while obstacles
+	 * change outside the area the search looked at.
+	 */
+	@Test
+	public void testDistantObstacleChange() {
+		final Rectangle destination = new Rectangle(4, 0, 1, 1);
+		final List<Node> path = Path.searchPath(walker, zone, 0, 0, destination, 20, true);
+		assertEquals(5, path.size());
+
+		final long hits = hits();
+		final Entity distant = new AreaEntity(1, 1);
+		distant.setPosition(18, 18);
+		distant.setResistance(100);
+		zone.add(distant);
+		distant.setPosition(17, 18);
+		assertEquals(path, Path.searchPath(walker, zone, 0, 0, destination, 20, true));
+		assertEquals(hits + 1, hits());
+
+		// moving onto the path invalidates the search
+		distant.setPosition(2, 0);
+		final List<Node> avoiding = Path.searchPath(walker, zone, 0, 0, destination, 20, true);
+		assertEquals(hits + 1, hits());
+		assertFalse(avoiding.contains(new Node(2, 0)));
+
+		// and so does moving away again
+		distant.setPosition(17, 18);
+		assertEquals(path, Path.searchPath(walker, zone, 0, 0, destination, 20, true));
+		assertEquals(hits + 1, hits());
+	}
+
+	/**
+	 * Tests that the cache does not keep removed zones alive.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testRemovedZoneIsCollected() throws Exception {
+		StendhalRPZone temporary = new StendhalRPZone("path_cache_temporary_zone", 20, 20);
+		Path.searchPath(temporary, 0, 0, 10, 5, 100);
+		final WeakReference<StendhalRPZone> reference = new WeakReference<StendhalRPZone>(temporary);
+		temporary = null;
+		for (int i = 0; (i < 20) && (reference.get() != null); i++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		assertNull(reference.get());
+	}
+
+	private static long hits() {
+		return Statistics.getStatistics().get("Path cache hits");
+	}
+}
@@ -0,0 +1,115 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.rp.achievement;
+
+import static games.stendhal.server.core.rp.achievement.factory.FightingAchievementFactory.ID_DEER;
+import static games.stendhal.server.core.rp.achievement.factory.FightingAchievementFactory.ID_RATS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import games.stendhal.common.parser.Sentence;
+import games.stendhal.server.entity.Entity;
+import games.stendhal.server.entity.npc.ChatCondition;
+import games.stendhal.server.entity.npc.condition.AndCondition;
+import games.stendhal.server.entity.npc.condition.PlayerHasKilledNumberOfCreaturesCondition;
+import games.stendhal.server.entity.npc.condition.QuestCompletedCondition;
+import games.stendhal.server.entity.player.Player;
+import games.stendhal.server.maps.MockStendlRPWorld;
+import marauroa.server.game.db.DatabaseFactory;
+import utilities.AchievementTestHelper;
+import utilities.PlayerTestHelper;
+
+/**
+ * Tests for the lookup of achievements by the counters they depend on.
+ */
+public class AchievementIndexTest {
+	private static final ChatCondition ANYTHING = new ChatCondition() {
+		@Override
+		public boolean fire(final Player player, final Sentence sentence, final Entity npc) {
+			return false;
+		}
+	};
+
+	@BeforeClass
+	public static void setUpBeforeClass() {
+		new DatabaseFactory().initializeDatabase();
+		MockStendlRPWorld.get();
+	}
+
+	private static Achievement create(final String identifier, final ChatCondition condition) {
+		return new Achievement(identifier, identifier, Category.FIGHTING, "", 1, true, condition);
+	}
+
+	/**
+	 * Tests the counters of the conditions.
+	 */
+	@Test
+	public void testCounters() {
+		assertEquals(Arrays.asList("kill:rat"),
+				create("rat", new PlayerHasKilledNumberOfCreaturesCondition("rat", 10)).getCounters());
+		assertEquals(Arrays.asList("kill:rat", "quest:rat_quest"),
+				create("and", new AndCondition(new PlayerHasKilledNumberOfCreaturesCondition("rat", 10),
+						new QuestCompletedCondition("rat_quest"))).getCounters());
+		assertNull(create("unknown", new AndCondition(new QuestCompletedCondition("rat_quest"), ANYTHING)).getCounters());
+		assertNull(create("year", new QuestCompletedCondition("rat_${year}")).getCounters());
+	}
+
+	/**
+	 * Tests the selection of achievements by changed counters.
+	 */
+	@Test
+	public void testCandidates() {
+		final Achievement rat = create("rat", new PlayerHasKilledNumberOfCreaturesCondition("rat", 10));
+		final Achievement unknown = create("unknown", ANYTHING);
+		final Achievement deer = create("deer", new PlayerHasKilledNumberOfCreaturesCondition(10, "deer", "rat"));
+		final Map<Category, List<Achievement>> achievements = new EnumMap<Category, List<Achievement>>(Category.class);
+		achievements.put(Category.FIGHTING, Arrays.asList(rat, unknown, deer));
+		final AchievementIndex index = new AchievementIndex(achievements, new HashMap<String, String>());
+
+		assertEquals(Arrays.asList(rat, unknown, deer), index.getCandidates(Category.FIGHTING, "kill:rat"));
+		assertEquals(Arrays.asList(unknown, deer), index.getCandidates(Category.FIGHTING, "kill:deer"));
+		assertEquals(Arrays.asList(unknown), index.getCandidates(Category.FIGHTING, "kill:wolf"));
+		assertTrue(index.getCandidates(Category.AGE, "kill:rat").isEmpty());
+		assertSame(deer, index.get("deer"));
+		assertEquals(2, index.indexOf(deer));
+	}
+
+	/**
+	 * Tests that a kill only checks the achievements of the killed creature.
+	 */
+	@Test
+	public void testOnKill() {
+		final Player player = PlayerTestHelper.createPlayer("index_test");
+		AchievementTestHelper.init(player);
+		player.setSoloKillCount("rat", 1000);
+		player.setSoloKillCount("deer", 1000);
+
+		AchievementNotifier.get().onKill(player, "deer");
+		assertTrue(player.hasReachedAchievement(ID_DEER));
+		assertFalse(player.hasReachedAchievement(ID_RATS));
+
+		AchievementNotifier.get().onKill(player, "rat");
+		assertTrue(player.hasReachedAchievement(ID_RATS));
+	}
+}
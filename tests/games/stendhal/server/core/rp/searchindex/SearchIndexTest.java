@@ -0,0 +1,204 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.rp.searchindex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for SearchIndex.
+ */
+public class SearchIndexTest {
+	private SearchIndex index;
+
+	/**
+	 * Creates an index with a few creatures and items.
+	 */
+	@Before
+	public void setUp() {
+		Set<SearchIndexEntry> entries = new HashSet<SearchIndexEntry>();
+		entries.add(new SearchIndexEntry("dragon", 'C', "green dragon", 5000));
+		entries.add(new SearchIndexEntry("green", 'C', "green dragon", 5000));
+		entries.add(new SearchIndexEntry("green dragon", 'C', "green dragon", 5000));
+		entries.add(new SearchIndexEntry("dragon", 'C', "red dragon", 5000));
+		entries.add(new SearchIndexEntry("red", 'C', "red dragon", 5000));
+		entries.add(new SearchIndexEntry("red dragon", 'C', "red dragon", 5000));
+		entries.add(new SearchIndexEntry("dragon", 'I', "dragon sword", 4000));
+		entries.add(new SearchIndexEntry("sword", 'I', "dragon sword", 5000));
+		entries.add(new SearchIndexEntry("dragon sword", 'I', "dragon sword", 5000));
+		entries.add(new SearchIndexEntry("sword", 'I', "sword", 5000));
+		entries.add(new SearchIndexEntry("dragonfly", 'C', "dragonfly", 5000));
+		index = new SearchIndex();
+		index.build(entries);
+	}
+
+	/**
+	 * Tests exact matches rank above prefix matches.
+	 */
+	@Test
+	public void testExactAndPrefix() {
+		List<SearchResult> results = index.search("dragon", 10);
+		assertEquals(4, results.size());
+		assertEquals("dragonfly", results.get(3).getEntityName());
+		assertEquals(5000 - SearchIndex.PREFIX_PENALTY, results.get(3).getScore());
+
+		results = index.search("drag", 10);
+		assertEquals(4, results.size());
+	}
+
+	/**
+	 * Tests that a misspelled word finds the term.
+	 */
+	@Test
+	public void testFuzzy() {
+		List<SearchResult> results = index.search("dragn", 10);
+		assertEquals(3, results.size());
+		assertEquals(5000 - SearchIndex.FUZZY_PENALTY, results.get(0).getScore());
+		assertEquals("dragon sword", results.get(2).getEntityName());
+
+		// transposed characters
+		assertEquals(2, index.search("swrod", 10).size());
+		// too short for fuzzy matching
+		assertTrue(index.search("rde", 10).isEmpty());
+	}
+
+	/**
+	 * Tests that entities matching more words come first.
+	 */
+	@Test
+	public void testMultipleWords() {
+		List<SearchResult> results = index.search("red dragon", 10);
+		assertEquals("red dragon", results.get(0).getEntityName());
+		assertEquals(2, results.get(0).getMatchedWords());
+
+		results = index.search("dragon sword", 2);
+		assertEquals(2, results.size());
+		assertEquals("dragon sword", results.get(0).getEntityName());
+	}
+
+	/**
+	 * Tests the limit.
+	 */
+	@Test
+	public void testLimit() {
+		List<SearchResult> results = index.search("dragon", 2);
+		assertEquals(2, results.size());
+		assertEquals(index.search("dragon", 10).subList(0, 2).toString(), results.toString());
+		assertTrue(index.search("dragon", 0).isEmpty());
+	}
+
+	/**
+	 * Tests that searching does not build the index, but asks the game loop
+	 * to do so.
+	 */
+	@Test
+	public void testNotBuilt() {
+		SearchIndex fresh = new SearchIndex();
+		assertFalse(fresh.isWanted());
+		assertTrue(fresh.search("dragon", 10).isEmpty());
+		assertTrue(fresh.isWanted());
+		assertEquals(0, fresh.getTermCount());
+	}
+
+	/**
+	 * Tests replacing and removing the entries of an entity.
+	 */
+	@Test
+	public void testSetEntries() {
+		int terms = index.getTermCount();
+		Set<SearchIndexEntry> entries = new HashSet<SearchIndexEntry>();
+		entries.add(new SearchIndexEntry("wyvern", 'C', "dragonfly", 5000));
+		index.setEntries('C', "dragonfly", entries);
+		assertEquals(terms, index.getTermCount());
+		assertEquals(3, index.search("dragon", 10).size());
+		assertEquals("dragonfly", index.search("wyvren", 10).get(0).getEntityName());
+
+		index.setEntries('C', "dragonfly", Collections.<SearchIndexEntry>emptySet());
+		assertEquals(terms - 1, index.getTermCount());
+		assertTrue(index.search("wyvern", 10).isEmpty());
+	}
+
+	/**
+	 * Compares the published terms after many single entity changes with a
+	 * newly built index.
+	 */
+	@Test
+	public void testSnapshots() {
+		final String[] words = { "dragon", "dragons", "sword", "swords", "word", "green", "red", "wyvern", "wyverns", "fly" };
+		final Random random = new Random(1);
+		final Map<String, Set<SearchIndexEntry>> entities = new HashMap<String, Set<SearchIndexEntry>>();
+		index = new SearchIndex();
+		index.build(Collections.<SearchIndexEntry>emptySet());
+		for (int i = 0; i < 2000; i++) {
+			final String name = "entity" + random.nextInt(400);
+			final Set<SearchIndexEntry> entries = new HashSet<SearchIndexEntry>();
+			for (int j = random.nextInt(4); j > 0; j--) {
+				// enough terms that most snapshots keep the complete copy
+				String term = words[random.nextInt(words.length)];
+				if (random.nextBoolean()) {
+					term += random.nextInt(50);
+				}
+				entries.add(new SearchIndexEntry(term, 'C', name, 1000 + random.nextInt(5000)));
+			}
+			entities.put(name, entries);
+			index.setEntries('C', name, entries);
+
+			if (i % 100 == 0) {
+				final Set<SearchIndexEntry> all = new HashSet<SearchIndexEntry>();
+				for (Set<SearchIndexEntry> set : entities.values()) {
+					all.addAll(set);
+				}
+				final SearchIndex built = new SearchIndex();
+				built.build(all);
+				assertEquals(built.getTermCount(), index.getTermCount());
+				for (String query : new String[] { "dragon", "swrd", "wyv", "fly", "green dragon", "sword1", "wyvern4" }) {
+					assertEquals(query, toString(built.search(query, 100)), toString(index.search(query, 100)));
+				}
+			}
+		}
+	}
+
+	private static Set<String> toString(List<SearchResult> results) {
+		final Set<String> res = new HashSet<String>();
+		for (SearchResult result : results) {
+			res.add(result.getEntityName() + "=" + result.getScore());
+		}
+		return res;
+	}
+
+	/**
+	 * Tests the edit distance check.
+	 */
+	@Test
+	public void testIsOneEdit() {
+		assertTrue(SearchIndex.isOneEdit("dragon", "dragn"));
+		assertTrue(SearchIndex.isOneEdit("dragn", "dragon"));
+		assertTrue(SearchIndex.isOneEdit("dragon", "drahon"));
+		assertTrue(SearchIndex.isOneEdit("dragon", "dargon"));
+		assertTrue(SearchIndex.isOneEdit("dragon", "dragons"));
+		assertFalse(SearchIndex.isOneEdit("dragon", "dragon"));
+		assertFalse(SearchIndex.isOneEdit("dragon", "drgn"));
+		assertFalse(SearchIndex.isOneEdit("dragon", "dargno"));
+	}
+}
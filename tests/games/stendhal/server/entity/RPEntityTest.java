@@ -18,6 +18,7 @@ import static org.easymock.classextension.EasyMock.reset;
 import static org.easymock.classextension.EasyMock.verify;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
@@ -626,4 +627,49 @@ public class RPEntityTest {
 		}
 		assertThat(entity.getDef(), is(100));
 	}
+
+	/**
+	 * Tests that the combat values of the equipment follow changes of the
+	 * slots, the items and the level.
+	 */
+	@Test
+	public void testEquipmentStats() {
+		final RPEntity entity = new MockRPEntity();
+		entity.addSlot(new PlayerSlot("lhand"));
+		entity.addSlot(new PlayerSlot("rhand"));
+		entity.addSlot("armor");
+		entity.setLevel(10);
+
+		final Item dagger = SingletonRepository.getEntityManager().getItem("dagger");
+		entity.getSlot("lhand").add(dagger);
+		final List<Item> weapons = entity.getWeapons();
+		assertEquals(Collections.singletonList(dagger), weapons);
+		assertTrue("values are kept while nothing changes", weapons == entity.getWeapons());
+
+		// replaced item in a slot that does not report changes
+		final Item armor = SingletonRepository.getEntityManager().getItem("leather armor");
+		entity.getSlot("armor").add(armor);
+		assertEquals(Collections.singletonList(armor), entity.getDefenseItems());
+		final float def = entity.getItemDef();
+		assertThat(def, greaterThan(0f));
+		entity.getSlot("armor").clear();
+		final Item other = SingletonRepository.getEntityManager().getItem("leather armor");
+		entity.getSlot("armor").add(other);
+		assertTrue(entity.getArmor() == other);
+
+		// changed item attributes
+		dagger.put("atk", 100);
+		assertThat(entity.getItemAtk(), is(100f));
+		other.put("min_level", 20);
+		assertThat(entity.getItemDef(), is(not(def)));
+		entity.setLevel(20);
+		assertThat(entity.getItemDef(), is(def));
+		other.remove("def");
+		assertThat(entity.getItemDef(), is(0f));
+
+		// replaced slot
+		entity.removeSlot("lhand");
+		assertTrue(entity.getWeapons().isEmpty());
+		assertThat(entity.getItemAtk(), is(0f));
+	}
 }
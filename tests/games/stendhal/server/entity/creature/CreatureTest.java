@@ -19,8 +19,10 @@ import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -111,4 +113,43 @@ public class CreatureTest {
 		assertThat(counter, is(2));
 	}
 
+	/**
+	 * Tests that offensive creatures find the players of the zone as they
+	 * move, become invisible and leave the zone.
+	 */
+	@Test
+	public void testGetNearestEnemyOffensive() {
+		final StendhalRPZone zone = new StendhalRPZone("offensive_test", 60, 60);
+		final Creature creature = new Creature();
+		final Map<String, String> profiles = new HashMap<String, String>();
+		profiles.put("offensive", "");
+		creature.setAIProfiles(profiles);
+		creature.setPosition(30, 30);
+		zone.add(creature);
+
+		final Player near = PlayerTestHelper.createPlayer("near");
+		near.setPosition(35, 30);
+		zone.add(near);
+		final Player middle = PlayerTestHelper.createPlayer("middle");
+		middle.setPosition(40, 30);
+		zone.add(middle);
+		final Player far = PlayerTestHelper.createPlayer("far");
+		far.setPosition(58, 57);
+		zone.add(far);
+
+		assertSame(near, creature.getNearestEnemy(20));
+		assertThat(creature.getEnemiesNear(20).size(), is(2));
+		assertThat(creature.getEnemiesNear(100).size(), is(3));
+		assertTrue(creature.isEnemyNear(6));
+		assertFalse(creature.isEnemyNear(5));
+
+		middle.setPosition(31, 31);
+		assertSame(middle, creature.getNearestEnemy(20));
+		middle.setInvisible(true);
+		assertSame(near, creature.getNearestEnemy(20));
+		zone.remove(near);
+		assertNull(creature.getNearestEnemy(20));
+		assertFalse(creature.isEnemyNear(6));
+		assertSame(far, creature.getNearestEnemy(40));
+	}
 }
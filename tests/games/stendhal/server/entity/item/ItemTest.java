@@ -20,6 +20,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -507,4 +508,30 @@ public class ItemTest {
 			fail("Unable to test copy constructors");
 		}
 	}
+
+	/**
+	 * Tests that items of the same type share the data of their definition,
+	 * and that changes of one item do not affect the others.
+	 */
+	@Test
+	public void testSharedDefinition() {
+		final EntityManager manager = SingletonRepository.getEntityManager();
+		final StackableItem first = (StackableItem) manager.getItem("money");
+		final StackableItem second = (StackableItem) manager.getItem("money");
+		assertSame(first.getPossibleSlots(), second.getPossibleSlots());
+		assertSame(first.get("class"), second.get("class"));
+		assertSame(first.get("x"), second.get("x"));
+
+		first.setQuantity(20);
+		first.setBoundTo("hugo");
+		assertEquals(20, first.getQuantity());
+		assertEquals(1, second.getQuantity());
+		assertNull(second.getBoundTo());
+		second.setQuantity(20);
+		assertSame(first.get("quantity"), second.get("quantity"));
+
+		final StackableItem copy = new StackableItem(first);
+		assertSame(first.getPossibleSlots(), copy.getPossibleSlots());
+		assertEquals(20, copy.getQuantity());
+	}
 }
@@ -16,13 +16,20 @@ import static games.stendhal.server.entity.npc.ConversationStates.ATTENDING;
 import static games.stendhal.server.entity.npc.ConversationStates.IDLE;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static utilities.SpeakerNPCTestHelper.getReply;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import games.stendhal.common.parser.Expression;
+import games.stendhal.common.parser.JokerExprMatcher;
 import games.stendhal.common.parser.Sentence;
 import games.stendhal.server.entity.Entity;
 import games.stendhal.server.entity.npc.ChatAction;
@@ -209,4 +216,80 @@ public class EngineTest {
 		assertEquals(reply, getReply(bob));
 	}
 
+	/**
+	 * Tests that added and removed transitions are seen by the next step.
+	 */
+	@Test
+	public void testAddAndRemoveAfterStep() {
+		final SpeakerNPC bob = new SpeakerNPC("bob");
+		final Engine en = new Engine(bob);
+		final Player pete = PlayerTestHelper.createPlayer("player");
+		en.add(IDLE, "hi", null, false, ATTENDING, "hello", null);
+		en.add(ATTENDING, "bye", null, false, IDLE, "bye", null);
+		assertTrue(en.step(pete, "hi"));
+		assertFalse(en.step(pete, "offer"));
+
+		en.add(ATTENDING, "offer", null, false, ATTENDING, "nothing", null, "offer");
+		assertTrue(en.step(pete, "offer"));
+		assertEquals("nothing", getReply(bob));
+
+		assertTrue(en.remove("offer"));
+		assertFalse(en.step(pete, "offer"));
+		assertEquals(ATTENDING, en.getCurrentState());
+	}
+
+	/**
+	 * Tests that transitions with a matcher are found for input without
+	 * transitions of its own.
+	 */
+	@Test
+	public void testJokerMatcher() {
+		final SpeakerNPC bob = new SpeakerNPC("bob");
+		final Engine en = new Engine(bob);
+		final Player pete = PlayerTestHelper.createPlayer("player");
+		en.add(IDLE, "hi", null, false, ATTENDING, "hello", null);
+		en.add(ATTENDING, "job", null, false, ATTENDING, "I am a test.", null);
+		en.addMatching(ATTENDING, Expression.JOKER, new JokerExprMatcher(), null, false, IDLE, "anything", null);
+
+		assertTrue(en.step(pete, "hi"));
+		assertEquals("hello", getReply(bob));
+		assertTrue(en.step(pete, "something else"));
+		assertEquals("anything", getReply(bob));
+		assertEquals(IDLE, en.getCurrentState());
+	}
+
+	/**
+	 * Tests that the index checks the same conditions in the same order
+	 * as a scan of all transitions.
+	 */
+	@Test
+	public void testConditionsWithAndWithoutIndex() {
+		assertEquals(runConditions(true), runConditions(false));
+	}
+
+	private List<String> runConditions(final boolean indexEnabled) {
+		final List<String> checked = new ArrayList<String>();
+		final Engine en = new Engine(new SpeakerNPC("bob"));
+		en.setIndexEnabled(indexEnabled);
+		final Player pete = PlayerTestHelper.createPlayer("player");
+		for (final String trigger : Arrays.asList("hi", "offer", "buy", "sell", "job", "task", "bye")) {
+			for (final ConversationStates state : Arrays.asList(IDLE, ATTENDING, ConversationStates.ANY)) {
+				final String name = state + " " + trigger;
+				en.add(state, Arrays.asList(trigger, trigger + "s"), new ChatCondition() {
+					@Override
+					public boolean fire(final Player player, final Sentence sentence, final Entity npc) {
+						checked.add(name);
+						return false;
+					}
+				}, false, ATTENDING, null, null);
+			}
+		}
+		en.add(ATTENDING, "task", null, false, IDLE, null, null);
+
+		for (final String text : Arrays.asList("hi", "his", "offer", "tasks", "byes", "hello", "job", "task")) {
+			checked.add(text + " " + en.step(pete, text) + " " + en.getCurrentState());
+			en.setCurrentState(ATTENDING);
+		}
+		return checked;
+	}
 }
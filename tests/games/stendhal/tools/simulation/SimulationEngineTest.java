@@ -0,0 +1,156 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2026 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.tools.simulation;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import games.stendhal.common.Rand;
+
+public class SimulationEngineTest {
+	private static final List<String> COLUMNS = Arrays.asList("sum", "name");
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Matchup that sums up random numbers.
+	 */
+	private static class RandomMatchup extends Matchup {
+		private int simulations;
+
+		RandomMatchup(final String name, final int level, final String fingerprint) {
+			super(name, level, fingerprint);
+		}
+
+		@Override
+		protected void setUp() {
+			// nothing to create
+		}
+
+		@Override
+		protected MatchupResult simulate() {
+			simulations++;
+			long sum = 0;
+			for (int i = 0; i < 1000; i++) {
+				sum += Rand.rand(100);
+			}
+			return new MatchupResult(this, Arrays.asList(Long.toString(sum), "\"" + getCreatureName() + "\", ok"), null);
+		}
+	}
+
+	private static List<RandomMatchup> createMatchups(final String fingerprint) {
+		final List<RandomMatchup> matchups = new ArrayList<RandomMatchup>();
+		for (int i = 0; i < 20; i++) {
+			matchups.add(new RandomMatchup("creature " + i, i, fingerprint));
+		}
+		return matchups;
+	}
+
+	private static Map<String, MatchupResult> run(final SimulationEngine engine,
+			final List<RandomMatchup> matchups) throws Exception {
+		final Map<String, MatchupResult> results = new HashMap<String, MatchupResult>();
+		engine.run(matchups, new SimulationEngine.Listener() {
+			@Override
+			public void completed(final MatchupResult result, final boolean reused) {
+				results.put(result.getCreatureName(), result);
+			}
+		});
+		return results;
+	}
+
+	/**
+	 * Tests that the results do not depend on the number of threads.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testReproducible() throws Exception {
+		final Map<String, MatchupResult> single = run(new SimulationEngine(1, 42), createMatchups(""));
+		final Map<String, MatchupResult> parallel = run(new SimulationEngine(4, 42), createMatchups(""));
+		final Map<String, MatchupResult> other = run(new SimulationEngine(4, 43), createMatchups(""));
+
+		assertThat(single.size(), is(20));
+		assertThat(parallel.size(), is(20));
+		for (final Map.Entry<String, MatchupResult> entry : single.entrySet()) {
+			final MatchupResult result = parallel.get(entry.getKey());
+			assertThat(result.getValues(), is(entry.getValue().getValues()));
+			assertThat(result.getSeed(), is(entry.getValue().getSeed()));
+			assertThat(other.get(entry.getKey()).getSeed() == result.getSeed(), is(false));
+		}
+		assertThat(SimulationEngine.getSeed(42, "rat", 1) == SimulationEngine.getSeed(42, "rat", 2), is(false));
+	}
+
+	/**
+	 * Tests writing the results and reusing them in an incremental run.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testIncremental() throws Exception {
+		final File file = new File(folder.getRoot(), "results.csv");
+		final SimulationEngine engine = new SimulationEngine(2, 1);
+		engine.setOutput(file, COLUMNS, true);
+
+		final Map<String, MatchupResult> first = run(engine, createMatchups("a"));
+		final Map<String, MatchupResult> written = ResultFile.read(file, COLUMNS);
+		assertThat(written.size(), is(20));
+		for (final MatchupResult result : first.values()) {
+			final MatchupResult read = written.get(result.getCreatureName());
+			assertThat(read.getLevel(), is(result.getLevel()));
+			assertThat(read.getFingerprint(), is("a"));
+			assertThat(read.getSeed(), is(result.getSeed()));
+			assertThat(read.getValues(), is(result.getValues()));
+		}
+
+		// only the matchup with a changed fingerprint is simulated again
+		final List<RandomMatchup> matchups = createMatchups("a");
+		matchups.set(3, new RandomMatchup("creature 3", 3, "b"));
+		final Map<String, MatchupResult> second = run(engine, matchups);
+		assertThat(second.size(), is(20));
+		for (int i = 0; i < matchups.size(); i++) {
+			assertThat(matchups.get(i).simulations, is((i == 3) ? 1 : 0));
+		}
+		assertThat(ResultFile.read(file, COLUMNS).get("creature 3").getFingerprint(), is("b"));
+
+		// results of other simulations are not used
+		assertThat(ResultFile.read(file, Collections.singletonList("sum")).isEmpty(), is(true));
+	}
+
+	/**
+	 * Tests quoting of CSV fields.
+	 */
+	@Test
+	public void testQuote() {
+		final List<String> fields = Arrays.asList("rat", "dark elf", "a,b", "say \"hi\"", "");
+		final StringBuilder line = new StringBuilder();
+		for (final String field : fields) {
+			if (line.length() > 0) {
+				line.append(',');
+			}
+			line.append(ResultFile.quote(field));
+		}
+		assertThat(ResultFile.parse(line.toString()), is(fields));
+	}
+}